@@ -0,0 +1,134 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import control.AccessDb;
+import control.SchemaMigrator;
+import control.SqlTracer;
+
+/**
+ * BenchDatabase
+ * -------------
+ * Working copy of an .accdb for benchmarks: writes made by benchmarks never touch the source file.
+ *
+ * System properties:
+ *   bench.db   source .accdb (default: db/parkwise_OfriMagi.accdb)
+ *   bench.tmp  directory for the working copy (default: java.io.tmpdir)
+ *   bench.generate  generate a synthetic source instead of bench.db, e.g. "1000,100000,1000000,5,42"
+ *                   (cities,lots,conveyors,historyYears,seed,firstYear) or "small"; see DatabaseGenerator
+ *   parkwise.sqlTrace  SQL tracing on the working copy (see control.SqlTracer)
+ */
+public final class BenchDatabase {
+
+    private final Path source;
+    private final Path workingCopy;
+    private final AccessDb db;
+
+    private BenchDatabase(Path source, Path workingCopy) {
+        this.source = source;
+        this.workingCopy = workingCopy;
+        this.db = new AccessDb(workingCopy.toAbsolutePath().toString());
+        this.db.setSqlTracer(SqlTracer.fromSystemProperties());
+    }
+
+    public static BenchDatabase prepare() throws IOException {
+        String generate = System.getProperty("bench.generate");
+        if (generate != null && !generate.isBlank()) {
+            return prepare(generated(DatabaseGenerator.Spec.parse(generate)));
+        }
+        Path source = resolve(System.getProperty("bench.db", "db/parkwise_OfriMagi.accdb"));
+        return prepare(source);
+    }
+
+    /**
+     * Generated source for a spec, cached by spec in bench.tmp (generation is deterministic,
+     * so an existing file with the same name has the same content).
+     */
+    public static Path generated(DatabaseGenerator.Spec spec) throws IOException {
+        Path tmpDir = Paths.get(System.getProperty("bench.tmp", System.getProperty("java.io.tmpdir")));
+        Path file = tmpDir.resolve(String.format("parkwise-gen-%d-%d-%d-%d-%d-%d.accdb",
+                spec.cities, spec.parkingLots, spec.conveyors, spec.historyYears, spec.firstYear, spec.seed));
+        if (Files.exists(file)) return file;
+
+        long start = System.nanoTime();
+        Path tmp = tmpDir.resolve(file.getFileName() + ".part");
+        new DatabaseGenerator(spec).generate(tmp);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf("# generated %s (%s) in %d ms%n", file, spec, (System.nanoTime() - start) / 1_000_000);
+        return file;
+    }
+
+    public static BenchDatabase prepare(Path source) throws IOException {
+        if (!Files.exists(source)) throw new IOException("Benchmark DB not found: " + source.toAbsolutePath());
+
+        Path tmpDir = Paths.get(System.getProperty("bench.tmp", System.getProperty("java.io.tmpdir")));
+        Files.createDirectories(tmpDir);
+
+        Path copy = Files.createTempFile(tmpDir, "parkwise-bench-", ".accdb");
+        Files.copy(source, copy, StandardCopyOption.REPLACE_EXISTING);
+        copy.toFile().deleteOnExit();
+        // AccessDb only opens migrated files (generated sources have no schema version yet)
+        SchemaMigrator.migrate(copy.toAbsolutePath());
+
+        return new BenchDatabase(source, copy);
+    }
+
+    public AccessDb getDb() { return db; }
+
+    public Path getSource() { return source; }
+
+    public Path getWorkingCopy() { return workingCopy; }
+
+    public long sizeBytes() throws IOException { return Files.size(workingCopy); }
+
+    /** Single int from a scalar query (e.g. "SELECT COUNT(*) FROM ParkingLot"). */
+    public int scalarInt(String sql) throws SQLException {
+        try (Connection conn = db.open();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /** Runs an update statement with int parameters. */
+    public int update(String sql, int... params) throws SQLException {
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < params.length; i++) ps.setInt(i + 1, params[i]);
+            return ps.executeUpdate();
+        }
+    }
+
+    /** Active parking lot with the most active conveyors (representative "big" lot). */
+    public int busiestParkingLotId() throws SQLException {
+        return scalarInt(
+                "SELECT TOP 1 c.[ParkingLotID] FROM Conveyor c " +
+                "INNER JOIN ParkingLot p ON c.[ParkingLotID] = p.[ID] " +
+                "WHERE c.[isActive]=True AND p.[isActive]=True " +
+                "GROUP BY c.[ParkingLotID] ORDER BY COUNT(*) DESC, c.[ParkingLotID]");
+    }
+
+    /** Parking lot with the longest price history. */
+    public int longestHistoryParkingLotId() throws SQLException {
+        return scalarInt(
+                "SELECT TOP 1 [parkingLotID] FROM PriceHistory " +
+                "GROUP BY [parkingLotID] ORDER BY COUNT(*) DESC, [parkingLotID]");
+    }
+
+    static Path resolve(String path) {
+        Path p = Paths.get(path);
+        if (p.isAbsolute() || Files.exists(p)) return p;
+        Path parent = Paths.get(System.getProperty("user.dir")).getParent();
+        if (parent != null && Files.exists(parent.resolve(path))) return parent.resolve(path);
+        return p;
+    }
+}
@@ -0,0 +1,265 @@
+package bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * BenchmarkRunner
+ * ---------------
+ * Small benchmark harness with the JMH measurement model (the repo ships no JMH jar in lib/):
+ * - fork-less, time-boxed warmup iterations, then time-boxed measurement iterations
+ * - average time per operation (ns/op) with min/max over iterations and throughput (ops/s)
+ * - every return value is consumed by a blackhole so the JIT cannot drop the work
+ * - addPair: two variants of one operation, iterations alternated in the same JVM (A B A B ...), so
+ *   both see the same JIT / cache / GC state; reports the difference per round pair
+ *
+ * Results are printed as a table and (optionally) written as JSON so runs can be
+ * compared release over release.
+ */
+public final class BenchmarkRunner {
+
+    /** One benchmark operation. The return value is consumed (blackhole). */
+    @FunctionalInterface
+    public interface Operation {
+        Object run() throws Exception;
+    }
+
+    /** Per-benchmark setup/teardown around the measured iterations. */
+    @FunctionalInterface
+    public interface Fixture {
+        void run() throws Exception;
+    }
+
+    public static final class Result {
+        public final String name;
+        public final long operations;
+        public final double avgNsPerOp;
+        public final double minNsPerOp;
+        public final double maxNsPerOp;
+        public final double opsPerSecond;
+
+        Result(String name, long operations, double avg, double min, double max) {
+            this.name = name;
+            this.operations = operations;
+            this.avgNsPerOp = avg;
+            this.minNsPerOp = min;
+            this.maxNsPerOp = max;
+            this.opsPerSecond = avg <= 0 ? 0 : 1_000_000_000d / avg;
+        }
+    }
+
+    private static final class Entry {
+        final String name;
+        final Operation op;
+        final Fixture setup;
+        final Fixture teardown;
+        final Operation baseline;     // addPair: measured alternately with op
+        final String[] labels;
+
+        Entry(String name, Operation op, Fixture setup, Fixture teardown) {
+            this(name, op, setup, teardown, null, null);
+        }
+
+        Entry(String name, Operation op, Fixture setup, Fixture teardown, Operation baseline, String[] labels) {
+            this.name = name;
+            this.op = op;
+            this.setup = setup;
+            this.teardown = teardown;
+            this.baseline = baseline;
+            this.labels = labels;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, String> params = new LinkedHashMap<>();
+
+    private int warmupIterations = Integer.getInteger("bench.warmup", 3);
+    private int measureIterations = Integer.getInteger("bench.iterations", 5);
+    private long iterationMillis = Long.getLong("bench.iterationMs", 1000L);
+
+    private volatile Object blackhole;
+
+    public BenchmarkRunner param(String key, Object value) {
+        params.put(key, String.valueOf(value));
+        return this;
+    }
+
+    public BenchmarkRunner add(String name, Operation op) {
+        return add(name, op, null, null);
+    }
+
+    public BenchmarkRunner add(String name, Operation op, Fixture setup, Fixture teardown) {
+        entries.add(new Entry(name, op, setup, teardown));
+        return this;
+    }
+
+    /**
+     * {@code baseline} and {@code variant} alternately, one iteration each per round; results are
+     * "name(baselineLabel)" and "name(variantLabel)" plus the variant's extra cost per round pair.
+     */
+    public BenchmarkRunner addPair(String name, String baselineLabel, Operation baseline,
+                                   String variantLabel, Operation variant) {
+        entries.add(new Entry(name, variant, null, null, baseline, new String[] { baselineLabel, variantLabel }));
+        return this;
+    }
+
+    public BenchmarkRunner iterations(int warmup, int measure, long iterationMillis) {
+        this.warmupIterations = warmup;
+        this.measureIterations = measure;
+        this.iterationMillis = iterationMillis;
+        return this;
+    }
+
+    /**
+     * Runs every benchmark whose name matches {@code filter} (regex, null = all).
+     */
+    public List<Result> run(String filter) throws Exception {
+        Pattern p = (filter == null || filter.isBlank()) ? null : Pattern.compile(filter);
+        List<Result> results = new ArrayList<>();
+
+        System.out.printf(Locale.ROOT, "# warmup %d x %d ms, measure %d x %d ms, params %s%n",
+                warmupIterations, iterationMillis, measureIterations, iterationMillis, params);
+
+        for (Entry e : entries) {
+            if (p != null && !p.matcher(e.name).find()) continue;
+            if (e.baseline != null) results.addAll(runPair(e));
+            else results.add(runOne(e));
+        }
+
+        printTable(results);
+        return results;
+    }
+
+    private Result runOne(Entry e) throws Exception {
+        if (e.setup != null) e.setup.run();
+        try {
+            for (int i = 0; i < warmupIterations; i++) {
+                iteration(e.op);
+            }
+
+            long totalOps = 0;
+            long totalNanos = 0;
+            double min = Double.MAX_VALUE;
+            double max = 0;
+
+            for (int i = 0; i < measureIterations; i++) {
+                long[] it = iteration(e.op);
+                double nsPerOp = (double) it[1] / it[0];
+                min = Math.min(min, nsPerOp);
+                max = Math.max(max, nsPerOp);
+                totalOps += it[0];
+                totalNanos += it[1];
+            }
+
+            double avg = totalOps == 0 ? 0 : (double) totalNanos / totalOps;
+            System.out.printf(Locale.ROOT, "%-45s %14.1f ns/op%n", e.name, avg);
+            return new Result(e.name, totalOps, avg, min, max);
+
+        } finally {
+            if (e.teardown != null) e.teardown.run();
+        }
+    }
+
+    private List<Result> runPair(Entry e) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(e.baseline);
+            iteration(e.op);
+        }
+
+        // rounds: twice the iterations (each round is one iteration of both)
+        int rounds = Math.max(2, measureIterations * 2);
+        long[] ops = new long[2];
+        long[] nanos = new long[2];
+        double[][] perRound = new double[2][rounds];
+        double[] diffs = new double[rounds];
+        for (int r = 0; r < rounds; r++) {
+            // alternate which one goes first, so a drift over time hits both alike
+            for (int k = 0; k < 2; k++) {
+                int which = (r + k) % 2;
+                long[] it = iteration(which == 0 ? e.baseline : e.op);
+                ops[which] += it[0];
+                nanos[which] += it[1];
+                perRound[which][r] = (double) it[1] / it[0];
+            }
+            diffs[r] = perRound[1][r] - perRound[0][r];
+        }
+
+        List<Result> results = new ArrayList<>(2);
+        for (int which = 0; which < 2; which++) {
+            double min = Double.MAX_VALUE;
+            double max = 0;
+            for (double v : perRound[which]) {
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+            }
+            double avg = (double) nanos[which] / ops[which];
+            String name = e.name + "(" + e.labels[which] + ")";
+            System.out.printf(Locale.ROOT, "%-45s %14.1f ns/op%n", name, avg);
+            results.add(new Result(name, ops[which], avg, min, max));
+        }
+
+        double[] sorted = diffs.clone();
+        Arrays.sort(sorted);
+        double median = sorted[rounds / 2];
+        double base = results.get(0).avgNsPerOp;
+        System.out.printf(Locale.ROOT, "%-45s %14.1f ns/op median over %d rounds (%.1f .. %.1f), %.2f%% of %s%n",
+                e.name + " " + e.labels[1] + " - " + e.labels[0], median, rounds, sorted[0], sorted[rounds - 1],
+                base == 0 ? 0 : 100 * median / base, e.labels[0]);
+        return results;
+    }
+
+    /** @return {operations, elapsedNanos} */
+    private long[] iteration(Operation op) throws Exception {
+        long deadline = System.nanoTime() + iterationMillis * 1_000_000L;
+        long ops = 0;
+        long start = System.nanoTime();
+        long now;
+        do {
+            blackhole = op.run();
+            ops++;
+            now = System.nanoTime();
+        } while (now < deadline);
+        return new long[] { ops, now - start };
+    }
+
+    private static void printTable(List<Result> results) {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-45s %10s %14s %14s %14s %12s%n",
+                "Benchmark", "Ops", "avg ns/op", "min ns/op", "max ns/op", "ops/s");
+        for (Result r : results) {
+            System.out.printf(Locale.ROOT, "%-45s %10d %14.1f %14.1f %14.1f %12.1f%n",
+                    r.name, r.operations, r.avgNsPerOp, r.minNsPerOp, r.maxNsPerOp, r.opsPerSecond);
+        }
+    }
+
+    /**
+     * Writes results as JSON: { "timestamp":..., "params":{...}, "results":[...] }.
+     */
+    public void writeJson(List<Result> results, Path file) throws IOException {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("timestamp", Instant.now().toString());
+        doc.put("java", System.getProperty("java.version"));
+        doc.put("params", params);
+        doc.put("results", results);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            gson.toJson(doc, w);
+        }
+    }
+}
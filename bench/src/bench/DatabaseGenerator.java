@@ -0,0 +1,356 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.healthmarketscience.jackcess.ColumnBuilder;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.DateTimeType;
+import com.healthmarketscience.jackcess.IndexBuilder;
+import com.healthmarketscience.jackcess.RelationshipBuilder;
+import com.healthmarketscience.jackcess.Table;
+import com.healthmarketscience.jackcess.TableBuilder;
+
+/**
+ * DatabaseGenerator
+ * -----------------
+ * Creates a synthetic ParkWise .accdb directly with Jackcess (no JDBC / UCanAccess):
+ * City, ParkingLot, Conveyor, PriceList and PriceHistory with the same columns, indexes
+ * and relationships as db/parkwise_OfriMagi.accdb.
+ *
+ * - Deterministic: the same {@link Spec} (incl. seed) always produces the same rows.
+ *   Every chunk of rows has its own random stream derived from (seed, table, chunk),
+ *   so the result does not depend on thread scheduling.
+ * - Fast: chunks are generated in parallel and written in order with Table.addRows.
+ *
+ * Usage:
+ *   java -cp "bin:lib/*" bench.DatabaseGenerator out.accdb [cities lots conveyors [historyYears [seed [firstYear]]]]
+ */
+public final class DatabaseGenerator {
+
+    private static final int CHUNK_ROWS = 10_000;
+
+    private static final String[] CITY_NAMES = {
+            "תל אביב", "ירושלים", "חיפה", "באר שבע", "נתניה", "אשדוד", "ראשון לציון", "פתח תקווה",
+            "Haifa", "Eilat", "Herzliya", "Modiin", "Rehovot", "Ashkelon", "Kfar Saba", "Nazareth"
+    };
+
+    private static final String[] STREETS = {
+            "הרצל", "בן יהודה", "רוטשילד", "ז'בוטינסקי", "אלנבי", "דיזנגוף", "יפו", "העצמאות",
+            "Herzl", "Ben Gurion", "Weizmann", "HaNassi", "Jabotinsky", "Sokolov", "Arlozorov", "King George"
+    };
+
+    private static final String[] STATUSES = { "Off", "Testing", "Paused", "Operational" };
+
+    /** Sizes + seed of a generated database. */
+    public static final class Spec {
+        public int cities = 1_000;
+        public int parkingLots = 100_000;
+        public int conveyors = 1_000_000;
+        public int historyYears = 5;
+        public int priceListsPerYear = 20;
+        public int firstYear = 2021;      // fixed: the same spec gives the same file in any year
+        public double inactiveRatio = 0.05;
+        public long seed = 42L;
+
+        public static Spec small() {
+            Spec s = new Spec();
+            s.cities = 50;
+            s.parkingLots = 1_000;
+            s.conveyors = 10_000;
+            return s;
+        }
+
+        /**
+         * "cities,lots,conveyors[,historyYears[,seed[,firstYear]]]" (missing values keep the defaults),
+         * or "small" for {@link #small()}.
+         */
+        public static Spec parse(String text) {
+            if (text == null || text.isBlank()) return new Spec();
+            if ("small".equalsIgnoreCase(text.trim())) return small();
+
+            String[] p = text.split(",");
+            Spec s = new Spec();
+            if (p.length > 0 && !p[0].isBlank()) s.cities = Integer.parseInt(p[0].trim());
+            if (p.length > 1 && !p[1].isBlank()) s.parkingLots = Integer.parseInt(p[1].trim());
+            if (p.length > 2 && !p[2].isBlank()) s.conveyors = Integer.parseInt(p[2].trim());
+            if (p.length > 3 && !p[3].isBlank()) s.historyYears = Integer.parseInt(p[3].trim());
+            if (p.length > 4 && !p[4].isBlank()) s.seed = Long.parseLong(p[4].trim());
+            if (p.length > 5 && !p[5].isBlank()) s.firstYear = Integer.parseInt(p[5].trim());
+            if (s.cities < 1 || s.parkingLots < 1 || s.historyYears < 1 || s.conveyors < 0)
+                throw new IllegalArgumentException("Invalid generator spec: " + text);
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "cities=%d lots=%d conveyors=%d historyYears=%d priceLists/year=%d firstYear=%d seed=%d",
+                    cities, parkingLots, conveyors, historyYears, priceListsPerYear, firstYear, seed);
+        }
+    }
+
+    /** Produces the row values of one chunk; must only use the given random stream. */
+    @FunctionalInterface
+    private interface ChunkFactory {
+        List<Object[]> rows(int firstRow, int count, SplittableRandom rnd);
+    }
+
+    private final Spec spec;
+    private final ExecutorService pool;
+
+    public DatabaseGenerator(Spec spec) {
+        this.spec = spec;
+        this.pool = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "db-generator");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: DatabaseGenerator <out.accdb> [cities] [lots] [conveyors] [historyYears] [seed] [firstYear]");
+            return;
+        }
+        Spec spec = Spec.parse(String.join(",", Arrays.copyOfRange(args, 1, args.length)));
+
+        long start = System.nanoTime();
+        Path out = new DatabaseGenerator(spec).generate(Paths.get(args[0]));
+        System.out.printf(Locale.ROOT, "Generated %s (%s) in %.1f s, %d bytes%n",
+                out, spec, (System.nanoTime() - start) / 1e9, Files.size(out));
+    }
+
+    /**
+     * Creates (overwrites) the database file and fills all tables.
+     */
+    public Path generate(Path file) throws IOException {
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        Files.deleteIfExists(file);
+
+        try (Database db = new DatabaseBuilder(file.toFile())
+                .setFileFormat(Database.FileFormat.V2010)
+                .setAutoSync(false)
+                .create()) {
+
+            db.setDateTimeType(DateTimeType.LOCAL_DATE_TIME);
+
+            Table city = createCityTable(db);
+            Table lot = createParkingLotTable(db);
+            Table conveyor = createConveyorTable(db);
+            Table priceList = createPriceListTable(db);
+            Table history = createPriceHistoryTable(db);
+
+            createRelationships(db, city, lot, conveyor, priceList, history);
+
+            // parents first: AutoNumber IDs of an empty table are 1..n in insertion order
+            fill(city, 1, spec.cities, this::cityRows);
+            fill(lot, 2, spec.parkingLots, this::parkingLotRows);
+            fill(conveyor, 3, spec.conveyors, this::conveyorRows);
+            fill(priceList, 4, spec.historyYears * spec.priceListsPerYear, this::priceListRows);
+            fill(history, 5, spec.parkingLots * spec.historyYears, this::priceHistoryRows);
+
+            db.flush();
+        } finally {
+            pool.shutdown();
+        }
+        return file;
+    }
+
+    // ----------------- schema -----------------
+
+    private static Table createCityTable(Database db) throws IOException {
+        return new TableBuilder("City")
+                .addColumn(new ColumnBuilder("ID", DataType.LONG).setAutoNumber(true))
+                .addColumn(new ColumnBuilder("cityName", DataType.TEXT).setLengthInUnits(255))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("ID").setPrimaryKey())
+                .toTable(db);
+    }
+
+    private static Table createParkingLotTable(Database db) throws IOException {
+        return new TableBuilder("ParkingLot")
+                .addColumn(new ColumnBuilder("ID", DataType.LONG).setAutoNumber(true))
+                .addColumn(new ColumnBuilder("name", DataType.TEXT).setLengthInUnits(255))
+                .addColumn(new ColumnBuilder("street", DataType.TEXT).setLengthInUnits(255))
+                .addColumn(new ColumnBuilder("availablaSpaces", DataType.LONG))
+                .addColumn(new ColumnBuilder("cityID", DataType.LONG))
+                .addColumn(new ColumnBuilder("number", DataType.LONG))
+                .addColumn(new ColumnBuilder("isActive", DataType.BOOLEAN))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("ID").setPrimaryKey())
+                .addIndex(new IndexBuilder("CitiesID").addColumns("cityID"))
+                .addIndex(new IndexBuilder("number").addColumns("number"))
+                .toTable(db);
+    }
+
+    private static Table createConveyorTable(Database db) throws IOException {
+        return new TableBuilder("Conveyor")
+                .addColumn(new ColumnBuilder("ID", DataType.LONG).setAutoNumber(true))
+                .addColumn(new ColumnBuilder("MaxWeight", DataType.LONG))
+                .addColumn(new ColumnBuilder("X", DataType.LONG))
+                .addColumn(new ColumnBuilder("Y", DataType.LONG))
+                .addColumn(new ColumnBuilder("Floor", DataType.LONG))
+                .addColumn(new ColumnBuilder("ParkingLotID", DataType.LONG))
+                .addColumn(new ColumnBuilder("Status", DataType.TEXT).setLengthInUnits(255))
+                .addColumn(new ColumnBuilder("LastStatus", DataType.TEXT).setLengthInUnits(255))
+                .addColumn(new ColumnBuilder("isActive", DataType.BOOLEAN))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("ID").setPrimaryKey())
+                .addIndex(new IndexBuilder("parkingLotID").addColumns("ParkingLotID"))
+                .toTable(db);
+    }
+
+    private static Table createPriceListTable(Database db) throws IOException {
+        return new TableBuilder("PriceList")
+                .addColumn(new ColumnBuilder("ID", DataType.LONG).setAutoNumber(true))
+                .addColumn(new ColumnBuilder("firstHourPrice", DataType.LONG))
+                .addColumn(new ColumnBuilder("additionalHourPrice", DataType.LONG))
+                .addColumn(new ColumnBuilder("fullDayPrice", DataType.LONG))
+                .addColumn(new ColumnBuilder("year", DataType.LONG))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("ID").setPrimaryKey())
+                .toTable(db);
+    }
+
+    private static Table createPriceHistoryTable(Database db) throws IOException {
+        return new TableBuilder("PriceHistory")
+                .addColumn(new ColumnBuilder("ID", DataType.LONG).setAutoNumber(true))
+                .addColumn(new ColumnBuilder("effectiveFrom", DataType.SHORT_DATE_TIME))
+                .addColumn(new ColumnBuilder("effectiveTo", DataType.SHORT_DATE_TIME))
+                .addColumn(new ColumnBuilder("parkingLotID", DataType.LONG))
+                .addColumn(new ColumnBuilder("priceListID", DataType.LONG))
+                .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("ID").setPrimaryKey())
+                .addIndex(new IndexBuilder("parkingLotID").addColumns("parkingLotID"))
+                .addIndex(new IndexBuilder("priceListID").addColumns("priceListID"))
+                .toTable(db);
+    }
+
+    private static void createRelationships(Database db, Table city, Table lot, Table conveyor,
+                                            Table priceList, Table history) throws IOException {
+        new RelationshipBuilder(city, lot).setName("CitiesParkingLot")
+                .addColumns("ID", "cityID").setReferentialIntegrity().toRelationship(db);
+        new RelationshipBuilder(lot, conveyor).setName("ParkingLotConveyor")
+                .addColumns("ID", "ParkingLotID").setReferentialIntegrity().toRelationship(db);
+        new RelationshipBuilder(lot, history).setName("ParkingLotPriceHistory")
+                .addColumns("ID", "parkingLotID").setReferentialIntegrity().toRelationship(db);
+        new RelationshipBuilder(priceList, history).setName("PriceListPriceHistory")
+                .addColumns("ID", "priceListID").setReferentialIntegrity().toRelationship(db);
+    }
+
+    // ----------------- row factories (IDs are 1-based) -----------------
+
+    private List<Object[]> cityRows(int first, int count, SplittableRandom rnd) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            String base = CITY_NAMES[i % CITY_NAMES.length];
+            String name = i < CITY_NAMES.length ? base : base + " " + (i / CITY_NAMES.length + 1);
+            rows.add(new Object[] { null, name });
+        }
+        return rows;
+    }
+
+    private List<Object[]> parkingLotRows(int first, int count, SplittableRandom rnd) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            rows.add(new Object[] {
+                    null,
+                    "Lot " + (i + 1),
+                    STREETS[rnd.nextInt(STREETS.length)],
+                    rnd.nextInt(20, 800),
+                    rnd.nextInt(spec.cities) + 1,
+                    rnd.nextInt(1, 300),
+                    rnd.nextDouble() >= spec.inactiveRatio
+            });
+        }
+        return rows;
+    }
+
+    private List<Object[]> conveyorRows(int first, int count, SplittableRandom rnd) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            boolean placed = rnd.nextInt(10) < 8; // Floor/X/Y come from hardware, may be NULL
+            String status = STATUSES[rnd.nextInt(STATUSES.length)];
+            String last = rnd.nextBoolean() ? null : (rnd.nextBoolean() ? "Operational" : "Testing");
+            rows.add(new Object[] {
+                    null,
+                    1000 + 250 * rnd.nextInt(13),
+                    placed ? rnd.nextInt(1000) : null,
+                    placed ? rnd.nextInt(1000) : null,
+                    placed ? rnd.nextInt(-2, 6) : null,
+                    // spread conveyors evenly across all lots
+                    (int) ((long) i * spec.parkingLots / Math.max(1, spec.conveyors)) + 1,
+                    status,
+                    last,
+                    rnd.nextDouble() >= spec.inactiveRatio
+            });
+        }
+        return rows;
+    }
+
+    private List<Object[]> priceListRows(int first, int count, SplittableRandom rnd) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            int year = spec.firstYear + i / spec.priceListsPerYear;
+            int firstHour = rnd.nextInt(8, 30);
+            int additional = Math.max(3, firstHour / 2 + rnd.nextInt(-2, 3));
+            int fullDay = firstHour * 4 + rnd.nextInt(0, 20);
+            rows.add(new Object[] { null, firstHour, additional, fullDay, year });
+        }
+        return rows;
+    }
+
+    /** One record per lot per year: Jan 1st of each year, the last one stays open. */
+    private List<Object[]> priceHistoryRows(int first, int count, SplittableRandom rnd) {
+        List<Object[]> rows = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            int lotIndex = i / spec.historyYears;
+            int yearIndex = i % spec.historyYears;
+            LocalDateTime from = LocalDate.of(spec.firstYear + yearIndex, 1, 1).atStartOfDay();
+            LocalDateTime to = yearIndex == spec.historyYears - 1 ? null : from.plusYears(1);
+            int priceListId = yearIndex * spec.priceListsPerYear + rnd.nextInt(spec.priceListsPerYear) + 1;
+            rows.add(new Object[] { null, from, to, lotIndex + 1, priceListId });
+        }
+        return rows;
+    }
+
+    // ----------------- parallel generation, ordered writes -----------------
+
+    private void fill(Table table, int tableSalt, int totalRows, ChunkFactory factory) throws IOException {
+        int chunks = (totalRows + CHUNK_ROWS - 1) / CHUNK_ROWS;
+        int window = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+
+        Deque<CompletableFuture<List<Object[]>>> inFlight = new ArrayDeque<>();
+        int submitted = 0;
+
+        for (int written = 0; written < chunks; written++) {
+            while (submitted < chunks && inFlight.size() < window) {
+                final int chunk = submitted++;
+                final int firstRow = chunk * CHUNK_ROWS;
+                final int count = Math.min(CHUNK_ROWS, totalRows - firstRow);
+                final SplittableRandom rnd = new SplittableRandom(mix(spec.seed, tableSalt, chunk));
+                inFlight.add(CompletableFuture.supplyAsync(() -> factory.rows(firstRow, count, rnd), pool));
+            }
+            table.addRows(inFlight.removeFirst().join());
+        }
+    }
+
+    private static long mix(long seed, int table, int chunk) {
+        long z = seed ^ (0x9E3779B97F4A7C15L * (table + 1)) ^ (0xBF58476D1CE4E5B9L * (chunk + 1));
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,477 @@
+package bench;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntPredicate;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import boundary.HttpApiServer;
+import control.AccessDb;
+import control.ApiClient;
+import control.CityManagementController;
+import control.ConveyorManagementController;
+import control.ConveyorWriteQueue;
+import control.LatencyHistogram;
+import control.ParkingLotManagementController;
+import control.PriceHistoryManagementController;
+import control.PriceListManagementController;
+import control.RemoteConveyorManagementController;
+import control.RemoteParkingLotManagementController;
+import control.RemotePriceHistoryManagementController;
+import control.RemotePriceListManagementController;
+
+/**
+ * LoadTest
+ * --------
+ * Headless load driver: N concurrent workers run a weighted mix of controller operations
+ * against a working copy of a database (same sources as the benchmarks: bench.db / bench.generate).
+ *
+ * - workers run on virtual threads when the JVM has them (Java 21+), otherwise on platform threads
+ * - per operation: latency histogram (p50/p95/p99/max), throughput and error count
+ * - every loadtest.intervalSec: per-operation ops/errors/p99 of that interval (time series)
+ * - results are printed and written as JSON (loadtest.out)
+ * - loadtest.conveyorWriteQueue=true: conveyor writes go through the group-committing ConveyorWriteQueue
+ * - loadtest.http=true: the workers are HTTP clients of an in-process HttpApiServer
+ *   (Remote*Controller over ApiClient); reports HTTP requests and req/s as well
+ *
+ * Usage:
+ *   java -cp "bin:lib/*" -Dloadtest.workers=32 -Dloadtest.durationSec=60 bench.LoadTest
+ */
+public final class LoadTest {
+
+    /** One operation of the mix; {@code worker} is the 0-based worker index. */
+    @FunctionalInterface
+    private interface Action {
+        void run(int worker) throws Exception;
+    }
+
+    private static final class Op {
+        final String name;
+        final int weight;
+        final Action action;
+        final IntPredicate availableFor;
+        final LatencyHistogram total = new LatencyHistogram();
+        final LatencyHistogram interval = new LatencyHistogram();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong intervalErrors = new AtomicLong();
+        volatile String lastError;
+
+        Op(String name, int weight, Action action, IntPredicate availableFor) {
+            this.name = name;
+            this.weight = weight;
+            this.action = action;
+            this.availableFor = availableFor;
+        }
+    }
+
+    private final List<Op> ops = new ArrayList<>();
+    private final Set<String> knownOps = new HashSet<>();
+    private final List<Map<String, Object>> timeline = new ArrayList<>();
+    private final Map<String, Object> params = new LinkedHashMap<>();
+
+    private HttpApiServer server;   // loadtest.http only
+    private ApiClient api;
+    private long httpRequests;
+
+    private int totalWeight;
+    private volatile boolean measuring;
+    private volatile boolean stopped;
+
+    private LoadTest() {}
+
+    public static void main(String[] args) throws Exception {
+        int workers = Integer.getInteger("loadtest.workers", 16);
+        int warmupSec = Integer.getInteger("loadtest.warmupSec", 5);
+        int durationSec = Integer.getInteger("loadtest.durationSec", 30);
+        int intervalSec = Math.max(1, Integer.getInteger("loadtest.intervalSec", 5));
+        long thinkMs = Long.getLong("loadtest.thinkMs", 0L);
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix",
+                "lots.list=10,lots.get=25,conveyors.byLot=25,history.rows=15,"
+                + "conveyor.maxWeight=10,conveyor.turnOn=5,price.assign=8,price.import=2"));
+
+        BenchDatabase bdb = BenchDatabase.prepare();
+        LoadTest test = new LoadTest();
+        test.params.put("db", bdb.getSource().toString());
+        test.params.put("dbBytes", bdb.sizeBytes());
+        test.params.put("workers", workers);
+        test.params.put("warmupSec", warmupSec);
+        test.params.put("durationSec", durationSec);
+        test.params.put("intervalSec", intervalSec);
+        test.params.put("thinkMs", thinkMs);
+        test.params.put("mix", mix);
+
+        test.defineOperations(bdb, workers, mix);
+        try {
+            test.run(workers, warmupSec, durationSec, intervalSec, thinkMs);
+        } finally {
+            if (test.server != null) test.server.stop(0);
+        }
+
+        ConveyorWriteQueue queue = bdb.getDb().getConveyorWriteQueue();
+        if (queue != null) {
+            bdb.getDb().disableConveyorWriteQueue();
+            System.out.printf(Locale.ROOT, "Conveyor write queue: %d writes in %d commits, %d failed%n",
+                    queue.getWriteCount(), queue.getCommitCount(), queue.getFailureCount());
+        }
+
+        if (bdb.getDb().getSqlTracer() != null) {
+            System.out.println();
+            System.out.println("Top SQL by total time:");
+            System.out.print(bdb.getDb().getSqlTracer().formatSummary(Integer.getInteger("loadtest.topSql", 15)));
+        }
+
+        String out = System.getProperty("loadtest.out");
+        if (out != null && !out.isBlank()) {
+            test.writeJson(Paths.get(out), durationSec);
+            System.out.println("Results written to " + out);
+        }
+    }
+
+    // ----------------- operation mix -----------------
+
+    private void defineOperations(BenchDatabase bdb, int workers, Map<String, Integer> mix) throws Exception {
+        AccessDb db = bdb.getDb();
+        if (Boolean.getBoolean("loadtest.conveyorWriteQueue")) {
+            db.enableConveyorWriteQueue(ConveyorWriteQueue.DEFAULT_CAPACITY, ConveyorWriteQueue.DEFAULT_MAX_BATCH);
+            params.put("conveyorWriteQueue", true);
+        }
+        ParkingLotManagementController localLots = new ParkingLotManagementController(db);
+        ConveyorManagementController localConveyors = new ConveyorManagementController(db);
+        PriceHistoryManagementController localHistory = new PriceHistoryManagementController(db);
+        PriceListManagementController localPriceLists = new PriceListManagementController(db);
+
+        if (Boolean.getBoolean("loadtest.http")) {
+            server = new HttpApiServer(0, new CityManagementController(db),
+                    localLots, localConveyors, localPriceLists, localHistory);
+            server.start();
+            api = new ApiClient(server.getUrl());
+            params.put("http", server.getUrl());
+        }
+
+        ParkingLotManagementController lots =
+                api == null ? localLots : new RemoteParkingLotManagementController(api);
+        ConveyorManagementController conveyors =
+                api == null ? localConveyors : new RemoteConveyorManagementController(api);
+        PriceHistoryManagementController history =
+                api == null ? localHistory : new RemotePriceHistoryManagementController(api);
+        PriceListManagementController priceLists =
+                api == null ? localPriceLists : new RemotePriceListManagementController(api);
+
+        int[] lotIds = intColumn(db, "SELECT [ID] FROM ParkingLot WHERE [isActive]=True ORDER BY [ID]");
+        int[] priceListIds = intColumn(db, "SELECT [ID] FROM PriceList ORDER BY [ID]");
+        int[] offConveyors = intColumn(db,
+                "SELECT [ID] FROM Conveyor WHERE [isActive]=True AND [Status]='Off' ORDER BY [ID]");
+        Path priceJson = BenchDatabase.resolve("lib/pricelist.json");
+
+        // conveyor transitions only touch conveyors owned by the worker, so two workers
+        // never race on the state machine of one conveyor (errors then mean real failures)
+        int[][] ownConveyors = new int[workers][];
+        for (int w = 0; w < workers; w++) {
+            int n = 0;
+            for (int i = w; i < offConveyors.length; i += workers) n++;
+            ownConveyors[w] = new int[n];
+            for (int i = w, k = 0; i < offConveyors.length; i += workers) ownConveyors[w][k++] = offConveyors[i];
+        }
+        if (offConveyors.length < workers) {
+            System.out.println("# only " + offConveyors.length + " Off conveyors for " + workers
+                    + " workers: workers without one run the rest of the mix");
+        }
+
+        params.put("parkingLots", lotIds.length);
+        params.put("priceLists", priceListIds.length);
+        params.put("offConveyors", offConveyors.length);
+
+        add(mix, "lots.list", w -> lots.getAllParkingLots());
+        add(mix, "lots.get", w -> lots.getParkingLot(pick(lotIds)));
+        add(mix, "conveyors.byLot", w -> conveyors.getConveyorsByParkingLot(pick(lotIds)));
+        add(mix, "history.rows", w -> history.getHistoryRowsForParkingLot(pick(lotIds)));
+        IntPredicate ownsConveyor = w -> ownConveyors[w].length > 0;
+        add(mix, "conveyor.maxWeight", ownsConveyor, w -> {
+            int id = pick(ownConveyors[w]);
+            conveyors.decideChangeMaxWeight(id, 1000 + 250 * ThreadLocalRandom.current().nextInt(13));
+            conveyors.confirmChangeMaxWeight(id);
+        });
+        add(mix, "conveyor.turnOn", ownsConveyor, w -> {
+            int id = pick(ownConveyors[w]);
+            conveyors.turnOnConveyors(id);
+            bdb.update("UPDATE Conveyor SET [Status]='Off' WHERE [ID]=?", id); // back to Off for the next round
+        });
+        add(mix, "price.assign", w -> history.assignPriceListToParkingLot(pick(lotIds), pick(priceListIds)));
+        add(mix, "price.import", w -> priceLists.importPriceListsFromJson(priceJson.toString()));
+
+        for (String name : mix.keySet()) {
+            if (!knownOps.contains(name)) {
+                throw new IllegalArgumentException("Unknown operation in loadtest.mix: " + name);
+            }
+        }
+        if (ops.isEmpty()) throw new IllegalArgumentException("loadtest.mix selects no operation.");
+    }
+
+    private void add(Map<String, Integer> mix, String name, Action action) {
+        add(mix, name, w -> true, action);
+    }
+
+    private void add(Map<String, Integer> mix, String name, IntPredicate availableFor, Action action) {
+        knownOps.add(name);
+        int weight = mix.getOrDefault(name, 0);
+        if (weight <= 0) return;
+        ops.add(new Op(name, weight, action, availableFor));
+        totalWeight += weight;
+    }
+
+    /** Weighted pick among the operations this worker can run (null if none). */
+    private Op nextOp(int worker) {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            int r = ThreadLocalRandom.current().nextInt(totalWeight);
+            for (Op op : ops) {
+                r -= op.weight;
+                if (r < 0) {
+                    if (op.availableFor.test(worker)) return op;
+                    break;
+                }
+            }
+        }
+        for (Op op : ops) {
+            if (op.availableFor.test(worker)) return op;
+        }
+        return null;
+    }
+
+    private static int pick(int[] ids) {
+        return ids.length == 0 ? 0 : ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+    // ----------------- run -----------------
+
+    private void run(int workers, int warmupSec, int durationSec, int intervalSec, long thinkMs) throws Exception {
+        ExecutorService executor = newWorkerExecutor(workers);
+        params.put("threads", executor.getClass().getSimpleName().contains("ThreadPerTask") ? "virtual" : "platform");
+
+        System.out.printf(Locale.ROOT, "# %d workers (%s threads), warmup %d s, measure %d s, ops %s%n",
+                workers, params.get("threads"), warmupSec, durationSec, ops.stream().map(o -> o.name).toList());
+
+        for (int w = 0; w < workers; w++) {
+            final int worker = w;
+            executor.execute(() -> workerLoop(worker, thinkMs));
+        }
+
+        try {
+            TimeUnit.SECONDS.sleep(warmupSec);
+            for (Op op : ops) {
+                op.interval.snapshotAndReset();
+                op.intervalErrors.set(0);
+            }
+            long requestsAtStart = api == null ? 0 : api.getRequestCount();
+            measuring = true;
+
+            long start = System.nanoTime();
+            long end = start + TimeUnit.SECONDS.toNanos(durationSec);
+            long nextTick = start + TimeUnit.SECONDS.toNanos(intervalSec);
+            while (System.nanoTime() < end) {
+                long sleep = Math.min(nextTick, end) - System.nanoTime();
+                if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+                recordInterval((System.nanoTime() - start) / 1e9);
+                nextTick += TimeUnit.SECONDS.toNanos(intervalSec);
+            }
+            if (api != null) httpRequests = api.getRequestCount() - requestsAtStart;
+        } finally {
+            measuring = false;
+            stopped = true;
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+        printSummary(durationSec);
+    }
+
+    private void workerLoop(int worker, long thinkMs) {
+        while (!stopped) {
+            Op op = nextOp(worker);
+            if (op == null) return;
+            long t0 = System.nanoTime();
+            try {
+                op.action.run(worker);
+                long elapsed = System.nanoTime() - t0;
+                if (measuring) {
+                    op.total.record(elapsed);
+                    op.interval.record(elapsed);
+                }
+            } catch (Exception e) {
+                if (measuring) {
+                    op.errors.incrementAndGet();
+                    op.intervalErrors.incrementAndGet();
+                    op.lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+                }
+            }
+            if (thinkMs > 0) {
+                try {
+                    Thread.sleep(thinkMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void recordInterval(double atSec) {
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("atSec", round(atSec));
+        long opsTotal = 0;
+        long errorsTotal = 0;
+
+        Map<String, Object> perOp = new LinkedHashMap<>();
+        for (Op op : ops) {
+            LatencyHistogram h = op.interval.snapshotAndReset();
+            long errors = op.intervalErrors.getAndSet(0);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("ops", h.getCount());
+            m.put("errors", errors);
+            m.put("p99Ms", millis(h.getPercentileNanos(99)));
+            perOp.put(op.name, m);
+            opsTotal += h.getCount();
+            errorsTotal += errors;
+        }
+        point.put("ops", opsTotal);
+        point.put("errors", errorsTotal);
+        point.put("operations", perOp);
+        timeline.add(point);
+
+        System.out.printf(Locale.ROOT, "# t=%6.1fs ops=%d errors=%d%n", atSec, opsTotal, errorsTotal);
+    }
+
+    /**
+     * Virtual-thread-per-task executor when available (Java 21+, looked up reflectively so the
+     * module still compiles on Java 17), otherwise one platform thread per worker.
+     */
+    private static ExecutorService newWorkerExecutor(int workers) {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException notAvailable) {
+            return Executors.newFixedThreadPool(workers, r -> {
+                Thread t = new Thread(r, "loadtest-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ----------------- report -----------------
+
+    private List<Map<String, Object>> summary(int durationSec) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Op op : ops) {
+            LatencyHistogram h = op.total.snapshot();
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("name", op.name);
+            m.put("weight", op.weight);
+            m.put("ops", h.getCount());
+            m.put("errors", op.errors.get());
+            m.put("opsPerSec", round((double) h.getCount() / durationSec));
+            m.put("meanMs", millis(h.getMeanNanos()));
+            m.put("p50Ms", millis(h.getPercentileNanos(50)));
+            m.put("p95Ms", millis(h.getPercentileNanos(95)));
+            m.put("p99Ms", millis(h.getPercentileNanos(99)));
+            m.put("maxMs", millis(h.getMaxNanos()));
+            if (op.lastError != null) m.put("lastError", op.lastError);
+            rows.add(m);
+        }
+        return rows;
+    }
+
+    private void printSummary(int durationSec) {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-22s %9s %7s %9s %9s %9s %9s %9s%n",
+                "Operation", "ops", "errors", "ops/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        long total = 0;
+        for (Map<String, Object> m : summary(durationSec)) {
+            System.out.printf(Locale.ROOT, "%-22s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    m.get("name"), m.get("ops"), m.get("errors"), m.get("opsPerSec"),
+                    m.get("p50Ms"), m.get("p95Ms"), m.get("p99Ms"), m.get("maxMs"));
+            total += (Long) m.get("ops");
+            if (m.containsKey("lastError")) System.out.println("    last error: " + m.get("lastError"));
+        }
+        System.out.printf(Locale.ROOT, "%-22s %9d %7s %9.1f%n", "TOTAL", total, "", (double) total / durationSec);
+        if (api != null) {
+            System.out.printf(Locale.ROOT, "%-22s %9d %7s %9.1f  (req/s)%n",
+                    "HTTP requests", httpRequests, "", (double) httpRequests / durationSec);
+        }
+    }
+
+    private void writeJson(Path file, int durationSec) throws IOException {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("timestamp", Instant.now().toString());
+        doc.put("java", System.getProperty("java.version"));
+        doc.put("params", params);
+        doc.put("operations", summary(durationSec));
+        if (api != null) {
+            Map<String, Object> http = new LinkedHashMap<>();
+            http.put("requests", httpRequests);
+            http.put("requestsPerSec", round((double) httpRequests / durationSec));
+            doc.put("http", http);
+        }
+        doc.put("timeline", timeline);
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        if (file.getParent() != null) Files.createDirectories(file.getParent());
+        try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            gson.toJson(doc, w);
+        }
+    }
+
+    // ----------------- helpers -----------------
+
+    /** "name=weight,name=weight" in the given order. */
+    static Map<String, Integer> parseMix(String text) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : text.split(",")) {
+            if (part.isBlank()) continue;
+            String[] kv = part.split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Bad loadtest.mix entry: " + part);
+            mix.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    static int[] intColumn(AccessDb db, String sql) throws Exception {
+        List<Integer> values = new ArrayList<>();
+        try (Connection conn = db.open();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) values.add(rs.getInt(1));
+        }
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static double millis(double nanos) {
+        return round(nanos / 1_000_000d);
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000d) / 1000d;
+    }
+}
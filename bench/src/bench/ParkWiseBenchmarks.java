@@ -0,0 +1,372 @@
+package bench;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import control.AccessDb;
+import control.ControllerMetrics;
+import control.ConveyorDispatcher;
+import control.ConveyorManagement;
+import control.ConveyorManagementController;
+import control.ConveyorSpatialIndex;
+import control.ConveyorWriteQueue;
+import control.DbUtil;
+import control.ParkingLotManagement;
+import control.ParkingLotManagementController;
+import control.ParkingLotSearchIndex;
+import control.PriceHistoryManagementController;
+import control.PriceListManagementController;
+import control.SnapshotFile;
+import entity.City;
+import entity.Conveyor;
+import entity.ConveyorStatus;
+import entity.ParkingLot;
+
+/**
+ * ParkWiseBenchmarks
+ * ------------------
+ * Hot paths of the control + entity layers:
+ * - DbUtil column lookups
+ * - ParkingLot.setAddress / getAddress
+ * - controller read paths (lots, conveyors, price history, price lists)
+ * - parking lot typeahead search (ParkingLotSearchIndex, 100k generated lots)
+ * - conveyor spatial queries: ConveyorSpatialIndex vs linear scan (generated lot with 5k conveyors)
+ * - conveyor dispatch: ConveyorDispatcher (same generated lot) and through the controller
+ * - bulk scans: JDBC (UCanAccess) vs direct Jackcess reader
+ * - snapshot file: write, open, reads served from it
+ * - conveyor state transitions
+ * - concurrent conveyor writes: auto-commit per call vs ConveyorWriteQueue (group commit)
+ * - price list import
+ * - overhead of the ControllerMetrics proxy (controller calls direct vs through the proxy)
+ *
+ * Usage (from the repo root, after compiling src + bench/src into bin):
+ *   java -cp "bin:lib/*" bench.ParkWiseBenchmarks [filterRegex] [-Dbench.out=bench/results/run.json]
+ */
+public final class ParkWiseBenchmarks {
+
+    private static final int WRITERS = 16;
+    private static final int WRITES_PER_WRITER = 4;
+    private static final int SEARCH_LOTS = 100_000;
+    private static final int SPATIAL_CONVEYORS = 5_000;
+
+    private ParkWiseBenchmarks() {}
+
+    public static void main(String[] args) throws Exception {
+        String filter = args.length > 0 ? args[0] : null;
+
+        BenchDatabase bdb = BenchDatabase.prepare();
+        AccessDb db = bdb.getDb();
+
+        ParkingLotManagementController lots = new ParkingLotManagementController(db);
+        ConveyorManagementController conveyors = new ConveyorManagementController(db);
+        PriceHistoryManagementController history = new PriceHistoryManagementController(db);
+        PriceListManagementController priceLists = new PriceListManagementController(db);
+
+        int lotCount = bdb.scalarInt("SELECT COUNT(*) FROM ParkingLot");
+        int conveyorCount = bdb.scalarInt("SELECT COUNT(*) FROM Conveyor");
+        int historyCount = bdb.scalarInt("SELECT COUNT(*) FROM PriceHistory");
+
+        int busyLot = bdb.busiestParkingLotId();
+        int historyLot = bdb.longestHistoryParkingLotId();
+        int offConveyor = bdb.scalarInt(
+                "SELECT TOP 1 [ID] FROM Conveyor WHERE [isActive]=True AND [Status]='Off' ORDER BY [ID]");
+        Path priceJson = BenchDatabase.resolve("lib/pricelist.json");
+
+        BenchmarkRunner runner = new BenchmarkRunner()
+                .param("db", bdb.getSource())
+                .param("dbBytes", bdb.sizeBytes())
+                .param("parkingLots", lotCount)
+                .param("conveyors", conveyorCount)
+                .param("priceHistory", historyCount);
+
+        // ---------- entity ----------
+        ParkingLot lot = new ParkingLot(1, "Bench", "Herzl", 10, null, 0);
+        String[] addresses = { "Herzl 10", "Rothschild Blvd 45", "Ben Yehuda", "דרך מנחם בגין 132", "" };
+        int[] addrIdx = { 0 };
+
+        runner.add("entity.ParkingLot.setAddress", () -> {
+            lot.setAddress(addresses[addrIdx[0]++ % addresses.length]);
+            return lot.getNumber();
+        });
+        runner.add("entity.ParkingLot.getAddress", lot::getAddress);
+
+        // ---------- DbUtil (on a live ResultSet row) ----------
+        Connection[] rsConn = new Connection[1];
+        ResultSet[] rsRow = new ResultSet[1];
+        BenchmarkRunner.Fixture openRow = () -> {
+            rsConn[0] = db.open();
+            PreparedStatement ps = rsConn[0].prepareStatement(
+                    "SELECT [ID],[name],[street],[number],[availablaSpaces],[isActive],[cityID] FROM ParkingLot");
+            rsRow[0] = ps.executeQuery();
+            rsRow[0].next();
+        };
+        BenchmarkRunner.Fixture closeRow = () -> rsConn[0].close();
+
+        runner.add("DbUtil.getIntAny(exact)", () -> DbUtil.getIntAny(rsRow[0], -1, "ID"), openRow, closeRow);
+        runner.add("DbUtil.getIntAny(normalized)", () -> DbUtil.getIntAny(rsRow[0], -1, "available_spaces", "availabla spaces"), openRow, closeRow);
+        runner.add("DbUtil.getStringAny(exact)", () -> DbUtil.getStringAny(rsRow[0], "name"), openRow, closeRow);
+        runner.add("DbUtil.getStringAny(missing)", () -> DbUtil.getStringAny(rsRow[0], "no_such_column"), openRow, closeRow);
+        runner.add("DbUtil.hasColumn", () -> DbUtil.hasColumn(rsRow[0], "cityID"), openRow, closeRow);
+
+        // ---------- instrumentation overhead: same controller, direct vs through the metrics proxy ----------
+        ControllerMetrics benchMetrics = ControllerMetrics.unregistered("bench");
+        ParkingLotManagement lotsProxy = benchMetrics.wrap(ParkingLotManagement.class, lots);
+        ConveyorManagement conveyorsProxy = benchMetrics.wrap(ConveyorManagement.class, conveyors);
+        runner.addPair("metrics.getDispatchLoad", "direct", () -> conveyors.getDispatchLoad(offConveyor),
+                "proxy", () -> conveyorsProxy.getDispatchLoad(offConveyor));
+        runner.addPair("metrics.getParkingLot", "direct", () -> lots.getParkingLot(busyLot),
+                "proxy", () -> lotsProxy.getParkingLot(busyLot));
+
+        // ---------- controller read paths ----------
+        runner.add("ParkingLot.getAllParkingLots", lots::getAllParkingLots);
+        runner.add("ParkingLot.getAllParkingLots(inactive)", () -> lots.getAllParkingLots(true));
+        runner.add("ParkingLot.getParkingLot", () -> lots.getParkingLot(busyLot));
+        runner.add("Conveyor.getConveyorsByParkingLot", () -> conveyors.getConveyorsByParkingLot(busyLot));
+        runner.add("PriceHistory.getHistoryForParkingLot", () -> history.getHistoryForParkingLot(historyLot));
+        runner.add("PriceHistory.getHistoryRowsForParkingLot", () -> history.getHistoryRowsForParkingLot(historyLot));
+        runner.add("PriceList.getAllPriceLists(cached)", priceLists::getAllPriceLists);
+        runner.add("PriceList.reload", () -> { priceLists.reload(); return priceLists.getCurrentVersion(); });
+
+        // ---------- typeahead search ----------
+        ParkingLotSearchIndex searchIndex = new ParkingLotSearchIndex();
+        searchIndex.rebuild(generatedLots(SEARCH_LOTS));
+        String[] queries = { "ח", "חני", "חניון הרצ", "tel av", "rothsch 4", "בני ברק", "77123", "zzz" };
+        int[] queryIdx = { 0 };
+
+        runner.add("Search.index(" + SEARCH_LOTS + ").top10", () ->
+                searchIndex.search(queries[queryIdx[0]++ % queries.length], 10, false));
+        runner.add("Search.index(" + SEARCH_LOTS + ").put", () -> {
+            int id = 1 + queryIdx[0]++ % SEARCH_LOTS;
+            searchIndex.update(id, "חניון " + id, "Herzl", id % 200 + 1, new City(1, "Tel Aviv"));
+            return id;
+        });
+        runner.add("Search.controller.top10", () -> lots.searchParkingLots("a", 10, false));
+
+        // ---------- conveyor spatial queries: grid vs linear scan ----------
+        List<Conveyor> lotConveyors = generatedConveyors(SPATIAL_CONVEYORS);
+        ConveyorSpatialIndex spatial = new ConveyorSpatialIndex(1);
+        spatial.rebuild(lotConveyors);
+        Random spatialRnd = new Random(42);
+        String spatialN = "(" + SPATIAL_CONVEYORS + ")";
+
+        runner.add("Spatial.nearest5" + spatialN + "(grid)", () ->
+                spatial.nearest(spatialRnd.nextInt(6), spatialRnd.nextInt(1000), spatialRnd.nextInt(1000), 5));
+        runner.add("Spatial.nearest5" + spatialN + "(scan)", () ->
+                scanNearest(lotConveyors, spatialRnd.nextInt(6), spatialRnd.nextInt(1000), spatialRnd.nextInt(1000), 5));
+        runner.add("Spatial.area100x100" + spatialN + "(grid)", () -> {
+            int x = spatialRnd.nextInt(900), y = spatialRnd.nextInt(900);
+            return spatial.inRectangle(spatialRnd.nextInt(6), x, y, x + 100, y + 100, false);
+        });
+        runner.add("Spatial.area100x100" + spatialN + "(scan)", () -> {
+            int x = spatialRnd.nextInt(900), y = spatialRnd.nextInt(900);
+            return scanArea(lotConveyors, spatialRnd.nextInt(6), x, y, x + 100, y + 100);
+        });
+        runner.add("Spatial.onFloor" + spatialN + "(grid)", () -> spatial.onFloor(spatialRnd.nextInt(6), false));
+        runner.add("Spatial.put(move)" + spatialN, () -> {
+            Conveyor c = lotConveyors.get(spatialRnd.nextInt(lotConveyors.size()));
+            c.setFloorNumber(spatialRnd.nextInt(6));
+            c.setX(spatialRnd.nextInt(1000));
+            c.setY(spatialRnd.nextInt(1000));
+            spatial.put(c);
+            return c;
+        });
+
+        // ---------- conveyor dispatch ----------
+        ConveyorDispatcher dispatcher = new ConveyorDispatcher();
+        dispatcher.load(1, lotConveyors);
+        Random dispatchRnd = new Random(42);
+
+        for (ConveyorDispatcher.Strategy strategy : ConveyorDispatcher.Strategy.values()) {
+            runner.add("Dispatch." + strategy + spatialN + "(dispatch+release)", () -> {
+                Conveyor c = dispatcher.dispatch(1, 1000 + dispatchRnd.nextInt(4000), strategy);
+                if (c != null) dispatcher.release(c.getId());
+                return c;
+            });
+        }
+        runner.add("Dispatch.put(status)" + spatialN, () -> {
+            Conveyor c = lotConveyors.get(dispatchRnd.nextInt(lotConveyors.size()));
+            c.setStatus(c.getStatus() == ConveyorStatus.Operational ? ConveyorStatus.Off : ConveyorStatus.Operational);
+            dispatcher.put(c);
+            return c;
+        });
+        runner.add("Dispatch.controller", () -> {
+            Conveyor c = conveyors.dispatchConveyor(busyLot, 1);
+            if (c != null) conveyors.releaseConveyor(c.getId());
+            return c;
+        });
+
+        // ---------- bulk scans: JDBC vs Jackcess ----------
+        AccessDb jackcessDb = new AccessDb(bdb.getWorkingCopy().toAbsolutePath().toString());
+        jackcessDb.setJackcessReads(true);
+        ConveyorManagementController jConveyors = new ConveyorManagementController(jackcessDb);
+        PriceHistoryManagementController jHistory = new PriceHistoryManagementController(jackcessDb);
+
+        runner.add("Bulk.getAllConveyors(jdbc)", () -> conveyors.getAllConveyors(true));
+        runner.add("Bulk.getAllConveyors(jackcess)", () -> jConveyors.getAllConveyors(true));
+        runner.add("Bulk.getAllPriceHistory(jdbc)", history::getAllPriceHistory);
+        runner.add("Bulk.getAllPriceHistory(jackcess)", jHistory::getAllPriceHistory);
+        runner.add("Bulk.conveyorsByLot(jackcess index)",
+                () -> jackcessDb.getJackcessReader().readConveyorsByParkingLot(busyLot, false));
+
+        // ---------- snapshot file ----------
+        Path snapshotFile = bdb.getWorkingCopy().resolveSibling("bench.snapshot");
+        SnapshotFile.write(snapshotFile, db);
+        AccessDb snapshotDb = new AccessDb(bdb.getWorkingCopy().toAbsolutePath().toString());
+        snapshotDb.setReadSource(SnapshotFile.open(snapshotFile));
+        ConveyorManagementController sConveyors = new ConveyorManagementController(snapshotDb);
+        PriceHistoryManagementController sHistory = new PriceHistoryManagementController(snapshotDb);
+        ParkingLotManagementController sLots = new ParkingLotManagementController(snapshotDb);
+
+        runner.add("Snapshot.write", () -> { SnapshotFile.write(snapshotFile, db); return snapshotFile; });
+        runner.add("Snapshot.open", () -> SnapshotFile.open(snapshotFile));
+        runner.add("Snapshot.getAllParkingLots", sLots::getAllParkingLots);
+        runner.add("Snapshot.getConveyorsByParkingLot", () -> sConveyors.getConveyorsByParkingLot(busyLot));
+        runner.add("Snapshot.getAllConveyors", () -> sConveyors.getAllConveyors(true));
+        runner.add("Snapshot.getAllPriceHistory", sHistory::getAllPriceHistory);
+        runner.add("Snapshot.getHistoryRowsForParkingLot", () -> sHistory.getHistoryRowsForParkingLot(historyLot));
+
+        // ---------- conveyor transitions ----------
+        if (offConveyor > 0) {
+            int[] weight = { 2000 };
+            runner.add("Conveyor.decide+confirmMaxWeight", () -> {
+                weight[0] = weight[0] == 2000 ? 2500 : 2000;
+                conveyors.decideChangeMaxWeight(offConveyor, weight[0]);
+                conveyors.confirmChangeMaxWeight(offConveyor);
+                return weight[0];
+            });
+            runner.add("Conveyor.turnOn(+reset to Off)", () -> {
+                conveyors.turnOnConveyors(offConveyor);
+                return bdb.update("UPDATE Conveyor SET [Status]='Off' WHERE [ID]=?", offConveyor);
+            });
+        }
+
+        // ---------- concurrent conveyor writes: auto-commit vs group commit ----------
+        // one operation = WRITERS threads x WRITES_PER_WRITER position updates, all waited for
+        int[] activeConveyors = LoadTest.intColumn(db, "SELECT [ID] FROM Conveyor WHERE [isActive]=True ORDER BY [ID]");
+        if (activeConveyors.length > 0) {
+            AccessDb queuedDb = new AccessDb(bdb.getWorkingCopy().toAbsolutePath().toString());
+            queuedDb.enableConveyorWriteQueue(ConveyorWriteQueue.DEFAULT_CAPACITY, ConveyorWriteQueue.DEFAULT_MAX_BATCH);
+            ConveyorManagementController qConveyors = new ConveyorManagementController(queuedDb);
+            ExecutorService writers = Executors.newFixedThreadPool(WRITERS, r -> {
+                Thread t = new Thread(r, "bench-writer");
+                t.setDaemon(true);
+                return t;
+            });
+
+            runner.add("ConveyorWrites.burst" + WRITERS * WRITES_PER_WRITER + "(autocommit)",
+                    () -> writeBurst(writers, conveyors, activeConveyors));
+            runner.add("ConveyorWrites.burst" + WRITERS * WRITES_PER_WRITER + "(writeQueue)",
+                    () -> writeBurst(writers, qConveyors, activeConveyors));
+        }
+
+        // ---------- price list import ----------
+        runner.add("PriceList.importPriceListsFromJson", () -> {
+            priceLists.importPriceListsFromJson(priceJson.toString());
+            return priceLists.getCurrentVersion();
+        });
+
+        List<BenchmarkRunner.Result> results = runner.run(filter);
+
+        String out = System.getProperty("bench.out");
+        if (out != null && !out.isBlank()) {
+            runner.writeJson(results, Paths.get(out));
+            System.out.println("Results written to " + out);
+        }
+    }
+
+    /** Deterministic lots with Hebrew and English names, streets and cities. */
+    private static List<ParkingLot> generatedLots(int count) {
+        String[] names = { "חניון", "Parking", "חנייה", "Central", "מרכז", "Plaza", "קניון", "Park & Ride" };
+        String[] streets = { "הרצל", "Rothschild Blvd", "דרך מנחם בגין", "Ben Yehuda", "ז'בוטינסקי", "Allenby",
+                "אבן גבירול", "Dizengoff", "שד' ירושלים", "HaYarkon" };
+        City[] cities = {
+                new City(1, "Tel Aviv"), new City(2, "תל אביב-יפו"), new City(3, "Jerusalem"), new City(4, "ירושלים"),
+                new City(5, "Haifa"), new City(6, "חיפה"), new City(7, "Bnei Brak"), new City(8, "בני ברק")
+        };
+
+        List<ParkingLot> lots = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            lots.add(new ParkingLot(i,
+                    names[i % names.length] + " " + streets[(i / 7) % streets.length] + " " + i,
+                    streets[(i * 31) % streets.length],
+                    1 + i % 200,
+                    cities[(i * 13) % cities.length],
+                    i % 500,
+                    i % 10 != 0));
+        }
+        return lots;
+    }
+
+    /** One lot, floors 0..5, X / Y in 0..999, about 10% without a position and 10% inactive. */
+    private static List<Conveyor> generatedConveyors(int count) {
+        Random rnd = new Random(7);
+        List<Conveyor> list = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            boolean placed = rnd.nextInt(10) != 0;
+            list.add(new Conveyor(i, 1,
+                    placed ? rnd.nextInt(6) : null,
+                    placed ? rnd.nextInt(1000) : null,
+                    placed ? rnd.nextInt(1000) : null,
+                    1000 + 250 * rnd.nextInt(13),
+                    ConveyorStatus.Operational, null, rnd.nextInt(10) != 0));
+        }
+        return list;
+    }
+
+    /** What a caller does without the index: every conveyor of the lot, best k kept in a list. */
+    private static List<Conveyor> scanNearest(List<Conveyor> all, int floor, int x, int y, int k) {
+        List<Conveyor> best = new ArrayList<>(k + 1);
+        List<Double> dist = new ArrayList<>(k + 1);
+        for (Conveyor c : all) {
+            if (!c.isActive() || c.getFloorNumber() == null || c.getFloorNumber() != floor
+                    || c.getX() == null || c.getY() == null) continue;
+            double dx = c.getX() - x, dy = c.getY() - y, d = dx * dx + dy * dy;
+            int at = best.size();
+            while (at > 0 && dist.get(at - 1) > d) at--;
+            if (at >= k) continue;
+            best.add(at, c);
+            dist.add(at, d);
+            if (best.size() > k) {
+                best.remove(k);
+                dist.remove(k);
+            }
+        }
+        return best;
+    }
+
+    private static List<Conveyor> scanArea(List<Conveyor> all, int floor, int x1, int y1, int x2, int y2) {
+        List<Conveyor> result = new ArrayList<>();
+        for (Conveyor c : all) {
+            if (!c.isActive() || c.getFloorNumber() == null || c.getFloorNumber() != floor
+                    || c.getX() == null || c.getY() == null) continue;
+            if (c.getX() >= x1 && c.getX() <= x2 && c.getY() >= y1 && c.getY() <= y2) result.add(c);
+        }
+        return result;
+    }
+
+    /** WRITERS concurrent callers, each updating WRITES_PER_WRITER conveyor positions. */
+    private static int writeBurst(ExecutorService writers, ConveyorManagementController conveyors, int[] ids)
+            throws Exception {
+        List<Future<?>> done = new ArrayList<>(WRITERS);
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            done.add(writers.submit(() -> {
+                for (int k = 0; k < WRITES_PER_WRITER; k++) {
+                    int id = ids[(writer * WRITES_PER_WRITER + k) % ids.length];
+                    conveyors.updateConveyorPosition(id, k % 3, writer, k);
+                }
+            }));
+        }
+        for (Future<?> f : done) f.get();
+        return WRITERS * WRITES_PER_WRITER;
+    }
+}
@@ -1,7 +1,8 @@
 package boundary;
 
-import control.ConveyorManagementController;
-import control.ParkingLotManagementController;
+import control.ConveyorManagement;
+import control.OptimisticLockException;
+import control.ParkingLotManagement;
 import entity.Conveyor;
 import entity.ConveyorLastStatus;
 import entity.ConveyorStatus;
@@ -10,7 +11,9 @@ import entity.ParkingLot;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * ConveyorManagementUI
@@ -22,14 +25,20 @@ import java.util.List;
  * - Default: show only ACTIVE conveyors
  * - Optional: checkbox "Show inactive"
  * - NEW button: "Turn ON ALL (Lot)"
+ * - Actions apply only to the row version shown in the table (someone else changed it -> message + reload)
  */
 public class ConveyorManagementUI extends JPanel {
 
-    private final ConveyorManagementController controller;
-    private final ParkingLotManagementController parkingLotController;
+    private static final long serialVersionUID = 1L;
+
+    private final ConveyorManagement controller;
+    private final ParkingLotManagement parkingLotController;
 
     private Integer parkingLotId = null;
 
+    // conveyor ID -> rowVersion of the row shown in the table (EDT only)
+    private final Map<Integer, Integer> rowVersionById = new HashMap<>();
+
     private JTable table;
     private DefaultTableModel model;
 
@@ -62,8 +71,8 @@ public class ConveyorManagementUI extends JPanel {
     private JButton restartBtn;
     private JButton turnOffBtn;
 
-    public ConveyorManagementUI(ConveyorManagementController controller,
-                               ParkingLotManagementController parkingLotController) {
+    public ConveyorManagementUI(ConveyorManagement controller,
+                               ParkingLotManagement parkingLotController) {
         this.controller = controller;
         this.parkingLotController = parkingLotController;
 
@@ -245,12 +254,14 @@ public class ConveyorManagementUI extends JPanel {
 
     private void loadConveyors() {
         model.setRowCount(0);
+        rowVersionById.clear();
         if (parkingLotId == null) return;
 
         boolean includeInactive = showInactiveConveyors != null && showInactiveConveyors.isSelected();
 
         List<Conveyor> list = controller.getConveyorsByParkingLot(parkingLotId, includeInactive);
         for (Conveyor c : list) {
+            rowVersionById.put(c.getId(), c.getRowVersion());
 
             ConveyorLastStatus last = c.getLastStatus();
 
@@ -394,8 +405,10 @@ public class ConveyorManagementUI extends JPanel {
         if (ok != JOptionPane.YES_OPTION) return;
 
         try {
-            controller.deleteConveyor(id); // now soft delete in controller
+            controller.deleteConveyor(id, rowVersion(id)); // now soft delete in controller
             loadConveyors();
+        } catch (OptimisticLockException conflict) {
+            showConflict(conflict);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -409,8 +422,10 @@ public class ConveyorManagementUI extends JPanel {
         if (lot == null) return;
 
         try {
-            controller.moveConveyorToParkingLot(id, lot.getId());
+            controller.moveConveyorToParkingLot(id, lot.getId(), rowVersion(id));
             loadConveyors();
+        } catch (OptimisticLockException conflict) {
+            showConflict(conflict);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -437,8 +452,10 @@ public class ConveyorManagementUI extends JPanel {
         if (id == null) return;
 
         try {
-            controller.confirmChangeMaxWeight(id);
+            controller.confirmChangeMaxWeight(id, rowVersion(id));
             loadConveyors();
+        } catch (OptimisticLockException conflict) {
+            showConflict(conflict);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -449,8 +466,10 @@ public class ConveyorManagementUI extends JPanel {
         if (id == null) return;
 
         try {
-            controller.turnOnConveyors(id);
+            controller.turnOnConveyors(id, rowVersion(id));
             loadConveyors();
+        } catch (OptimisticLockException conflict) {
+            showConflict(conflict);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -461,8 +480,10 @@ public class ConveyorManagementUI extends JPanel {
         if (id == null) return;
 
         try {
-            controller.restart(id);
+            controller.restart(id, rowVersion(id));
             loadConveyors();
+        } catch (OptimisticLockException conflict) {
+            showConflict(conflict);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -473,8 +494,10 @@ public class ConveyorManagementUI extends JPanel {
         if (id == null) return;
 
         try {
-            controller.turnOffConveyors(id);
+            controller.turnOffConveyors(id, rowVersion(id));
             loadConveyors();
+        } catch (OptimisticLockException conflict) {
+            showConflict(conflict);
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -491,4 +514,16 @@ public class ConveyorManagementUI extends JPanel {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
+
+    private int rowVersion(int conveyorId) {
+        Integer version = rowVersionById.get(conveyorId);
+        return version == null ? 0 : version;
+    }
+
+    private void showConflict(OptimisticLockException conflict) {
+        JOptionPane.showMessageDialog(this,
+                "Conveyor #" + conflict.getId() + " was changed by someone else. The list is reloaded; check it and try again.",
+                "Changed by someone else", JOptionPane.WARNING_MESSAGE);
+        loadConveyors();
+    }
 }
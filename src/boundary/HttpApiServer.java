@@ -0,0 +1,324 @@
+package boundary;
+
+import control.ApiProtocol;
+import control.CityManagement;
+import control.ConveyorManagement;
+import control.OptimisticLockException;
+import control.ParkingLotManagement;
+import control.PriceHistoryManagement;
+import control.PriceListManagement;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HttpApiServer
+ * -------------
+ * Headless service mode: one process owns the AccessDb (connection pool, caches, price index,
+ * read replica, single writer) and any number of clients use it over HTTP/JSON (see ApiProtocol).
+ *
+ * - JDK com.sun.net.httpserver, one virtual thread per request (fixed pool before Java 21)
+ * - routes = an explicit allow-list of controller methods (ROUTES below; anything else is 404):
+ *   /api/{component}/{method}, overloads by argument count
+ * - reads accept GET (no arguments) or POST; writes are POST only (405 otherwise)
+ * - the price list import takes the JSON document in the body (importPriceLists / previewImport);
+ *   methods that open a file by a path the client names are not routed
+ * - errors: 400 IllegalArgumentException / bad request, 409 IllegalStateException /
+ *   UnsupportedOperationException (OptimisticLockException with the current row), 500 anything else,
+ *   404 unknown route, 405 write without POST
+ */
+public class HttpApiServer {
+
+    private static final int FALLBACK_THREADS = 32;
+
+    private enum Access { READ, WRITE }
+
+    // component -> method name -> READ / WRITE; only these are served
+    private static final Map<String, Map<String, Access>> ROUTES = new HashMap<>();
+    static {
+        route(ApiProtocol.CITY, Access.READ, "getAllCities", "findCityByName");
+        route(ApiProtocol.CITY, Access.WRITE, "addCity", "updateCityName");
+
+        route(ApiProtocol.PARKING_LOT, Access.READ, "getParkingLot", "getAllParkingLots", "searchParkingLots");
+        route(ApiProtocol.PARKING_LOT, Access.WRITE, "addParkingLot", "updateParkingLot", "deleteParkingLot",
+                "reloadSearchIndex");
+
+        route(ApiProtocol.CONVEYOR, Access.READ, "getConveyorsByParkingLot", "getAllConveyors", "getPendingWeight",
+                "getConveyorsOnFloor", "getConveyorsInArea", "findNearestConveyors", "getUnplacedConveyors",
+                "getDispatchLoad");
+        route(ApiProtocol.CONVEYOR, Access.WRITE, "addConveyorToParkingLot", "moveConveyorToParkingLot",
+                "updateConveyorPosition", "deleteConveyor", "turnOnAllConveyorsInParkingLot", "decideChangeMaxWeight",
+                "confirmChangeMaxWeight", "turnOnConveyors", "restart", "turnOffConveyors", "pause",
+                "updateConveyorStatus", "reloadSpatialIndexes", "dispatchConveyor", "releaseConveyor");
+
+        route(ApiProtocol.PRICE_LIST, Access.READ, "getAllPriceLists", "getPriceListsForYear", "getById",
+                "getCurrentVersion", "getDbIdForJsonPriceListId", "previewImport", "previewImportFromDefaultJson");
+        route(ApiProtocol.PRICE_LIST, Access.WRITE, "importPriceLists", "importPriceListsFromDefaultJson",
+                "applyImport", "reload");
+
+        route(ApiProtocol.PRICE_HISTORY, Access.READ, "getHistoryForParkingLot", "getHistoryRowsForParkingLot",
+                "getHistoryRowsForParkingLots", "getScheduledPriceChanges", "getEffectivePriceListId",
+                "getEffectivePriceListIds", "getAllPriceHistory");
+        route(ApiProtocol.PRICE_HISTORY, Access.WRITE, "assignPriceListToParkingLot", "schedulePriceListChange",
+                "activateScheduledPriceChanges", "assignPriceListToParkingLots", "assignPriceListToCity",
+                "assignPriceListToAllParkingLots", "reloadPriceIndex");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Gson gson = ApiProtocol.gson();
+    private final LongAdder requests = new LongAdder();
+
+    // "Component/method/argc" -> target
+    private final Map<String, Route> routes = new HashMap<>();
+
+    public HttpApiServer(InetSocketAddress address,
+                         CityManagement cityController,
+                         ParkingLotManagement parkingLotController,
+                         ConveyorManagement conveyorController,
+                         PriceListManagement priceListController,
+                         PriceHistoryManagement priceHistoryController) throws IOException {
+
+        register(ApiProtocol.CITY, cityController, CityManagement.class);
+        register(ApiProtocol.PARKING_LOT, parkingLotController, ParkingLotManagement.class);
+        register(ApiProtocol.CONVEYOR, conveyorController, ConveyorManagement.class);
+        register(ApiProtocol.PRICE_LIST, priceListController, PriceListManagement.class);
+        register(ApiProtocol.PRICE_HISTORY, priceHistoryController, PriceHistoryManagement.class);
+
+        // small JSON responses: without TCP_NODELAY every call waits ~40 ms for the delayed ACK
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        executor = newRequestExecutor();
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext(ApiProtocol.PATH_PREFIX, this::handle);
+    }
+
+    /** Binds to the loopback interface only. */
+    public HttpApiServer(int port,
+                         CityManagement cityController,
+                         ParkingLotManagement parkingLotController,
+                         ConveyorManagement conveyorController,
+                         PriceListManagement priceListController,
+                         PriceHistoryManagement priceHistoryController) throws IOException {
+        this(new InetSocketAddress("127.0.0.1", port),
+                cityController, parkingLotController, conveyorController, priceListController, priceHistoryController);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /** Stops accepting requests and waits up to {@code delaySeconds} for the running ones. */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + getPort();
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    // ----------------- routing -----------------
+
+    private static void route(String component, Access access, String... methods) {
+        Map<String, Access> byMethod = ROUTES.computeIfAbsent(component, c -> new HashMap<>());
+        for (String m : methods) byMethod.put(m, access);
+    }
+
+    private <T> void register(String component, T controller, Class<T> type) {
+        Map<String, Access> allowed = ROUTES.get(component);
+        Set<String> found = new HashSet<>();
+
+        for (Method m : type.getMethods()) {
+            Access access = allowed.get(m.getName());
+            if (access == null || Modifier.isStatic(m.getModifiers())) continue;
+            found.add(m.getName());
+
+            String key = component + "/" + m.getName() + "/" + m.getParameterCount();
+            if (routes.put(key, new Route(controller, m, access)) != null) {
+                // two overloads with the same argument count cannot be told apart on the wire
+                throw new IllegalStateException("Ambiguous API route: " + key);
+            }
+        }
+        for (String m : allowed.keySet()) {
+            if (!found.contains(m)) throw new IllegalStateException("No such API method: " + component + "/" + m);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.increment();
+        try {
+            String path = exchange.getRequestURI().getPath().substring(ApiProtocol.PATH_PREFIX.length());
+
+            if (path.equals("health")) {
+                send(exchange, 200, "{\"status\":\"UP\"}");
+                return;
+            }
+
+            int slash = path.indexOf('/');
+            if (slash <= 0) {
+                sendError(exchange, 404, "NotFound", "Unknown API path: " + path);
+                return;
+            }
+
+            JsonArray args = readArgs(exchange);
+            if (args == null) return;
+
+            Route route = routes.get(path + "/" + args.size());
+            if (route == null) {
+                sendError(exchange, 404, "NotFound", "Unknown API method: " + path + " with " + args.size() + " argument(s)");
+                return;
+            }
+            if (route.access == Access.WRITE && !exchange.getRequestMethod().equalsIgnoreCase("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, 405, "MethodNotAllowed", path + " changes data: use POST");
+                return;
+            }
+
+            Object[] values;
+            try {
+                values = route.decode(args, gson);
+            } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+                sendError(exchange, 400, "IllegalArgumentException", "Bad arguments for " + path + ": " + e.getMessage());
+                return;
+            }
+
+            Object result;
+            try {
+                result = route.method.invoke(route.controller, values);
+            } catch (InvocationTargetException e) {
+                sendFailure(exchange, e.getCause());
+                return;
+            }
+
+            send(exchange, 200, route.method.getReturnType() == void.class
+                    ? "null"
+                    : gson.toJson(result, route.method.getGenericReturnType()));
+        } catch (Exception e) {
+            sendFailure(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** @return the JSON argument array, or null after sending a 400 / 405 */
+    private JsonArray readArgs(HttpExchange exchange) throws IOException {
+        String verb = exchange.getRequestMethod();
+        if (verb.equalsIgnoreCase("GET")) return new JsonArray();
+        if (!verb.equalsIgnoreCase("POST")) {
+            sendError(exchange, 405, "MethodNotAllowed", "Use GET or POST");
+            return null;
+        }
+
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (body.isBlank()) return new JsonArray();
+
+        try {
+            return JsonParser.parseString(body).getAsJsonArray();
+        } catch (JsonParseException | IllegalStateException e) {
+            sendError(exchange, 400, "IllegalArgumentException", "Request body must be a JSON array of arguments");
+            return null;
+        }
+    }
+
+    private void sendFailure(HttpExchange exchange, Throwable error) throws IOException {
+        int status;
+        if (error instanceof IllegalArgumentException) status = 400;
+        else if (error instanceof IllegalStateException || error instanceof UnsupportedOperationException) status = 409;
+        else {
+            status = 500;
+            error.printStackTrace();
+        }
+        if (error instanceof OptimisticLockException) {
+            send(exchange, status, gson.toJson(new ApiProtocol.Error((OptimisticLockException) error)));
+            return;
+        }
+        sendError(exchange, status, error.getClass().getSimpleName(), error.getMessage());
+    }
+
+    private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+        send(exchange, status, gson.toJson(new ApiProtocol.Error(type, message)));
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static ExecutorService newRequestExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException notAvailable) {
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, r -> {
+                Thread t = new Thread(r, "parkwise-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    private static final class Route {
+        final Object controller;
+        final Method method;
+        final Access access;
+        final Type[] parameterTypes;
+
+        Route(Object controller, Method method, Access access) {
+            this.controller = controller;
+            this.method = method;
+            this.access = access;
+            this.parameterTypes = method.getGenericParameterTypes();
+        }
+
+        Object[] decode(JsonArray args, Gson gson) {
+            Object[] values = new Object[parameterTypes.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = gson.fromJson(args.get(i), parameterTypes[i]);
+                if (values[i] == null && method.getParameterTypes()[i].isPrimitive()) {
+                    throw new JsonParseException("argument " + (i + 1) + " must not be null");
+                }
+            }
+            return values;
+        }
+    }
+}
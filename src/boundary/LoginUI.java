@@ -12,6 +12,8 @@ import java.awt.*;
  */
 public class LoginUI extends JFrame {
 
+    private static final long serialVersionUID = 1L;
+
     public interface LoginCallback {
         void onLoginSuccess();
     }
@@ -1,54 +1,531 @@
 package boundary;
 
 import control.AccessDb;
+import control.ApiClient;
+import control.CityManagement;
 import control.CityManagementController;
+import control.CompactionScheduler;
+import control.ControllerMetrics;
+import control.ConveyorManagement;
 import control.ConveyorManagementController;
+import control.ConveyorWriteQueue;
+import control.DatabaseCompactor;
+import control.ParkingLotManagement;
 import control.ParkingLotManagementController;
+import control.PriceChangeScheduler;
+import control.PriceHistoryManagement;
 import control.PriceHistoryManagementController;
+import control.PriceListManagement;
 import control.PriceListManagementController;
+import control.RemoteCityManagementController;
+import control.RemoteConveyorManagementController;
+import control.RemoteParkingLotManagementController;
+import control.RemotePriceHistoryManagementController;
+import control.RemotePriceListManagementController;
+import control.SchemaMigrator;
+import control.ShardRouter;
+import control.ShardSet;
+import control.ShardSplitter;
+import control.ShardedCityManagementController;
+import control.ShardedConveyorManagementController;
+import control.ShardedParkingLotManagementController;
+import control.ShardedPriceHistoryManagementController;
+import control.ShardedPriceListManagementController;
+import control.SnapshotFile;
+import control.SoftDeleteArchiver;
+import control.SqlTracer;
+import control.StartupLoader;
+import entity.City;
+import entity.ParkingLot;
 
 import javax.swing.*;
-import java.sql.Connection;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+/**
+ * Main
+ * ----
+ *   (no args)              desktop app on the local database
+ *   --server [port]        headless: loads the database once and serves it over HTTP/JSON (HttpApiServer)
+ *   --remote [url]         desktop app on a running server (no local database access)
+ *   --split-shards <shards.properties> [source.accdb] [--force]
+ *                          creates the shard files of a shard config from one database (ShardSplitter)
+ *   --migrate-schema [db.accdb]
+ *                          backs the file up and applies the pending schema migrations, with the
+ *                          affected query timings before / after (SchemaMigrator); the app does not
+ *                          open a file that is not migrated
+ *   --archive [db.accdb] [batchSize]
+ *                          moves inactive parking lots / conveyors and their price history to the archive
+ *                          tables (SoftDeleteArchiver)
+ *   --compact [db.accdb]   rewrites the file without dead rows / free pages, with the page statistics
+ *                          before / after (DatabaseCompactor)
+ *
+ * -Dparkwise.compact.at=HH:mm: the server compacts its databases daily at that time (CompactionScheduler);
+ * a run is skipped while other processes use the file. Ignored by the desktop app.
+ * -Dparkwise.shards=<shards.properties>: desktop app / server on a set of shard databases (ShardRouter),
+ * no snapshot file in that mode.
+ */
 public class Main {
 
+    private static final int DEFAULT_PORT = 8085;
+    private static final String DEFAULT_DB = "db/parkwise_OfriMagi.accdb";
+
+    private final AccessDb db;      // null in --remote mode, the primary shard when sharded
+    private final List<AccessDb> databases;     // every shard when sharded, else just db
+    private final Path snapshotPath;            // null: no snapshot (--remote, sharded)
+
+    private final CityManagement cityController;
+    private final ParkingLotManagement parkingLotController;
+    private final ConveyorManagement conveyorController;
+    private final PriceListManagement priceListController;
+    private final PriceHistoryManagement priceHistoryController;
+
+    // EDT only
+    private List<City> cities;
+    private List<ParkingLot> activeLots;
+    private ParkingLotDashboardUI dashboard;
+
+    private Main(AccessDb db, Path snapshotPath) {
+        this(db, List.of(db), snapshotPath,
+                new CityManagementController(db),
+                new ParkingLotManagementController(db),
+                new ConveyorManagementController(db),
+                new PriceListManagementController(db),
+                new PriceHistoryManagementController(db));
+    }
+
+    private Main(AccessDb db,
+                 List<AccessDb> databases,
+                 Path snapshotPath,
+                 CityManagement cityController,
+                 ParkingLotManagement parkingLotController,
+                 ConveyorManagement conveyorController,
+                 PriceListManagement priceListController,
+                 PriceHistoryManagement priceHistoryController) {
+        this.db = db;
+        this.databases = databases;
+        this.snapshotPath = snapshotPath;
+        // -Dparkwise.metrics: every call from the UI / HTTP API is recorded here (JMX)
+        this.cityController = ControllerMetrics.instrument(CityManagement.class, cityController);
+        this.parkingLotController = ControllerMetrics.instrument(ParkingLotManagement.class, parkingLotController);
+        this.conveyorController = ControllerMetrics.instrument(ConveyorManagement.class, conveyorController);
+        this.priceListController = ControllerMetrics.instrument(PriceListManagement.class, priceListController);
+        this.priceHistoryController = ControllerMetrics.instrument(PriceHistoryManagement.class, priceHistoryController);
+    }
+
     public static void main(String[] args) {
 
-        SwingUtilities.invokeLater(() -> {
+        if (args.length > 0 && args[0].equals("--remote")) {
+            String url = args.length > 1 ? args[1] : "http://127.0.0.1:" + DEFAULT_PORT;
+            remote(new ApiClient(url)).startRemote();
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--split-shards")) {
+            splitShards(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--migrate-schema")) {
+            migrateSchema(args.length > 1 ? args[1] : DEFAULT_DB);
+            return;
+        }
 
-            AccessDb db = new AccessDb("db/parkwise_OfriMagi.accdb");
+        if (args.length > 0 && args[0].equals("--archive")) {
+            archive(args.length > 1 ? args[1] : DEFAULT_DB,
+                    args.length > 2 ? Integer.parseInt(args[2]) : SoftDeleteArchiver.DEFAULT_BATCH_SIZE);
+            return;
+        }
 
-            try (Connection c = db.open()) {
-                // DB OK
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(null,
-                        "Database connection failed:\n" + e.getMessage(),
-                        "DB Error",
-                        JOptionPane.ERROR_MESSAGE);
-                return;
+        if (args.length > 0 && args[0].equals("--compact")) {
+            compact(args.length > 1 ? args[1] : DEFAULT_DB);
+            return;
+        }
+
+        ShardSet shards = loadShards(System.getProperty("parkwise.shards"));
+
+        List<AccessDb> databases = new ArrayList<>();
+        if (shards == null) {
+            databases.add(new AccessDb(DEFAULT_DB));
+        } else {
+            for (ShardSet.Shard shard : shards.getShards()) databases.add(shard.getDb());
+        }
+
+        // -Dparkwise.sqlTrace=true: slow-query log + top-N SQL summary on exit
+        SqlTracer sqlTracer = SqlTracer.fromSystemProperties();
+        if (sqlTracer != null) {
+            for (AccessDb db : databases) db.setSqlTracer(sqlTracer);
+            Runtime.getRuntime().addShutdownHook(new Thread(() ->
+                    System.out.println("Top SQL by total time:\n" + sqlTracer.formatSummary(20))));
+        }
+
+        // -Dparkwise.conveyorWriteQueue=true: conveyor writes through one group-committing writer thread
+        if (Boolean.getBoolean("parkwise.conveyorWriteQueue")) {
+            for (AccessDb db : databases) {
+                db.enableConveyorWriteQueue(
+                        Integer.getInteger("parkwise.conveyorWriteQueue.capacity", ConveyorWriteQueue.DEFAULT_CAPACITY),
+                        Integer.getInteger("parkwise.conveyorWriteQueue.maxBatch", ConveyorWriteQueue.DEFAULT_MAX_BATCH));
+                // commits whatever is still queued before the JVM exits
+                Runtime.getRuntime().addShutdownHook(new Thread(db::disableConveyorWriteQueue));
             }
+        }
+
+        Main main;
+        if (shards == null) {
+            // -Dparkwise.snapshot=<file>: columnar copy of the data, rewritten after every online start
+            Path snapshotPath = Paths.get(System.getProperty("parkwise.snapshot", "db/parkwise.snapshot"));
+            main = new Main(databases.get(0), snapshotPath);
+        } else {
+            main = sharded(shards, databases);
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            main.startServer(args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT);
+        } else {
+            main.start();
+        }
+    }
+
+    private static Main remote(ApiClient api) {
+        return new Main(null, List.of(), null,
+                new RemoteCityManagementController(api),
+                new RemoteParkingLotManagementController(api),
+                new RemoteConveyorManagementController(api),
+                new RemotePriceListManagementController(api),
+                new RemotePriceHistoryManagementController(api));
+    }
+
+    private static Main sharded(ShardSet shards, List<AccessDb> databases) {
+        ShardRouter router = new ShardRouter(shards);
+        System.out.println("[startup] " + shards.size() + " shards: " + shards.getShards());
+        return new Main(shards.primary().getDb(), databases, null,
+                new ShardedCityManagementController(router),
+                new ShardedParkingLotManagementController(router),
+                new ShardedConveyorManagementController(router),
+                new ShardedPriceListManagementController(router),
+                new ShardedPriceHistoryManagementController(router));
+    }
 
-            CityManagementController cityController = new CityManagementController(db);
-            ParkingLotManagementController parkingLotController = new ParkingLotManagementController(db);
-            ConveyorManagementController conveyorController = new ConveyorManagementController(db);
-            PriceListManagementController priceListController = new PriceListManagementController(db);
-            PriceHistoryManagementController priceHistoryController = new PriceHistoryManagementController(db);
+    private static ShardSet loadShards(String config) {
+        if (config == null || config.isBlank()) return null;
+        try {
+            return ShardSet.load(Paths.get(config));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Cannot read shard config " + config + ": " + e.getMessage());
+            System.exit(1);
+            return null;
+        }
+    }
+
+    /** --split-shards <shards.properties> [source.accdb] [--force] */
+    private static void splitShards(String[] args) {
+        List<String> rest = new ArrayList<>(Arrays.asList(args).subList(1, args.length));
+        boolean force = rest.remove("--force");
+        if (rest.isEmpty()) {
+            System.err.println("Usage: --split-shards <shards.properties> [source.accdb] [--force]");
+            System.exit(2);
+        }
+
+        ShardSet shards = loadShards(rest.get(0));
+        Path source = Paths.get(rest.size() > 1 ? rest.get(1) : DEFAULT_DB).toAbsolutePath();
+        try {
+            ShardSplitter.split(source, shards, force);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Split failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** --migrate-schema [db.accdb] */
+    private static void migrateSchema(String path) {
+        Path file = Paths.get(path).toAbsolutePath();
+        try {
+            System.out.println(SchemaMigrator.migrateWithReport(file));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Migration failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** --archive [db.accdb] [batchSize] */
+    private static void archive(String path, int batchSize) {
+        try {
+            System.out.println(new SoftDeleteArchiver(new AccessDb(path), batchSize).run());
+        } catch (RuntimeException e) {
+            System.err.println("Archive failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    /** --compact [db.accdb] */
+    private static void compact(String path) {
+        try {
+            System.out.print(new DatabaseCompactor(new AccessDb(path)).compact());
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Compaction failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private void start() {
+        SnapshotFile.Snapshot snapshot = openSnapshot();
 
-            LoginUI loginUI = new LoginUI(() -> {
+        if (snapshot != null && !db.isAvailable()) {
+            db.setReadOnly(true);
+            db.setReadSource(snapshot);
+            System.out.println("[startup] database not found, offline read-only mode from " + snapshot);
+        }
 
-                ParkingLotDashboardUI dashboard =
-                        new ParkingLotDashboardUI(
-                                parkingLotController,
-                                cityController,
-                                conveyorController,
-                                priceHistoryController,
-                                priceListController
-                        );
+        StartupLoader loader =
+                new StartupLoader(db, cityController, parkingLotController, priceListController, priceHistoryController);
 
-                dashboard.setVisible(true);
+        if (snapshot == null) {
+            // no snapshot: splash while DB + cities + lots + price lists + price index + search index load;
+            // the splash is a Swing window, so it is built on the EDT and the loader started from there
+            SwingUtilities.invokeLater(() -> {
+                SplashScreenUI splash = new SplashScreenUI();
+                splash.setVisible(true);
+
+                loader.start(splash::setProgress)
+                        .whenComplete((data, error) -> SwingUtilities.invokeLater(() -> {
+                            splash.dispose();
+
+                            if (error != null) {
+                                fail(error);
+                                return;
+                            }
+
+                            onLoaded(data);
+                            showLogin();
+                        }));
             });
+            return;
+        }
 
-            loginUI.setVisible(true);
+        // snapshot: interactive right away, the live DB loads behind it
+        List<City> snapshotCities = snapshot.getCities();
+        List<ParkingLot> snapshotLots = new ArrayList<>();
+        for (ParkingLot p : snapshot.getParkingLots()) {
+            if (p.isActive()) snapshotLots.add(p);
+        }
+
+        SwingUtilities.invokeLater(() -> {
+            cities = snapshotCities;
+            activeLots = snapshotLots;
+            showLogin();
         });
+
+        loader.withInterimSource(snapshot)
+                .start(null)
+                .whenComplete((data, error) -> SwingUtilities.invokeLater(() -> {
+                    if (error != null) {
+                        goOffline(snapshot, error);
+                        return;
+                    }
+                    onLoaded(data);
+                }));
+    }
+
+    /** Headless: warm everything up once, then serve all clients from this process. */
+    private void startServer(int port) {
+        StartupLoader.StartupData data;
+        try {
+            data = new StartupLoader(db, cityController, parkingLotController, priceListController, priceHistoryController)
+                    .start((done, total, step) -> System.out.println("[server] " + done + "/" + total + " " + step))
+                    .join();
+        } catch (Exception e) {
+            System.err.println("[server] database connection failed: " + rootCause(e).getMessage());
+            System.exit(1);
+            return;
+        }
+        System.out.println("[server] warm-up " + data.getElapsedMillis() + " ms");
+
+        new PriceChangeScheduler(priceHistoryController).start();
+        startCompaction();
+        if (Boolean.getBoolean("parkwise.readReplica")) startReadReplica();
+
+        HttpApiServer server;
+        try {
+            server = new HttpApiServer(port,
+                    cityController, parkingLotController, conveyorController, priceListController, priceHistoryController);
+        } catch (IOException e) {
+            System.err.println("[server] cannot listen on port " + port + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(2)));
+
+        System.out.println("[server] ParkWise API on " + server.getUrl() + "/api/ (health: /api/health)");
+    }
+
+    /** Desktop app against a server: fetch what the dashboard starts with, then log in. */
+    private void startRemote() {
+        SwingUtilities.invokeLater(() -> {
+            SplashScreenUI splash = new SplashScreenUI();
+            splash.setVisible(true);
+            loadRemote(splash);
+        });
+    }
+
+    private void loadRemote(SplashScreenUI splash) {
+        background("parkwise-remote-load", () -> {
+            try {
+                splash.setProgress(0, 2, "Cities");
+                List<City> remoteCities = cityController.getAllCities();
+                splash.setProgress(1, 2, "Parking lots");
+                List<ParkingLot> remoteLots = parkingLotController.getAllParkingLots();
+                splash.setProgress(2, 2, "Ready");
+
+                SwingUtilities.invokeLater(() -> {
+                    splash.dispose();
+                    cities = remoteCities;
+                    activeLots = remoteLots;
+                    showLogin();
+                });
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    splash.dispose();
+                    fail(e);
+                });
+            }
+        });
+    }
+
+    /** -Dparkwise.compact.at=HH:mm: daily compaction of every database of the server (daemon threads). */
+    private void startCompaction() {
+        if (CompactionScheduler.DEFAULT_TIME == null) return;
+        for (AccessDb shard : databases) new CompactionScheduler(shard, CompactionScheduler.DEFAULT_TIME).start();
+    }
+
+    /** Live data is in: refresh what the user sees, start the scheduler, write a fresh snapshot. */
+    private void onLoaded(StartupLoader.StartupData data) {
+        cities = data.getCities();
+        activeLots = data.getParkingLots();
+        if (dashboard != null) dashboard.reloadData();
+
+        System.out.println("[startup] warm-up " + data.getElapsedMillis() + " ms");
+        if (db.isReadOnly()) return;
+
+        // activates future-dated tariff changes at midnight (daemon thread)
+        new PriceChangeScheduler(priceHistoryController).start();
+        if (CompactionScheduler.DEFAULT_TIME != null) {
+            // other desktop clients share the file: only the server may swap it
+            System.out.println("[startup] -Dparkwise.compact.at is ignored by the desktop app (use --server or --compact)");
+        }
+
+        if (snapshotPath != null) background("parkwise-snapshot", this::writeSnapshot);
+
+        // -Dparkwise.readReplica=true: all reads from an in-memory copy kept in sync with the file
+        if (Boolean.getBoolean("parkwise.readReplica")) background("parkwise-replica-load", this::startReadReplica);
+    }
+
+    private void showLogin() {
+        LoginUI loginUI = new LoginUI(() -> {
+            long shownAt = System.nanoTime();
+
+            dashboard = new ParkingLotDashboardUI(
+                    parkingLotController,
+                    cityController,
+                    conveyorController,
+                    priceHistoryController,
+                    priceListController,
+                    cities,
+                    activeLots
+            );
+            if (db != null && db.isReadOnly()) dashboard.setTitle(dashboard.getTitle() + " (offline, read-only)");
+
+            dashboard.setVisible(true);
+            System.out.println("[startup] dashboard shown in "
+                    + (System.nanoTime() - shownAt) / 1_000_000 + " ms after login");
+        });
+
+        loginUI.setVisible(true);
+        System.out.println("[startup] time-to-interactive " + millisSinceJvmStart() + " ms");
+    }
+
+    /** The DB failed to load but a snapshot exists: keep running on the snapshot, read-only. */
+    private void goOffline(SnapshotFile.Snapshot snapshot, Throwable error) {
+        db.setReadOnly(true);
+        db.setReadSource(snapshot);
+        if (dashboard != null) dashboard.setTitle(dashboard.getTitle() + " (offline, read-only)");
+
+        JOptionPane.showMessageDialog(null,
+                "Database connection failed:\n" + rootCause(error).getMessage()
+                        + "\n\nContinuing in read-only mode with the data saved on " + snapshot.getCreatedAt() + ".",
+                "Offline Mode",
+                JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void fail(Throwable error) {
+        // --remote: the client's own message names the server URL
+        String reason = db == null ? error.getMessage() : "Database connection failed:\n" + rootCause(error).getMessage();
+        JOptionPane.showMessageDialog(null,
+                reason,
+                "DB Error",
+                JOptionPane.ERROR_MESSAGE);
+        System.exit(1);
+    }
+
+    private SnapshotFile.Snapshot openSnapshot() {
+        if (snapshotPath == null) return null;
+        if (!Files.exists(snapshotPath) && !Files.exists(snapshotPath.resolveSibling(snapshotPath.getFileName() + ".new"))) {
+            return null;
+        }
+        try {
+            return SnapshotFile.open(snapshotPath);
+        } catch (Exception e) {
+            // unreadable snapshot: start the normal way, it is rewritten after the load
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void writeSnapshot() {
+        long start = System.nanoTime();
+        try {
+            SnapshotFile.write(snapshotPath, db);
+            System.out.println("[startup] snapshot written to " + snapshotPath + " in "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void startReadReplica() {
+        long maxStalenessMs = Long.getLong("parkwise.readReplica.maxStalenessMs", 2000);
+        long start = System.nanoTime();
+        try {
+            for (AccessDb shard : databases) shard.enableReadReplica(maxStalenessMs);
+            System.out.println("[startup] read replica loaded in " + (System.nanoTime() - start) / 1_000_000
+                    + " ms (max staleness " + maxStalenessMs + " ms)");
+        } catch (Exception e) {
+            // reads keep going to the DB
+            e.printStackTrace();
+        }
+    }
+
+    private static void background(String name, Runnable task) {
+        Thread t = new Thread(task, name);
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private static Throwable rootCause(Throwable error) {
+        Throwable cause = error;
+        while (cause.getCause() != null) cause = cause.getCause();
+        return cause;
+    }
+
+    private static long millisSinceJvmStart() {
+        return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
     }
-}
\ No newline at end of file
+}
@@ -1,18 +1,24 @@
 package boundary;
 
-import control.CityManagementController;
-import control.ConveyorManagementController;
-import control.ParkingLotManagementController;
-import control.PriceHistoryManagementController;
-import control.PriceListManagementController;
+import control.CityManagement;
+import control.ConveyorManagement;
+import control.OptimisticLockException;
+import control.ParkingLotManagement;
+import control.PriceHistoryManagement;
+import control.PriceListManagement;
 import entity.City;
 import entity.ParkingLot;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * ParkingLotDashboardUI
@@ -25,14 +31,26 @@ import java.util.List;
  * - Soft delete: Deactivate instead of DELETE
  * - Default: show only ACTIVE parking lots
  * - Optional: checkbox "Show inactive"
+ *
+ * Startup:
+ * - can be built from data preloaded by StartupLoader (no DB round trip before it shows)
+ * - secondary windows are built on first use and reused afterwards
+ *
+ * Search:
+ * - typeahead on ID / name / street / number / city (ParkingLotManagementController.searchParkingLots),
+ *   suggestions under the field once typing pauses (SUGGEST_DELAY_MS), searched off the EDT (one
+ *   SwingWorker at a time, results of an older query are dropped); Up / Down / Enter / Esc or the mouse
+ *   pick one
  */
 public class ParkingLotDashboardUI extends JFrame {
 
-    private final ParkingLotManagementController parkingLotController;
-    private final CityManagementController cityController;
-    private final ConveyorManagementController conveyorController;
-    private final PriceHistoryManagementController priceHistoryController;
-    private final PriceListManagementController priceListController;
+    private static final long serialVersionUID = 1L;
+
+    private final ParkingLotManagement parkingLotController;
+    private final CityManagement cityController;
+    private final ConveyorManagement conveyorController;
+    private final PriceHistoryManagement priceHistoryController;
+    private final PriceListManagement priceListController;
 
     private JTable table;
     private DefaultTableModel model;
@@ -49,8 +67,15 @@ public class ParkingLotDashboardUI extends JFrame {
     private JComboBox<City> cityCombo;
 
     // search
-    private JTextField searchIdField;
+    private static final int SUGGESTIONS = 10;
+    private static final int SUGGEST_DELAY_MS = 150;
+    private JTextField searchField;
     private JButton searchBtn;
+    private JPopupMenu suggestionPopup;
+    private DefaultListModel<ParkingLot> suggestionModel;
+    private JList<ParkingLot> suggestionList;
+    private Timer suggestTimer;                                   // EDT only
+    private SwingWorker<List<ParkingLot>, Void> suggestWorker;    // EDT only; the latest search
 
     // NEW
     private JCheckBox showInactiveLots;
@@ -60,12 +85,36 @@ public class ParkingLotDashboardUI extends JFrame {
     private JButton priceHistoryBtn;
     private JButton priceListBtn;
 
+    // lazily built secondary windows (reused on every open)
+    private ConveyorManagementUI conveyorUI;
+    private JFrame conveyorFrame;
+    private PriceHistoryManagementUI priceHistoryUI;
+    private JFrame priceHistoryFrame;
+    private JFrame priceListFrame;
+
+    public ParkingLotDashboardUI(
+            ParkingLotManagement parkingLotController,
+            CityManagement cityController,
+            ConveyorManagement conveyorController,
+            PriceHistoryManagement priceHistoryController,
+            PriceListManagement priceListController
+    ) {
+        this(parkingLotController, cityController, conveyorController, priceHistoryController, priceListController,
+                null, null);
+    }
+
+    /**
+     * @param cities preloaded cities (null = load now)
+     * @param activeLots preloaded ACTIVE parking lots (null = load now)
+     */
     public ParkingLotDashboardUI(
-            ParkingLotManagementController parkingLotController,
-            CityManagementController cityController,
-            ConveyorManagementController conveyorController,
-            PriceHistoryManagementController priceHistoryController,
-            PriceListManagementController priceListController
+            ParkingLotManagement parkingLotController,
+            CityManagement cityController,
+            ConveyorManagement conveyorController,
+            PriceHistoryManagement priceHistoryController,
+            PriceListManagement priceListController,
+            List<City> cities,
+            List<ParkingLot> activeLots
     ) {
         this.parkingLotController = parkingLotController;
         this.cityController = cityController;
@@ -79,8 +128,12 @@ public class ParkingLotDashboardUI extends JFrame {
         setLocationRelativeTo(null);
 
         initUI();
-        loadCities();
-        loadParkingLots();
+
+        if (cities != null) fillCities(cities);
+        else loadCities();
+
+        if (activeLots != null) fillParkingLots(activeLots);
+        else loadParkingLots();
     }
 
     private void initUI() {
@@ -88,12 +141,14 @@ public class ParkingLotDashboardUI extends JFrame {
 
         // ================= NORTH =================
         JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        searchPanel.add(new JLabel("ParkingLot ID:"));
-        searchIdField = new JTextField(6);
-        searchPanel.add(searchIdField);
+        searchPanel.add(new JLabel("Search:"));
+        searchField = new JTextField(18);
+        searchField.setToolTipText("Parking lot ID, name, street, number or city");
+        searchPanel.add(searchField);
+        initTypeahead();
 
         searchBtn = new JButton("Find");
-        searchBtn.addActionListener(e -> findParkingLotById());
+        searchBtn.addActionListener(e -> findParkingLot());
         searchPanel.add(searchBtn);
 
         // ✅ NEW checkbox
@@ -194,21 +249,88 @@ public class ParkingLotDashboardUI extends JFrame {
         add(south, BorderLayout.SOUTH);
     }
 
+    private void initTypeahead() {
+        suggestionModel = new DefaultListModel<>();
+        suggestionList = new JList<>(suggestionModel);
+        suggestionList.setFocusable(false);
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+                ParkingLot p = (ParkingLot) value;
+                setText("#" + p.getId() + "  " + p.getName() + " – " + p.getAddress()
+                        + (p.getCity() == null ? "" : ", " + p.getCity())
+                        + (p.isActive() ? "" : " (inactive)"));
+                return this;
+            }
+        });
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int i = suggestionList.locationToIndex(e.getPoint());
+                if (i >= 0) chooseSuggestion(suggestionModel.get(i));
+            }
+        });
+
+        suggestionPopup = new JPopupMenu();
+        suggestionPopup.setFocusable(false);
+        suggestionPopup.add(new JScrollPane(suggestionList));
+
+        suggestTimer = new Timer(SUGGEST_DELAY_MS, e -> updateSuggestions());
+        suggestTimer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { suggestTimer.restart(); }
+            @Override public void removeUpdate(DocumentEvent e) { suggestTimer.restart(); }
+            @Override public void changedUpdate(DocumentEvent e) { }
+        });
+
+        // Enter = Find (picks the highlighted suggestion)
+        searchField.addActionListener(e -> findParkingLot());
+        bindSearchKey("DOWN", () -> moveSuggestion(1));
+        bindSearchKey("UP", () -> moveSuggestion(-1));
+        bindSearchKey("ESCAPE", () -> suggestionPopup.setVisible(false));
+    }
+
+    private void bindSearchKey(String key, Runnable action) {
+        searchField.getInputMap(JComponent.WHEN_FOCUSED).put(KeyStroke.getKeyStroke(key), key);
+        searchField.getActionMap().put(key, new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
     // ================= LOGIC =================
 
+    /** Re-reads cities and parking lots (e.g. once the live DB replaced the snapshot data). */
+    public void reloadData() {
+        loadCities();
+        loadParkingLots();
+    }
+
     private void loadCities() {
+        fillCities(cityController.getAllCities());
+    }
+
+    private void fillCities(List<City> cities) {
         cityCombo.removeAllItems();
-        for (City c : cityController.getAllCities()) {
+        for (City c : cities) {
             cityCombo.addItem(c);
         }
         cityCombo.setSelectedIndex(-1);
     }
 
     private void loadParkingLots() {
-        model.setRowCount(0);
-
         boolean includeInactive = showInactiveLots != null && showInactiveLots.isSelected();
-        List<ParkingLot> lots = parkingLotController.getAllParkingLots(includeInactive);
+        fillParkingLots(parkingLotController.getAllParkingLots(includeInactive));
+    }
+
+    private void fillParkingLots(List<ParkingLot> lots) {
+        model.setRowCount(0);
 
         for (ParkingLot p : lots) {
             model.addRow(new Object[]{
@@ -234,6 +356,10 @@ public class ParkingLotDashboardUI extends JFrame {
             return;
         }
 
+        showSelectedParkingLot();
+    }
+
+    private void showSelectedParkingLot() {
         idField.setText(String.valueOf(selectedParkingLot.getId()));
         nameField.setText(selectedParkingLot.getName());
 
@@ -244,9 +370,105 @@ public class ParkingLotDashboardUI extends JFrame {
         spacesField.setText(String.valueOf(selectedParkingLot.getAvailableSpaces()));
     }
 
-    private void findParkingLotById() {
+    private boolean showInactive() {
+        return showInactiveLots != null && showInactiveLots.isSelected();
+    }
+
+    private void updateSuggestions() {
+        String query = searchField.getText();
+        if (suggestWorker != null) suggestWorker.cancel(false);
+        if (query.trim().isEmpty()) {
+            suggestWorker = null;
+            suggestionPopup.setVisible(false);
+            return;
+        }
+
+        boolean includeInactive = showInactive();
+        suggestWorker = new SwingWorker<List<ParkingLot>, Void>() {
+            @Override
+            protected List<ParkingLot> doInBackground() {
+                return parkingLotController.searchParkingLots(query, SUGGESTIONS, includeInactive);
+            }
+
+            @Override
+            protected void done() {
+                if (suggestWorker != this || isCancelled()) return;   // a newer query is on its way
+                suggestWorker = null;
+                try {
+                    showSuggestions(get());
+                } catch (InterruptedException | ExecutionException ex) {
+                    // typing goes on; Find reports errors
+                    ex.printStackTrace();
+                    suggestionPopup.setVisible(false);
+                }
+            }
+        };
+        suggestWorker.execute();
+    }
+
+    private void showSuggestions(List<ParkingLot> found) {
+        suggestionModel.clear();
+        for (ParkingLot p : found) suggestionModel.addElement(p);
+        if (found.isEmpty() || !searchField.isShowing()) {
+            suggestionPopup.setVisible(false);
+            return;
+        }
+
+        suggestionList.setSelectedIndex(0);
+        suggestionList.setVisibleRowCount(found.size());
+        suggestionPopup.setPopupSize(Math.max(searchField.getWidth(), 420),
+                suggestionList.getPreferredScrollableViewportSize().height + 6);
+        if (!suggestionPopup.isVisible()) suggestionPopup.show(searchField, 0, searchField.getHeight());
+        else suggestionPopup.revalidate();
+    }
+
+    private void moveSuggestion(int delta) {
+        if (!suggestionPopup.isVisible() || suggestionModel.isEmpty()) return;
+        int i = Math.max(0, Math.min(suggestionModel.size() - 1, suggestionList.getSelectedIndex() + delta));
+        suggestionList.setSelectedIndex(i);
+        suggestionList.ensureIndexIsVisible(i);
+    }
+
+    private void chooseSuggestion(ParkingLot p) {
+        suggestionPopup.setVisible(false);
+        findParkingLotById(p.getId());
+    }
+
+    /** Find button / Enter: the highlighted suggestion, else an ID, else the best match. */
+    private void findParkingLot() {
+        // suggestions of an older text are not picked: the text is searched below
+        boolean current = !suggestTimer.isRunning() && suggestWorker == null;
+        if (current && suggestionPopup.isVisible() && suggestionList.getSelectedValue() != null) {
+            chooseSuggestion(suggestionList.getSelectedValue());
+            return;
+        }
+        suggestTimer.stop();
+        if (suggestWorker != null) suggestWorker.cancel(false);
+        suggestWorker = null;
+        suggestionPopup.setVisible(false);
+
+        String text = searchField.getText().trim();
+        try {
+            findParkingLotById(Integer.parseInt(text));
+            return;
+        } catch (NumberFormatException notAnId) {
+            // search by text below
+        }
+
+        try {
+            List<ParkingLot> found = parkingLotController.searchParkingLots(text, 1, showInactive());
+            if (found.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "Parking lot not found.");
+                return;
+            }
+            findParkingLotById(found.get(0).getId());
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void findParkingLotById(int id) {
         try {
-            int id = Integer.parseInt(searchIdField.getText().trim());
             ParkingLot p = parkingLotController.getParkingLot(id);
 
             // if lot is inactive and we are not showing inactive -> show a friendly message
@@ -327,16 +549,31 @@ public class ParkingLotDashboardUI extends JFrame {
                 return;
             }
 
-            parkingLotController.updateParkingLot(
+            // only if nobody changed it since it was loaded into the form
+            int version = parkingLotController.updateParkingLot(
                     selectedParkingLot.getId(),
                     nameField.getText(),
                     streetField.getText(),
                     number,
-                    city
+                    city,
+                    selectedParkingLot.getRowVersion()
             );
+            selectedParkingLot.setRowVersion(version);
             JOptionPane.showMessageDialog(this, "Parking lot updated successfully.");
             loadParkingLots();
 
+        } catch (OptimisticLockException conflict) {
+            JOptionPane.showMessageDialog(this,
+                    "Someone else changed this parking lot while you were editing it.\n" +
+                    "The form now shows the current values; apply your changes again.",
+                    "Changed by someone else", JOptionPane.WARNING_MESSAGE);
+            ParkingLot current = conflict.getCurrent(ParkingLot.class);
+            if (current != null) {
+                selectedParkingLot = current;
+                showSelectedParkingLot();
+            }
+            loadParkingLots();
+
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
         }
@@ -393,16 +630,18 @@ public class ParkingLotDashboardUI extends JFrame {
             return;
         }
 
-        ConveyorManagementUI ui =
-                new ConveyorManagementUI(conveyorController, parkingLotController);
-
-        ui.setParkingLotId(selectedParkingLot.getId());
+        if (conveyorFrame == null) {
+            conveyorUI = new ConveyorManagementUI(conveyorController, parkingLotController);
+            conveyorFrame = new JFrame();
+            conveyorFrame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+            conveyorFrame.setContentPane(conveyorUI);
+            conveyorFrame.pack();
+            conveyorFrame.setLocationRelativeTo(this);
+        }
 
-        JFrame f = new JFrame("Conveyors – ParkingLot " + selectedParkingLot.getId());
-        f.setContentPane(ui);
-        f.pack();
-        f.setLocationRelativeTo(this);
-        f.setVisible(true);
+        conveyorUI.setParkingLotId(selectedParkingLot.getId());
+        conveyorFrame.setTitle("Conveyors – ParkingLot " + selectedParkingLot.getId());
+        showFrame(conveyorFrame);
     }
 
     private void openPriceHistoryScreen() {
@@ -411,23 +650,34 @@ public class ParkingLotDashboardUI extends JFrame {
             return;
         }
 
-        PriceHistoryManagementUI ui =
-                new PriceHistoryManagementUI(priceHistoryController, priceListController);
-
-        ui.setParkingLotId(selectedParkingLot.getId());
+        if (priceHistoryFrame == null) {
+            priceHistoryUI = new PriceHistoryManagementUI(priceHistoryController, priceListController);
+            priceHistoryFrame = new JFrame();
+            priceHistoryFrame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+            priceHistoryFrame.setContentPane(priceHistoryUI);
+            priceHistoryFrame.pack();
+            priceHistoryFrame.setLocationRelativeTo(this);
+        }
 
-        JFrame f = new JFrame("Price History – ParkingLot " + selectedParkingLot.getId());
-        f.setContentPane(ui);
-        f.pack();
-        f.setLocationRelativeTo(this);
-        f.setVisible(true);
+        priceHistoryUI.setParkingLotId(selectedParkingLot.getId());
+        priceHistoryFrame.setTitle("Price History – ParkingLot " + selectedParkingLot.getId());
+        showFrame(priceHistoryFrame);
     }
 
     private void openPriceListScreen() {
-        JFrame f = new JFrame("Import Price List");
-        f.setContentPane(new PriceListImportViewUI(priceListController));
-        f.pack();
-        f.setLocationRelativeTo(this);
+        if (priceListFrame == null) {
+            priceListFrame = new JFrame("Import Price List");
+            priceListFrame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+            priceListFrame.setContentPane(new PriceListImportViewUI(priceListController));
+            priceListFrame.pack();
+            priceListFrame.setLocationRelativeTo(this);
+        }
+        showFrame(priceListFrame);
+    }
+
+    private static void showFrame(JFrame f) {
         f.setVisible(true);
+        f.setState(Frame.NORMAL);
+        f.toFront();
     }
 }
@@ -8,9 +8,9 @@ import java.util.List;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 
-import control.PriceHistoryManagementController;
-import control.PriceListManagementController;
-import entity.PriceHistory;
+import control.PriceHistoryManagement;
+import control.PriceHistoryRow;
+import control.PriceListManagement;
 import entity.PriceList;
 
 /**
@@ -18,22 +18,26 @@ import entity.PriceList;
  *
  * Shows full price history for a selected parking lot.
  * Allows assigning a new PriceList (controller enforces business rules).
+ * An optional future "From" date schedules the change instead of applying it today.
  */
 public class PriceHistoryManagementUI extends JPanel {
 
-    private final PriceHistoryManagementController historyController;
-    private final PriceListManagementController priceListController;
+    private static final long serialVersionUID = 1L;
+
+    private final PriceHistoryManagement historyController;
+    private final PriceListManagement priceListController;
 
     private Integer parkingLotId = null;
 
     private final JComboBox<PriceList> priceListCombo = new JComboBox<>();
+    private final JTextField fromDateField = new JTextField(10); // yyyy-MM-dd, empty = today
     private final DefaultTableModel model;
     private final JTable table;
 
     private final JLabel headerLabel = new JLabel("Price History – ParkingLot: (none)");
 
-    public PriceHistoryManagementUI(PriceHistoryManagementController historyController,
-                                    PriceListManagementController priceListController) {
+    public PriceHistoryManagementUI(PriceHistoryManagement historyController,
+                                    PriceListManagement priceListController) {
         this.historyController = historyController;
         this.priceListController = priceListController;
 
@@ -43,9 +47,12 @@ public class PriceHistoryManagementUI extends JPanel {
         JPanel top = new JPanel(new BorderLayout(10, 10));
         top.add(headerLabel, BorderLayout.WEST);
 
-        JPanel assignPanel = new JPanel(new GridLayout(1, 3, 6, 6));
+        JPanel assignPanel = new JPanel(new GridLayout(1, 5, 6, 6));
         assignPanel.add(new JLabel("Assign PriceList:"));
         assignPanel.add(priceListCombo);
+        assignPanel.add(new JLabel("From (yyyy-MM-dd):"));
+        fromDateField.setToolTipText("Leave empty to apply today");
+        assignPanel.add(fromDateField);
 
         JButton assignBtn = new JButton("Assign");
         assignBtn.addActionListener(e -> assignPriceList());
@@ -55,7 +62,8 @@ public class PriceHistoryManagementUI extends JPanel {
         add(top, BorderLayout.NORTH);
 
         model = new DefaultTableModel(
-                new Object[] { "PriceList ID", "Effective From", "Effective To" }, 0) {
+                new Object[] { "PriceList ID", "Year", "First Hour", "Additional Hour", "Full Day",
+                               "Effective From", "Effective To" }, 0) {
             @Override public boolean isCellEditable(int r, int c) { return false; }
         };
 
@@ -75,6 +83,7 @@ public class PriceHistoryManagementUI extends JPanel {
                 parkingLotId == null
                     ? "Price History – ParkingLot: (none)"
                     : "Price History – ParkingLot: " + parkingLotId);
+        reloadPriceLists(); // the window is reused: pick up imports made meanwhile
         reloadHistory();
     }
 
@@ -93,12 +102,16 @@ public class PriceHistoryManagementUI extends JPanel {
 
         if (parkingLotId == null) return;
 
-        List<PriceHistory> list = historyController.getHistoryForParkingLot(parkingLotId);
-        for (PriceHistory h : list) {
-            LocalDate from = h.getEffectiveFrom();
-            LocalDate to = h.getEffectiveTo();
+        List<PriceHistoryRow> list = historyController.getHistoryRowsForParkingLot(parkingLotId);
+        for (PriceHistoryRow h : list) {
+            LocalDate from = h.from;
+            LocalDate to = h.to;
             model.addRow(new Object[] {
-                    h.getPriceListId(),
+                    h.priceListId,
+                    h.year,
+                    h.firstHour,
+                    h.additionalHour,
+                    h.fullDay,
                     from == null ? "" : from.toString(),
                     to == null ? "" : to.toString()
             });
@@ -117,10 +130,27 @@ public class PriceHistoryManagementUI extends JPanel {
             return;
         }
 
-        historyController.assignPriceListToParkingLot(
-                parkingLotId, selected.getId());
+        String rawDate = fromDateField.getText() == null ? "" : fromDateField.getText().trim();
+
+        try {
+            if (rawDate.isEmpty()) {
+                historyController.assignPriceListToParkingLot(
+                        parkingLotId, selected.getId());
+                JOptionPane.showMessageDialog(this, "PriceList assigned successfully.");
+            } else {
+                LocalDate from = LocalDate.parse(rawDate);
+                historyController.schedulePriceListChange(parkingLotId, selected.getId(), from);
+                JOptionPane.showMessageDialog(this, "PriceList scheduled from " + from + ".");
+                fromDateField.setText("");
+            }
+        } catch (java.time.format.DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "From date must be yyyy-MM-dd.", "Validation", JOptionPane.WARNING_MESSAGE);
+            return;
+        } catch (Exception ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
-        JOptionPane.showMessageDialog(this, "PriceList assigned successfully.");
         reloadHistory();
     }
 }
\ No newline at end of file
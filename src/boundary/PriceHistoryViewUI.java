@@ -1,8 +1,8 @@
 package boundary;
 
-import control.PriceHistoryManagementController;
-import control.PriceListManagementController;
-import entity.PriceHistory;
+import control.PriceHistoryManagement;
+import control.PriceHistoryRow;
+import control.PriceListManagement;
 import entity.PriceList;
 
 import javax.swing.*;
@@ -16,16 +16,18 @@ import java.util.List;
  */
 public class PriceHistoryViewUI extends JPanel {
 
+    private static final long serialVersionUID = 1L;
+
     private final int parkingLotId;
-    private final PriceHistoryManagementController historyController;
-    private final PriceListManagementController priceListController;
+    private final PriceHistoryManagement historyController;
+    private final PriceListManagement priceListController;
 
     private final JComboBox<PriceList> priceListCombo = new JComboBox<>();
     private final DefaultTableModel tableModel;
 
     public PriceHistoryViewUI(int parkingLotId,
-                                    PriceHistoryManagementController historyController,
-                                    PriceListManagementController priceListController) {
+                                    PriceHistoryManagement historyController,
+                                    PriceListManagement priceListController) {
 
         this.parkingLotId = parkingLotId;
         this.historyController = historyController;
@@ -45,7 +47,7 @@ public class PriceHistoryViewUI extends JPanel {
         add(top, BorderLayout.NORTH);
 
         tableModel = new DefaultTableModel(
-                new Object[]{"Price List", "From Date"}, 0) {
+                new Object[]{"Price List", "Year", "First Hour", "Additional Hour", "Full Day", "From Date", "To Date"}, 0) {
             @Override public boolean isCellEditable(int r, int c) { return false; }
         };
         JTable table = new JTable(tableModel);
@@ -74,11 +76,15 @@ public class PriceHistoryViewUI extends JPanel {
         }
 
         try {
-            for (PriceHistory h : historyController.getHistoryForParkingLot(parkingLotId)) {
+            for (PriceHistoryRow h : historyController.getHistoryRowsForParkingLot(parkingLotId)) {
                 tableModel.addRow(new Object[] {
-                    h.getPriceListId(),
-                    h.getEffectiveFrom(),
-                    h.getEffectiveTo()
+                    h.priceListId,
+                    h.year,
+                    h.firstHour,
+                    h.additionalHour,
+                    h.fullDay,
+                    h.from,
+                    h.to
                 });
             }
         } catch (Exception ex) {
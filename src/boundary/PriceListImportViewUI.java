@@ -1,6 +1,7 @@
 package boundary;
 
-import control.PriceListManagementController;
+import control.PriceListImportPreview;
+import control.PriceListManagement;
 import entity.PriceList;
 
 import javax.swing.*;
@@ -11,11 +12,13 @@ import java.util.List;
 
 public class PriceListImportViewUI extends JPanel {
 
-    private final PriceListManagementController controller;
+    private static final long serialVersionUID = 1L;
+
+    private final PriceListManagement controller;
     private JTable table;
     private DefaultTableModel model;
 
-    public PriceListImportViewUI(PriceListManagementController controller) {
+    public PriceListImportViewUI(PriceListManagement controller) {
         this.controller = controller;
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -46,8 +49,21 @@ public class PriceListImportViewUI extends JPanel {
 
     private void loadFromJson() {
         try {
-            controller.importPriceListsFromDefaultJson();
-            JOptionPane.showMessageDialog(this, "Price list loaded successfully.");
+            PriceListImportPreview preview = controller.previewImportFromDefaultJson();
+            if (preview.getWriteCount() == 0) {
+                JOptionPane.showMessageDialog(this, "Price list is up to date (" + preview.getUnchanged().size() + " unchanged).");
+                return;
+            }
+
+            JTextArea diff = new JTextArea(preview.toString(), 12, 60);
+            diff.setEditable(false);
+            int answer = JOptionPane.showConfirmDialog(this, new JScrollPane(diff),
+                    "Apply price list import?", JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+            if (answer != JOptionPane.OK_OPTION) return;
+
+            PriceListImportPreview applied = controller.applyImport(preview);
+            JOptionPane.showMessageDialog(this, "Price list loaded successfully (" + applied.getAdded().size()
+                    + " added, " + applied.getChanged().size() + " changed).");
             loadTable();
         } catch (Exception ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
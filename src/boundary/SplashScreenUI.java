@@ -0,0 +1,44 @@
+package boundary;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Startup splash: title + progress bar + current step.
+ * setProgress() may be called from any thread.
+ */
+public class SplashScreenUI extends JWindow {
+
+    private static final long serialVersionUID = 1L;
+
+    private final JProgressBar progressBar = new JProgressBar(0, 100);
+    private final JLabel stepLabel = new JLabel("Starting...");
+
+    public SplashScreenUI() {
+        JPanel content = new JPanel(new BorderLayout(10, 10));
+        content.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(Color.GRAY),
+                BorderFactory.createEmptyBorder(20, 20, 20, 20)));
+
+        JLabel title = new JLabel("ParkWise", SwingConstants.CENTER);
+        title.setFont(title.getFont().deriveFont(Font.BOLD, 26f));
+
+        progressBar.setStringPainted(true);
+
+        content.add(title, BorderLayout.NORTH);
+        content.add(progressBar, BorderLayout.CENTER);
+        content.add(stepLabel, BorderLayout.SOUTH);
+
+        setContentPane(content);
+        setSize(380, 150);
+        setLocationRelativeTo(null);
+    }
+
+    public void setProgress(int done, int total, String step) {
+        SwingUtilities.invokeLater(() -> {
+            progressBar.setMaximum(Math.max(1, total));
+            progressBar.setValue(done);
+            stepLabel.setText(step);
+        });
+    }
+}
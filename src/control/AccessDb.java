@@ -1,15 +1,58 @@
 package control;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import entity.City;
+import net.ucanaccess.jdbc.UcanaccessConnection;
 
 public final class AccessDb {
 
-    private String accdbPath;
+    private static final OperationMetrics OPEN_METRICS =
+            ControllerMetrics.forComponent("AccessDb").operation("open");
+
+    private volatile String accdbPath;
+
+    // when set, open() hands out connections that report every statement (see TracingConnection)
+    private volatile SqlTracer sqlTracer;
+
+    // optional direct Jackcess engine for bulk read-only scans (see JackcessReader)
+    private boolean jackcessReads = Boolean.getBoolean("parkwise.jackcessReads");
+    private JackcessReader jackcessReader;
+    private Closeable jackcessReaderHold;     // writers keep the ChangeMarker while the reader is open
+
+    // when set, controllers answer read-only queries from it (snapshot / offline mode, see ReadSource)
+    private volatile ReadSource readSource;
+    private volatile boolean readOnly;
+
+    // in-memory copy answering all reads; writers report changed tables (see ReadReplica / ChangeMarker)
+    private volatile ReadReplica readReplica;
+
+    // file whose schema version was checked (SchemaMigrator) before the first connection
+    private volatile Path schemaChecked;
+    private volatile int requiredSchema = SchemaMigrator.LATEST;
+
+    // this process announced itself as a user of the file (FileUsers) with its first connection
+    private volatile boolean userRegistered;
+
+    // connections handed out; DatabaseCompactor holds new ones back while it swaps the file
+    private final MaintenanceGate maintenance = new MaintenanceGate();
+
+    // caches of this process that hold city names (the parking lot search index)
+    private final List<Consumer<City>> cityRenameListeners = new CopyOnWriteArrayList<>();
+
+    // single writer thread with group commit for Conveyor updates (see ConveyorWriteQueue)
+    private volatile ConveyorWriteQueue conveyorWriteQueue;
 
     public AccessDb(String accdbPath) {
         this.accdbPath = accdbPath;
@@ -19,8 +62,157 @@ public final class AccessDb {
         return accdbPath;
     }
 
-    public void setAccdbPath(String accdbPath) {
+    public synchronized void setAccdbPath(String accdbPath) {
         this.accdbPath = accdbPath;
+        closeJackcessReader();
+    }
+
+    public SqlTracer getSqlTracer() {
+        return sqlTracer;
+    }
+
+    /** Enables (tracer != null) or disables SQL tracing for connections opened from now on. */
+    public void setSqlTracer(SqlTracer sqlTracer) {
+        this.sqlTracer = sqlTracer;
+    }
+
+    public synchronized boolean isJackcessReads() {
+        return jackcessReads;
+    }
+
+    /** Routes controllers' bulk read-only queries to a JackcessReader (true) or JDBC (false). */
+    public synchronized void setJackcessReads(boolean enabled) {
+        this.jackcessReads = enabled;
+        if (!enabled) closeJackcessReader();
+    }
+
+    /**
+     * @return the shared Jackcess reader of this DB, or null when Jackcess reads are off
+     */
+    public synchronized JackcessReader getJackcessReader() {
+        if (!jackcessReads) return null;
+        if (jackcessReader == null) {
+            // the reader re-opens when a ChangeMarker counter moved: other clients keep it while we hold it
+            try {
+                jackcessReaderHold = new ChangeMarker(resolvedPath()).holdReader();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            jackcessReader = new JackcessReader(resolvedPath());
+        }
+        return jackcessReader;
+    }
+
+    private void closeJackcessReader() {
+        if (jackcessReader != null) {
+            jackcessReader.close();
+            jackcessReader = null;
+        }
+        if (jackcessReaderHold != null) {
+            try {
+                jackcessReaderHold.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            jackcessReaderHold = null;
+        }
+    }
+
+    public ReadSource getReadSource() {
+        ReadSource source = readSource;
+        // past its staleness bound: answer from the DB until it caught up
+        if (source != null && !readOnly && !source.isFresh()) return null;
+        return source;
+    }
+
+    /** Routes controllers' read-only queries to {@code source} (null = back to the DB). */
+    public void setReadSource(ReadSource source) {
+        this.readSource = source;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /** Offline read-only mode: open() fails, so every write is rejected. */
+    public void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    public ReadReplica getReadReplica() {
+        return readReplica;
+    }
+
+    /**
+     * Loads all tables into a ReadReplica and routes every controller read to it.
+     * @param maxStalenessMillis reads fall back to the DB when the replica could not verify
+     *                           the file for longer than this
+     */
+    public synchronized ReadReplica enableReadReplica(long maxStalenessMillis) throws IOException {
+        disableReadReplica();
+
+        ReadReplica replica = new ReadReplica(resolvedPath(), maxStalenessMillis);
+        try {
+            replica.start();
+        } catch (IOException | RuntimeException e) {
+            replica.close();
+            throw e;
+        }
+        readReplica = replica;
+        readSource = replica;
+        return replica;
+    }
+
+    public synchronized void disableReadReplica() {
+        ReadReplica replica = readReplica;
+        if (replica == null) return;
+        readReplica = null;
+        if (readSource == replica) readSource = null;
+        replica.close();
+    }
+
+    public ConveyorWriteQueue getConveyorWriteQueue() {
+        return conveyorWriteQueue;
+    }
+
+    /** Routes every mutating conveyor operation through one group-committing writer thread. */
+    public synchronized ConveyorWriteQueue enableConveyorWriteQueue(int capacity, int maxBatch) {
+        disableConveyorWriteQueue();
+        conveyorWriteQueue = new ConveyorWriteQueue(this, capacity, maxBatch);
+        return conveyorWriteQueue;
+    }
+
+    /** Back to one autocommit connection per write; returns after the queued writes are committed. */
+    public synchronized void disableConveyorWriteQueue() {
+        ConveyorWriteQueue queue = conveyorWriteQueue;
+        if (queue == null) return;
+        conveyorWriteQueue = null;
+        queue.close();
+    }
+
+    /**
+     * Called after a commit that wrote {@code tables} (ChangeTrackingConnection):
+     * bumps their ChangeMarker counters for other clients, invalidates our own Jackcess reader and
+     * queues a refresh of our replica (it answers no reads until it caught up with this write).
+     */
+    void markChanged(Set<String> tables) {
+        try {
+            new ChangeMarker(resolvedPath()).bump(tables);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        JackcessReader reader;
+        synchronized (this) {
+            reader = jackcessReader;
+        }
+        if (reader != null) reader.invalidate();
+        ReadReplica replica = readReplica;
+        if (replica != null) replica.localWrite(tables);
+    }
+
+    /** @return true if the .accdb file exists */
+    public boolean isAvailable() {
+        return Files.exists(resolveAccdbPath(accdbPath));
     }
 
     /**
@@ -29,6 +221,24 @@ public final class AccessDb {
      * regardless of Eclipse / Git / run location.
      */
     public Connection open() throws SQLException {
+        if (!ControllerMetrics.ENABLED) return openConnection();
+
+        long start = OPEN_METRICS.begin();
+        boolean failed = true;
+        try {
+            Connection conn = openConnection();
+            failed = false;
+            return conn;
+        } finally {
+            OPEN_METRICS.end(start, failed);
+        }
+    }
+
+    private Connection openConnection() throws SQLException {
+
+        if (readOnly) {
+            throw new SQLException("Database is in offline read-only mode");
+        }
 
         Path resolved = resolveAccdbPath(accdbPath);
 
@@ -36,8 +246,106 @@ public final class AccessDb {
             throw new SQLException("Access DB file not found at: " + resolved.toAbsolutePath());
         }
 
-        String url = "jdbc:ucanaccess://" + resolved.toAbsolutePath();
-        return DriverManager.getConnection(url);
+        maintenance.enter();
+        Connection conn;
+        try {
+            ensureSchema(resolved.toAbsolutePath());
+            registerUser(resolved.toAbsolutePath());
+            conn = DriverManager.getConnection("jdbc:ucanaccess://" + resolved.toAbsolutePath());
+        } catch (SQLException | RuntimeException e) {
+            maintenance.leave();
+            throw e;
+        }
+        conn = maintenance.track(conn);
+
+        SqlTracer tracer = sqlTracer;
+        if (tracer != null) conn = TracingConnection.wrap(conn, tracer);
+
+        // track writes while any client keeps a replica / Jackcess reader of this file
+        if (readReplica != null || isJackcessReads() || new ChangeMarker(resolved.toAbsolutePath()).hasReaders()) {
+            conn = ChangeTrackingConnection.wrap(conn, this);
+        }
+        return conn;
+    }
+
+    /**
+     * The file must have the schema migrations of this build (columns, indexes); checked once per file.
+     * Migrating is never done here: Main --migrate-schema backs the file up and migrates it.
+     */
+    private void ensureSchema(Path file) throws SQLException {
+        if (file.equals(schemaChecked)) return;
+        int version;
+        try {
+            version = SchemaMigrator.version(file, requiredSchema);
+        } catch (IOException | RuntimeException e) {
+            throw new SQLException("Failed to read the database schema version: " + e.getMessage(), e);
+        }
+        if (version < requiredSchema) {
+            throw new SQLException("The schema of " + file + " is at version " + version + ", this build needs "
+                    + requiredSchema + ". Close the application and run: --migrate-schema " + file);
+        }
+        schemaChecked = file;
+    }
+
+    /** Lets other processes see this one use the file (a compaction there then waits / refuses). */
+    private void registerUser(Path file) throws SQLException {
+        if (userRegistered) return;
+        try {
+            FileUsers.register(file);
+        } catch (IOException e) {
+            throw new SQLException("Failed to register as a user of " + file + ": " + e.getMessage(), e);
+        }
+        userRegistered = true;
+    }
+
+    /**
+     * Holds new connections back (open() waits) until the open ones are closed.
+     * @return false when some were still open after timeoutMillis (nothing is held back then)
+     */
+    boolean pauseConnections(long timeoutMillis) throws InterruptedException {
+        return maintenance.close(timeoutMillis);
+    }
+
+    void resumeConnections() {
+        maintenance.open();
+    }
+
+    /**
+     * Makes this process let go of the file (while connections are paused): the Jackcess reader is
+     * closed and UCanAccess unloads its copy, so the next open() loads the file found at the path.
+     */
+    void releaseFile() throws SQLException {
+        synchronized (this) {
+            closeJackcessReader();
+        }
+        Connection conn = DriverManager.getConnection("jdbc:ucanaccess://" + resolvedPath());
+        ((UcanaccessConnection) conn).unloadDB();
+        try {
+            conn.close();
+        } catch (SQLException | RuntimeException alreadyUnloaded) {
+            // unloadDB closed the session and its timer already
+        }
+    }
+
+    /** Called with the city (new name) after every rename through this instance. */
+    void addCityRenameListener(Consumer<City> listener) {
+        cityRenameListeners.add(listener);
+    }
+
+    /** CityManagementController, after the rename committed. */
+    void cityRenamed(City city) {
+        for (Consumer<City> listener : cityRenameListeners) listener.accept(city);
+    }
+
+    /** Accept files at this schema version (SchemaMigrator's timings on an older copy); set before the first open(). */
+    void setRequiredSchema(int version) {
+        this.requiredSchema = version;
+        this.schemaChecked = null;
+    }
+
+    /** Absolute path of the .accdb as open() resolves it. */
+    Path resolvedPath() {
+        return resolveAccdbPath(accdbPath).toAbsolutePath();
     }
 
     /**
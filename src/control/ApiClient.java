@@ -0,0 +1,129 @@
+package control;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import entity.Conveyor;
+import entity.ParkingLot;
+import entity.Versioned;
+
+/**
+ * ApiClient
+ * ---------
+ * Client side of the HTTP/JSON API (see ApiProtocol), used by the Remote*Controller classes.
+ *
+ * - one java.net.http.HttpClient (keep-alive connections, thread-safe)
+ * - server errors are re-thrown as the same exception type where the UI relies on it
+ *   (IllegalArgumentException / IllegalStateException / UnsupportedOperationException,
+ *   OptimisticLockException with the server's current row),
+ *   anything else as RuntimeException with the server's message
+ */
+public final class ApiClient {
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final Duration timeout;
+    private final Gson gson = ApiProtocol.gson();
+    private final LongAdder requests = new LongAdder();
+
+    /** @param baseUrl e.g. "http://127.0.0.1:8085" */
+    public ApiClient(String baseUrl) {
+        this(baseUrl, Duration.ofSeconds(30));
+    }
+
+    public ApiClient(String baseUrl, Duration timeout) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = timeout;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /** Requests sent so far (load tests). */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Calls {@code component.method(args)} on the server.
+     * @param resultType return type (Void.class / void.class for none)
+     */
+    public <T> T call(String component, String method, Type resultType, Object... args) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + ApiProtocol.PATH_PREFIX + component + "/" + method))
+                .timeout(timeout)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(args), StandardCharsets.UTF_8))
+                .build();
+
+        HttpResponse<String> response;
+        try {
+            requests.increment();
+            response = http.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("ParkWise server unavailable at " + baseUrl + ": "
+                    + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while calling the ParkWise server", e);
+        }
+
+        if (response.statusCode() != 200) throw toException(component, method, response);
+        if (resultType == Void.class || resultType == void.class) return null;
+        return gson.fromJson(response.body(), resultType);
+    }
+
+    public void run(String component, String method, Object... args) {
+        call(component, method, Void.class, args);
+    }
+
+    private RuntimeException toException(String component, String method, HttpResponse<String> response) {
+        ApiProtocol.Error error = null;
+        try {
+            error = gson.fromJson(response.body(), ApiProtocol.Error.class);
+        } catch (JsonParseException ignore) {}
+
+        if (error == null || error.type == null) {
+            return new RuntimeException("Server error " + response.statusCode() + " on " + component + "." + method);
+        }
+
+        switch (error.type) {
+            case "IllegalArgumentException":
+            case "NumberFormatException":
+                return new IllegalArgumentException(error.message);
+            case "IllegalStateException":
+                return new IllegalStateException(error.message);
+            case "OptimisticLockException":
+                return new OptimisticLockException(error.table, error.id == null ? 0 : error.id,
+                        error.expectedVersion == null ? 0 : error.expectedVersion,
+                        error.currentVersion == null ? 0 : error.currentVersion,
+                        currentRow(error));
+            case "UnsupportedOperationException":
+                return new UnsupportedOperationException(error.message);
+            default:
+                return new RuntimeException(error.message);
+        }
+    }
+
+    /** The conflicting row as its entity type, so callers can refresh from it like in local mode. */
+    private Versioned currentRow(ApiProtocol.Error error) {
+        if (error.current == null || error.current.isJsonNull()) return null;
+        if ("ParkingLot".equals(error.table)) return gson.fromJson(error.current, ParkingLot.class);
+        if ("Conveyor".equals(error.table)) return gson.fromJson(error.current, Conveyor.class);
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package control;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * ApiProtocol
+ * -----------
+ * What the HTTP/JSON server (boundary.HttpApiServer) and its client (ApiClient) agree on:
+ *
+ *   POST /api/{component}/{method}   body: JSON array of the arguments   (GET = no arguments, reads only)
+ *   200  JSON of the return value ("null" for void)
+ *   4xx / 5xx  {"type": "IllegalArgumentException", "message": "..."}
+ *   409 OptimisticLockException also has table, id, expectedVersion, currentVersion, current (the row now)
+ *
+ * component = one of the constants below, method = a controller method the server routes
+ * (HttpApiServer.ROUTES; overloads are told apart by their number of arguments).
+ * Entities are serialized field by field; LocalDate as "yyyy-MM-dd".
+ */
+public final class ApiProtocol {
+
+    public static final String PATH_PREFIX = "/api/";
+
+    public static final String CITY = "City";
+    public static final String PARKING_LOT = "ParkingLot";
+    public static final String CONVEYOR = "Conveyor";
+    public static final String PRICE_LIST = "PriceList";
+    public static final String PRICE_HISTORY = "PriceHistory";
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter().nullSafe())
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    private ApiProtocol() {}
+
+    /** Shared, thread-safe Gson configured for the API. */
+    public static Gson gson() {
+        return GSON;
+    }
+
+    /** Error body of a failed call. */
+    public static final class Error {
+        public final String type;
+        public final String message;
+
+        // OptimisticLockException only
+        public final String table;
+        public final Integer id;
+        public final Integer expectedVersion;
+        public final Integer currentVersion;
+        public final JsonElement current;
+
+        public Error(String type, String message) {
+            this(type, message, null, null, null, null, null);
+        }
+
+        public Error(OptimisticLockException conflict) {
+            this(OptimisticLockException.class.getSimpleName(), conflict.getMessage(), conflict.getTable(), conflict.getId(),
+                    conflict.getExpectedVersion(), conflict.getCurrentVersion(), GSON.toJsonTree(conflict.getCurrent()));
+        }
+
+        private Error(String type, String message, String table, Integer id,
+                      Integer expectedVersion, Integer currentVersion, JsonElement current) {
+            this.type = type;
+            this.message = message;
+            this.table = table;
+            this.id = id;
+            this.expectedVersion = expectedVersion;
+            this.currentVersion = currentVersion;
+            this.current = current;
+        }
+    }
+
+    private static final class LocalDateAdapter extends TypeAdapter<LocalDate> {
+        @Override
+        public void write(JsonWriter out, LocalDate value) throws IOException {
+            out.value(value.toString());
+        }
+
+        @Override
+        public LocalDate read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return LocalDate.parse(in.nextString());
+        }
+    }
+}
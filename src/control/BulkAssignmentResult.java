@@ -0,0 +1,35 @@
+package control;
+
+/**
+ * Outcome of a bulk price list assignment
+ * (see PriceHistoryManagementController.assignPriceListToParkingLots).
+ */
+public final class BulkAssignmentResult {
+
+    private final int lotsRequested;
+    private final int lotsChanged;
+    private final long elapsedMillis;
+
+    public BulkAssignmentResult(int lotsRequested, int lotsChanged, long elapsedMillis) {
+        this.lotsRequested = lotsRequested;
+        this.lotsChanged = lotsChanged;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /** Distinct parking lots that were part of the request. */
+    public int getLotsRequested() { return lotsRequested; }
+
+    /** Lots that got a new active record (lots already on the price list are skipped). */
+    public int getLotsChanged() { return lotsChanged; }
+
+    public int getLotsUnchanged() { return lotsRequested - lotsChanged; }
+
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    @Override
+    public String toString() {
+        return "BulkAssignmentResult [requested=" + lotsRequested +
+                ", changed=" + lotsChanged +
+                ", elapsedMs=" + elapsedMillis + "]";
+    }
+}
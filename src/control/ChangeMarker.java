@@ -0,0 +1,199 @@
+package control;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ChangeMarker
+ * ------------
+ * Sidecar file next to the .accdb ("<file>.accdb.changes") with one counter per table:
+ *
+ *   City=3
+ *   ParkingLot=17
+ *   end
+ *
+ * Every process that writes through AccessDb bumps the counters of the tables it changed
+ * after the commit (see ChangeTrackingConnection). Read replicas compare the counters with
+ * the ones they loaded and reload only the tables that moved.
+ *
+ * Writers serialize on an OS file lock (plus a JVM lock: file locks are per process).
+ * Readers do not lock; a file without the final "end" line is being rewritten and is
+ * reported as null (try again later).
+ *
+ * Writers only keep the counters while some process holds a copy of the file: such a reader
+ * (ReadReplica, Jackcess reads) holds a shared OS lock on "<file>.accdb.readers" (holdReader);
+ * hasReaders() tries to take it exclusively. The OS drops the lock with the process, so a
+ * crashed or finished reader does not leave change tracking on.
+ */
+final class ChangeMarker {
+
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    // readers of this JVM by file: one shared OS lock each (a second lock of the same JVM would overlap)
+    private static final Map<Path, Reader> JVM_READERS = new HashMap<>();
+
+    private final Path file;
+    private final Path readersFile;
+
+    ChangeMarker(Path accdb) {
+        this.file = accdb.resolveSibling(accdb.getFileName() + ".changes");
+        this.readersFile = accdb.resolveSibling(accdb.getFileName() + ".readers").toAbsolutePath().normalize();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return counters by table (empty if the file does not exist), or null if the file is
+     *         being rewritten right now
+     */
+    Map<String, Long> read() throws IOException {
+        try {
+            return parse(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return new TreeMap<>();
+        }
+    }
+
+    /**
+     * Increments the counters of {@code tables} (creates the file if needed).
+     * @return all counters after the increment
+     */
+    Map<String, Long> bump(Collection<String> tables) throws IOException {
+        Object jvmLock = JVM_LOCKS.computeIfAbsent(file.toAbsolutePath().normalize(), k -> new Object());
+
+        synchronized (jvmLock) {
+            // closing the channel releases the lock
+            try (FileChannel ch = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                ch.lock();
+
+                ByteBuffer buf = ByteBuffer.allocate((int) ch.size());
+                while (buf.hasRemaining() && ch.read(buf, buf.position()) > 0) { }
+                Map<String, Long> counters = parse(new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8));
+                if (counters == null) {
+                    counters = new TreeMap<>();
+                    if (buf.position() > 0) {
+                        // torn by a crashed writer: the old counters are lost, restart every table
+                        // from a value no replica has seen, so all of them reload
+                        long restart = System.currentTimeMillis();
+                        for (String t : ReadReplica.TABLES) counters.put(t, restart);
+                    }
+                }
+
+                for (String t : tables) counters.merge(t, 1L, Long::sum);
+
+                StringBuilder sb = new StringBuilder();
+                for (Map.Entry<String, Long> e : counters.entrySet()) {
+                    sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+                }
+                sb.append("end\n");
+
+                ByteBuffer out = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+                ch.truncate(0);
+                // no force(): other processes read the page cache, and after a crash every
+                // replica starts with a full load anyway
+                while (out.hasRemaining()) ch.write(out, out.position());
+                return counters;
+            }
+        }
+    }
+
+    /**
+     * Marks this process as a reader of the file until the returned handle is closed:
+     * from then on every writer keeps the counters.
+     */
+    Closeable holdReader() throws IOException {
+        synchronized (JVM_READERS) {
+            Reader reader = JVM_READERS.get(readersFile);
+            if (reader == null) {
+                FileChannel ch = FileChannel.open(readersFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    ch.lock(0, Long.MAX_VALUE, true);
+                } catch (IOException | RuntimeException e) {
+                    ch.close();
+                    throw e;
+                }
+                reader = new Reader(ch);
+                JVM_READERS.put(readersFile, reader);
+            }
+            reader.holders++;
+
+            Reader held = reader;
+            AtomicBoolean closed = new AtomicBoolean();
+            return () -> {
+                if (closed.compareAndSet(false, true)) release(held);
+            };
+        }
+    }
+
+    /** @return true if some process (this one included) holds a copy of the file right now */
+    boolean hasReaders() {
+        synchronized (JVM_READERS) {
+            // never open the file while this JVM holds the lock: closing any channel of it may drop the lock
+            if (JVM_READERS.containsKey(readersFile)) return true;
+        }
+        try (FileChannel ch = FileChannel.open(readersFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            FileLock lock = ch.tryLock();
+            if (lock == null) return true;
+            lock.release();
+            return false;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException | OverlappingFileLockException e) {
+            // cannot tell: keep the counters
+            return true;
+        }
+    }
+
+    private void release(Reader reader) throws IOException {
+        synchronized (JVM_READERS) {
+            if (--reader.holders > 0) return;
+            JVM_READERS.remove(readersFile);
+            reader.channel.close();
+        }
+    }
+
+    private static final class Reader {
+        final FileChannel channel;
+        int holders;
+
+        Reader(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static Map<String, Long> parse(String text) {
+        // empty = truncated by a writer that has not written yet
+        if (!text.endsWith("end\n")) return null;
+
+        Map<String, Long> counters = new TreeMap<>();
+        for (String line : text.split("\n")) {
+            int eq = line.indexOf('=');
+            if (eq <= 0) continue;
+            try {
+                counters.put(line.substring(0, eq), Long.parseLong(line.substring(eq + 1).trim()));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return counters;
+    }
+}
@@ -0,0 +1,200 @@
+package control;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ChangeTrackingConnection
+ * ------------------------
+ * java.lang.reflect.Proxy around Connection / Statement / PreparedStatement that remembers
+ * which tables INSERT / UPDATE / DELETE statements wrote, and reports them to
+ * AccessDb.markChanged once they are committed:
+ *
+ * - commit() / setAutoCommit(true): the tables of the transaction
+ * - close() in auto-commit mode: every table written over the connection
+ * - rollback() / close() with an open transaction: forgotten
+ *
+ * No controller code changes: AccessDb.open() returns the wrapped connection while change
+ * tracking is on (a read replica or Jackcess reader of the file is open here or in another process,
+ * see ChangeMarker.hasReaders).
+ */
+final class ChangeTrackingConnection {
+
+    private static final Pattern WRITE = Pattern.compile(
+            "^\\s*(?:INSERT\\s+INTO|UPDATE|DELETE\\s+FROM|DELETE)\\s+\\[?([A-Za-z_][A-Za-z0-9_]*)\\]?",
+            Pattern.CASE_INSENSITIVE);
+
+    // SQL is case-insensitive; the marker counts every table under one spelling
+    private static final Map<String, String> CANONICAL = new HashMap<>();
+    static {
+        for (String t : ReadReplica.TABLES) CANONICAL.put(t.toLowerCase(), t);
+    }
+
+    private ChangeTrackingConnection() {}
+
+    static Connection wrap(Connection conn, AccessDb db) {
+        return proxy(Connection.class, new ConnectionHandler(conn, db));
+    }
+
+    /** @return the table written by {@code sql}, or null if it is not an INSERT / UPDATE / DELETE */
+    static String writtenTable(String sql) {
+        if (sql == null) return null;
+        Matcher m = WRITE.matcher(sql);
+        if (!m.find()) return null;
+        String table = m.group(1);
+        return CANONICAL.getOrDefault(table.toLowerCase(), table);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(ChangeTrackingConnection.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ----------------- Connection -----------------
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final AccessDb db;
+        private final Set<String> pending = new TreeSet<>();
+
+        ConnectionHandler(Connection target, AccessDb db) {
+            this.target = target;
+            this.db = db;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            int argc = args == null ? 0 : args.length;
+
+            switch (name) {
+                case "commit": {
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    flush();
+                    return result;
+                }
+                case "rollback": {
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    if (argc == 0) pending.clear(); // rollback(Savepoint): keep (over-reporting is harmless)
+                    return result;
+                }
+                case "setAutoCommit": {
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    if (Boolean.TRUE.equals(args[0])) flush();
+                    return result;
+                }
+                case "close": {
+                    boolean autoCommit = false;
+                    try {
+                        autoCommit = !target.isClosed() && target.getAutoCommit();
+                    } catch (Exception ignore) {}
+
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    if (autoCommit) flush();
+                    else pending.clear();
+                    return result;
+                }
+                default:
+                    break;
+            }
+
+            Object result = ChangeTrackingConnection.invoke(target, method, args);
+
+            if (result instanceof Statement
+                    && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+                String sql = (argc > 0 && args[0] instanceof String) ? (String) args[0] : null;
+                StatementHandler h = new StatementHandler((Statement) result, writtenTable(sql), this, (Connection) proxy);
+                return proxy(method.getReturnType(), h);
+            }
+            return result;
+        }
+
+        void written(String table) {
+            if (table != null) pending.add(table);
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) return;
+            Set<String> tables = new TreeSet<>(pending);
+            pending.clear();
+            db.markChanged(tables);
+        }
+    }
+
+    // ----------------- Statement / PreparedStatement -----------------
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedTable;
+        private final ConnectionHandler connection;
+        private final Connection connectionProxy;
+
+        private final Set<String> batchTables = new TreeSet<>();
+
+        StatementHandler(Statement target, String preparedTable, ConnectionHandler connection, Connection connectionProxy) {
+            this.target = target;
+            this.preparedTable = preparedTable;
+            this.connection = connection;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            int argc = args == null ? 0 : args.length;
+
+            switch (name) {
+                case "getConnection":
+                    return connectionProxy;
+
+                case "addBatch": {
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    String table = argc == 1 ? writtenTable((String) args[0]) : preparedTable;
+                    if (table != null) batchTables.add(table);
+                    return result;
+                }
+
+                case "clearBatch":
+                    batchTables.clear();
+                    return ChangeTrackingConnection.invoke(target, method, args);
+
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    for (String t : batchTables) connection.written(t);
+                    batchTables.clear();
+                    return result;
+                }
+
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute": {
+                    Object result = ChangeTrackingConnection.invoke(target, method, args);
+                    connection.written((argc >= 1 && args[0] instanceof String) ? writtenTable((String) args[0]) : preparedTable);
+                    return result;
+                }
+
+                default:
+                    return ChangeTrackingConnection.invoke(target, method, args);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package control;
+
+import java.util.List;
+
+import entity.City;
+
+/**
+ * CityManagement
+ * --------------
+ * What the UI and the HTTP API call on cities (CityManagementController, its Remote /
+ * Sharded variants).
+ *
+ * The UI and the API hold the controllers through these interfaces (CityManagement,
+ * ParkingLotManagement, ...), so Main can hand them a ControllerMetrics proxy instead.
+ */
+public interface CityManagement {
+
+    List<City> getAllCities();
+
+    City addCity(String cityName);
+
+    void updateCityName(int cityId, String newName);
+
+    City findCityByName(String cityName);
+}
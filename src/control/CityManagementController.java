@@ -12,9 +12,12 @@ import entity.City;
  * CRUD + lookup for City table in Access DB.
  *
  * Table expected:
- *   City(ID AUTONUMBER PK, cityName TEXT)
+ *   City(ID AUTONUMBER PK, cityName TEXT, cityNameKey TEXT)
+ *
+ * cityNameKey = trimmed, lower-case cityName (indexed, SchemaMigrator 5): written with every name,
+ * findCityByName looks it up instead of comparing LCASE([cityName]) on every row.
  */
-public class CityManagementController {
+public class CityManagementController implements CityManagement {
 
     private final AccessDb db;
 
@@ -32,6 +35,9 @@ public class CityManagementController {
     public List<City> getAllCities() {
         ensureDb();
 
+        ReadSource source = db.getReadSource();
+        if (source != null) return source.getCities();
+
         List<City> list = new ArrayList<>();
         final String sql = "SELECT [ID], [cityName] FROM City ORDER BY [ID]";
 
@@ -60,12 +66,13 @@ public class CityManagementController {
             throw new IllegalArgumentException("City name is required.");
         }
 
-        final String sql = "INSERT INTO City ([cityName]) VALUES (?)";
+        final String sql = "INSERT INTO City ([cityName], [cityNameKey]) VALUES (?, ?)";
 
         try (Connection conn = db.open();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, name);
+            ps.setString(2, SchemaMigrator.cityNameKey(name));
             ps.executeUpdate();
 
             int newId = readGeneratedId(ps, conn);
@@ -89,16 +96,18 @@ public class CityManagementController {
             throw new IllegalArgumentException("City name is required.");
         }
 
-        final String sql = "UPDATE City SET [cityName]=? WHERE [ID]=?";
+        final String sql = "UPDATE City SET [cityName]=?, [cityNameKey]=? WHERE [ID]=?";
 
         try (Connection conn = db.open();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setString(1, name);
-            ps.setInt(2, cityId);
+            ps.setString(2, SchemaMigrator.cityNameKey(name));
+            ps.setInt(3, cityId);
 
             int updated = ps.executeUpdate();
             if (updated == 0) throw new IllegalArgumentException("City not found: " + cityId);
+            db.cityRenamed(new City(cityId, name));
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to update city: " + e.getMessage(), e);
@@ -111,20 +120,32 @@ public class CityManagementController {
     public City findCityByName(String cityName) {
         ensureDb();
 
-        String name = cityName == null ? "" : cityName.trim();
-        if (name.isEmpty()) return null;
+        String key = SchemaMigrator.cityNameKey(cityName == null ? "" : cityName);
+        if (key.isEmpty()) return null;
 
-        final String sql = "SELECT [ID], [cityName] FROM City WHERE LCASE([cityName]) = LCASE(?)";
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            for (City c : source.getCities()) {
+                if (key.equals(SchemaMigrator.cityNameKey(c.getCityName()))) return c;
+            }
+            return null;
+        }
 
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        final String sql = "SELECT [ID], [cityName] FROM City WHERE [cityNameKey] = ?";
+        // rows written by tools that do not keep the key (Access itself): the key of the name
+        final String fallback = "SELECT [ID], [cityName] FROM City WHERE [cityNameKey] IS NULL AND LCASE(TRIM([cityName])) = ?";
 
-            ps.setString(1, name);
+        try (Connection conn = db.open()) {
+            for (boolean indexed : new boolean[] { true, false }) {
+                try (PreparedStatement ps = conn.prepareStatement(indexed ? sql : fallback)) {
+                    ps.setString(1, key);
 
-            try (ResultSet rs = ps.executeQuery()) {
-                if (!rs.next()) return null;
-                return new City(rs.getInt("ID"), rs.getString("cityName"));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) return new City(rs.getInt("ID"), rs.getString("cityName"));
+                    }
+                }
             }
+            return null;
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to find city: " + e.getMessage(), e);
@@ -0,0 +1,100 @@
+package control;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompactionScheduler
+ * -------------------
+ * In-process scheduler that compacts the database once per day (see DatabaseCompactor).
+ *
+ * - Runs at -Dparkwise.compact.at=HH:mm (local time); without the property nothing is scheduled.
+ *   Started by the --server process only (desktop clients share the file with each other).
+ * - A failed run (connections still open, other processes using the file) is logged and retried the next day.
+ * - Runs on a single daemon thread, so it never keeps the application alive.
+ */
+public class CompactionScheduler {
+
+    /** Time of day of the run, null when compaction is not scheduled. */
+    public static final LocalTime DEFAULT_TIME = parseTime(System.getProperty("parkwise.compact.at"));
+
+    private final DatabaseCompactor compactor;
+    private final LocalTime at;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> next;
+    private volatile DatabaseCompactor.Report lastReport = null;
+
+    public CompactionScheduler(AccessDb db, LocalTime at) {
+        if (at == null) throw new IllegalArgumentException("at is required.");
+        this.compactor = new DatabaseCompactor(db);
+        this.at = at;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "parkwise-compaction-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Schedules the next run at the configured time. */
+    public synchronized void start() {
+        if (next != null) return;
+        next = executor.schedule(this::runAndReschedule, millisUntilNextRun(at), TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (next != null) next.cancel(false);
+        next = null;
+        executor.shutdown();
+    }
+
+    /** Compacts now (also usable manually). */
+    public DatabaseCompactor.Report runNow() throws IOException {
+        DatabaseCompactor.Report report = compactor.compact();
+        lastReport = report;
+        return report;
+    }
+
+    public DatabaseCompactor.Report getLastReport() { return lastReport; }
+
+    private void runAndReschedule() {
+        try {
+            System.out.print(runNow());
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                if (next != null && !executor.isShutdown()) {
+                    next = executor.schedule(this::runAndReschedule, millisUntilNextRun(at), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    // zoned and computed every time, so DST changes do not shift the run (a time in the gap runs just after it)
+    private static long millisUntilNextRun(LocalTime at) {
+        ZoneId zone = ZoneId.systemDefault();
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        ZonedDateTime run = now.toLocalDate().atTime(at).atZone(zone);
+        if (!run.isAfter(now)) run = now.toLocalDate().plusDays(1).atTime(at).atZone(zone);
+        return Math.max(0, Duration.between(now, run).toMillis());
+    }
+
+    private static LocalTime parseTime(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return LocalTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            System.err.println("Ignoring -Dparkwise.compact.at=" + value + " (expected HH:mm)");
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package control;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * ControllerMetrics
+ * -----------------
+ * Per-component instrumentation (one instance per controller class, shared by all
+ * controller instances of that class), recorded at one boundary: the controller interface.
+ *
+ *   ParkingLotManagement lots = ControllerMetrics.instrument(ParkingLotManagement.class, controller);
+ *
+ * The java.lang.reflect.Proxy (as TracingConnection does for JDBC) records every call made
+ * through it; calls inside the controller (overload -> overload) are not counted again.
+ * The OperationMetrics of each interface method is looked up once, when the proxy is made;
+ * fast operations are timed by sample (see OperationMetrics).
+ * Every operation (= method name, overloads share one) gets an OperationMetrics
+ * (calls, errors, in-flight, latency histogram) that is published over JMX as
+ *   parkwise:type=Controller,component=&lt;component&gt;,name=&lt;operation&gt;
+ * so it can be watched with jconsole / VisualVM.
+ *
+ * -Dparkwise.metrics=false turns recording off: instrument() then returns the controller itself.
+ */
+public final class ControllerMetrics {
+
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("parkwise.metrics"));
+
+    private static final Map<String, ControllerMetrics> COMPONENTS = new ConcurrentHashMap<>();
+
+    private final String component;
+    private final boolean registerMBeans;
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+
+    private ControllerMetrics(String component, boolean registerMBeans) {
+        this.component = component;
+        this.registerMBeans = registerMBeans;
+    }
+
+    /** Shared (JMX-registered) metrics of a component, e.g. "ParkingLotManagementController". */
+    public static ControllerMetrics forComponent(String component) {
+        return COMPONENTS.computeIfAbsent(component, c -> new ControllerMetrics(c, true));
+    }
+
+    /** Private metrics that are never registered over JMX (benchmarks). */
+    public static ControllerMetrics unregistered(String component) {
+        return new ControllerMetrics(component, false);
+    }
+
+    /** All shared components created so far. */
+    public static Collection<ControllerMetrics> getComponents() {
+        return new ArrayList<>(COMPONENTS.values());
+    }
+
+    public String getComponent() { return component; }
+
+    public Collection<OperationMetrics> getOperations() {
+        List<OperationMetrics> list = new ArrayList<>(operations.values());
+        list.sort((a, b) -> a.getOperation().compareTo(b.getOperation()));
+        return list;
+    }
+
+    public OperationMetrics operation(String name) {
+        OperationMetrics op = operations.get(name);
+        if (op != null) return op;
+        return operations.computeIfAbsent(name, n -> {
+            OperationMetrics created = new OperationMetrics(component, n);
+            if (registerMBeans) register(created);
+            return created;
+        });
+    }
+
+    /**
+     * The controller behind a proxy that records every call of {@code type}'s methods
+     * (component = class name of the target); the target itself when metrics are off.
+     */
+    public static <T> T instrument(Class<T> type, T target) {
+        if (!ENABLED || target == null) return target;
+        return forComponent(target.getClass().getSimpleName()).wrap(type, target);
+    }
+
+    /** Proxy of {@code target} that records its calls into this component (even when metrics are off). */
+    public <T> T wrap(Class<T> type, T target) {
+        Map<Method, OperationMetrics> ops = new HashMap<>();
+        for (Method m : type.getMethods()) ops.put(m, operation(m.getName()));
+
+        InvocationHandler handler = (proxy, method, args) -> {
+            OperationMetrics op = ops.get(method);
+            if (op == null) return invoke(target, method, args);   // Object methods
+
+            long start = op.begin();
+            boolean failed = true;
+            try {
+                Object result = invoke(target, method, args);
+                failed = false;
+                return result;
+            } finally {
+                op.end(start, failed);
+            }
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void register(OperationMetrics op) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("parkwise:type=Controller,component="
+                    + op.getComponent() + ",name=" + op.getOperation());
+            if (!server.isRegistered(name)) server.registerMBean(op, name);
+        } catch (Exception e) {
+            // metrics must never break the operation itself
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package control;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import entity.Conveyor;
+import entity.ConveyorStatus;
+
+/**
+ * ConveyorDispatcher
+ * ------------------
+ * Picks a conveyor for an arriving vehicle, from memory only (gate software, many calls per second).
+ *
+ * - candidates of a lot: active conveyors in status Operational, grouped by MaxWeight
+ *   (TreeMap capacity -> bucket); a vehicle of W kg can use every bucket with capacity >= W
+ * - LEAST_LOADED: the candidate with the fewest vehicles dispatched and not released yet;
+ *   ties go to the smallest capacity (keeps the big conveyors free for heavy vehicles), then lower ID
+ * - ROUND_ROBIN: the next candidate after the last one dispatched in the lot, in (capacity, ID) order
+ * - put / remove keep the buckets current (O(log n)): ConveyorManagementController calls them after
+ *   every write; lots are loaded by their first dispatch (load and pick in one call) and re-read
+ *   (merged into the loaded lot) when older than the caller's max age (status changes reported by
+ *   the hardware are written by other processes)
+ * - a lot is in the map while its first read runs, so writes made meanwhile reach it; a merge keeps
+ *   what this process put / removed after the read started (the read may not have it yet)
+ *
+ * Thread-safe: one lock per lot; reads of the same lot wait for each other.
+ */
+public final class ConveyorDispatcher {
+
+    public enum Strategy { LEAST_LOADED, ROUND_ROBIN }
+
+    /** -Dparkwise.dispatch=roundRobin switches the default strategy. */
+    public static final Strategy DEFAULT_STRATEGY =
+            "roundRobin".equalsIgnoreCase(System.getProperty("parkwise.dispatch"))
+                    ? Strategy.ROUND_ROBIN : Strategy.LEAST_LOADED;
+
+    private static final Comparator<Candidate> BY_LOAD =
+            Comparator.comparingInt((Candidate c) -> c.load).thenComparingInt(c -> c.id);
+
+    private static final class Candidate {
+        final int id;
+        int load;
+
+        Candidate(int id, int load) {
+            this.id = id;
+            this.load = load;
+        }
+    }
+
+    private static final class Bucket {
+        final TreeSet<Candidate> byLoad = new TreeSet<>(BY_LOAD);
+        final TreeSet<Integer> byId = new TreeSet<>();
+    }
+
+    private static final class Lot {
+        final Map<Integer, Conveyor> conveyors = new HashMap<>();
+        final Map<Integer, Candidate> candidates = new HashMap<>();
+        final NavigableMap<Integer, Bucket> buckets = new TreeMap<>();
+        final Map<Integer, Integer> loads = new HashMap<>();   // kept when a conveyor stops / restarts
+        final Map<Integer, Long> changedAt = new HashMap<>();  // put / remove by this process -> clock
+        final Object reading = new Object();
+        volatile boolean ready;                                // the first read is merged
+        volatile long loadedAt;
+        int lastCapacity = -1;
+        int lastId = -1;
+    }
+
+    private final Map<Integer, Lot> lots = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> lotByConveyor = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    /** Loaded (at any time). */
+    public boolean isLoaded(int parkingLotId) {
+        Lot lot = lots.get(parkingLotId);
+        return lot != null && lot.ready;
+    }
+
+    /** Loaded at most maxAgeMillis ago. */
+    public boolean isLoaded(int parkingLotId, long maxAgeMillis) {
+        Lot lot = lots.get(parkingLotId);
+        return lot != null && lot.ready && System.nanoTime() - lot.loadedAt <= TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+    }
+
+    /** load with rows already read (nothing of this process is newer than them). */
+    public void load(int parkingLotId, Collection<Conveyor> conveyors) {
+        load(parkingLotId, () -> conveyors);
+    }
+
+    /**
+     * Reads the conveyors of the lot from the database ({@code read}) and merges them. A loaded lot is
+     * updated in place: loads and the round-robin position stay (dispatches running meanwhile are not
+     * lost), conveyors that are no longer listed are dropped unless this process put them after the
+     * read started, and a known copy at a higher rowVersion than the one read is kept.
+     */
+    public void load(int parkingLotId, Supplier<? extends Collection<Conveyor>> read) {
+        loadLot(parkingLotId, read, true);
+    }
+
+    /** Forgets the lot (loaded again on its next dispatch). */
+    public void unload(int parkingLotId) {
+        lots.remove(parkingLotId);
+    }
+
+    /** Adds / replaces the conveyor when its lot is loaded (or being loaded). */
+    public void put(Conveyor conveyor) {
+        Lot lot = lots.get(conveyor.getParkingLotId());
+        if (lot == null) return;
+        synchronized (lot) {
+            putLocked(lot, conveyor);
+            lot.changedAt.put(conveyor.getId(), clock.incrementAndGet());
+        }
+        lotByConveyor.put(conveyor.getId(), conveyor.getParkingLotId());
+    }
+
+    /** @return the known copy, null when the conveyor is not in a loaded lot */
+    public Conveyor remove(int conveyorId) {
+        Lot lot = lotOf(conveyorId);
+        lotByConveyor.remove(conveyorId);
+        if (lot == null) return null;
+        synchronized (lot) {
+            lot.changedAt.put(conveyorId, clock.incrementAndGet());
+            removeCandidate(lot, conveyorId);
+            lot.loads.remove(conveyorId);
+            Conveyor old = lot.conveyors.remove(conveyorId);
+            return old == null ? null : ConveyorSpatialIndex.copy(old);
+        }
+    }
+
+    /** A copy of the known conveyor, or null. */
+    public Conveyor get(int conveyorId) {
+        Lot lot = lotOf(conveyorId);
+        if (lot == null) return null;
+        synchronized (lot) {
+            Conveyor c = lot.conveyors.get(conveyorId);
+            return c == null ? null : ConveyorSpatialIndex.copy(c);
+        }
+    }
+
+    /**
+     * Picks a conveyor of the (loaded) lot for a vehicle and counts it as loaded by one.
+     * @return a copy, null when no candidate has MaxWeight >= vehicleWeightKg
+     */
+    public Conveyor dispatch(int parkingLotId, int vehicleWeightKg, Strategy strategy) {
+        return dispatch(parkingLotId, vehicleWeightKg, strategy, null);
+    }
+
+    /**
+     * Same, loading the lot with {@code read} first when it is not loaded; the pick is made on the
+     * lot just read, also when it is unloaded again meanwhile.
+     */
+    public Conveyor dispatch(int parkingLotId, int vehicleWeightKg, Strategy strategy,
+                             Supplier<? extends Collection<Conveyor>> read) {
+        Lot lot = lots.get(parkingLotId);
+        if (lot == null || !lot.ready) {
+            if (read == null) throw new IllegalStateException("Parking lot " + parkingLotId + " is not loaded.");
+            lot = loadLot(parkingLotId, read, false);
+        }
+
+        synchronized (lot) {
+            NavigableMap<Integer, Bucket> usable = lot.buckets.tailMap(vehicleWeightKg, true);
+            if (usable.isEmpty()) return null;
+
+            Candidate pick = strategy == Strategy.ROUND_ROBIN ? nextInTurn(lot, usable) : leastLoaded(usable);
+            Conveyor c = lot.conveyors.get(pick.id);
+
+            Bucket bucket = lot.buckets.get(c.getMaxVehicleWeightKg());
+            bucket.byLoad.remove(pick);
+            pick.load++;
+            bucket.byLoad.add(pick);
+            lot.loads.put(pick.id, pick.load);
+
+            lot.lastCapacity = c.getMaxVehicleWeightKg();
+            lot.lastId = pick.id;
+            return ConveyorSpatialIndex.copy(c);
+        }
+    }
+
+    /** The vehicle left the conveyor: its load goes down by one (not below 0). */
+    public void release(int conveyorId) {
+        Lot lot = lotOf(conveyorId);
+        if (lot == null) return;
+        synchronized (lot) {
+            Integer load = lot.loads.get(conveyorId);
+            if (load == null || load == 0) return;
+            lot.loads.put(conveyorId, load - 1);
+
+            Candidate candidate = lot.candidates.get(conveyorId);
+            if (candidate != null) {
+                Bucket bucket = lot.buckets.get(lot.conveyors.get(conveyorId).getMaxVehicleWeightKg());
+                bucket.byLoad.remove(candidate);
+                candidate.load = load - 1;
+                bucket.byLoad.add(candidate);
+            }
+        }
+    }
+
+    /** Vehicles dispatched to the conveyor and not released yet (0 when unknown). */
+    public int getLoad(int conveyorId) {
+        Lot lot = lotOf(conveyorId);
+        if (lot == null) return 0;
+        synchronized (lot) {
+            return lot.loads.getOrDefault(conveyorId, 0);
+        }
+    }
+
+    // ----------------- selection -----------------
+
+    private static Candidate leastLoaded(NavigableMap<Integer, Bucket> usable) {
+        Candidate best = null;
+        for (Bucket bucket : usable.values()) {
+            Candidate first = bucket.byLoad.first();
+            if (best == null || first.load < best.load) best = first;
+            if (best.load == 0) break;   // cannot do better, and this is the smallest capacity with 0
+        }
+        return best;
+    }
+
+    private static Candidate nextInTurn(Lot lot, NavigableMap<Integer, Bucket> usable) {
+        // after (lastCapacity, lastId), else wrap around to the first usable one
+        int from = Math.max(lot.lastCapacity, usable.firstKey());
+        for (Map.Entry<Integer, Bucket> e : usable.tailMap(from, true).entrySet()) {
+            Integer id = e.getKey() == lot.lastCapacity ? e.getValue().byId.higher(lot.lastId) : e.getValue().byId.first();
+            if (id != null) return lot.candidates.get(id);
+        }
+        return lot.candidates.get(usable.firstEntry().getValue().byId.first());
+    }
+
+    // ----------------- updates -----------------
+
+    /** @param again read also when the lot is loaded (refresh); else a concurrent first read is enough */
+    private Lot loadLot(int parkingLotId, Supplier<? extends Collection<Conveyor>> read, boolean again) {
+        Lot lot = lots.computeIfAbsent(parkingLotId, id -> new Lot());
+        synchronized (lot.reading) {
+            if (lot.ready && !again) return lot;
+
+            long readStart = clock.incrementAndGet();
+            Collection<Conveyor> conveyors;
+            try {
+                conveyors = read.get();
+            } catch (RuntimeException e) {
+                if (!lot.ready) lots.remove(parkingLotId, lot);
+                throw e;
+            }
+            synchronized (lot) {
+                merge(parkingLotId, lot, conveyors, readStart);
+                lot.ready = true;
+            }
+        }
+        return lot;
+    }
+
+    /** Caller holds the lot. Changes of this process after readStart win over the rows read. */
+    private void merge(int parkingLotId, Lot lot, Collection<Conveyor> conveyors, long readStart) {
+        Map<Integer, Conveyor> read = new HashMap<>();
+        for (Conveyor c : conveyors) {
+            if (c.getParkingLotId() == parkingLotId) read.put(c.getId(), c);
+        }
+
+        for (Integer id : lot.conveyors.keySet().toArray(new Integer[0])) {
+            if (read.containsKey(id) || lot.changedAt.getOrDefault(id, 0L) > readStart) continue;
+            removeCandidate(lot, id);
+            lot.conveyors.remove(id);
+            lotByConveyor.remove(id, parkingLotId);
+        }
+        for (Conveyor c : read.values()) {
+            Conveyor known = lot.conveyors.get(c.getId());
+            if (known == null && lot.changedAt.getOrDefault(c.getId(), 0L) > readStart) continue;   // removed since
+            if (known == null || c.getRowVersion() >= known.getRowVersion()) putLocked(lot, c);
+            lotByConveyor.put(c.getId(), parkingLotId);
+        }
+        // older changes are in what was read
+        lot.changedAt.values().removeIf(at -> at < readStart);
+        lot.loadedAt = System.nanoTime();
+    }
+
+    private Lot lotOf(int conveyorId) {
+        Integer lotId = lotByConveyor.get(conveyorId);
+        return lotId == null ? null : lots.get(lotId);
+    }
+
+    private static void putLocked(Lot lot, Conveyor conveyor) {
+        Conveyor c = ConveyorSpatialIndex.copy(conveyor);
+        removeCandidate(lot, c.getId());
+        lot.conveyors.put(c.getId(), c);
+
+        if (c.isActive() && c.getStatus() == ConveyorStatus.Operational) {
+            Candidate candidate = new Candidate(c.getId(), lot.loads.getOrDefault(c.getId(), 0));
+            Bucket bucket = lot.buckets.computeIfAbsent(c.getMaxVehicleWeightKg(), w -> new Bucket());
+            bucket.byLoad.add(candidate);
+            bucket.byId.add(c.getId());
+            lot.candidates.put(c.getId(), candidate);
+        }
+    }
+
+    private static void removeCandidate(Lot lot, int conveyorId) {
+        Candidate candidate = lot.candidates.remove(conveyorId);
+        if (candidate == null) return;
+
+        int capacity = lot.conveyors.get(conveyorId).getMaxVehicleWeightKg();
+        Bucket bucket = lot.buckets.get(capacity);
+        bucket.byLoad.remove(candidate);
+        bucket.byId.remove(conveyorId);
+        if (bucket.byId.isEmpty()) lot.buckets.remove(capacity);
+    }
+}
@@ -0,0 +1,88 @@
+package control;
+
+import java.util.List;
+
+import entity.Conveyor;
+import entity.ConveyorStatus;
+
+/**
+ * ConveyorManagement
+ * ------------------
+ * Conveyor operations (CRUD, state changes, spatial queries, dispatch) as seen by the UI
+ * and the HTTP API; implemented by ConveyorManagementController and its subclasses.
+ *
+ * The overloads with expectedVersion return the new row version and throw
+ * OptimisticLockException when the row changed since it was read.
+ */
+public interface ConveyorManagement {
+
+    Conveyor addConveyorToParkingLot(int parkingLotId, int floorNumber, int x, int y,
+                                     int maxVehicleWeightKg, ConveyorStatus status);
+
+    List<Conveyor> getConveyorsByParkingLot(int parkingLotId);
+
+    List<Conveyor> getConveyorsByParkingLot(int parkingLotId, boolean includeInactive);
+
+    List<Conveyor> getAllConveyors(boolean includeInactive);
+
+    void moveConveyorToParkingLot(int conveyorId, int newParkingLotId);
+
+    int moveConveyorToParkingLot(int conveyorId, int newParkingLotId, int expectedVersion);
+
+    void updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y);
+
+    int updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y, int expectedVersion);
+
+    void deleteConveyor(int conveyorId);
+
+    int deleteConveyor(int conveyorId, int expectedVersion);
+
+    int turnOnAllConveyorsInParkingLot(int parkingLotId);
+
+    void decideChangeMaxWeight(int conveyorId, int newWeight);
+
+    void confirmChangeMaxWeight(int conveyorId);
+
+    int confirmChangeMaxWeight(int conveyorId, int expectedVersion);
+
+    Integer getPendingWeight(int conveyorId);
+
+    void turnOnConveyors(int conveyorId);
+
+    int turnOnConveyors(int conveyorId, int expectedVersion);
+
+    void restart(int conveyorId);
+
+    int restart(int conveyorId, int expectedVersion);
+
+    void turnOffConveyors(int conveyorId);
+
+    int turnOffConveyors(int conveyorId, int expectedVersion);
+
+    void pause(int conveyorId);
+
+    void updateConveyorStatus(int conveyorId, ConveyorStatus status);
+
+    // spatial queries (Floor / X / Y)
+
+    List<Conveyor> getConveyorsOnFloor(int parkingLotId, int floorNumber, boolean includeInactive);
+
+    List<Conveyor> getConveyorsInArea(int parkingLotId, int floorNumber, int x1, int y1, int x2, int y2,
+                                      boolean includeInactive);
+
+    List<Conveyor> findNearestConveyors(int parkingLotId, int floorNumber, int x, int y, int k);
+
+    List<Conveyor> getUnplacedConveyors(int parkingLotId, boolean includeInactive);
+
+    void reloadSpatialIndexes();
+
+    // dispatch
+
+    Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg);
+
+    Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg, ConveyorDispatcher.Strategy strategy);
+
+    void releaseConveyor(int conveyorId);
+
+    int getDispatchLoad(int conveyorId);
+}
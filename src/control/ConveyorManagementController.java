@@ -7,6 +7,10 @@ import entity.ConveyorStatus;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 /**
  * ConveyorManagementController
@@ -20,8 +24,26 @@ import java.util.concurrent.ConcurrentHashMap;
  * שינוי נוסף:
  * - Soft delete: isActive (true/false) במקום DELETE אמיתי.
  * - ברירת מחדל: מחזירים רק פעילים.
+ *
+ * Optimistic locking:
+ * - every write sets [rowVersion]=[rowVersion]+1 (see RowVersions)
+ * - the overloads taking expectedVersion check it (and the required state) in the UPDATE itself,
+ *   return the new version, and throw OptimisticLockException with the current row on a conflict
+ * - the old overloads re-read the row as before; status changes still only apply to the version they checked
+ *
+ * Spatial queries (floor / rectangle / nearest): one ConveyorSpatialIndex per parking lot, built on the
+ * first query for the lot and kept current by the writes of this controller.
+ *
+ * Archive: inactive conveyors moved to ConveyorArchive (SoftDeleteArchiver) are read back only by
+ * getConveyorsByParkingLot(lot, includeInactive=true).
+ *
+ * Dispatch (gate software): ConveyorDispatcher picks an Operational conveyor with enough MaxWeight
+ * from memory; also kept current by the writes. A lot is read on its first dispatch (one lock per lot);
+ * after that, a dispatch finding it older than DISPATCH_REFRESH_MS queues a re-read on a background
+ * thread for the status changes reported by the hardware (from the read replica when it is enabled)
+ * and does not wait for it.
  */
-public class ConveyorManagementController {
+public class ConveyorManagementController implements ConveyorManagement {
 
     private final AccessDb db;
 
@@ -29,6 +51,25 @@ public class ConveyorManagementController {
     private final Map<Integer, Integer> attemptCountById = new ConcurrentHashMap<>();
     private final Map<Integer, Integer> pendingWeightById = new ConcurrentHashMap<>();
 
+    // spatial indexes of the lots queried so far, and the lot of every conveyor in them
+    private final Map<Integer, ConveyorSpatialIndex> spatialByLot = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> spatialLotByConveyor = new ConcurrentHashMap<>();
+
+    private static final long DISPATCH_REFRESH_MS = Long.getLong("parkwise.dispatch.refreshMs", 2000);
+    private final ConveyorDispatcher dispatcher = new ConveyorDispatcher();
+    private final Set<Integer> dispatchRefreshing = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService DISPATCH_REFRESH = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "parkwise-dispatch-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final String TURN_ON_STATE = "Turn ON is allowed only from OFF state.";
+    private static final String RESTART_STATE = "Restart is allowed only from PAUSED.";
+    private static final String TURN_OFF_STATE = "Turn OFF is allowed only from OPERATION (Operational).";
+    private static final String CONFIRM_WEIGHT_STATE = "Max weight can be confirmed ONLY when conveyor is OFF.";
+    private static final String PENDING_WEIGHT = "Cannot turn ON while there is a pending weight change (confirm it first).";
+
     public ConveyorManagementController(AccessDb db) {
         this.db = db;
     }
@@ -52,38 +93,39 @@ public class ConveyorManagementController {
         if (parkingLotId <= 0) throw new IllegalArgumentException("ParkingLotID must be positive.");
         if (maxVehicleWeightKg <= 0) throw new IllegalArgumentException("MaxWeight must be positive.");
 
-        if (status == null) status = ConveyorStatus.Off;
+        ConveyorStatus initial = (status == null) ? ConveyorStatus.Off : status;
 
         // ✅ NEW: On creation Floor/X/Y are NULL + isActive=True
-        String sql = "INSERT INTO Conveyor ([ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive]) VALUES (?,?,?,?,?,?,?,?)";
+        String sql = "INSERT INTO Conveyor ([ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive],[rowVersion]) VALUES (?,?,?,?,?,?,?,?,0)";
 
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        // the generated ID is read on the same connection, so the write returns it
+        int newId = write("Failed to add conveyor: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
-            ps.setInt(1, parkingLotId);
+                ps.setInt(1, parkingLotId);
 
-            // Floor/X/Y => NULL
-            ps.setNull(2, Types.INTEGER);
-            ps.setNull(3, Types.INTEGER);
-            ps.setNull(4, Types.INTEGER);
+                // Floor/X/Y => NULL
+                ps.setNull(2, Types.INTEGER);
+                ps.setNull(3, Types.INTEGER);
+                ps.setNull(4, Types.INTEGER);
 
-            ps.setInt(5, maxVehicleWeightKg);
-            ps.setString(6, status.name());
-            ps.setString(7, null);
-            ps.setBoolean(8, true);
+                ps.setInt(5, maxVehicleWeightKg);
+                ps.setString(6, initial.name());
+                ps.setString(7, null);
+                ps.setBoolean(8, true);
 
-            ps.executeUpdate();
+                ps.executeUpdate();
 
-            int newId = readGeneratedId(ps, conn);
-
-            attemptCountById.put(newId, 0);
-            pendingWeightById.remove(newId);
+                return readGeneratedId(ps, conn);
+            }
+        });
 
-            return new Conveyor(newId, parkingLotId, null, null, null, maxVehicleWeightKg, status, null, true);
+        attemptCountById.put(newId, 0);
+        pendingWeightById.remove(newId);
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to add conveyor: " + e.getMessage(), e);
-        }
+        Conveyor added = new Conveyor(newId, parkingLotId, null, null, null, maxVehicleWeightKg, initial, null, true);
+        indexPut(added);
+        return added;
     }
 
     /**
@@ -99,9 +141,19 @@ public class ConveyorManagementController {
     public List<Conveyor> getConveyorsByParkingLot(int parkingLotId, boolean includeInactive) {
         ensureDb();
 
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            List<Conveyor> list = fromReadSource(source.getConveyorsByParkingLot(parkingLotId), includeInactive);
+            if (includeInactive && !db.isReadOnly()) {
+                list.addAll(archivedConveyors(parkingLotId));
+                list.sort(JackcessReader.conveyorOrder(true));
+            }
+            return list;
+        }
+
         List<Conveyor> list = new ArrayList<>();
         String sql =
-                "SELECT [ID],[ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive] " +
+                "SELECT [ID],[ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive],[rowVersion] " +
                 "FROM Conveyor WHERE [ParkingLotID]=? " +
                 (includeInactive ? "" : "AND [isActive]=True ") +
                 (includeInactive ? "ORDER BY [isActive] DESC, [ID] ASC" : "ORDER BY [ID] ASC");
@@ -131,7 +183,9 @@ public class ConveyorManagementController {
 
                     attemptCountById.putIfAbsent(id, 0);
 
-                    list.add(new Conveyor(id, lotId, floor, x, y, maxW, status, lastStatus, isActive));
+                    Conveyor c = new Conveyor(id, lotId, floor, x, y, maxW, status, lastStatus, isActive);
+                    c.setRowVersion(rs.getInt("rowVersion"));
+                    list.add(c);
                 }
             }
 
@@ -139,6 +193,98 @@ public class ConveyorManagementController {
             throw new RuntimeException("Failed to load conveyors: " + e.getMessage(), e);
         }
 
+        if (includeInactive) {
+            list.addAll(archivedConveyors(parkingLotId));
+            list.sort(JackcessReader.conveyorOrder(true));
+        }
+        return list;
+    }
+
+    /** Conveyors of the lot moved to ConveyorArchive (all inactive), by ID. */
+    private List<Conveyor> archivedConveyors(int parkingLotId) {
+        List<Conveyor> list = new ArrayList<>();
+        String sql =
+                "SELECT [ID],[ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive],[rowVersion] " +
+                "FROM " + SoftDeleteArchiver.archiveTable("Conveyor") + " WHERE [ParkingLotID]=? ORDER BY [ID] ASC";
+
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, parkingLotId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(readConveyor(rs));
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load archived conveyors: " + e.getMessage(), e);
+        }
+        return list;
+    }
+
+    private Conveyor readConveyor(ResultSet rs) throws SQLException {
+        boolean isActive = true;
+        try { isActive = rs.getBoolean("isActive"); } catch (Exception ignore) {}
+
+        Conveyor c = new Conveyor(
+                rs.getInt("ID"),
+                rs.getInt("ParkingLotID"),
+                getNullableInt(rs, "Floor"),
+                getNullableInt(rs, "X"),
+                getNullableInt(rs, "Y"),
+                rs.getInt("MaxWeight"),
+                parseStatus(rs.getString("Status")),
+                safeParseLastStatus(rs.getString("LastStatus")),
+                isActive);
+        c.setRowVersion(rs.getInt("rowVersion"));
+        return c;
+    }
+
+    /**
+     * Bulk read of ALL conveyors (status dashboards).
+     * Uses the direct Jackcess reader when it is enabled on the AccessDb, else one JDBC scan.
+     */
+    public List<Conveyor> getAllConveyors(boolean includeInactive) {
+        ensureDb();
+
+        ReadSource source = db.getReadSource();
+        if (source != null) return fromReadSource(source.getConveyors(), includeInactive);
+
+        JackcessReader reader = db.getJackcessReader();
+        List<Conveyor> list;
+        if (reader != null) {
+            list = reader.readAllConveyors(includeInactive);
+        } else {
+            list = new ArrayList<>();
+            String sql =
+                    "SELECT [ID],[ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive],[rowVersion] " +
+                    "FROM Conveyor " +
+                    (includeInactive ? "ORDER BY [isActive] DESC, [ID] ASC" : "WHERE [isActive]=True ORDER BY [ID] ASC");
+
+            try (Connection conn = db.open();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+
+                while (rs.next()) list.add(readConveyor(rs));
+
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to load conveyors: " + e.getMessage(), e);
+            }
+        }
+
+        for (Conveyor c : list) attemptCountById.putIfAbsent(c.getId(), 0);
+        return list;
+    }
+
+    /** Same filter / order as the SQL queries above. */
+    private List<Conveyor> fromReadSource(List<Conveyor> all, boolean includeInactive) {
+        List<Conveyor> list = new ArrayList<>();
+        for (Conveyor c : all) {
+            if (includeInactive || c.isActive()) list.add(c);
+        }
+        list.sort(JackcessReader.conveyorOrder(includeInactive));
+
+        for (Conveyor c : list) attemptCountById.putIfAbsent(c.getId(), 0);
         return list;
     }
 
@@ -153,25 +299,111 @@ public class ConveyorManagementController {
         }
 
         // ✅ NEW: when moving, Floor/X/Y become NULL (manager cannot set)
-        String sql = "UPDATE Conveyor SET [ParkingLotID]=?, [X]=?, [Y]=?, [Floor]=? WHERE [ID]=? AND [isActive]=True";
+        String sql = "UPDATE Conveyor SET [ParkingLotID]=?, [X]=?, [Y]=?, [Floor]=?, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True";
 
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        int updated = write("Failed to move conveyor: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, newParkingLotId);
+                ps.setInt(1, newParkingLotId);
 
-            ps.setNull(2, Types.INTEGER);
-            ps.setNull(3, Types.INTEGER);
-            ps.setNull(4, Types.INTEGER);
+                ps.setNull(2, Types.INTEGER);
+                ps.setNull(3, Types.INTEGER);
+                ps.setNull(4, Types.INTEGER);
 
-            ps.setInt(5, conveyorId);
+                ps.setInt(5, conveyorId);
 
-            int updated = ps.executeUpdate();
-            if (updated == 0) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
+        indexMove(conveyorId, newParkingLotId, null);
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to move conveyor: " + e.getMessage(), e);
+    /** Versioned move. @return the new row version */
+    public int moveConveyorToParkingLot(int conveyorId, int newParkingLotId, int expectedVersion) {
+        ensureDb();
+
+        requirePositiveId(conveyorId);
+        if (newParkingLotId <= 0) throw new IllegalArgumentException("New ParkingLotID must be positive.");
+
+        String sql = "UPDATE Conveyor SET [ParkingLotID]=?, [X]=?, [Y]=?, [Floor]=?, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True AND [rowVersion]=?";
+
+        int updated = write("Failed to move conveyor: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, newParkingLotId);
+                ps.setNull(2, Types.INTEGER);
+                ps.setNull(3, Types.INTEGER);
+                ps.setNull(4, Types.INTEGER);
+                ps.setInt(5, conveyorId);
+                ps.setInt(6, expectedVersion);
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw conflict(conveyorId, expectedVersion, "Conveyor is inactive and cannot be moved.");
+        indexMove(conveyorId, newParkingLotId, expectedVersion + 1);
+        return expectedVersion + 1;
+    }
+
+    /**
+     * Floor / X / Y of a placed conveyor (reported by the site, not set by the manager).
+     * null = unknown; floors below ground are negative.
+     */
+    public void updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y) {
+        ensureDb();
+        requirePositiveId(conveyorId);
+        if ((x != null && x < 0) || (y != null && y < 0)) {
+            throw new IllegalArgumentException("X / Y must not be negative.");
+        }
+
+        String sql = "UPDATE Conveyor SET [Floor]=?, [X]=?, [Y]=?, [rowVersion]=[rowVersion]+1 WHERE [ID]=? AND [isActive]=True";
+
+        int updated = write("Failed to update conveyor position: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                setNullableInt(ps, 1, floorNumber);
+                setNullableInt(ps, 2, x);
+                setNullableInt(ps, 3, y);
+                ps.setInt(4, conveyorId);
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw new IllegalArgumentException("Conveyor not found or inactive: " + conveyorId);
+        indexUpdate(conveyorId, null, c -> {
+            c.setFloorNumber(floorNumber);
+            c.setX(x);
+            c.setY(y);
+        });
+    }
+
+    /** Versioned position update. @return the new row version */
+    public int updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y, int expectedVersion) {
+        ensureDb();
+        requirePositiveId(conveyorId);
+        if ((x != null && x < 0) || (y != null && y < 0)) {
+            throw new IllegalArgumentException("X / Y must not be negative.");
         }
+
+        String sql = "UPDATE Conveyor SET [Floor]=?, [X]=?, [Y]=?, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True AND [rowVersion]=?";
+
+        int updated = write("Failed to update conveyor position: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                setNullableInt(ps, 1, floorNumber);
+                setNullableInt(ps, 2, x);
+                setNullableInt(ps, 3, y);
+                ps.setInt(4, conveyorId);
+                ps.setInt(5, expectedVersion);
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw conflict(conveyorId, expectedVersion, "Conveyor is inactive.");
+        indexUpdate(conveyorId, expectedVersion + 1, c -> {
+            c.setFloorNumber(floorNumber);
+            c.setX(x);
+            c.setY(y);
+        });
+        return expectedVersion + 1;
     }
 
     /**
@@ -185,22 +417,42 @@ public class ConveyorManagementController {
             throw new IllegalStateException("Conveyor is already inactive.");
         }
 
-        String sql = "UPDATE Conveyor SET [isActive]=False WHERE [ID]=? AND [isActive]=True";
+        String sql = "UPDATE Conveyor SET [isActive]=False, [rowVersion]=[rowVersion]+1 WHERE [ID]=? AND [isActive]=True";
 
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        int updated = write("Failed to deactivate conveyor: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, conveyorId);
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
 
-            ps.setInt(1, conveyorId);
+        attemptCountById.remove(conveyorId);
+        pendingWeightById.remove(conveyorId);
+        indexUpdate(conveyorId, null, c -> c.setActive(false));
+    }
 
-            int updated = ps.executeUpdate();
-            if (updated == 0) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
+    /** Versioned soft delete. @return the new row version */
+    public int deleteConveyor(int conveyorId, int expectedVersion) {
+        ensureDb();
+        requirePositiveId(conveyorId);
 
-            attemptCountById.remove(conveyorId);
-            pendingWeightById.remove(conveyorId);
+        String sql = "UPDATE Conveyor SET [isActive]=False, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True AND [rowVersion]=?";
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to deactivate conveyor: " + e.getMessage(), e);
-        }
+        int updated = write("Failed to deactivate conveyor: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, conveyorId);
+                ps.setInt(2, expectedVersion);
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw conflict(conveyorId, expectedVersion, "Conveyor is already inactive.");
+
+        attemptCountById.remove(conveyorId);
+        pendingWeightById.remove(conveyorId);
+        indexUpdate(conveyorId, expectedVersion + 1, c -> c.setActive(false));
+        return expectedVersion + 1;
     }
 
     // =========================
@@ -223,7 +475,7 @@ public class ConveyorManagementController {
                 if (c.getStatus() == ConveyorStatus.Off && !pendingWeightById.containsKey(c.getId())) {
                     // same rules as single turnOn
                     attemptCountById.put(c.getId(), 0);
-                    updateConveyorStatus_WithHistoryRule(c.getId(), ConveyorStatus.Testing);
+                    changeStatus(c.getId(), c.getRowVersion(), ConveyorStatus.Off, ConveyorStatus.Testing, TURN_ON_STATE);
                     turnedOn++;
                 }
             } catch (Exception ignore) {
@@ -261,16 +513,31 @@ public class ConveyorManagementController {
             throw new IllegalStateException("Conveyor is inactive.");
         }
         if (c.getStatus() != ConveyorStatus.Off) {
-            throw new IllegalStateException("Max weight can be confirmed ONLY when conveyor is OFF.");
+            throw new IllegalStateException(CONFIRM_WEIGHT_STATE);
+        }
+
+        Integer pending = pendingWeightById.get(conveyorId);
+        if (pending == null) {
+            throw new IllegalStateException("No pending max weight change for this conveyor.");
         }
 
+        updateConveyorMaxWeight_DBOnly(conveyorId, c.getRowVersion(), pending);
+        pendingWeightById.remove(conveyorId);
+    }
+
+    /** Versioned confirm. @return the new row version */
+    public int confirmChangeMaxWeight(int conveyorId, int expectedVersion) {
+        ensureDb();
+        requirePositiveId(conveyorId);
+
         Integer pending = pendingWeightById.get(conveyorId);
         if (pending == null) {
             throw new IllegalStateException("No pending max weight change for this conveyor.");
         }
 
-        updateConveyorMaxWeight_DBOnly(conveyorId, pending);
+        int version = updateConveyorMaxWeight_DBOnly(conveyorId, expectedVersion, pending);
         pendingWeightById.remove(conveyorId);
+        return version;
     }
 
     public Integer getPendingWeight(int conveyorId) {
@@ -286,14 +553,26 @@ public class ConveyorManagementController {
             throw new IllegalStateException("Conveyor is inactive.");
         }
         if (c.getStatus() != ConveyorStatus.Off) {
-            throw new IllegalStateException("Turn ON is allowed only from OFF state.");
+            throw new IllegalStateException(TURN_ON_STATE);
         }
         if (pendingWeightById.containsKey(conveyorId)) {
-            throw new IllegalStateException("Cannot turn ON while there is a pending weight change (confirm it first).");
+            throw new IllegalStateException(PENDING_WEIGHT);
         }
 
         attemptCountById.put(conveyorId, 0);
-        updateConveyorStatus_WithHistoryRule(conveyorId, ConveyorStatus.Testing);
+        changeStatus(conveyorId, c.getRowVersion(), ConveyorStatus.Off, ConveyorStatus.Testing, TURN_ON_STATE);
+    }
+
+    /** Versioned turn ON. @return the new row version */
+    public int turnOnConveyors(int conveyorId, int expectedVersion) {
+        ensureDb();
+        requirePositiveId(conveyorId);
+        if (pendingWeightById.containsKey(conveyorId)) {
+            throw new IllegalStateException(PENDING_WEIGHT);
+        }
+
+        attemptCountById.put(conveyorId, 0);
+        return changeStatus(conveyorId, expectedVersion, ConveyorStatus.Off, ConveyorStatus.Testing, TURN_ON_STATE);
     }
 
     public void restart(int conveyorId) {
@@ -305,11 +584,20 @@ public class ConveyorManagementController {
             throw new IllegalStateException("Conveyor is inactive.");
         }
         if (c.getStatus() != ConveyorStatus.Paused) {
-            throw new IllegalStateException("Restart is allowed only from PAUSED.");
+            throw new IllegalStateException(RESTART_STATE);
         }
 
         attemptCountById.put(conveyorId, 0);
-        updateConveyorStatus_WithHistoryRule(conveyorId, ConveyorStatus.Testing);
+        changeStatus(conveyorId, c.getRowVersion(), ConveyorStatus.Paused, ConveyorStatus.Testing, RESTART_STATE);
+    }
+
+    /** Versioned restart. @return the new row version */
+    public int restart(int conveyorId, int expectedVersion) {
+        ensureDb();
+        requirePositiveId(conveyorId);
+
+        attemptCountById.put(conveyorId, 0);
+        return changeStatus(conveyorId, expectedVersion, ConveyorStatus.Paused, ConveyorStatus.Testing, RESTART_STATE);
     }
 
     public void turnOffConveyors(int conveyorId) {
@@ -321,10 +609,17 @@ public class ConveyorManagementController {
             throw new IllegalStateException("Conveyor is inactive.");
         }
         if (c.getStatus() != ConveyorStatus.Operational) {
-            throw new IllegalStateException("Turn OFF is allowed only from OPERATION (Operational).");
+            throw new IllegalStateException(TURN_OFF_STATE);
         }
 
-        updateConveyorStatus_WithHistoryRule(conveyorId, ConveyorStatus.Off);
+        changeStatus(conveyorId, c.getRowVersion(), ConveyorStatus.Operational, ConveyorStatus.Off, TURN_OFF_STATE);
+    }
+
+    /** Versioned turn OFF. @return the new row version */
+    public int turnOffConveyors(int conveyorId, int expectedVersion) {
+        ensureDb();
+        requirePositiveId(conveyorId);
+        return changeStatus(conveyorId, expectedVersion, ConveyorStatus.Operational, ConveyorStatus.Off, TURN_OFF_STATE);
     }
 
     public void pause(int conveyorId) {
@@ -342,38 +637,219 @@ public class ConveyorManagementController {
     }
 
     // =========================
-    // DB-only helpers
+    // Spatial queries (Floor / X / Y)
     // =========================
 
-    private void updateConveyorMaxWeight_DBOnly(int conveyorId, int newWeight) {
-        String sql = "UPDATE Conveyor SET [MaxWeight]=? WHERE [ID]=? AND [isActive]=True";
+    /** Conveyors of the lot on this floor, placed (X / Y known) or not. */
+    public List<Conveyor> getConveyorsOnFloor(int parkingLotId, int floorNumber, boolean includeInactive) {
+        return spatialIndex(parkingLotId).onFloor(floorNumber, includeInactive);
+    }
 
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+    /** Conveyors of the lot on this floor inside the rectangle (corners included, in any order). */
+    public List<Conveyor> getConveyorsInArea(int parkingLotId, int floorNumber, int x1, int y1, int x2, int y2,
+                                             boolean includeInactive) {
+        return spatialIndex(parkingLotId).inRectangle(floorNumber, x1, y1, x2, y2, includeInactive);
+    }
 
-            ps.setInt(1, newWeight);
-            ps.setInt(2, conveyorId);
+    /** The k active conveyors of the lot closest to (x, y) on this floor, nearest first. */
+    public List<Conveyor> findNearestConveyors(int parkingLotId, int floorNumber, int x, int y, int k) {
+        if (k <= 0) throw new IllegalArgumentException("k must be positive.");
+        return spatialIndex(parkingLotId).nearest(floorNumber, x, y, k);
+    }
 
-            int updated = ps.executeUpdate();
-            if (updated == 0) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
+    /** Conveyors of the lot without a known position (no Floor, or no X / Y). */
+    public List<Conveyor> getUnplacedConveyors(int parkingLotId, boolean includeInactive) {
+        return spatialIndex(parkingLotId).unplaced(includeInactive);
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to update conveyor max weight: " + e.getMessage(), e);
+    /**
+     * Drops the spatial indexes (e.g. after positions were reported by another process);
+     * each lot is re-read on its next spatial query.
+     */
+    public void reloadSpatialIndexes() {
+        spatialByLot.clear();
+        spatialLotByConveyor.clear();
+    }
+
+    private ConveyorSpatialIndex spatialIndex(int parkingLotId) {
+        ensureDb();
+        if (parkingLotId <= 0) throw new IllegalArgumentException("ParkingLotID must be positive.");
+
+        ConveyorSpatialIndex index = spatialByLot.get(parkingLotId);
+        if (index != null) return index;
+
+        synchronized (spatialByLot) {
+            index = spatialByLot.get(parkingLotId);
+            if (index != null) return index;
+
+            List<Conveyor> all = getConveyorsByParkingLot(parkingLotId, true);
+            index = new ConveyorSpatialIndex(parkingLotId);
+            index.rebuild(all);
+            for (Conveyor c : all) spatialLotByConveyor.put(c.getId(), parkingLotId);
+            spatialByLot.put(parkingLotId, index);
+            return index;
         }
     }
 
+    // =========================
+    // Dispatch
+    // =========================
+
+    /** dispatchConveyor with ConveyorDispatcher.DEFAULT_STRATEGY (least loaded). */
+    public Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg) {
+        return dispatchConveyor(parkingLotId, vehicleWeightKg, ConveyorDispatcher.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * An active, Operational conveyor of the lot with MaxWeight >= vehicleWeightKg for an arriving
+     * vehicle; counted as busy with it until releaseConveyor.
+     * @return null when no conveyor of the lot can take the vehicle now
+     */
+    public Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg, ConveyorDispatcher.Strategy strategy) {
+        if (parkingLotId <= 0) throw new IllegalArgumentException("ParkingLotID must be positive.");
+        if (vehicleWeightKg <= 0) throw new IllegalArgumentException("Vehicle weight must be positive.");
+
+        if (dispatcher.isLoaded(parkingLotId) && !dispatcher.isLoaded(parkingLotId, DISPATCH_REFRESH_MS)) {
+            refreshDispatchLater(parkingLotId);
+        }
+        // loads the lot first when it is not loaded (first dispatch, or unloaded after a move)
+        return dispatcher.dispatch(parkingLotId, vehicleWeightKg,
+                strategy == null ? ConveyorDispatcher.DEFAULT_STRATEGY : strategy,
+                () -> {
+                    ensureDb();
+                    return getConveyorsByParkingLot(parkingLotId, false);
+                });
+    }
+
+    /** Re-reads the lot for the dispatcher on the background thread (at most one queued per lot). */
+    private void refreshDispatchLater(int parkingLotId) {
+        if (!dispatchRefreshing.add(parkingLotId)) return;
+        DISPATCH_REFRESH.execute(() -> {
+            try {
+                dispatcher.load(parkingLotId, () -> getConveyorsByParkingLot(parkingLotId, false));
+            } catch (RuntimeException e) {
+                // keeps the loaded state; the next dispatch queues another try
+                System.err.println("Dispatch refresh of parking lot " + parkingLotId + " failed: " + e.getMessage());
+            } finally {
+                dispatchRefreshing.remove(parkingLotId);
+            }
+        });
+    }
+
+    /** The vehicle dispatched to this conveyor has left it. */
+    public void releaseConveyor(int conveyorId) {
+        requirePositiveId(conveyorId);
+        dispatcher.release(conveyorId);
+    }
+
+    /** Vehicles dispatched to the conveyor and not released yet. */
+    public int getDispatchLoad(int conveyorId) {
+        return dispatcher.getLoad(conveyorId);
+    }
+
+    // =========================
+    // In-memory indexes after writes
+    // =========================
+
+    private void indexPut(Conveyor c) {
+        dispatcher.put(c);
+
+        ConveyorSpatialIndex index = spatialByLot.get(c.getParkingLotId());
+        if (index == null) return;
+        index.put(c);
+        spatialLotByConveyor.put(c.getId(), c.getParkingLotId());
+    }
+
+    /** Applies a successful write to the indexed copies (version: the new row version, null = current + 1). */
+    private void indexUpdate(int conveyorId, Integer version, Consumer<Conveyor> change) {
+        indexReplace(conveyorId, c -> {
+            change.accept(c);
+            c.setRowVersion(version == null ? c.getRowVersion() + 1 : version);
+            return c;
+        });
+    }
+
+    private void indexReplace(int conveyorId, UnaryOperator<Conveyor> change) {
+        Conveyor known = dispatcher.get(conveyorId);
+        if (known != null) dispatcher.put(change.apply(known));
+
+        Integer lotId = spatialLotByConveyor.get(conveyorId);
+        ConveyorSpatialIndex index = lotId == null ? null : spatialByLot.get(lotId);
+        if (index == null) return;
+
+        Conveyor c = index.get(conveyorId);
+        if (c != null) index.put(change.apply(c));
+    }
+
+    /** A move puts the conveyor, without position, into the indexes of its new lot. */
+    private void indexMove(int conveyorId, int newParkingLotId, Integer version) {
+        Integer oldLotId = spatialLotByConveyor.remove(conveyorId);
+        ConveyorSpatialIndex oldIndex = oldLotId == null ? null : spatialByLot.get(oldLotId);
+        Conveyor moved = oldIndex == null ? null : oldIndex.remove(conveyorId);
+        Conveyor dispatched = dispatcher.remove(conveyorId);
+        if (moved == null) moved = dispatched;
+
+        if (moved == null) {
+            // not known here: re-read the new lot on its next query / dispatch
+            spatialByLot.remove(newParkingLotId);
+            dispatcher.unload(newParkingLotId);
+            return;
+        }
+        moved.setParkingLotId(newParkingLotId);
+        moved.setFloorNumber(null);
+        moved.setX(null);
+        moved.setY(null);
+        moved.setRowVersion(version == null ? moved.getRowVersion() + 1 : version);
+        indexPut(moved);
+    }
+
+    /** The row after changeStatus (same LastStatus rule as its SQL). */
+    private static Conveyor withStatus(Conveyor c, ConveyorStatus newStatus, int version) {
+        ConveyorLastStatus last = c.getLastStatus();
+        if ((c.getStatus() == ConveyorStatus.Testing || c.getStatus() == ConveyorStatus.Operational)
+                && newStatus != ConveyorStatus.Off && newStatus != ConveyorStatus.Paused) {
+            last = ConveyorLastStatus.valueOf(c.getStatus().name());
+        }
+        Conveyor next = new Conveyor(c.getId(), c.getParkingLotId(), c.getFloorNumber(), c.getX(), c.getY(),
+                c.getMaxVehicleWeightKg(), newStatus, last, c.isActive());
+        next.setRowVersion(version);
+        return next;
+    }
+
+    // =========================
+    // DB-only helpers
+    // =========================
+
+    private int updateConveyorMaxWeight_DBOnly(int conveyorId, int expectedVersion, int newWeight) {
+        String sql = "UPDATE Conveyor SET [MaxWeight]=?, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True AND [rowVersion]=? AND [Status]=?";
+
+        int updated = write("Failed to update conveyor max weight: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, newWeight);
+                ps.setInt(2, conveyorId);
+                ps.setInt(3, expectedVersion);
+                ps.setString(4, ConveyorStatus.Off.name());
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw conflict(conveyorId, expectedVersion, CONFIRM_WEIGHT_STATE);
+        indexUpdate(conveyorId, expectedVersion + 1, c -> c.setMaxVehicleWeightKg(newWeight));
+        return expectedVersion + 1;
+    }
+
     /**
      * Rule:
      * - LastStatus becomes the CURRENT Status (only if current is Testing/Operational)
      * - EXCEPT when switching to Off or Paused -> do NOT change LastStatus
      * - LastStatus never becomes Off/Paused (DB stores only Testing/Operational)
+     *
+     * Applies only while the row is still active, at {@code expectedVersion} and in status {@code from}.
+     * @return the new row version
      */
-    private void updateConveyorStatus_WithHistoryRule(int conveyorId, ConveyorStatus newStatus) {
-        if (isConveyorInactive(conveyorId)) {
-            throw new IllegalStateException("Conveyor is inactive.");
-        }
-
-        String newText = (newStatus == null ? null : newStatus.name());
+    private int changeStatus(int conveyorId, int expectedVersion, ConveyorStatus from, ConveyorStatus newStatus,
+                             String wrongState) {
+        String newText = newStatus.name();
 
         String sql =
                 "UPDATE Conveyor " +
@@ -384,21 +860,52 @@ public class ConveyorManagementController {
                 "       [Status], " +
                 "       [LastStatus] " +
                 "  ), " +
-                "  [Status] = ? " +
-                "WHERE [ID] = ? AND [isActive]=True";
-
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+                "  [Status] = ?, " +
+                "  [rowVersion] = [rowVersion] + 1 " +
+                "WHERE [ID] = ? AND [isActive]=True AND [rowVersion] = ? AND [Status] = ?";
+
+        int updated = write("Failed to update conveyor status: ", conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, newText);
+                ps.setString(2, newText);
+                ps.setInt(3, conveyorId);
+                ps.setInt(4, expectedVersion);
+                ps.setString(5, from.name());
+                return ps.executeUpdate();
+            }
+        });
+        if (updated == 0) throw conflict(conveyorId, expectedVersion, wrongState);
+        indexReplace(conveyorId, c -> withStatus(c, newStatus, expectedVersion + 1));
+        return expectedVersion + 1;
+    }
 
-            ps.setString(1, newText);
-            ps.setString(2, newText);
-            ps.setInt(3, conveyorId);
+    /**
+     * Why a versioned UPDATE matched no row - read only on this failure path.
+     * @param wrongState message when the row is active and at the expected version but in the wrong state
+     */
+    private RuntimeException conflict(int conveyorId, int expectedVersion, String wrongState) {
+        Conveyor current = getConveyorById(conveyorId); // IllegalArgumentException if it does not exist
+        if (current.getRowVersion() != expectedVersion) {
+            return new OptimisticLockException("Conveyor", conveyorId, expectedVersion, current.getRowVersion(), current);
+        }
+        if (!current.isActive()) return new IllegalStateException("Conveyor is inactive.");
+        return new IllegalStateException(wrongState);
+    }
 
-            int updated = ps.executeUpdate();
-            if (updated == 0) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
+    /**
+     * Runs one write: through the ConveyorWriteQueue when it is enabled on the AccessDb
+     * (group commit, returns after the commit), else on its own auto-commit connection.
+     */
+    private int write(String failure, ConveyorWriteQueue.Write write) {
+        try {
+            ConveyorWriteQueue queue = db.getConveyorWriteQueue();
+            if (queue != null && !queue.isClosed()) return queue.execute(write);
 
+            try (Connection conn = db.open()) {
+                return write.apply(conn);
+            }
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to update conveyor status: " + e.getMessage(), e);
+            throw new RuntimeException(failure + e.getMessage(), e);
         }
     }
 
@@ -406,7 +913,7 @@ public class ConveyorManagementController {
         ensureDb();
 
         String sql =
-                "SELECT [ID],[ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive] " +
+                "SELECT [ID],[ParkingLotID],[Floor],[X],[Y],[MaxWeight],[Status],[LastStatus],[isActive],[rowVersion] " +
                 "FROM Conveyor WHERE [ID]=?";
 
         try (Connection conn = db.open();
@@ -431,7 +938,9 @@ public class ConveyorManagementController {
                 boolean isActive = true;
                 try { isActive = rs.getBoolean("isActive"); } catch (Exception ignore) {}
 
-                return new Conveyor(id, lotId, floor, x, y, maxW, status, lastStatus, isActive);
+                Conveyor c = new Conveyor(id, lotId, floor, x, y, maxW, status, lastStatus, isActive);
+                c.setRowVersion(rs.getInt("rowVersion"));
+                return c;
             }
 
         } catch (SQLException e) {
@@ -455,13 +964,13 @@ public class ConveyorManagementController {
         }
     }
 
-    private ConveyorStatus parseStatus(String st) {
+    static ConveyorStatus parseStatus(String st) {
         if (st == null || st.isBlank()) return ConveyorStatus.Off;
         try { return ConveyorStatus.valueOf(st.trim()); }
         catch (Exception ignore) { return ConveyorStatus.Off; }
     }
 
-    private ConveyorLastStatus safeParseLastStatus(String s) {
+    static ConveyorLastStatus safeParseLastStatus(String s) {
         if (s == null || s.isBlank()) return null;
         try { return ConveyorLastStatus.valueOf(s.trim()); }
         catch (Exception ignore) { return null; }
@@ -491,6 +1000,11 @@ public class ConveyorManagementController {
         return newId;
     }
 
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) ps.setNull(index, Types.INTEGER);
+        else ps.setInt(index, value);
+    }
+
     /**
      * קריאה בטוחה של INT nullable מתוך ResultSet.
      */
@@ -0,0 +1,484 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import entity.Conveyor;
+
+/**
+ * ConveyorSpatialIndex
+ * --------------------
+ * In-memory index over the Floor / X / Y of the conveyors of ONE parking lot.
+ *
+ * - one uniform grid per floor: cell (floorDiv(x, size), floorDiv(y, size)) -> conveyors in it,
+ *   coordinates kept in int arrays next to the slots, so a scan does not touch the Conveyor objects
+ * - the cell size of a floor is chosen on rebuild (about CELL_TARGET conveyors per cell of the
+ *   floor's bounding box); floors first seen by put use DEFAULT_CELL_SIZE
+ * - NULL positions: no Floor = not on any floor; Floor without X / Y = on the floor but not in
+ *   its grid (onFloor finds it, inRectangle / nearest do not); unplaced lists both
+ * - put / remove move one conveyor between cells in O(1) (swap-remove)
+ *
+ * Results are copies in the order of the conveyor list queries (active first, then ID);
+ * nearest is ordered by distance, then ID.
+ * Thread-safe: queries share a read lock, updates take the write lock.
+ */
+public final class ConveyorSpatialIndex {
+
+    public static final int DEFAULT_CELL_SIZE = 16;
+    private static final int CELL_TARGET = 4;
+
+    private static final int NO_POSITION = 0;
+    private static final int FLOOR_ONLY = 1;
+    private static final int PLACED = 2;
+
+    private final int parkingLotId;
+
+    // per slot; freed slots are reused
+    private Conveyor[] conveyors = new Conveyor[16];
+    private int[] placement = new int[16];
+    private int[] floorOf = new int[16];
+    private int[] floorPos = new int[16];       // position in Floor.members
+    private int[] cellPos = new int[16];        // position in its Cell
+    private int slotCount;
+    private final IntList freeSlots = new IntList();
+
+    private final Map<Integer, Integer> slotById = new HashMap<>();
+    private final Map<Integer, Floor> floors = new HashMap<>();
+    private final IntList unplaced = new IntList();
+    private int[] unplacedPos = new int[16];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public ConveyorSpatialIndex(int parkingLotId) {
+        this.parkingLotId = parkingLotId;
+    }
+
+    public int getParkingLotId() {
+        return parkingLotId;
+    }
+
+    /** Replaces the whole content; conveyors of other lots are ignored. */
+    public void rebuild(Collection<Conveyor> all) {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(conveyors, null);
+            slotCount = 0;
+            freeSlots.size = 0;
+            slotById.clear();
+            floors.clear();
+            unplaced.size = 0;
+
+            // bounding box and count per floor -> cell size
+            Map<Integer, int[]> boxes = new HashMap<>();
+            for (Conveyor c : all) {
+                if (c.getParkingLotId() != parkingLotId || placementOf(c) != PLACED) continue;
+                int[] box = boxes.computeIfAbsent(c.getFloorNumber(),
+                        f -> new int[] { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE, 0 });
+                box[0] = Math.min(box[0], c.getX());
+                box[1] = Math.min(box[1], c.getY());
+                box[2] = Math.max(box[2], c.getX());
+                box[3] = Math.max(box[3], c.getY());
+                box[4]++;
+            }
+            for (Map.Entry<Integer, int[]> e : boxes.entrySet()) {
+                int[] box = e.getValue();
+                double area = (box[2] - (double) box[0] + 1) * (box[3] - (double) box[1] + 1);
+                int size = (int) Math.ceil(Math.sqrt(area * CELL_TARGET / box[4]));
+                floors.put(e.getKey(), new Floor(Math.max(1, size)));
+            }
+
+            for (Conveyor c : all) {
+                if (c.getParkingLotId() == parkingLotId) putLocked(c);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds the conveyor, or moves it to its new position / replaces its data. */
+    public void put(Conveyor conveyor) {
+        if (conveyor.getParkingLotId() != parkingLotId) {
+            throw new IllegalArgumentException("Conveyor " + conveyor.getId() + " is not in parking lot " + parkingLotId);
+        }
+        lock.writeLock().lock();
+        try {
+            putLocked(conveyor);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** @return the indexed copy, null when the conveyor is not in this index */
+    public Conveyor remove(int conveyorId) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(conveyorId);
+            if (slot == null) return null;
+
+            Conveyor old = conveyors[slot];
+            unlink(slot);
+            conveyors[slot] = null;
+            freeSlots.add(slot);
+            return old;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** A copy of the indexed conveyor, or null. */
+    public Conveyor get(int conveyorId) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotById.get(conveyorId);
+            return slot == null ? null : copy(conveyors[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----------------- queries -----------------
+
+    /** Conveyors on the floor, with or without X / Y. */
+    public List<Conveyor> onFloor(int floorNumber, boolean includeInactive) {
+        lock.readLock().lock();
+        try {
+            List<Conveyor> result = new ArrayList<>();
+            Floor floor = floors.get(floorNumber);
+            if (floor != null) {
+                for (int i = 0; i < floor.members.size; i++) addIf(floor.members.items[i], includeInactive, result);
+            }
+            result.sort(JackcessReader.conveyorOrder(includeInactive));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Conveyors without a full position (no Floor, or a Floor without X / Y). */
+    public List<Conveyor> unplaced(boolean includeInactive) {
+        lock.readLock().lock();
+        try {
+            List<Conveyor> result = new ArrayList<>();
+            for (int i = 0; i < unplaced.size; i++) addIf(unplaced.items[i], includeInactive, result);
+            result.sort(JackcessReader.conveyorOrder(includeInactive));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Conveyors of the floor with x1 <= X <= x2 and y1 <= Y <= y2 (corners in any order). */
+    public List<Conveyor> inRectangle(int floorNumber, int x1, int y1, int x2, int y2, boolean includeInactive) {
+        int minX = Math.min(x1, x2), maxX = Math.max(x1, x2);
+        int minY = Math.min(y1, y2), maxY = Math.max(y1, y2);
+
+        lock.readLock().lock();
+        try {
+            List<Conveyor> result = new ArrayList<>();
+            Floor floor = floors.get(floorNumber);
+            if (floor == null || floor.cells.isEmpty()) return result;
+
+            int cx1 = Math.max(Math.floorDiv(minX, floor.cellSize), floor.minCx);
+            int cx2 = Math.min(Math.floorDiv(maxX, floor.cellSize), floor.maxCx);
+            int cy1 = Math.max(Math.floorDiv(minY, floor.cellSize), floor.minCy);
+            int cy2 = Math.min(Math.floorDiv(maxY, floor.cellSize), floor.maxCy);
+
+            if ((long) (cx2 - cx1 + 1) * (cy2 - cy1 + 1) > floor.cells.size()) {
+                // large rectangle: walking the existing cells is cheaper than probing empty ones
+                for (Cell cell : floor.cells.values()) collect(cell, minX, minY, maxX, maxY, includeInactive, result);
+            } else {
+                for (int cx = cx1; cx <= cx2; cx++) {
+                    for (int cy = cy1; cy <= cy2; cy++) {
+                        Cell cell = floor.cells.get(key(cx, cy));
+                        if (cell != null) collect(cell, minX, minY, maxX, maxY, includeInactive, result);
+                    }
+                }
+            }
+            result.sort(JackcessReader.conveyorOrder(includeInactive));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The k active conveyors of the floor closest to (x, y), nearest first (ties: lower ID).
+     * Walks rings of cells around the point and stops once no unvisited cell can be closer.
+     */
+    public List<Conveyor> nearest(int floorNumber, int x, int y, int k) {
+        lock.readLock().lock();
+        try {
+            List<Conveyor> result = new ArrayList<>();
+            Floor floor = floors.get(floorNumber);
+            if (k <= 0 || floor == null || floor.cells.isEmpty()) return result;
+
+            int size = floor.cellSize;
+            // a point outside the grid starts at the nearest cell of it: the rings stay inside the
+            // floor's bounds, and a cell is still at least as far from the point as from that cell
+            int cx = clamp(Math.floorDiv(x, size), floor.minCx, floor.maxCx);
+            int cy = clamp(Math.floorDiv(y, size), floor.minCy, floor.maxCy);
+            int maxRing = Math.max(Math.max(cx - floor.minCx, floor.maxCx - cx), Math.max(cy - floor.minCy, floor.maxCy - cy));
+
+            double[] bestDist = new double[k];
+            int[] bestSlot = new int[k];
+            int found = 0;
+
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // cells of this ring and beyond are at least (ring - 1) cells away from the point
+                if (found == k && ring > 0) {
+                    double reach = (double) (ring - 1) * size;
+                    if (reach * reach > bestDist[k - 1]) break;
+                }
+                for (int gx = cx - ring; gx <= cx + ring; gx++) {
+                    if (gx < floor.minCx || gx > floor.maxCx) continue;
+                    boolean edge = gx == cx - ring || gx == cx + ring;
+                    int step = edge ? 1 : 2 * ring;
+                    for (int gy = cy - ring; gy <= cy + ring; gy += Math.max(step, 1)) {
+                        if (gy < floor.minCy || gy > floor.maxCy) continue;
+                        Cell cell = floor.cells.get(key(gx, gy));
+                        if (cell == null) continue;
+
+                        for (int i = 0; i < cell.size; i++) {
+                            int slot = cell.slots[i];
+                            if (!conveyors[slot].isActive()) continue;
+                            double dx = (double) cell.xs[i] - x, dy = (double) cell.ys[i] - y;
+                            found = offer(bestDist, bestSlot, found, dx * dx + dy * dy, slot);
+                        }
+                    }
+                }
+            }
+
+            for (int i = 0; i < found; i++) result.add(copy(conveyors[bestSlot[i]]));
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Keeps the k best (distance, then ID) in sorted arrays. @return the new count */
+    private int offer(double[] dist, int[] slots, int found, double d, int slot) {
+        int k = dist.length;
+        int id = conveyors[slot].getId();
+        if (found == k && !closer(d, id, dist[k - 1], conveyors[slots[k - 1]].getId())) return found;
+
+        int at = Math.min(found, k - 1);
+        while (at > 0 && closer(d, id, dist[at - 1], conveyors[slots[at - 1]].getId())) {
+            dist[at] = dist[at - 1];
+            slots[at] = slots[at - 1];
+            at--;
+        }
+        dist[at] = d;
+        slots[at] = slot;
+        return Math.min(found + 1, k);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static boolean closer(double d, int id, double otherD, int otherId) {
+        return d < otherD || (d == otherD && id < otherId);
+    }
+
+    private void collect(Cell cell, int minX, int minY, int maxX, int maxY, boolean includeInactive,
+                         List<Conveyor> result) {
+        for (int i = 0; i < cell.size; i++) {
+            int px = cell.xs[i], py = cell.ys[i];
+            if (px >= minX && px <= maxX && py >= minY && py <= maxY) addIf(cell.slots[i], includeInactive, result);
+        }
+    }
+
+    private void addIf(int slot, boolean includeInactive, List<Conveyor> result) {
+        Conveyor c = conveyors[slot];
+        if (includeInactive || c.isActive()) result.add(copy(c));
+    }
+
+    // ----------------- updates -----------------
+
+    private void putLocked(Conveyor conveyor) {
+        Conveyor c = copy(conveyor);
+        Integer existing = slotById.get(c.getId());
+
+        if (existing != null) {
+            int slot = existing;
+            if (!samePosition(conveyors[slot], c)) {
+                unlink(slot);   // finds the cell by the old position
+                conveyors[slot] = c;
+                link(slot);
+            } else {
+                conveyors[slot] = c;   // status / weight / active change only
+            }
+            return;
+        }
+
+        int slot = freeSlots.size > 0 ? freeSlots.items[--freeSlots.size] : slotCount++;
+        ensureCapacity(slot + 1);
+        conveyors[slot] = c;
+        slotById.put(c.getId(), slot);
+        link(slot);
+    }
+
+    private void link(int slot) {
+        Conveyor c = conveyors[slot];
+        int where = placementOf(c);
+        placement[slot] = where;
+
+        if (where != PLACED) {
+            unplacedPos[slot] = unplaced.size;
+            unplaced.add(slot);
+        }
+        if (where == NO_POSITION) return;
+
+        int floorNumber = c.getFloorNumber();
+        floorOf[slot] = floorNumber;
+        Floor floor = floors.computeIfAbsent(floorNumber, f -> new Floor(DEFAULT_CELL_SIZE));
+        floorPos[slot] = floor.members.size;
+        floor.members.add(slot);
+
+        if (where == PLACED) {
+            int cx = Math.floorDiv(c.getX(), floor.cellSize), cy = Math.floorDiv(c.getY(), floor.cellSize);
+            Cell cell = floor.cells.computeIfAbsent(key(cx, cy), k -> new Cell());
+            cellPos[slot] = cell.size;
+            cell.add(slot, c.getX(), c.getY());
+            floor.include(cx, cy);
+        }
+    }
+
+    private void unlink(int slot) {
+        int where = placement[slot];
+        if (where != PLACED) {
+            int moved = unplaced.removeAt(unplacedPos[slot]);
+            if (moved >= 0) unplacedPos[moved] = unplacedPos[slot];
+        }
+        if (where == NO_POSITION) return;
+
+        Floor floor = floors.get(floorOf[slot]);
+        int moved = floor.members.removeAt(floorPos[slot]);
+        if (moved >= 0) floorPos[moved] = floorPos[slot];
+
+        if (where == PLACED) {
+            Conveyor c = conveyors[slot];
+            long key = key(Math.floorDiv(c.getX(), floor.cellSize), Math.floorDiv(c.getY(), floor.cellSize));
+            Cell cell = floor.cells.get(key);
+            int movedInCell = cell.removeAt(cellPos[slot]);
+            if (movedInCell >= 0) cellPos[movedInCell] = cellPos[slot];
+            if (cell.size == 0) floor.cells.remove(key);   // bounds stay: they only limit the walks
+        }
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= conveyors.length) return;
+        int cap = Math.max(n, conveyors.length * 2);
+        conveyors = Arrays.copyOf(conveyors, cap);
+        placement = Arrays.copyOf(placement, cap);
+        floorOf = Arrays.copyOf(floorOf, cap);
+        floorPos = Arrays.copyOf(floorPos, cap);
+        cellPos = Arrays.copyOf(cellPos, cap);
+        unplacedPos = Arrays.copyOf(unplacedPos, cap);
+    }
+
+    private static int placementOf(Conveyor c) {
+        if (c.getFloorNumber() == null) return NO_POSITION;
+        return c.getX() == null || c.getY() == null ? FLOOR_ONLY : PLACED;
+    }
+
+    private static boolean samePosition(Conveyor a, Conveyor b) {
+        return Objects.equals(a.getFloorNumber(), b.getFloorNumber())
+                && Objects.equals(a.getX(), b.getX())
+                && Objects.equals(a.getY(), b.getY());
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    static Conveyor copy(Conveyor c) {
+        Conveyor copy = new Conveyor(c.getId(), c.getParkingLotId(), c.getFloorNumber(), c.getX(), c.getY(),
+                c.getMaxVehicleWeightKg(), c.getStatus(), c.getLastStatus(), c.isActive());
+        copy.setRowVersion(c.getRowVersion());
+        return copy;
+    }
+
+    // ----------------- grid -----------------
+
+    private static final class Floor {
+        final int cellSize;
+        final Map<Long, Cell> cells = new HashMap<>();
+        final IntList members = new IntList();
+        // cell bounds ever used (grow only)
+        int minCx = Integer.MAX_VALUE, minCy = Integer.MAX_VALUE, maxCx = Integer.MIN_VALUE, maxCy = Integer.MIN_VALUE;
+
+        Floor(int cellSize) {
+            this.cellSize = cellSize;
+        }
+
+        void include(int cx, int cy) {
+            minCx = Math.min(minCx, cx);
+            maxCx = Math.max(maxCx, cx);
+            minCy = Math.min(minCy, cy);
+            maxCy = Math.max(maxCy, cy);
+        }
+    }
+
+    private static final class Cell {
+        int[] slots = new int[4];
+        int[] xs = new int[4];
+        int[] ys = new int[4];
+        int size;
+
+        void add(int slot, int x, int y) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+            }
+            slots[size] = slot;
+            xs[size] = x;
+            ys[size] = y;
+            size++;
+        }
+
+        /** Swap-remove. @return the slot moved into {@code at}, -1 if none */
+        int removeAt(int at) {
+            int last = --size;
+            if (at == last) return -1;
+            slots[at] = slots[last];
+            xs[at] = xs[last];
+            ys[at] = ys[last];
+            return slots[at];
+        }
+    }
+
+    private static final class IntList {
+        int[] items = new int[8];
+        int size;
+
+        void add(int v) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = v;
+        }
+
+        /** Swap-remove. @return the value moved into {@code at}, -1 if none */
+        int removeAt(int at) {
+            int last = --size;
+            if (at == last) return -1;
+            items[at] = items[last];
+            return items[at];
+        }
+    }
+}
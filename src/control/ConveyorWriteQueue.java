@@ -0,0 +1,231 @@
+package control;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * ConveyorWriteQueue
+ * ------------------
+ * Single writer for the Conveyor table: callers put their UPDATE on a bounded queue and one
+ * thread applies them, many per transaction (group commit).
+ *
+ * - a write's future completes after the commit that contains it (durable in the .accdb)
+ * - queue full: submit() blocks until the writer catches up (backpressure)
+ * - a failing write does not fail its neighbours: the batch is rolled back and replayed
+ *   one write per transaction
+ * - close() stops accepting writes and waits until everything queued is committed
+ *
+ * Enabled per database with AccessDb.enableConveyorWriteQueue (-Dparkwise.conveyorWriteQueue=true);
+ * ConveyorManagementController then routes every mutating operation through it.
+ */
+public final class ConveyorWriteQueue implements AutoCloseable {
+
+    /** One write, run on the writer's connection inside its transaction. */
+    @FunctionalInterface
+    public interface Write {
+        /** @return the update count */
+        int apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Task {
+        final Write write;
+        final CompletableFuture<Integer> done = new CompletableFuture<>();
+
+        Task(Write write) {
+            this.write = write;
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_BATCH = 64;
+
+    private final AccessDb db;
+    private final int maxBatch;
+    private final BlockingQueue<Task> queue;
+    private final Thread writer;
+
+    // submitters hold the read lock while enqueueing, close() takes the write lock:
+    // once closed is set nothing more can be queued behind the final drain
+    private final ReentrantReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ConveyorWriteQueue(AccessDb db) {
+        this(db, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    public ConveyorWriteQueue(AccessDb db, int capacity, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) throw new IllegalArgumentException("capacity and maxBatch must be positive.");
+        this.db = db;
+        this.maxBatch = maxBatch;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+
+        writer = new Thread(this::writerLoop, "parkwise-conveyor-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a write; blocks while the queue is full.
+     * @return completes with the update count after commit, or exceptionally with the write's error
+     */
+    public CompletableFuture<Integer> submit(Write write) {
+        Task task = new Task(write);
+        closeLock.readLock().lock();
+        try {
+            if (closed) throw new IllegalStateException("Conveyor write queue is closed");
+            queue.put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the conveyor write queue", e);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+        return task.done;
+    }
+
+    /** submit() and wait for the commit; the write's own exception is re-thrown as is. */
+    public int execute(Write write) throws SQLException {
+        CompletableFuture<Integer> done = submit(write);
+        try {
+            return done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a conveyor write", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /** Stops accepting writes and returns once every queued write is committed (or failed). */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getCommitCount() {
+        return commits.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    // ----------------- writer thread -----------------
+
+    private void writerLoop() {
+        List<Task> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            Task first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) return;
+                continue;
+            }
+
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            try {
+                commitBatch(batch);
+            } catch (Throwable t) {
+                // never leave a caller waiting
+                for (Task task : batch) task.done.completeExceptionally(t);
+                t.printStackTrace();
+            }
+            batch.clear();
+        }
+    }
+
+    private void commitBatch(List<Task> batch) {
+        int[] counts = new int[batch.size()];
+
+        try (Connection conn = db.open()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < counts.length; i++) counts[i] = batch.get(i).write.apply(conn);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                if (batch.size() == 1) throw e;
+                replayOneByOne(conn, batch);
+                return;
+            }
+
+            commits.increment();
+            writes.add(counts.length);
+            for (int i = 0; i < counts.length; i++) batch.get(i).done.complete(counts[i]);
+
+        } catch (SQLException | RuntimeException e) {
+            // no connection, or the single write of the batch failed
+            for (Task task : batch) {
+                if (!task.done.isDone()) fail(task, e);
+            }
+        }
+    }
+
+    private void replayOneByOne(Connection conn, List<Task> batch) {
+        for (Task task : batch) {
+            try {
+                int count = task.write.apply(conn);
+                conn.commit();
+                commits.increment();
+                writes.increment();
+                task.done.complete(count);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailed) {
+                    e.addSuppressed(rollbackFailed);
+                }
+                fail(task, e);
+            }
+        }
+    }
+
+    private void fail(Task task, Exception e) {
+        failures.increment();
+        task.done.completeExceptionally(e);
+    }
+}
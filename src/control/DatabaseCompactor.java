@@ -0,0 +1,581 @@
+package control;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.ColumnBuilder;
+import com.healthmarketscience.jackcess.Cursor;
+import com.healthmarketscience.jackcess.CursorBuilder;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.Index;
+import com.healthmarketscience.jackcess.IndexBuilder;
+import com.healthmarketscience.jackcess.PropertyMap;
+import com.healthmarketscience.jackcess.Relationship;
+import com.healthmarketscience.jackcess.RelationshipBuilder;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+import com.healthmarketscience.jackcess.TableBuilder;
+import com.healthmarketscience.jackcess.impl.ColumnImpl;
+import com.healthmarketscience.jackcess.impl.DatabaseImpl;
+import com.healthmarketscience.jackcess.impl.IndexData;
+import com.healthmarketscience.jackcess.impl.IndexImpl;
+import com.healthmarketscience.jackcess.impl.JetFormat;
+import com.healthmarketscience.jackcess.impl.PageChannel;
+import com.healthmarketscience.jackcess.impl.PageTypes;
+import com.healthmarketscience.jackcess.impl.TableImpl;
+import com.healthmarketscience.jackcess.impl.UsageMap;
+
+/**
+ * DatabaseCompactor
+ * -----------------
+ * Rewrites the .accdb into a new file without the dead rows and half-empty pages every UPDATE /
+ * DELETE leaves behind (Jackcess, like Access, never gives pages back), while the app keeps running
+ * (Main --compact, or daily in the --server process with -Dparkwise.compact.at=HH:mm, see CompactionScheduler):
+ *
+ * 0. refused while another process uses the file (FileUsers: other desktop clients, servers) or Access
+ *    has it open (<file>.laccdb): only this process can be held back while the file is swapped
+ * 1. reads go to a ReadReplica (the one already enabled, else one for the duration), and the
+ *    ChangeMarker it creates makes every client report the tables it writes
+ * 2. copy with Jackcess into <file>.compact: tables with their columns, indexes, properties and rows
+ *    (AutoNumbers continue where they were), then relationships, saved queries, database properties
+ * 3. connections of this AccessDb are held back and no other process may start using the file
+ *    (FileUsers gate); tables written during the copy (ChangeMarker counters; any table when the file
+ *    changed unreported) are synchronized row by row on their primary key, with nobody writing
+ * 4. row counts checked, UCanAccess unloads the old file, the old file is kept as <file>.bak and the
+ *    copy is moved over the original in one atomic rename
+ *
+ * Files with forms, reports, modules, linked tables or attachment columns are refused (Jackcess cannot
+ * copy them; compact those in Access).
+ */
+public final class DatabaseCompactor {
+
+    private static final long PAUSE_TIMEOUT_MS = Long.getLong("parkwise.compact.pauseTimeoutMs", 30_000);
+    private static final long REPLICA_STALENESS_MS = 2_000;
+    private static final int ROW_BATCH = 1_000;
+
+    // MSysObjects types Jackcess can read but not recreate
+    private static final Set<Integer> UNSUPPORTED_OBJECT_TYPES =
+            new TreeSet<>(Arrays.asList(-32768 /* form */, -32764 /* report */, -32766 /* macro */, -32761 /* module */));
+    private static final int QUERY_OBJECT_TYPE = 5;
+
+    /** Pages and dead space of one table. */
+    public static final class TableStats {
+        public final String table;
+        public final int rows;
+        public final int dataPages;
+        public final int deletedRows;      // row slots still holding deleted / moved rows
+        public final double fillPercent;   // used bytes of the data pages
+        public final int indexPages;
+
+        TableStats(String table, int rows, int dataPages, int deletedRows, double fillPercent, int indexPages) {
+            this.table = table;
+            this.rows = rows;
+            this.dataPages = dataPages;
+            this.deletedRows = deletedRows;
+            this.fillPercent = fillPercent;
+            this.indexPages = indexPages;
+        }
+    }
+
+    public static final class Report {
+        public final Path file;
+        public final long sizeBefore;
+        public final long sizeAfter;
+        public final List<TableStats> before;
+        public final List<TableStats> after;
+        public final int passes;
+        public final Set<String> replayedTables;
+        public final long elapsedMillis;
+
+        Report(Path file, long sizeBefore, long sizeAfter, List<TableStats> before, List<TableStats> after,
+               int passes, Set<String> replayedTables, long elapsedMillis) {
+            this.file = file;
+            this.sizeBefore = sizeBefore;
+            this.sizeAfter = sizeAfter;
+            this.before = before;
+            this.after = after;
+            this.passes = passes;
+            this.replayedTables = replayedTables;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Compacted ").append(file).append(" in ").append(elapsedMillis).append(" ms (")
+                    .append(passes).append(passes == 1 ? " pass" : " passes")
+                    .append(replayedTables.isEmpty() ? "" : ", replayed " + replayedTables).append(")\n");
+            sb.append(String.format("size %,d -> %,d bytes (%+.1f%%)%n",
+                    sizeBefore, sizeAfter, sizeBefore == 0 ? 0.0 : 100.0 * (sizeAfter - sizeBefore) / sizeBefore));
+            sb.append(String.format("%-24s %7s %13s %13s %9s %13s%n",
+                    "table", "rows", "data pages", "fill %", "deleted", "index pages"));
+
+            Map<String, TableStats> byName = new HashMap<>();
+            for (TableStats t : after) byName.put(t.table, t);
+            for (TableStats b : before) {
+                TableStats a = byName.get(b.table);
+                if (a == null) continue;
+                sb.append(String.format("%-24s %7d %6d -> %-4d %5.1f -> %-5.1f %9d %6d -> %-4d%n",
+                        b.table, a.rows, b.dataPages, a.dataPages, b.fillPercent, a.fillPercent,
+                        b.deletedRows, b.indexPages, a.indexPages));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final AccessDb db;
+
+    public DatabaseCompactor(AccessDb db) {
+        if (db == null) throw new IllegalArgumentException("db is required.");
+        this.db = db;
+    }
+
+    /** Compacts the file of the AccessDb (see class comment). */
+    public synchronized Report compact() throws IOException {
+        Path file = db.resolvedPath();
+        if (!Files.exists(file)) throw new IOException("Access DB file not found at: " + file);
+        if (db.isReadOnly()) throw new IllegalStateException("Database is in offline read-only mode");
+        lockAlone(file).close();   // fail before the copy; the gate is closed again for the swap
+
+        long started = System.nanoTime();
+        Path target = file.resolveSibling(file.getFileName() + ".compact");
+        long sizeBefore = Files.size(file);
+        List<TableStats> before = tableStats(file);
+
+        boolean ownReplica = db.getReadReplica() == null;
+        if (ownReplica) db.enableReadReplica(REPLICA_STALENESS_MS);
+
+        Set<String> replayed = new TreeSet<>();
+        int passes = 1;
+        try {
+            ChangeMarker marker = new ChangeMarker(file);
+            FileState seen = FileState.read(file, marker);
+            copyDatabase(file, target);
+
+            if (!db.pauseConnections(PAUSE_TIMEOUT_MS)) {
+                throw new IOException("Connections still open after " + PAUSE_TIMEOUT_MS + " ms, compaction skipped");
+            }
+            try {
+                Closeable alone = lockAlone(file);
+                try {
+                    // nobody writes now: what changed during the copy is read back consistently
+                    Set<String> changed = FileState.read(file, marker, seen).changedSince(seen, file);
+                    if (!changed.isEmpty()) {
+                        replay(file, target, changed);
+                        replayed.addAll(changed);
+                        passes++;
+                    }
+                    checkRowCounts(file, target);
+
+                    db.releaseFile();
+                    Files.copy(file, file.resolveSibling(file.getFileName() + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(target, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } finally {
+                    alone.close();
+                }
+            } finally {
+                db.resumeConnections();
+            }
+
+            // every reader (replicas, Jackcess readers) reloads from the new file
+            db.markChanged(tableNames(file));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for open connections", e);
+        } catch (SQLException e) {
+            throw new IOException("Failed to release the database file: " + e.getMessage(), e);
+        } finally {
+            if (ownReplica) db.disableReadReplica();
+            Files.deleteIfExists(target);
+        }
+
+        return new Report(file, sizeBefore, Files.size(file), before, tableStats(file),
+                passes, replayed, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /** The FileUsers gate, closed; IOException while another process or Access uses the file. */
+    private static Closeable lockAlone(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Path accessLock = file.resolveSibling(name.replaceFirst("(?i)\\.accdb$", "") + ".laccdb");
+        if (Files.exists(accessLock)) {
+            throw new IOException("Cannot compact: the file is open in Access (" + accessLock + ")");
+        }
+        Closeable gate = FileUsers.lockAlone(file);
+        if (gate == null) {
+            throw new IOException("Cannot compact: other processes use " + file
+                    + " (close the other clients, or let them connect through the --server process)");
+        }
+        return gate;
+    }
+
+    // ----------------- copy -----------------
+
+    private static void copyDatabase(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+
+        try (Database src = new DatabaseBuilder(source.toFile()).setReadOnly(true).open();
+             Database dst = new DatabaseBuilder(target.toFile()).setFileFormat(src.getFileFormat()).create()) {
+
+            checkCopyable(src);
+
+            for (String name : src.getTableNames()) {
+                Table table = src.getTable(name);
+                Table copy = createTable(table, dst);
+                keepAutoNumber(src, table, copy);
+                copyRows(table, copy);
+                storeAutoNumber(copy);
+            }
+            for (Relationship r : src.getRelationships()) copyRelationship(r, dst);
+            copyQueries(src, dst);
+
+            copyProperties(src.getDatabaseProperties(), dst.getDatabaseProperties());
+            copyProperties(src.getSummaryProperties(), dst.getSummaryProperties());
+            copyProperties(src.getUserDefinedProperties(), dst.getUserDefinedProperties());
+        }
+    }
+
+    private static void checkCopyable(Database src) throws IOException {
+        for (Row row : src.getSystemTable("MSysObjects")) {
+            Object type = row.get("Type");
+            if (type instanceof Number && UNSUPPORTED_OBJECT_TYPES.contains(((Number) type).intValue())) {
+                throw new IOException("Cannot compact: " + row.get("Name") + " is a form / report / macro / module");
+            }
+        }
+        for (String name : src.getTableNames()) {
+            if (src.getTableMetaData(name).isLinked()) throw new IOException("Cannot compact: " + name + " is a linked table");
+            for (Column c : src.getTable(name).getColumns()) {
+                if (c.getType() == DataType.COMPLEX_TYPE) {
+                    throw new IOException("Cannot compact: " + name + "." + c.getName() + " is an attachment / multi-value column");
+                }
+            }
+        }
+    }
+
+    /** Same columns (with their properties), indexes and table properties; relationship indexes come later. */
+    private static Table createTable(Table table, Database dst) throws IOException {
+        TableBuilder builder = new TableBuilder(table.getName());
+        for (Column c : table.getColumns()) builder.addColumn(new ColumnBuilder(c.getName()).setFromColumn(c));
+
+        for (Index index : table.getIndexes()) {
+            if (index.isForeignKey()) continue;
+            IndexBuilder ib = new IndexBuilder(index.getName());
+            for (Index.Column ic : index.getColumns()) ib.addColumns(ic.isAscending(), ic.getName());
+            if (index.isPrimaryKey()) ib.setPrimaryKey();
+            else if (index.isUnique()) ib.setUnique();
+            if (index.shouldIgnoreNulls()) ib.setIgnoreNulls();
+            if (index.isRequired() && !index.isPrimaryKey()) ib.setRequired();
+            builder.addIndex(ib);
+        }
+        for (PropertyMap.Property p : table.getProperties()) builder.putProperty(p.getName(), p.getType(), p.getValue());
+
+        Table copy = builder.toTable(dst);
+        copy.setAllowAutoNumberInsert(true);
+        return copy;
+    }
+
+    /**
+     * Continues the AutoNumber after the highest value handed out: the source's counter, and the IDs still
+     * held by its archive table (SoftDeleteArchiver; an empty live table would otherwise start over and give
+     * them out again). Archived / deleted IDs are not given out again.
+     */
+    private static void keepAutoNumber(Database src, Table from, Table to) throws IOException {
+        for (Column c : from.getColumns()) {
+            if (!c.isAutoNumber() || c.getType() != DataType.LONG) continue;
+            Object last = ((ColumnImpl) c).getAutoNumberGenerator().getLast();
+            int highest = last instanceof Integer ? (Integer) last : 0;
+            Table archive = src.getTable(SoftDeleteArchiver.archiveTable(from.getName()));
+            if (archive != null && archive.getColumn(c.getName()) != null) {
+                for (Row row : archive) {
+                    Object id = row.get(c.getName());
+                    if (id instanceof Integer) highest = Math.max(highest, (Integer) id);
+                }
+            }
+            ColumnImpl.AutoNumberGenerator copy = ((ColumnImpl) to.getColumn(c.getName())).getAutoNumberGenerator();
+            if (highest > (Integer) copy.getLast()) copy.restoreLast(highest + 1);
+        }
+    }
+
+    /**
+     * The counter is stored with the next row written: an empty copy gets one row with the last
+     * AutoNumber, deleted again right away.
+     */
+    private static void storeAutoNumber(Table table) throws IOException {
+        if (table.getRowCount() > 0) return;
+        for (Column c : table.getColumns()) {
+            if (!c.isAutoNumber() || c.getType() != DataType.LONG) continue;
+            Object last = ((ColumnImpl) c).getAutoNumberGenerator().getLast();
+            if (!(last instanceof Integer) || (Integer) last <= 0) continue;
+
+            Map<String, Object> seed = new HashMap<>();
+            seed.put(c.getName(), last);
+            table.addRowFromMap(seed);
+            Cursor cursor = CursorBuilder.createCursor(table);
+            if (cursor.findFirstRow(c, last)) cursor.deleteCurrentRow();
+        }
+    }
+
+    private static void copyRows(Table from, Table to) throws IOException {
+        List<Map<String, Object>> batch = new ArrayList<>(ROW_BATCH);
+        for (Row row : from) {
+            batch.add(new LinkedHashMap<>(row));
+            if (batch.size() == ROW_BATCH) {
+                to.addRowsFromMaps(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) to.addRowsFromMaps(batch);
+    }
+
+    private static void copyRelationship(Relationship r, Database dst) throws IOException {
+        RelationshipBuilder builder = new RelationshipBuilder(r.getFromTable().getName(), r.getToTable().getName())
+                .setName(r.getName());
+        for (int i = 0; i < r.getFromColumns().size(); i++) {
+            builder.addColumns(r.getFromColumns().get(i).getName(), r.getToColumns().get(i).getName());
+        }
+        if (r.hasReferentialIntegrity()) builder.setReferentialIntegrity();
+        if (r.cascadeUpdates()) builder.setCascadeUpdates();
+        if (r.cascadeDeletes()) builder.setCascadeDeletes();
+        if (r.cascadeNullOnDelete()) builder.setCascadeNullOnDelete();
+        builder.setJoinType(r.getJoinType());
+        builder.toRelationship(dst);
+    }
+
+    /**
+     * Saved queries are rows of MSysObjects (type 5, under the Tables container), MSysQueries and MSysACEs:
+     * copied as they are, with new object IDs after the negative IDs the new file already uses
+     * (template objects, relationships).
+     */
+    private static void copyQueries(Database src, Database dst) throws IOException {
+        Table dstObjects = dst.getSystemTable("MSysObjects");
+        int nextId = Integer.MIN_VALUE;
+        for (Row row : dstObjects) {
+            int id = ((Number) row.get("Id")).intValue();
+            if (id < 0) nextId = Math.max(nextId, id + 1);
+        }
+
+        Map<Object, Integer> newIds = new HashMap<>();
+        for (Row row : src.getSystemTable("MSysObjects")) {
+            Object type = row.get("Type");
+            if (!(type instanceof Number) || ((Number) type).intValue() != QUERY_OBJECT_TYPE) continue;
+            Map<String, Object> copy = new LinkedHashMap<>(row);
+            copy.put("Id", nextId);
+            newIds.put(row.get("Id"), nextId++);
+            dstObjects.addRowFromMap(copy);
+        }
+        if (newIds.isEmpty()) return;
+
+        for (String table : new String[] { "MSysQueries", "MSysACEs" }) {
+            Table to = dst.getSystemTable(table);
+            for (Row row : src.getSystemTable(table)) {
+                Integer id = newIds.get(row.get("ObjectId"));
+                if (id == null) continue;
+                Map<String, Object> copy = new LinkedHashMap<>(row);
+                copy.put("ObjectId", id);
+                to.addRowFromMap(copy);
+            }
+        }
+    }
+
+    private static void copyProperties(PropertyMap from, PropertyMap to) throws IOException {
+        for (PropertyMap.Property p : from) {
+            if (to.get(p.getName()) == null) to.put(p.getName(), p.getType(), p.getValue());
+        }
+        to.save();
+    }
+
+    // ----------------- replay -----------------
+
+    /** Brings the tables of the copy to what the source has now (rows matched on the primary key). */
+    private static void replay(Path source, Path target, Set<String> tables) throws IOException {
+        try (Database src = new DatabaseBuilder(source.toFile()).setReadOnly(true).open();
+             Database dst = new DatabaseBuilder(target.toFile()).open()) {
+
+            for (String name : tables) {
+                Table from = src.getTable(name);
+                Table to = dst.getTable(name);
+                if (from == null || to == null) continue;
+                to.setAllowAutoNumberInsert(true);
+                keepAutoNumber(src, from, to);
+
+                List<String> key = primaryKey(from);
+                Map<List<Object>, Row> current = new LinkedHashMap<>();
+                int unkeyed = 0;
+                for (Row row : from) current.put(key.isEmpty() ? List.of(unkeyed++) : keyOf(row, key), row);
+
+                Cursor cursor = CursorBuilder.createCursor(to);
+                while (cursor.moveToNextRow()) {
+                    Row row = cursor.getCurrentRow();
+                    // without a primary key every row is rewritten
+                    Row now = key.isEmpty() ? null : current.remove(keyOf(row, key));
+                    if (now == null) {
+                        cursor.deleteCurrentRow();
+                    } else if (!sameValues(row, now)) {
+                        cursor.updateCurrentRowFromMap(now);
+                    }
+                }
+                List<Map<String, Object>> added = new ArrayList<>();
+                for (Row row : current.values()) added.add(new LinkedHashMap<>(row));
+                if (!added.isEmpty()) to.addRowsFromMaps(added);
+                storeAutoNumber(to);
+            }
+        }
+    }
+
+    private static List<String> primaryKey(Table table) {
+        for (Index index : table.getIndexes()) {
+            if (!index.isPrimaryKey()) continue;
+            List<String> columns = new ArrayList<>();
+            for (Index.Column c : index.getColumns()) columns.add(c.getName());
+            return columns;
+        }
+        return List.of();
+    }
+
+    private static List<Object> keyOf(Row row, List<String> key) {
+        List<Object> values = new ArrayList<>(key.size());
+        for (String column : key) values.add(row.get(column));
+        return values;
+    }
+
+    private static boolean sameValues(Row a, Row b) {
+        for (Map.Entry<String, Object> e : a.entrySet()) {
+            if (!Objects.deepEquals(e.getValue(), b.get(e.getKey()))) return false;
+        }
+        return true;
+    }
+
+    private static void checkRowCounts(Path source, Path target) throws IOException {
+        try (Database src = new DatabaseBuilder(source.toFile()).setReadOnly(true).open();
+             Database dst = new DatabaseBuilder(target.toFile()).setReadOnly(true).open()) {
+            for (String name : src.getTableNames()) {
+                int expected = src.getTable(name).getRowCount();
+                int copied = dst.getTable(name).getRowCount();
+                if (expected != copied) {
+                    throw new IOException("Compacted copy of " + name + " has " + copied + " rows instead of " + expected);
+                }
+            }
+        }
+    }
+
+    private static Set<String> tableNames(Path file) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).setReadOnly(true).open()) {
+            return new TreeSet<>(db.getTableNames());
+        }
+    }
+
+    /** ChangeMarker counters + size / modification time of the file at one moment. */
+    private static final class FileState {
+        final Map<String, Long> counters;
+        final long size;
+        final long modified;
+
+        private FileState(Map<String, Long> counters, long size, long modified) {
+            this.counters = counters;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        static FileState read(Path file, ChangeMarker marker) throws IOException {
+            return read(file, marker, null);
+        }
+
+        /**
+         * Writers bump the marker right after their commit: a file that changed while the counters did
+         * not (or the marker being rewritten) is read again for up to half a second.
+         */
+        static FileState read(Path file, ChangeMarker marker, FileState earlier) throws IOException {
+            for (int attempt = 0; ; attempt++) {
+                Map<String, Long> counters = marker.read();
+                FileState state = counters == null ? null
+                        : new FileState(counters, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+                boolean settled = state != null && (earlier == null || !state.counters.equals(earlier.counters)
+                        || (state.size == earlier.size && state.modified == earlier.modified));
+                if (settled || (attempt == 50 && state != null)) return state;
+                if (attempt == 50) throw new IOException("Cannot read " + marker.getFile());
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading " + marker.getFile(), e);
+                }
+            }
+        }
+
+        /** Tables reported as written since {@code earlier}; all of them when the file changed unreported (another process). */
+        Set<String> changedSince(FileState earlier, Path file) throws IOException {
+            Set<String> changed = new TreeSet<>();
+            for (Map.Entry<String, Long> e : counters.entrySet()) {
+                if (!Objects.equals(e.getValue(), earlier.counters.get(e.getKey()))) changed.add(e.getKey());
+            }
+            if (changed.isEmpty() && (size != earlier.size || modified != earlier.modified)) {
+                changed.addAll(tableNames(file));
+            }
+            return changed;
+        }
+    }
+
+    // ----------------- fragmentation -----------------
+
+    /** Data pages (with their free space and deleted row slots) and index pages of every table. */
+    public static List<TableStats> tableStats(Path file) throws IOException {
+        List<TableStats> stats = new ArrayList<>();
+        try (Database db = new DatabaseBuilder(file.toFile()).setReadOnly(true).open()) {
+            DatabaseImpl impl = (DatabaseImpl) db;
+            PageChannel pages = impl.getPageChannel();
+            JetFormat format = impl.getFormat();
+            ByteBuffer page = pages.createPageBuffer();
+
+            for (String name : db.getTableNames()) {
+                TableImpl table = (TableImpl) db.getTable(name);
+
+                int dataPages = 0;
+                int deleted = 0;
+                long freeBytes = 0;
+                UsageMap.PageCursor cursor = table.getOwnedPagesCursor();
+                for (int number = cursor.getNextPage(); number >= 0; number = cursor.getNextPage()) {
+                    pages.readPage(page, number);
+                    if (page.get(0) != PageTypes.DATA) continue;
+                    dataPages++;
+                    freeBytes += page.getShort(format.OFFSET_FREE_SPACE) & 0xFFFF;
+
+                    int slots = page.getShort(format.OFFSET_NUM_ROWS_ON_DATA_PAGE);
+                    for (int i = 0; i < slots; i++) {
+                        short start = page.getShort(format.OFFSET_ROW_START + format.SIZE_ROW_LOCATION * i);
+                        if ((start & 0xC000) != 0) deleted++;   // deleted or moved (overflow) row
+                    }
+                }
+
+                int indexPages = 0;
+                Set<IndexData> seen = new HashSet<>();
+                for (Index index : table.getIndexes()) {
+                    IndexData data = ((IndexImpl) index).getIndexData();
+                    if (seen.add(data)) indexPages += data.getOwnedPageCount();
+                }
+
+                long capacity = (long) dataPages * format.DATA_PAGE_INITIAL_FREE_SPACE;
+                double fill = capacity == 0 ? 100.0 : 100.0 * (capacity - freeBytes) / capacity;
+                stats.add(new TableStats(name, table.getRowCount(), dataPages, deleted, fill, indexPages));
+            }
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,264 @@
+package control;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import entity.PriceHistory;
+
+/**
+ * EffectivePriceIndex
+ * -------------------
+ * In-memory answer to "which PriceList applies to ParkingLot L on date D".
+ *
+ * Pending (future-dated) rows are part of the timeline, so lookups respect scheduled
+ * tariff changes on their effective date even before they are activated in the DB.
+ *
+ * Per parking lot we keep an immutable timeline of primitive arrays
+ * (effectiveFrom / effectiveTo as epoch days + priceListID), sorted by effectiveFrom.
+ * A lookup is a binary search over the from-days: O(log n) per lot.
+ *
+ * Concurrency:
+ * - Each lot timeline is immutable; updates build a new timeline and replace it atomically.
+ * - Readers never lock and always see either the old or the new timeline of a lot.
+ * - A reload reads the DB between beginReload() and rebuild(): changes recorded meanwhile are
+ *   kept and applied again after the swap (they may or may not be in the rows read; applying
+ *   them twice gives the same timeline).
+ */
+public final class EffectivePriceIndex {
+
+    /** Returned by the primitive (bulk) lookups when no price list applies. */
+    public static final int NONE = 0;
+
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    private final Map<Integer, LotTimeline> timelinesByLot = new ConcurrentHashMap<>();
+
+    // changes recorded since beginReload(), null when no reload is running; guarded by itself / lock
+    private final Object lock = new Object();
+    private List<Runnable> duringReload;
+
+    /** Call before reading the rows for {@link #rebuild}: changes from now on survive the rebuild. */
+    public void beginReload() {
+        synchronized (lock) {
+            if (duringReload == null) duringReload = new ArrayList<>();
+        }
+    }
+
+    /** The reload failed: stop keeping changes (they are already applied). */
+    public void cancelReload() {
+        synchronized (lock) {
+            duringReload = null;
+        }
+    }
+
+    /**
+     * Replaces the whole index content with the given history rows, then applies the changes
+     * recorded since beginReload().
+     */
+    public void rebuild(Collection<PriceHistory> rows) {
+        Map<Integer, List<PriceHistory>> byLot = new HashMap<>();
+        for (PriceHistory h : rows) {
+            if (h == null || h.getEffectiveFrom() == null) continue;
+            byLot.computeIfAbsent(h.getParkingLotId(), k -> new ArrayList<>()).add(h);
+        }
+
+        Map<Integer, LotTimeline> fresh = new HashMap<>();
+        for (Map.Entry<Integer, List<PriceHistory>> e : byLot.entrySet()) {
+            fresh.put(e.getKey(), LotTimeline.of(e.getValue()));
+        }
+
+        synchronized (lock) {
+            timelinesByLot.keySet().retainAll(fresh.keySet());
+            timelinesByLot.putAll(fresh);
+
+            List<Runnable> replay = duringReload;
+            duringReload = null;
+            if (replay != null) replay.forEach(Runnable::run);
+        }
+    }
+
+    /** Applies a change and keeps it for a running reload. */
+    private void record(Runnable change) {
+        synchronized (lock) {
+            change.run();
+            if (duringReload != null) duringReload.add(change);
+        }
+    }
+
+    /**
+     * Replaces the timeline of a single lot (e.g. after re-reading it from the DB).
+     */
+    public void replaceLot(int parkingLotId, Collection<PriceHistory> rows) {
+        List<PriceHistory> valid = new ArrayList<>();
+        for (PriceHistory h : rows) {
+            if (h != null && h.getEffectiveFrom() != null) valid.add(h);
+        }
+        LotTimeline timeline = valid.isEmpty() ? null : LotTimeline.of(valid);
+        record(() -> {
+            if (timeline == null) timelinesByLot.remove(parkingLotId);
+            else timelinesByLot.put(parkingLotId, timeline);
+        });
+    }
+
+    /**
+     * Mirrors PriceHistoryManagementController.assignPriceListToParkingLot:
+     * closes the open record of the lot at {@code from} and appends a new open record.
+     */
+    public void recordAssignment(int parkingLotId, int priceListId, LocalDate from) {
+        int fromDay = (int) from.toEpochDay();
+        record(() -> timelinesByLot.compute(parkingLotId, (id, current) ->
+                current == null
+                        ? LotTimeline.single(fromDay, priceListId)
+                        : current.withAssignment(fromDay, priceListId)));
+    }
+
+    /**
+     * Mirrors PriceHistoryManagementController.schedulePriceListChange: adds a pending record
+     * starting at {@code from} (replacing a pending record of the same day) without closing anything.
+     */
+    public void recordScheduled(int parkingLotId, int priceListId, LocalDate from) {
+        int fromDay = (int) from.toEpochDay();
+        record(() -> timelinesByLot.compute(parkingLotId, (id, current) ->
+                current == null
+                        ? LotTimeline.single(fromDay, priceListId)
+                        : current.withScheduled(fromDay, priceListId)));
+    }
+
+    /**
+     * @return the PriceList ID effective for the lot on the given date, or null if none.
+     */
+    public Integer getPriceListIdAsOf(int parkingLotId, LocalDate date) {
+        LotTimeline t = timelinesByLot.get(parkingLotId);
+        if (t == null) return null;
+        int id = t.lookup((int) date.toEpochDay());
+        return id == NONE ? null : id;
+    }
+
+    /**
+     * Bulk as-of lookup: result[i] is the PriceList ID effective for parkingLotIds[i],
+     * or {@link #NONE} if no price list applies on that date.
+     */
+    public int[] getPriceListIdsAsOf(int[] parkingLotIds, LocalDate date) {
+        int day = (int) date.toEpochDay();
+        int[] result = new int[parkingLotIds.length];
+        for (int i = 0; i < parkingLotIds.length; i++) {
+            LotTimeline t = timelinesByLot.get(parkingLotIds[i]);
+            result[i] = (t == null) ? NONE : t.lookup(day);
+        }
+        return result;
+    }
+
+    public int size() {
+        return timelinesByLot.size();
+    }
+
+    // ----------------- per-lot immutable timeline -----------------
+
+    private static final class LotTimeline {
+        private final int[] fromDays;      // ascending
+        private final int[] toDays;        // OPEN_END when effectiveTo is NULL (exclusive end)
+        private final int[] priceListIds;
+
+        private LotTimeline(int[] fromDays, int[] toDays, int[] priceListIds) {
+            this.fromDays = fromDays;
+            this.toDays = toDays;
+            this.priceListIds = priceListIds;
+        }
+
+        static LotTimeline single(int fromDay, int priceListId) {
+            return new LotTimeline(new int[] { fromDay }, new int[] { OPEN_END }, new int[] { priceListId });
+        }
+
+        static LotTimeline of(List<PriceHistory> rows) {
+            // same-day records keep DB insertion order (ID), the latest one wins
+            rows.sort(Comparator.comparing(PriceHistory::getEffectiveFrom)
+                    .thenComparingInt(PriceHistory::getId));
+
+            int n = rows.size();
+            int[] from = new int[n];
+            int[] to = new int[n];
+            int[] pl = new int[n];
+            for (int i = 0; i < n; i++) {
+                PriceHistory h = rows.get(i);
+                from[i] = (int) h.getEffectiveFrom().toEpochDay();
+                to[i] = h.getEffectiveTo() == null ? OPEN_END : (int) h.getEffectiveTo().toEpochDay();
+                pl[i] = h.getPriceListId();
+            }
+            return new LotTimeline(from, to, pl);
+        }
+
+        /** Last record whose effectiveFrom <= day, if day is before its effectiveTo. */
+        int lookup(int day) {
+            int i = lastFromAtOrBefore(day);
+            if (i < 0) return NONE;
+            return day < toDays[i] ? priceListIds[i] : NONE;
+        }
+
+        LotTimeline withAssignment(int fromDay, int priceListId) {
+            int[] to = toDays.clone();
+            for (int i = 0; i < to.length; i++) {
+                if (to[i] == OPEN_END && fromDays[i] <= fromDay) to[i] = fromDay;
+            }
+            return new LotTimeline(fromDays, to, priceListIds).inserted(fromDay, priceListId);
+        }
+
+        LotTimeline withScheduled(int fromDay, int priceListId) {
+            int n = fromDays.length;
+            int[] from = new int[n];
+            int[] to = new int[n];
+            int[] pl = new int[n];
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                if (fromDays[i] == fromDay && toDays[i] == OPEN_END) continue;
+                from[kept] = fromDays[i];
+                to[kept] = toDays[i];
+                pl[kept] = priceListIds[i];
+                kept++;
+            }
+            return new LotTimeline(Arrays.copyOf(from, kept), Arrays.copyOf(to, kept), Arrays.copyOf(pl, kept))
+                    .inserted(fromDay, priceListId);
+        }
+
+        /** Copy with a new open record, kept sorted after every record starting on/before fromDay. */
+        private LotTimeline inserted(int fromDay, int priceListId) {
+            int n = fromDays.length;
+            int pos = lastFromAtOrBefore(fromDay) + 1;
+
+            int[] from = new int[n + 1];
+            int[] to = new int[n + 1];
+            int[] pl = new int[n + 1];
+            System.arraycopy(fromDays, 0, from, 0, pos);
+            System.arraycopy(toDays, 0, to, 0, pos);
+            System.arraycopy(priceListIds, 0, pl, 0, pos);
+            from[pos] = fromDay;
+            to[pos] = OPEN_END;
+            pl[pos] = priceListId;
+            System.arraycopy(fromDays, pos, from, pos + 1, n - pos);
+            System.arraycopy(toDays, pos, to, pos + 1, n - pos);
+            System.arraycopy(priceListIds, pos, pl, pos + 1, n - pos);
+
+            return new LotTimeline(from, to, pl);
+        }
+
+        private int lastFromAtOrBefore(int day) {
+            int lo = 0, hi = fromDays.length - 1, found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (fromDays[mid] <= day) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found;
+        }
+    }
+}
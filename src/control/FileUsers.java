@@ -0,0 +1,94 @@
+package control;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * FileUsers
+ * ---------
+ * The processes that use an .accdb through AccessDb, seen by the others ("<file>.accdb.users"):
+ *
+ * - every process holds an exclusive OS lock on one byte of the file (its slot, 0..SLOTS-1) from its
+ *   first connection until it exits; the OS drops the lock with the process, also after a crash
+ * - byte SLOTS is the gate: a process takes it shared while it picks a slot, DatabaseCompactor takes
+ *   it exclusively while it swaps the file (lockAlone), so no process starts using the file meanwhile
+ *
+ * Slots are per JVM (one OS lock per file and process); the channel stays open for the whole run.
+ */
+final class FileUsers {
+
+    static final int SLOTS = 256;
+
+    private static final class Held {
+        final FileChannel channel;
+        final int slot;
+
+        Held(FileChannel channel, int slot) {
+            this.channel = channel;
+            this.slot = slot;
+        }
+    }
+
+    private static final Map<Path, Held> HELD = new HashMap<>();
+
+    private FileUsers() {}
+
+    /** Takes a slot for this process (once per file); waits while a compaction swaps the file. */
+    static synchronized void register(Path accdb) throws IOException {
+        Path file = usersFile(accdb);
+        if (HELD.containsKey(file)) return;
+
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock gate = ch.lock(SLOTS, 1, true);
+            try {
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    if (ch.tryLock(slot, 1, false) != null) {
+                        HELD.put(file, new Held(ch, slot));
+                        return;
+                    }
+                }
+            } finally {
+                gate.release();
+            }
+            throw new IOException("All " + SLOTS + " slots of " + file + " are taken");
+        } catch (IOException | RuntimeException e) {
+            ch.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the gate if no other process uses the file: until the handle is closed, processes that
+     * start using it wait in register.
+     * @return null when another process uses the file (or is just starting to)
+     */
+    static synchronized Closeable lockAlone(Path accdb) throws IOException {
+        register(accdb);
+        Held own = HELD.get(usersFile(accdb));
+        FileChannel ch = own.channel;
+
+        FileLock gate = ch.tryLock(SLOTS, 1, false);
+        if (gate == null) return null;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            if (slot == own.slot) continue;
+            FileLock other = ch.tryLock(slot, 1, false);
+            if (other == null) {
+                gate.release();
+                return null;
+            }
+            other.release();
+        }
+        return gate::release;
+    }
+
+    private static Path usersFile(Path accdb) {
+        return accdb.resolveSibling(accdb.getFileName() + ".users").toAbsolutePath().normalize();
+    }
+}
@@ -0,0 +1,443 @@
+package control;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Cursor;
+import com.healthmarketscience.jackcess.CursorBuilder;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.DateTimeType;
+import com.healthmarketscience.jackcess.Index;
+import com.healthmarketscience.jackcess.IndexCursor;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+
+import entity.City;
+import entity.Conveyor;
+import entity.ParkingLot;
+import entity.PriceHistory;
+import entity.PriceList;
+
+/**
+ * JackcessReader
+ * --------------
+ * Read-only engine for bulk scans: reads the .accdb directly with Jackcess cursors and maps
+ * rows straight to entities (no UCanAccess / HSQLDB / JDBC in between).
+ *
+ * - full scans iterate the table; per-lot reads seek the ParkingLotID index (IndexCursor)
+ * - only the needed columns are decoded
+ * - the file is re-opened after a committed write: one of this process (AccessDb.markChanged
+ *   -> invalidate) or a ChangeMarker counter moved by another process, so writes made through
+ *   UCanAccess are visible to the next read (file size / mtime can stay the same)
+ * - one Jackcess Database is not thread-safe: all reads are serialized on this object
+ *
+ * Enabled per AccessDb (AccessDb.setJackcessReads / -Dparkwise.jackcessReads=true);
+ * controllers route their bulk read-only queries here when it is on.
+ * As a ReadSource it is also the input of SnapshotFile.write.
+ */
+public final class JackcessReader implements ReadSource, AutoCloseable {
+
+    private static final List<String> CITY_COLUMNS = Arrays.asList("ID", "cityName");
+
+    private static final List<String> LOT_COLUMNS = Arrays.asList(
+            "ID", "name", "street", "number", "cityID", "availablaSpaces", "isActive");
+
+    private static final List<String> PRICE_LIST_COLUMNS = Arrays.asList(
+            "ID", "year", "firstHourPrice", "additionalHourPrice", "fullDayPrice");
+
+    private static final List<String> CONVEYOR_COLUMNS = Arrays.asList(
+            "ID", "ParkingLotID", "Floor", "X", "Y", "MaxWeight", "Status", "LastStatus", "isActive");
+
+    private static final List<String> HISTORY_COLUMNS = Arrays.asList(
+            "ID", "parkingLotID", "priceListID", "effectiveFrom", "effectiveTo");
+
+    private final Path file;
+    private final ChangeMarker marker;
+
+    private Database database;
+    private Map<String, Long> openedCounters;
+
+    JackcessReader(Path file) {
+        this.file = file;
+        this.marker = new ChangeMarker(file);
+    }
+
+    // ----------------- City / ParkingLot / PriceList -----------------
+
+    /** All cities, ordered by ID. */
+    public synchronized List<City> readAllCities() {
+        try {
+            Table t = table("City");
+            List<String> cols = columnNames(t, CITY_COLUMNS);
+            Collection<String> wanted = new ArrayList<>(cols);
+
+            List<City> list = new ArrayList<>(t.getRowCount());
+            Cursor cursor = CursorBuilder.createCursor(t);
+            Row row;
+            while ((row = cursor.getNextRow(wanted)) != null) {
+                Object name = row.get(cols.get(1));
+                list.add(new City(intOr(row.get(cols.get(0)), 0), name == null ? null : name.toString()));
+            }
+            list.sort(Comparator.comparingInt(City::getId));
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read cities with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    /** All parking lots (active + inactive) with their City, ordered by ID. */
+    public synchronized List<ParkingLot> readAllParkingLots() {
+        try {
+            Map<Integer, City> cities = new HashMap<>();
+            for (City c : readAllCities()) cities.put(c.getId(), c);
+
+            Table t = table("ParkingLot");
+            List<String> cols = withRowVersion(t, columnNames(t, LOT_COLUMNS));
+            Collection<String> wanted = new ArrayList<>(cols);
+
+            List<ParkingLot> list = new ArrayList<>(t.getRowCount());
+            Cursor cursor = CursorBuilder.createCursor(t);
+            Row row;
+            while ((row = cursor.getNextRow(wanted)) != null) {
+                Object name = row.get(cols.get(1));
+                Object street = row.get(cols.get(2));
+                Integer cityId = nullableInt(row.get(cols.get(4)));
+                Object active = row.get(cols.get(6));
+
+                // LEFT JOIN semantics: unknown cityID -> no City
+                City city = cityId == null ? null : cities.get(cityId);
+
+                ParkingLot p = new ParkingLot(
+                        intOr(row.get(cols.get(0)), 0),
+                        name == null ? null : name.toString(),
+                        street == null ? null : street.toString(),
+                        nullableInt(row.get(cols.get(3))),
+                        city == null ? null : new City(city.getId(), city.getCityName()),
+                        intOr(row.get(cols.get(5)), 0),
+                        active == null || Boolean.TRUE.equals(active));
+                p.setRowVersion(rowVersion(row, cols, LOT_COLUMNS.size()));
+                list.add(p);
+            }
+            list.sort(Comparator.comparingInt(ParkingLot::getId));
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read parking lots with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    /** All price lists, ordered by year, ID (same as the price list cache load). */
+    public synchronized List<PriceList> readAllPriceLists() {
+        try {
+            Table t = table("PriceList");
+            List<String> cols = columnNames(t, PRICE_LIST_COLUMNS);
+            Collection<String> wanted = new ArrayList<>(cols);
+
+            List<PriceList> list = new ArrayList<>(t.getRowCount());
+            Cursor cursor = CursorBuilder.createCursor(t);
+            Row row;
+            while ((row = cursor.getNextRow(wanted)) != null) {
+                list.add(new PriceList(
+                        intOr(row.get(cols.get(0)), 0),
+                        intOr(row.get(cols.get(1)), 0),
+                        doubleOr(row.get(cols.get(2))),
+                        doubleOr(row.get(cols.get(3))),
+                        doubleOr(row.get(cols.get(4)))));
+            }
+            list.sort(Comparator.comparingInt(PriceList::getYear).thenComparingInt(PriceList::getId));
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read price lists with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    // ----------------- Conveyor -----------------
+
+    public synchronized List<Conveyor> readAllConveyors(boolean includeInactive) {
+        try {
+            Table t = table("Conveyor");
+            List<String> cols = withRowVersion(t, columnNames(t, CONVEYOR_COLUMNS));
+            Collection<String> wanted = new ArrayList<>(cols);
+
+            List<Conveyor> list = new ArrayList<>(t.getRowCount());
+            Cursor cursor = CursorBuilder.createCursor(t);
+            Row row;
+            while ((row = cursor.getNextRow(wanted)) != null) {
+                Conveyor c = toConveyor(row, cols);
+                if (includeInactive || c.isActive()) list.add(c);
+            }
+            list.sort(conveyorOrder(includeInactive));
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read conveyors with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized List<Conveyor> readConveyorsByParkingLot(int parkingLotId, boolean includeInactive) {
+        try {
+            Table t = table("Conveyor");
+            List<String> cols = withRowVersion(t, columnNames(t, CONVEYOR_COLUMNS));
+            Index index = indexOn(t, cols.get(1));
+            if (index == null) {
+                List<Conveyor> list = new ArrayList<>();
+                for (Conveyor c : readAllConveyors(includeInactive)) {
+                    if (c.getParkingLotId() == parkingLotId) list.add(c);
+                }
+                return list;
+            }
+
+            List<Conveyor> list = new ArrayList<>();
+            IndexCursor cursor = CursorBuilder.createCursor(index);
+            for (Row row : cursor.newEntryIterable(parkingLotId).setColumnNames(cols)) {
+                Conveyor c = toConveyor(row, cols);
+                if (includeInactive || c.isActive()) list.add(c);
+            }
+            list.sort(conveyorOrder(includeInactive));
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read conveyors with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    // ----------------- PriceHistory -----------------
+
+    public synchronized List<PriceHistory> readAllPriceHistory() {
+        try {
+            Table t = table("PriceHistory");
+            List<String> cols = columnNames(t, HISTORY_COLUMNS);
+            Collection<String> wanted = new ArrayList<>(cols);
+
+            List<PriceHistory> list = new ArrayList<>(t.getRowCount());
+            Cursor cursor = CursorBuilder.createCursor(t);
+            Row row;
+            while ((row = cursor.getNextRow(wanted)) != null) {
+                list.add(toHistory(row, cols));
+            }
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read price history with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    /** Same order as the JDBC query: effectiveFrom DESC. */
+    public synchronized List<PriceHistory> readPriceHistoryForParkingLot(int parkingLotId) {
+        try {
+            Table t = table("PriceHistory");
+            List<String> cols = columnNames(t, HISTORY_COLUMNS);
+            Index index = indexOn(t, cols.get(1));
+
+            List<PriceHistory> list = new ArrayList<>();
+            if (index == null) {
+                for (PriceHistory h : readAllPriceHistory()) {
+                    if (h.getParkingLotId() == parkingLotId) list.add(h);
+                }
+            } else {
+                IndexCursor cursor = CursorBuilder.createCursor(index);
+                for (Row row : cursor.newEntryIterable(parkingLotId).setColumnNames(cols)) {
+                    list.add(toHistory(row, cols));
+                }
+            }
+            list.sort(Comparator.comparing(PriceHistory::getEffectiveFrom,
+                    Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())).reversed());
+            return list;
+
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read price history with Jackcess: " + e.getMessage(), e);
+        }
+    }
+
+    // ----------------- ReadSource -----------------
+
+    @Override
+    public List<City> getCities() {
+        return readAllCities();
+    }
+
+    @Override
+    public List<ParkingLot> getParkingLots() {
+        return readAllParkingLots();
+    }
+
+    @Override
+    public List<Conveyor> getConveyors() {
+        List<Conveyor> list = readAllConveyors(true);
+        list.sort(Comparator.comparingInt(Conveyor::getId));
+        return list;
+    }
+
+    @Override
+    public List<PriceList> getPriceLists() {
+        return readAllPriceLists();
+    }
+
+    @Override
+    public List<PriceHistory> getPriceHistory() {
+        List<PriceHistory> list = readAllPriceHistory();
+        list.sort(Comparator.comparingInt(PriceHistory::getId));
+        return list;
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsByParkingLot(int parkingLotId) {
+        List<Conveyor> list = readConveyorsByParkingLot(parkingLotId, true);
+        list.sort(Comparator.comparingInt(Conveyor::getId));
+        return list;
+    }
+
+    @Override
+    public List<PriceHistory> getPriceHistoryForParkingLot(int parkingLotId) {
+        List<PriceHistory> list = readPriceHistoryForParkingLot(parkingLotId);
+        list.sort(Comparator.comparingInt(PriceHistory::getId));
+        return list;
+    }
+
+    /** Forces a re-open on the next read (a write of this process was committed). */
+    synchronized void invalidate() {
+        closeQuietly();
+    }
+
+    @Override
+    public synchronized void close() {
+        closeQuietly();
+    }
+
+    // ----------------- mapping -----------------
+
+    private static Conveyor toConveyor(Row row, List<String> cols) {
+        int id = intOr(row.get(cols.get(0)), 0);
+        int lotId = intOr(row.get(cols.get(1)), 0);
+        Integer floor = nullableInt(row.get(cols.get(2)));
+        Integer x = nullableInt(row.get(cols.get(3)));
+        Integer y = nullableInt(row.get(cols.get(4)));
+        int maxW = intOr(row.get(cols.get(5)), 0);
+        Object status = row.get(cols.get(6));
+        Object last = row.get(cols.get(7));
+        Object active = row.get(cols.get(8));
+
+        Conveyor c = new Conveyor(id, lotId, floor, x, y, maxW,
+                ConveyorManagementController.parseStatus(status == null ? null : status.toString()),
+                ConveyorManagementController.safeParseLastStatus(last == null ? null : last.toString()),
+                active == null || Boolean.TRUE.equals(active));
+        c.setRowVersion(rowVersion(row, cols, CONVEYOR_COLUMNS.size()));
+        return c;
+    }
+
+    /** rowVersion sits after the fixed columns when the file already has it (see RowVersions). */
+    private static int rowVersion(Row row, List<String> cols, int index) {
+        return index < cols.size() ? RowVersions.valueOf(row.get(cols.get(index))) : 0;
+    }
+
+    private static PriceHistory toHistory(Row row, List<String> cols) {
+        return new PriceHistory(
+                intOr(row.get(cols.get(0)), 0),
+                intOr(row.get(cols.get(1)), 0),
+                intOr(row.get(cols.get(2)), 0),
+                toLocalDate(row.get(cols.get(3))),
+                toLocalDate(row.get(cols.get(4))));
+    }
+
+    static Comparator<Conveyor> conveyorOrder(boolean includeInactive) {
+        Comparator<Conveyor> byId = Comparator.comparingInt(Conveyor::getId);
+        // JDBC path: ORDER BY [isActive] DESC, [ID] ASC when inactive ones are included
+        return includeInactive ? Comparator.comparing((Conveyor c) -> !c.isActive()).thenComparing(byId) : byId;
+    }
+
+    private static int intOr(Object o, int fallback) {
+        return o instanceof Number ? ((Number) o).intValue() : fallback;
+    }
+
+    private static double doubleOr(Object o) {
+        return o instanceof Number ? ((Number) o).doubleValue() : 0;
+    }
+
+    private static Integer nullableInt(Object o) {
+        return o instanceof Number ? ((Number) o).intValue() : null;
+    }
+
+    private static LocalDate toLocalDate(Object o) {
+        if (o instanceof LocalDateTime) return ((LocalDateTime) o).toLocalDate();
+        if (o instanceof java.util.Date) return new java.sql.Date(((java.util.Date) o).getTime()).toLocalDate();
+        return null;
+    }
+
+    // ----------------- file / schema -----------------
+
+    private Table table(String name) throws IOException {
+        Table t = database().getTable(name);
+        if (t == null) throw new IOException("Table not found: " + name);
+        return t;
+    }
+
+    /** Actual column names (the Row map is case-sensitive, the schema lookup is not). */
+    private static List<String> columnNames(Table t, List<String> logical) throws IOException {
+        List<String> names = new ArrayList<>(logical.size());
+        for (String n : logical) {
+            Column c = t.getColumn(n);
+            if (c == null) throw new IOException("Column not found: " + t.getName() + "." + n);
+            names.add(c.getName());
+        }
+        return names;
+    }
+
+    /** Appends the rowVersion column if present (a file not yet opened through UCanAccess may lack it). */
+    private static List<String> withRowVersion(Table t, List<String> cols) {
+        for (Column c : t.getColumns()) {
+            if (c.getName().equalsIgnoreCase(RowVersions.COLUMN)) {
+                cols.add(c.getName());
+                break;
+            }
+        }
+        return cols;
+    }
+
+    /** Single-column index on {@code column}, or null. */
+    private static Index indexOn(Table t, String column) {
+        for (Index index : t.getIndexes()) {
+            List<? extends Index.Column> cols = index.getColumns();
+            if (cols.size() == 1 && cols.get(0).getName().equalsIgnoreCase(column)) return index;
+        }
+        return null;
+    }
+
+    private Database database() throws IOException {
+        // null = marker being rewritten by a writer right now: re-open to be safe
+        Map<String, Long> counters = marker.read();
+
+        if (database == null || counters == null || !counters.equals(openedCounters)) {
+            closeQuietly();
+            database = new DatabaseBuilder(file.toFile())
+                    .setReadOnly(true)
+                    .setAutoSync(false)
+                    .open();
+            database.setDateTimeType(DateTimeType.LOCAL_DATE_TIME);
+            openedCounters = counters;
+        }
+        return database;
+    }
+
+    private void closeQuietly() {
+        if (database == null) return;
+        try {
+            database.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        database = null;
+    }
+}
@@ -0,0 +1,113 @@
+package control;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram
+ * ----------------
+ * Lock-free latency histogram (nanoseconds) with log-linear buckets:
+ * every power of two is split into 32 linear sub-buckets, so any recorded value
+ * is reported with at most ~3% relative error, from 1 ns up to Long.MAX_VALUE,
+ * in a fixed 15 KB array.
+ *
+ * record() is safe to call from any number of threads; percentiles are read
+ * from the buckets without blocking writers. Sum and max are striped (LongAdder /
+ * LongAccumulator), so concurrent callers do not all CAS the same two words.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(indexOf(nanos));
+        sum.add(nanos);
+        max.accumulate(nanos);
+    }
+
+    public long getCount() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    public long getMaxNanos() { return max.get(); }
+
+    public double getMeanNanos() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percentile 0..100 (e.g. 99.9)
+     * @return upper bound of the bucket holding that percentile, capped at the recorded max; 0 when empty
+     */
+    public long getPercentileNanos(double percentile) {
+        long n = getCount();
+        if (n == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBoundOf(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Copy of the current state (the copy is independent of this histogram). */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) copy.counts.set(i, counts.get(i));
+        copy.sum.add(sum.sum());
+        copy.max.accumulate(max.get());
+        return copy;
+    }
+
+    /**
+     * Moves the current state into a copy and clears this histogram.
+     * No recorded value is lost: every bucket is drained atomically.
+     * Useful for per-interval statistics.
+     */
+    public LatencyHistogram snapshotAndReset() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++) copy.counts.set(i, counts.getAndSet(i, 0));
+        copy.sum.add(sum.sumThenReset());
+        copy.max.accumulate(max.getThenReset());
+        return copy;
+    }
+
+    /** Adds all values of {@code other} into this histogram. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);      // >= SUB_BITS
+        int group = exp - SUB_BITS + 1;
+        int sub = (int) (value >>> (exp - SUB_BITS)) - SUB_COUNT;
+        return group * SUB_COUNT + sub;
+    }
+
+    static long upperBoundOf(int index) {
+        int group = index / SUB_COUNT;
+        int sub = index % SUB_COUNT;
+        if (group == 0) return sub;
+        long next = ((long) (SUB_COUNT + sub + 1)) << (group - 1);
+        return next <= 0 ? Long.MAX_VALUE : next - 1;
+    }
+}
@@ -0,0 +1,106 @@
+package control;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MaintenanceGate
+ * ---------------
+ * Counts the connections an AccessDb handed out, so DatabaseCompactor can hold new ones back and wait
+ * for the open ones to close before it swaps the file (UCanAccess keeps the file it loaded open).
+ *
+ * - enter() before a connection is opened: waits while the gate is closed (at most WAIT_MS, then
+ *   SQLException); track() then counts the connection until its close(), leave() if opening failed
+ * - close(timeout): no new connections, returns once the open ones are closed (false: timed out, reopened)
+ */
+final class MaintenanceGate {
+
+    /** Longest a caller of AccessDb.open() waits for a maintenance pause to end. */
+    static final long WAIT_MS = Long.getLong("parkwise.maintenance.waitMs", 60_000);
+
+    private int open;
+    private boolean closed;
+
+    /** The connection of a successful enter(): counted until its close(). */
+    Connection track(Connection conn) {
+        AtomicBoolean released = new AtomicBoolean();
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                try {
+                    return invoke(conn, method, args);
+                } finally {
+                    leave();
+                }
+            }
+            return invoke(conn, method, args);
+        };
+        return (Connection) Proxy.newProxyInstance(
+                MaintenanceGate.class.getClassLoader(), new Class<?>[] { Connection.class }, handler);
+    }
+
+    synchronized void enter() throws SQLException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_MS);
+        while (closed) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) throw new SQLException("Database maintenance in progress, try again later");
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for database maintenance", e);
+            }
+        }
+        open++;
+    }
+
+    synchronized void leave() {
+        open--;
+        notifyAll();
+    }
+
+    /**
+     * Holds new connections back and waits until every open one is closed.
+     * @return false when connections were still open after timeoutMillis (the gate is open again)
+     */
+    synchronized boolean close(long timeoutMillis) throws InterruptedException {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (open > 0) {
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) {
+                open();
+                return false;
+            }
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                open();
+                throw e;
+            }
+        }
+        return true;
+    }
+
+    synchronized void open() {
+        closed = false;
+        notifyAll();
+    }
+
+    synchronized int getOpenConnections() {
+        return open;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package control;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * OperationMetrics
+ * ----------------
+ * Counters of ONE instrumented operation (e.g. ParkingLotManagementController.getParkingLot):
+ * calls, errors, in-flight gauge and a latency histogram.
+ *
+ * All updates are lock-free (LongAdder + LatencyHistogram), so many threads can
+ * record into the same operation without contending on a single counter.
+ *
+ * Every call is counted (started / completed / errors: LongAdders; in-flight = started - completed).
+ * Reading the clock is the expensive part (System.nanoTime is ~20-40 ns, twice per call), so latency
+ * is measured on every call of a slow operation but only on 1 in SAMPLE_EVERY calls while the last
+ * timed call took less than FAST_NANOS: mean and percentiles come from the timed calls.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+
+    private final String component;
+    private final String operation;
+
+    /** Calls faster than this are timed by sample only. */
+    static final long FAST_NANOS = 50_000;
+    static final int SAMPLE_EVERY = 64;
+
+    private static final long UNTIMED = Long.MIN_VALUE;
+
+    private final LongAdder started = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder completedBeforeReset = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private volatile boolean timeEvery = true;   // until a timed call was fast
+
+    OperationMetrics(String component, String operation) {
+        this.component = component;
+        this.operation = operation;
+    }
+
+    /** Marks the start of a call; pass the returned value to {@link #end}. */
+    long begin() {
+        started.increment();
+        if (timeEvery || ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) == 0) return System.nanoTime();
+        return UNTIMED;
+    }
+
+    void end(long startNanos, boolean failed) {
+        completed.increment();
+        if (failed) errors.increment();
+        if (startNanos == UNTIMED) return;
+
+        long nanos = System.nanoTime() - startNanos;
+        latency.record(nanos);
+        boolean slow = nanos >= FAST_NANOS;
+        if (slow != timeEvery) timeEvery = slow;
+    }
+
+    /** Snapshot of the latency histogram (nanoseconds) of the timed calls. */
+    public LatencyHistogram getLatency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public String getComponent() { return component; }
+
+    @Override
+    public String getOperation() { return operation; }
+
+    @Override
+    public long getCalls() { return completed.sum(); }
+
+    @Override
+    public long getErrors() { return errors.sum(); }
+
+    @Override
+    public long getInFlight() {
+        return Math.max(0, started.sum() - completedBeforeReset.sum() - completed.sum());
+    }
+
+    @Override
+    public double getMeanMillis() { return latency.getMeanNanos() / 1_000_000d; }
+
+    @Override
+    public double getP50Millis() { return latency.getPercentileNanos(50) / 1_000_000d; }
+
+    @Override
+    public double getP95Millis() { return latency.getPercentileNanos(95) / 1_000_000d; }
+
+    @Override
+    public double getP99Millis() { return latency.getPercentileNanos(99) / 1_000_000d; }
+
+    @Override
+    public double getMaxMillis() { return latency.getMaxNanos() / 1_000_000d; }
+
+    @Override
+    public void reset() {
+        completedBeforeReset.add(completed.sumThenReset());
+        latency.snapshotAndReset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT,
+                "%s.%s calls=%d errors=%d inFlight=%d p50=%.2fms p99=%.2fms max=%.2fms",
+                component, operation, getCalls(), getErrors(), getInFlight(),
+                getP50Millis(), getP99Millis(), getMaxMillis());
+    }
+}
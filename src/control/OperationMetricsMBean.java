@@ -0,0 +1,31 @@
+package control;
+
+/**
+ * JMX view of one instrumented operation (see OperationMetrics).
+ * Registered as parkwise:type=Controller,component=&lt;component&gt;,name=&lt;operation&gt;.
+ */
+public interface OperationMetricsMBean {
+
+    String getComponent();
+
+    String getOperation();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getInFlight();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP95Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    /** Clears counters and latencies (in-flight is a gauge and is not reset). */
+    void reset();
+}
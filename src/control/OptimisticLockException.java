@@ -0,0 +1,60 @@
+package control;
+
+import entity.Versioned;
+
+/**
+ * OptimisticLockException
+ * -----------------------
+ * An update found the row at a different rowVersion than the caller read: someone else
+ * changed it in between. Carries the row as it is now, so the caller can show it / retry
+ * without another query.
+ *
+ * Extends IllegalStateException: existing "cannot do that now" handling (UI dialogs,
+ * HTTP 409) keeps working.
+ */
+public class OptimisticLockException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String table;
+    private final int id;
+    private final int expectedVersion;
+    private final int currentVersion;
+    private final transient Versioned current;
+
+    public OptimisticLockException(String table, int id, int expectedVersion, int currentVersion, Versioned current) {
+        super(table + " #" + id + " was changed by someone else (version " + expectedVersion
+                + " -> " + currentVersion + "). Reload and try again.");
+        this.table = table;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+        this.current = current;
+    }
+
+    /** "ParkingLot" / "Conveyor" */
+    public String getTable() {
+        return table;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+
+    /** The current row (entity.ParkingLot / entity.Conveyor), null when it is not known. */
+    public Versioned getCurrent() {
+        return current;
+    }
+
+    public <T extends Versioned> T getCurrent(Class<T> type) {
+        return type.cast(current);
+    }
+}
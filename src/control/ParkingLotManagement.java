@@ -0,0 +1,37 @@
+package control;
+
+import java.util.List;
+
+import entity.City;
+import entity.ParkingLot;
+
+/**
+ * ParkingLotManagement
+ * --------------------
+ * Parking lot operations of the dashboard and the HTTP API; implemented by
+ * ParkingLotManagementController and its Remote / Sharded subclasses.
+ */
+public interface ParkingLotManagement {
+
+    ParkingLot addParkingLot(String name, String street, Integer number, City city, int availableSpaces);
+
+    void updateParkingLot(int id, String name, String street, Integer number, City city);
+
+    /** @return the new row version; throws OptimisticLockException when expectedVersion is stale */
+    int updateParkingLot(int id, String name, String street, Integer number, City city, int expectedVersion);
+
+    void deleteParkingLot(int id);
+
+    ParkingLot getParkingLot(int id);
+
+    List<ParkingLot> getAllParkingLots();
+
+    List<ParkingLot> getAllParkingLots(boolean includeInactive);
+
+    List<ParkingLot> searchParkingLots(String query, int limit, boolean includeInactive);
+
+    void reloadSearchIndex();
+
+    /** Builds the search index unless it is built already (StartupLoader, so the first keystroke does not). */
+    void loadSearchIndex();
+}
@@ -2,6 +2,7 @@ package control;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 import entity.City;
@@ -22,13 +23,27 @@ import entity.ParkingLot;
  * שינוי נוסף:
  * - Soft delete: isActive (true/false) במקום DELETE אמיתי.
  * - ברירת מחדל: מחזירים רק פעילים.
+ *
+ * Archive: inactive lots moved to ParkingLotArchive (SoftDeleteArchiver) are read back only by
+ * getAllParkingLots(includeInactive=true).
+ *
+ * Optimistic locking:
+ * - every write sets [rowVersion]=[rowVersion]+1 (see RowVersions)
+ * - updateParkingLot(..., expectedVersion) only writes if nobody changed the row since it was read,
+ *   else OptimisticLockException with the current row
  */
-public class ParkingLotManagementController {
+public class ParkingLotManagementController implements ParkingLotManagement {
 
     private final AccessDb db;
 
+    // typeahead index: built on the first search, kept current by the writes below (also while it loads)
+    private final ParkingLotSearchIndex searchIndex = new ParkingLotSearchIndex();
+    private volatile boolean searchIndexLoaded;
+
     public ParkingLotManagementController(AccessDb db) {
         this.db = db;
+        // the index keys lots by their city's name too
+        if (db != null) db.addCityRenameListener(city -> searchIndex.renameCity(city.getId(), city.getCityName()));
     }
 
     private void ensureDb() {
@@ -54,7 +69,7 @@ public class ParkingLotManagementController {
 
         // ✅ NEW: isActive default true
         final String sql =
-                "INSERT INTO ParkingLot ([name],[street],[number],[cityID],[availablaSpaces],[isActive]) VALUES (?,?,?,?,?,?)";
+                "INSERT INTO ParkingLot ([name],[street],[number],[cityID],[availablaSpaces],[isActive],[rowVersion]) VALUES (?,?,?,?,?,?,0)";
 
         try (Connection conn = db.open();
              PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
@@ -71,7 +86,9 @@ public class ParkingLotManagementController {
             int newId = readGeneratedId(ps, conn);
             if (newId <= 0) throw new RuntimeException("Insert succeeded but could not read generated ID");
 
-            return new ParkingLot(newId, n, s, number, city, availableSpaces, true);
+            ParkingLot added = new ParkingLot(newId, n, s, number, city, availableSpaces, true);
+            searchIndex.put(added);
+            return added;
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to add parking lot: " + e.getMessage(), e);
@@ -97,7 +114,8 @@ public class ParkingLotManagementController {
 
         // ✅ Only update if active (optional rule). If you prefer allow updating inactive, remove AND isActive=True
         final String sql =
-                "UPDATE ParkingLot SET [name]=?, [street]=?, [number]=?, [cityID]=? WHERE [ID]=? AND [isActive]=True";
+                "UPDATE ParkingLot SET [name]=?, [street]=?, [number]=?, [cityID]=?, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True";
 
         try (Connection conn = db.open();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -116,10 +134,62 @@ public class ParkingLotManagementController {
                 }
                 throw new IllegalArgumentException("ParkingLot not found: " + id);
             }
+            searchIndex.update(id, n, s, number, city);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to update parking lot: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Same as updateParkingLot, but only if the row is still at {@code expectedVersion}
+     * (ParkingLot.getRowVersion() of the copy being edited).
+     * @return the new row version
+     * @throws OptimisticLockException someone else changed the parking lot in the meantime
+     */
+    public int updateParkingLot(int id, String name, String street, Integer number, City city, int expectedVersion) {
+        ensureDb();
+
+        String n = name == null ? "" : name.trim();
+        String s = street == null ? "" : street.trim();
+
+        if (n.isEmpty()) throw new IllegalArgumentException("Parking lot name is required.");
+        if (s.isEmpty()) throw new IllegalArgumentException("Street is required.");
+        if (number == null) throw new IllegalArgumentException("Number is required.");
+        if (number <= 0) throw new IllegalArgumentException("Number must be positive.");
+        if (city == null) throw new IllegalArgumentException("City is required.");
+
+        final String sql =
+                "UPDATE ParkingLot SET [name]=?, [street]=?, [number]=?, [cityID]=?, [rowVersion]=[rowVersion]+1 " +
+                "WHERE [ID]=? AND [isActive]=True AND [rowVersion]=?";
+
+        int updated;
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setString(1, n);
+            ps.setString(2, s);
+            ps.setInt(3, number);
+            ps.setInt(4, city.getId());
+            ps.setInt(5, id);
+            ps.setInt(6, expectedVersion);
+
+            updated = ps.executeUpdate();
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to update parking lot: " + e.getMessage(), e);
         }
+
+        if (updated == 0) {
+            // only now read the row, to tell the caller why
+            ParkingLot current = loadParkingLot(id);
+            if (!current.isActive()) {
+                throw new IllegalStateException("Parking lot is inactive and cannot be updated.");
+            }
+            throw new OptimisticLockException("ParkingLot", id, expectedVersion, current.getRowVersion(), current);
+        }
+        searchIndex.update(id, n, s, number, city);
+        return expectedVersion + 1;
     }
 
     /**
@@ -132,7 +202,7 @@ public class ParkingLotManagementController {
             throw new IllegalStateException("Parking lot is already inactive.");
         }
 
-        final String sql = "UPDATE ParkingLot SET [isActive]=False WHERE [ID]=? AND [isActive]=True";
+        final String sql = "UPDATE ParkingLot SET [isActive]=False, [rowVersion]=[rowVersion]+1 WHERE [ID]=? AND [isActive]=True";
 
         try (Connection conn = db.open();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -140,6 +210,7 @@ public class ParkingLotManagementController {
             ps.setInt(1, id);
             int updated = ps.executeUpdate();
             if (updated == 0) throw new IllegalArgumentException("ParkingLot not found: " + id);
+            searchIndex.setActive(id, false);
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to deactivate parking lot: " + e.getMessage(), e);
@@ -152,8 +223,20 @@ public class ParkingLotManagementController {
     public ParkingLot getParkingLot(int id) {
         ensureDb();
 
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            ParkingLot lot = source.getParkingLot(id);
+            if (lot == null) throw new IllegalArgumentException("ParkingLot not found: " + id);
+            return lot;
+        }
+
+        return loadParkingLot(id);
+    }
+
+    /** getParkingLot straight from the database (never the read source: conflict checks need the committed row). */
+    private ParkingLot loadParkingLot(int id) {
         final String sql =
-                "SELECT p.[ID], p.[name], p.[street], p.[number], p.[availablaSpaces], p.[isActive], " +
+                "SELECT p.[ID], p.[name], p.[street], p.[number], p.[availablaSpaces], p.[isActive], p.[rowVersion], " +
                 "       c.[ID] AS CityID, c.[cityName] AS CityName " +
                 "FROM ParkingLot p " +
                 "LEFT JOIN City c ON p.[cityID] = c.[ID] " +
@@ -183,7 +266,7 @@ public class ParkingLotManagementController {
                     isActive = rs.getBoolean("isActive");
                 } catch (Exception ignore) {}
 
-                return new ParkingLot(
+                ParkingLot lot = new ParkingLot(
                         rs.getInt("ID"),
                         rs.getString("name"),
                         street,
@@ -192,6 +275,8 @@ public class ParkingLotManagementController {
                         rs.getInt("availablaSpaces"),
                         isActive
                 );
+                lot.setRowVersion(rs.getInt("rowVersion"));
+                return lot;
             }
 
         } catch (SQLException e) {
@@ -213,10 +298,22 @@ public class ParkingLotManagementController {
     public List<ParkingLot> getAllParkingLots(boolean includeInactive) {
         ensureDb();
 
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            // same filter / order as the SQL below
+            List<ParkingLot> lots = new ArrayList<>();
+            for (ParkingLot p : source.getParkingLots()) {
+                if (includeInactive || p.isActive()) lots.add(p);
+            }
+            if (includeInactive && !db.isReadOnly()) lots.addAll(archivedParkingLots());
+            lots.sort(Comparator.comparing((ParkingLot p) -> !p.isActive()).thenComparingInt(ParkingLot::getId));
+            return lots;
+        }
+
         List<ParkingLot> lots = new ArrayList<>();
 
         final String sql =
-                "SELECT p.[ID], p.[name], p.[street], p.[number], p.[availablaSpaces], p.[isActive], " +
+                "SELECT p.[ID], p.[name], p.[street], p.[number], p.[availablaSpaces], p.[isActive], p.[rowVersion], " +
                 "       c.[ID] AS CityID, c.[cityName] AS CityName " +
                 "FROM ParkingLot p " +
                 "LEFT JOIN City c ON p.[cityID] = c.[ID] " +
@@ -227,41 +324,110 @@ public class ParkingLotManagementController {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            while (rs.next()) {
-                City city = null;
-                int cityId = rs.getInt("CityID");
-                if (!rs.wasNull()) {
-                    city = new City(cityId, rs.getString("CityName"));
-                }
+            while (rs.next()) lots.add(readParkingLot(rs));
 
-                String street = rs.getString("street");
-                Integer number = null;
-                Object numObj = rs.getObject("number");
-                if (numObj != null) number = ((Number) numObj).intValue();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load parking lots: " + e.getMessage(), e);
+        }
 
-                boolean isActive = true;
-                try {
-                    isActive = rs.getBoolean("isActive");
-                } catch (Exception ignore) {}
+        if (includeInactive) {
+            // archived lots are all inactive: after the inactive hot rows, in ID order
+            lots.addAll(archivedParkingLots());
+            lots.sort(Comparator.comparing((ParkingLot p) -> !p.isActive()).thenComparingInt(ParkingLot::getId));
+        }
+        return lots;
+    }
 
-                lots.add(new ParkingLot(
-                        rs.getInt("ID"),
-                        rs.getString("name"),
-                        street,
-                        number,
-                        city,
-                        rs.getInt("availablaSpaces"),
-                        isActive
-                ));
-            }
+    /** Lots moved to ParkingLotArchive, with their (current) City. */
+    private List<ParkingLot> archivedParkingLots() {
+        List<ParkingLot> lots = new ArrayList<>();
+
+        final String sql =
+                "SELECT p.[ID], p.[name], p.[street], p.[number], p.[availablaSpaces], p.[isActive], p.[rowVersion], " +
+                "       c.[ID] AS CityID, c.[cityName] AS CityName " +
+                "FROM " + SoftDeleteArchiver.archiveTable("ParkingLot") + " p " +
+                "LEFT JOIN City c ON p.[cityID] = c.[ID] " +
+                "ORDER BY p.[ID] ASC";
+
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) lots.add(readParkingLot(rs));
 
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to load parking lots: " + e.getMessage(), e);
+            throw new RuntimeException("Failed to load archived parking lots: " + e.getMessage(), e);
         }
-
         return lots;
     }
 
+    private static ParkingLot readParkingLot(ResultSet rs) throws SQLException {
+        City city = null;
+        int cityId = rs.getInt("CityID");
+        if (!rs.wasNull()) {
+            city = new City(cityId, rs.getString("CityName"));
+        }
+
+        String street = rs.getString("street");
+        Integer number = null;
+        Object numObj = rs.getObject("number");
+        if (numObj != null) number = ((Number) numObj).intValue();
+
+        boolean isActive = true;
+        try {
+            isActive = rs.getBoolean("isActive");
+        } catch (Exception ignore) {}
+
+        ParkingLot lot = new ParkingLot(
+                rs.getInt("ID"),
+                rs.getString("name"),
+                street,
+                number,
+                city,
+                rs.getInt("availablaSpaces"),
+                isActive
+        );
+        lot.setRowVersion(rs.getInt("rowVersion"));
+        return lot;
+    }
+
+    /**
+     * Typeahead search over name, street, number and city name (see ParkingLotSearchIndex):
+     * exact ID first, then lots whose name matches, then the rest.
+     * The index is built on the first call and kept current by this controller's writes.
+     */
+    public List<ParkingLot> searchParkingLots(String query, int limit, boolean includeInactive) {
+        ensureSearchIndexLoaded();
+        return searchIndex.search(query, limit, includeInactive);
+    }
+
+    /**
+     * Re-reads all parking lots into the search index (e.g. after changes made by another process).
+     */
+    public void reloadSearchIndex() {
+        searchIndex.beginReload();
+        List<ParkingLot> all;
+        try {
+            all = getAllParkingLots(true);
+        } catch (RuntimeException e) {
+            searchIndex.cancelReload();
+            throw e;
+        }
+        searchIndex.rebuild(all);
+        searchIndexLoaded = true;
+    }
+
+    public void loadSearchIndex() {
+        ensureSearchIndexLoaded();
+    }
+
+    private void ensureSearchIndexLoaded() {
+        if (searchIndexLoaded) return;
+        synchronized (searchIndex) {
+            if (!searchIndexLoaded) reloadSearchIndex();
+        }
+    }
+
     private boolean isParkingLotInactive(int id) {
         final String sql = "SELECT [isActive] FROM ParkingLot WHERE [ID]=?";
         try (Connection conn = db.open();
@@ -0,0 +1,393 @@
+package control;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import entity.City;
+import entity.ParkingLot;
+
+/**
+ * ParkingLotSearchIndex
+ * ---------------------
+ * In-memory typeahead index over parking lots: name, street, number and city name.
+ *
+ * - keys are normalized: lower case, accents and Hebrew points (niqqud) removed, Hebrew final
+ *   letters folded (ם -> מ ...), quotes / geresh dropped, any other punctuation splits words
+ * - a lot matches when every word of the query is the prefix of one of its words (any order)
+ * - every prefix (up to MAX_PREFIX chars) of every word has a posting list of lots, so a query
+ *   walks the shortest list of its words and checks the other words on each candidate
+ * - order: exact ID, lots whose NAME matches the whole query, the other matches;
+ *   index order (= ID order) inside each group; the walk stops after {@code limit} hits
+ * - put / update / setActive / renameCity change lots in place (ParkingLotManagementController calls them after
+ *   writes); changes made between beginReload() and rebuild() are applied again after the rebuild
+ *   (the rows read may or may not have them; applying them twice gives the same index)
+ *
+ * Thread-safe: searches share a read lock, updates take the write lock.
+ */
+public final class ParkingLotSearchIndex {
+
+    /** Longer query words are looked up by their first MAX_PREFIX chars, then checked in full. */
+    public static final int MAX_PREFIX = 12;
+
+    private static final String[] NO_WORDS = new String[0];
+
+    private static final class Doc {
+        final int slot;
+        ParkingLot lot;
+        String[] nameWords = NO_WORDS;
+        String[] words = NO_WORDS;      // name + street + number + city
+
+        Doc(int slot) {
+            this.slot = slot;
+        }
+    }
+
+    private final List<Doc> docs = new ArrayList<>();
+    private final Map<Integer, Doc> byId = new HashMap<>();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // changes made since beginReload(), null when no reload is running; guarded by the write lock
+    private List<Runnable> duringReload;
+
+    /** Call before reading the lots for {@link #rebuild}: changes from now on survive the rebuild. */
+    public void beginReload() {
+        lock.writeLock().lock();
+        try {
+            if (duringReload == null) duringReload = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The reload failed: stop keeping changes (they are already applied). */
+    public void cancelReload() {
+        lock.writeLock().lock();
+        try {
+            duringReload = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole content (lots are indexed in ID order), then applies the changes made since
+     * beginReload().
+     */
+    public void rebuild(Collection<ParkingLot> lots) {
+        List<ParkingLot> sorted = new ArrayList<>(lots);
+        sorted.sort(Comparator.comparingInt(ParkingLot::getId));
+
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            byId.clear();
+            postings.clear();
+            for (ParkingLot p : sorted) putLocked(p);
+
+            List<Runnable> replay = duringReload;
+            duringReload = null;
+            if (replay != null) replay.forEach(Runnable::run);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Adds the lot, or re-indexes it when it is already known. */
+    public void put(ParkingLot lot) {
+        ParkingLot own = copy(lot);
+        record(() -> putLocked(own));
+    }
+
+    /** The edited fields of a known lot (availableSpaces stays); unknown IDs are ignored. */
+    public void update(int id, String name, String street, Integer number, City city) {
+        City own = city == null ? null : new City(city.getId(), city.getCityName());
+        record(() -> {
+            Doc doc = byId.get(id);
+            if (doc == null) return;
+
+            ParkingLot lot = copy(doc.lot);
+            lot.setName(name);
+            lot.setStreet(street);
+            lot.setNumber(number);
+            lot.setCity(own);
+            putLocked(lot);
+        });
+    }
+
+    /** Deactivate / reactivate without re-reading the lot; unknown IDs are ignored. */
+    public void setActive(int id, boolean active) {
+        record(() -> {
+            Doc doc = byId.get(id);
+            if (doc != null) doc.lot.setActive(active);
+        });
+    }
+
+    /** Re-indexes the lots of a renamed city. */
+    public void renameCity(int cityId, String cityName) {
+        record(() -> {
+            for (Doc doc : docs) {
+                City city = doc.lot.getCity();
+                if (city == null || city.getId() != cityId) continue;
+
+                ParkingLot lot = copy(doc.lot);
+                lot.setCity(new City(cityId, cityName));
+                putLocked(lot);
+            }
+        });
+    }
+
+    /** Applies a change under the write lock and keeps it for a running reload. */
+    private void record(Runnable change) {
+        lock.writeLock().lock();
+        try {
+            change.run();
+            if (duringReload != null) duringReload.add(change);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Best matches first (see class comment); copies, the caller may change them.
+     * availableSpaces / rowVersion are as of indexing: re-read a lot before editing it.
+     *
+     * @param limit max results
+     * @param includeInactive also return deactivated lots
+     */
+    public List<ParkingLot> search(String query, int limit, boolean includeInactive) {
+        List<ParkingLot> result = new ArrayList<>();
+        if (limit <= 0) return result;
+
+        String[] q = words(query);
+        Integer id = exactId(query);
+
+        lock.readLock().lock();
+        try {
+            Set<Integer> seen = new HashSet<>();
+
+            if (id != null) {
+                Doc doc = byId.get(id);
+                if (doc != null && (includeInactive || doc.lot.isActive())) {
+                    result.add(copy(doc.lot));
+                    seen.add(id);
+                }
+            }
+            if (q.length == 0) return result;
+
+            Postings driver = null;
+            for (String w : q) {
+                Postings p = postings.get(w.length() > MAX_PREFIX ? w.substring(0, MAX_PREFIX) : w);
+                if (p == null) return result;
+                if (driver == null || p.size < driver.size) driver = p;
+            }
+
+            collect(driver, q, true, limit, includeInactive, seen, result);
+            collect(driver, q, false, limit, includeInactive, seen, result);
+            return result;
+
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void collect(Postings driver, String[] q, boolean nameOnly, int limit, boolean includeInactive,
+                         Set<Integer> seen, List<ParkingLot> result) {
+        for (int i = 0; i < driver.size && result.size() < limit; i++) {
+            Doc doc = docs.get(driver.slots[i]);
+            if (!includeInactive && !doc.lot.isActive()) continue;
+            if (!matchesAll(q, nameOnly ? doc.nameWords : doc.words)) continue;
+            if (seen.add(doc.lot.getId())) result.add(copy(doc.lot));
+        }
+    }
+
+    /**
+     * Order of {@link #search} for lots from several sources (e.g. one result list per shard).
+     */
+    public static Comparator<ParkingLot> resultOrder(String query) {
+        String[] q = words(query);
+        Integer id = exactId(query);
+        return Comparator.comparingInt((ParkingLot p) -> {
+            if (id != null && p.getId() == id) return 0;
+            return q.length > 0 && matchesAll(q, words(p.getName())) ? 1 : 2;
+        }).thenComparingInt(ParkingLot::getId);
+    }
+
+    // ----------------- indexing -----------------
+
+    private void putLocked(ParkingLot lot) {
+        Doc doc = byId.get(lot.getId());
+        if (doc == null) {
+            doc = new Doc(docs.size());
+            docs.add(doc);
+            byId.put(lot.getId(), doc);
+        }
+
+        String[] nameWords = words(lot.getName());
+        String[] allWords = words(join(lot));
+        if (!Arrays.equals(allWords, doc.words)) {
+            for (String prefix : prefixes(doc.words)) {
+                Postings p = postings.get(prefix);
+                if (p != null && p.remove(doc.slot) && p.size == 0) postings.remove(prefix);
+            }
+            for (String prefix : prefixes(allWords)) {
+                postings.computeIfAbsent(prefix, k -> new Postings()).add(doc.slot);
+            }
+        }
+        doc.nameWords = nameWords;
+        doc.words = allWords;
+        doc.lot = copy(lot);
+    }
+
+    private static String join(ParkingLot lot) {
+        City city = lot.getCity();
+        return (lot.getName() == null ? "" : lot.getName()) + " "
+                + (lot.getStreet() == null ? "" : lot.getStreet()) + " "
+                + (lot.getNumber() == null ? "" : lot.getNumber()) + " "
+                + (city == null || city.getCityName() == null ? "" : city.getCityName());
+    }
+
+    private static Set<String> prefixes(String[] words) {
+        Set<String> out = new LinkedHashSet<>();
+        for (String w : words) {
+            int max = Math.min(MAX_PREFIX, w.length());
+            for (int len = 1; len <= max; len++) out.add(w.substring(0, len));
+        }
+        return out;
+    }
+
+    private static boolean matchesAll(String[] query, String[] words) {
+        for (String q : query) {
+            boolean found = false;
+            for (String w : words) {
+                if (w.startsWith(q)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static ParkingLot copy(ParkingLot p) {
+        City city = p.getCity();
+        ParkingLot c = new ParkingLot(p.getId(), p.getName(), p.getStreet(), p.getNumber(),
+                city == null ? null : new City(city.getId(), city.getCityName()),
+                p.getAvailableSpaces(), p.isActive());
+        c.setRowVersion(p.getRowVersion());
+        return c;
+    }
+
+    // ----------------- normalization -----------------
+
+    /** Normalized words of the text, sorted and without duplicates (see class comment). */
+    static String[] words(String text) {
+        String n = normalize(text);
+        if (n.isEmpty()) return NO_WORDS;
+        return Arrays.stream(n.split(" ")).distinct().sorted().toArray(String[]::new);
+    }
+
+    /** Lower case, no accents / niqqud, Hebrew final letters folded, one space between words. */
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder b = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (c == '\'' || c == '"' || c == '`' || c == '’' || c == '׳' || c == '״') {
+                continue;   // ת"א, צ'ק פוסט, O'Hara
+            }
+            if (Character.isLetterOrDigit(c)) {
+                b.append(foldFinalLetter(Character.toLowerCase(c)));
+                space = false;
+            } else if (!space) {
+                b.append(' ');
+                space = true;
+            }
+        }
+        int end = b.length();
+        if (end > 0 && b.charAt(end - 1) == ' ') b.setLength(end - 1);
+        return b.toString();
+    }
+
+    private static char foldFinalLetter(char c) {
+        switch (c) {
+            case 'ך': return 'כ';
+            case 'ם': return 'מ';
+            case 'ן': return 'נ';
+            case 'ף': return 'פ';
+            case 'ץ': return 'צ';
+            default: return c;
+        }
+    }
+
+    /** The query as a lot ID when it is a plain number. */
+    private static Integer exactId(String query) {
+        if (query == null) return null;
+        String t = query.trim();
+        if (t.isEmpty() || t.length() > 9) return null;
+        for (int i = 0; i < t.length(); i++) {
+            if (t.charAt(i) < '0' || t.charAt(i) > '9') return null;
+        }
+        return Integer.parseInt(t);
+    }
+
+    /** Sorted slot numbers of the lots that have one prefix. */
+    private static final class Postings {
+        int[] slots = new int[2];
+        int size;
+
+        void add(int slot) {
+            // slots of new lots are always the largest: append is the common case
+            if (size > 0 && slots[size - 1] >= slot) {
+                int at = Arrays.binarySearch(slots, 0, size, slot);
+                if (at >= 0) return;
+                insert(-at - 1, slot);
+                return;
+            }
+            insert(size, slot);
+        }
+
+        boolean remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at < 0) return false;
+            System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+            size--;
+            return true;
+        }
+
+        private void insert(int at, int slot) {
+            if (size == slots.length) slots = Arrays.copyOf(slots, size * 2);
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+    }
+}
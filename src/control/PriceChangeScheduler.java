@@ -0,0 +1,90 @@
+package control;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PriceChangeScheduler
+ * --------------------
+ * In-process scheduler that activates future-dated tariff changes.
+ *
+ * - On start: activates everything already due (catch-up for missed midnights).
+ * - Then runs once per day at midnight (local time); each run is ONE batched transaction
+ *   for all lots (see PriceHistoryManagementController.activateScheduledPriceChanges).
+ * - Runs on a single daemon thread, so it never keeps the application alive.
+ */
+public class PriceChangeScheduler {
+
+    private final PriceHistoryManagement historyController;
+    private final ScheduledExecutorService executor;
+
+    private ScheduledFuture<?> next;
+    private volatile int lastActivatedLots = 0;
+    private volatile LocalDate lastRunDate = null;
+
+    public PriceChangeScheduler(PriceHistoryManagement historyController) {
+        if (historyController == null) throw new IllegalArgumentException("historyController is required.");
+        this.historyController = historyController;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "parkwise-price-scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Runs a catch-up activation now and schedules the next midnight run. */
+    public synchronized void start() {
+        if (next != null) return;
+        next = executor.schedule(this::runAndReschedule, 0, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (next != null) next.cancel(false);
+        next = null;
+        executor.shutdown();
+    }
+
+    /**
+     * Activates everything due today (also usable manually, e.g. from an admin screen).
+     * @return number of lots whose tariff changed
+     */
+    public int runNow() {
+        LocalDate today = LocalDate.now();
+        int changed = historyController.activateScheduledPriceChanges(today);
+        lastActivatedLots = changed;
+        lastRunDate = today;
+        return changed;
+    }
+
+    public int getLastActivatedLots() { return lastActivatedLots; }
+
+    public LocalDate getLastRunDate() { return lastRunDate; }
+
+    private void runAndReschedule() {
+        try {
+            runNow();
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                if (next != null && !executor.isShutdown()) {
+                    next = executor.schedule(this::runAndReschedule, millisUntilNextMidnight(), TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    // zoned, so a day with a DST change (23 or 25 hours) still ends at local midnight
+    private static long millisUntilNextMidnight() {
+        ZoneId zone = ZoneId.systemDefault();
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        ZonedDateTime midnight = now.toLocalDate().plusDays(1).atStartOfDay(zone);
+        return Math.max(0, Duration.between(now, midnight).toMillis());
+    }
+}
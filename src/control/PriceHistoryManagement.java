@@ -0,0 +1,46 @@
+package control;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import entity.PriceHistory;
+
+/**
+ * PriceHistoryManagement
+ * ----------------------
+ * Tariff assignments and lookups, used by the UI, the HTTP API and PriceChangeScheduler;
+ * implemented by PriceHistoryManagementController and its subclasses.
+ */
+public interface PriceHistoryManagement {
+
+    List<PriceHistory> getHistoryForParkingLot(int parkingLotId);
+
+    List<PriceHistoryRow> getHistoryRowsForParkingLot(int parkingLotId);
+
+    Map<Integer, List<PriceHistoryRow>> getHistoryRowsForParkingLots(Collection<Integer> parkingLotIds);
+
+    void assignPriceListToParkingLot(int parkingLotId, int priceListId);
+
+    void schedulePriceListChange(int parkingLotId, int priceListId, LocalDate effectiveFrom);
+
+    List<PriceHistory> getScheduledPriceChanges(int parkingLotId);
+
+    /** @return how many lots changed tariff */
+    int activateScheduledPriceChanges(LocalDate boundary);
+
+    BulkAssignmentResult assignPriceListToParkingLots(Collection<Integer> parkingLotIds, int priceListId);
+
+    BulkAssignmentResult assignPriceListToCity(int cityId, int priceListId);
+
+    BulkAssignmentResult assignPriceListToAllParkingLots(int priceListId);
+
+    Integer getEffectivePriceListId(int parkingLotId, LocalDate date);
+
+    int[] getEffectivePriceListIds(int[] parkingLotIds, LocalDate date);
+
+    List<PriceHistory> getAllPriceHistory();
+
+    void reloadPriceIndex();
+}
@@ -6,9 +6,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 import entity.PriceHistory;
+import entity.PriceList;
 
 /**
  * PriceHistoryManagementController
@@ -18,11 +25,33 @@ import entity.PriceHistory;
  * - Assigning a new PriceList:
  *   1) closes the previous active record (effectiveTo = today)
  *   2) creates a new record (effectiveFrom = today, effectiveTo = null)
+ *
+ * Scheduled (future-dated) changes:
+ * - Stored as PriceHistory rows with effectiveFrom in the future and effectiveTo = null ("pending").
+ * - The active record is the open record with effectiveFrom <= today; pending rows are never closed
+ *   by an assignment.
+ * - {@link #activateScheduledPriceChanges(LocalDate)} closes the records replaced by due pending rows
+ *   in one batched transaction (run at midnight by {@link PriceChangeScheduler}).
+ *
+ * Effective price lookups are served from an in-memory {@link EffectivePriceIndex}
+ * (loaded once from PriceHistory, then kept up to date by the assign methods).
  */
-public class PriceHistoryManagementController {
+public class PriceHistoryManagementController implements PriceHistoryManagement {
 
     private final AccessDb db;
 
+    /** Max parking lot IDs per IN (...) list, keeps the statement within Access limits. */
+    private static final int IN_CHUNK_SIZE = 500;
+
+    private static final String JOINED_HISTORY_SELECT =
+        "SELECT h.ID, h.parkingLotID, h.priceListID, h.effectiveFrom, h.effectiveTo, " +
+        "       pl.[year] AS plYear, pl.firstHourPrice, pl.additionalHourPrice, pl.fullDayPrice " +
+        "FROM PriceHistory h " +
+        "LEFT JOIN PriceList pl ON h.priceListID = pl.ID ";
+
+    private final EffectivePriceIndex priceIndex = new EffectivePriceIndex();
+    private volatile boolean priceIndexLoaded = false;
+
     public PriceHistoryManagementController(AccessDb db) {
         this.db = db;
     }
@@ -43,6 +72,9 @@ public class PriceHistoryManagementController {
             throw new IllegalArgumentException("Invalid parkingLotId.");
         }
 
+        ReadSource source = db.getReadSource();
+        if (source != null) return historyFromSource(source, parkingLotId);
+
         List<PriceHistory> list = new ArrayList<>();
 
         String sql =
@@ -58,15 +90,7 @@ public class PriceHistoryManagementController {
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    list.add(new PriceHistory(
-                        rs.getInt("ID"),
-                        rs.getInt("parkingLotID"),
-                        rs.getInt("priceListID"),
-                        rs.getDate("effectiveFrom").toLocalDate(),
-                        rs.getDate("effectiveTo") == null
-                            ? null
-                            : rs.getDate("effectiveTo").toLocalDate()
-                    ));
+                    list.add(readHistory(rs));
                 }
             }
             return list;
@@ -76,6 +100,103 @@ public class PriceHistoryManagementController {
         }
     }
 
+    /**
+     * Returns FULL history for a parking lot joined with its PriceList values,
+     * newest first, in a single query.
+     */
+    public List<PriceHistoryRow> getHistoryRowsForParkingLot(int parkingLotId) {
+        ensureDb();
+
+        if (parkingLotId <= 0) {
+            throw new IllegalArgumentException("Invalid parkingLotId.");
+        }
+
+        ReadSource source = db.getReadSource();
+        if (source != null) return rowsFromSource(source, parkingLotId, priceListsById(source));
+
+        List<PriceHistoryRow> rows = new ArrayList<>();
+
+        String sql =
+            JOINED_HISTORY_SELECT +
+            "WHERE h.parkingLotID = ? " +
+            "ORDER BY h.effectiveFrom DESC, h.ID DESC";
+
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, parkingLotId);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(readJoinedRow(rs));
+                }
+            }
+            return rows;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load price history: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Same as {@link #getHistoryRowsForParkingLot(int)} for many lots over one connection.
+     * Every requested lot is present in the result (empty list if it has no history).
+     */
+    public Map<Integer, List<PriceHistoryRow>> getHistoryRowsForParkingLots(Collection<Integer> parkingLotIds) {
+        ensureDb();
+
+        if (parkingLotIds == null) {
+            throw new IllegalArgumentException("parkingLotIds is required.");
+        }
+
+        Map<Integer, List<PriceHistoryRow>> byLot = new LinkedHashMap<>();
+        for (Integer id : new LinkedHashSet<>(parkingLotIds)) {
+            if (id == null || id <= 0) throw new IllegalArgumentException("Invalid parkingLotId: " + id);
+            byLot.put(id, new ArrayList<>());
+        }
+        if (byLot.isEmpty()) return byLot;
+
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            Map<Integer, PriceList> priceLists = priceListsById(source);
+            for (Map.Entry<Integer, List<PriceHistoryRow>> e : byLot.entrySet()) {
+                e.getValue().addAll(rowsFromSource(source, e.getKey(), priceLists));
+            }
+            return byLot;
+        }
+
+        List<Integer> ids = new ArrayList<>(byLot.keySet());
+
+        try (Connection conn = db.open()) {
+
+            for (int start = 0; start < ids.size(); start += IN_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(start, Math.min(ids.size(), start + IN_CHUNK_SIZE));
+
+                String sql =
+                    JOINED_HISTORY_SELECT +
+                    "WHERE h.parkingLotID IN (" + placeholders(chunk.size()) + ") " +
+                    "ORDER BY h.parkingLotID, h.effectiveFrom DESC, h.ID DESC";
+
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        ps.setInt(i + 1, chunk.get(i));
+                    }
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            PriceHistoryRow row = readJoinedRow(rs);
+                            byLot.get(row.parkingLotId).add(row);
+                        }
+                    }
+                }
+            }
+            return byLot;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load price history: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * Assigns a new PriceList to a parking lot.
      * Enforces ONE active record rule.
@@ -92,15 +213,16 @@ public class PriceHistoryManagementController {
         try (Connection conn = db.open()) {
             conn.setAutoCommit(false);
 
-            // Close previous active record
+            // Close previous active record (pending future rows stay open)
             String closeSql =
                 "UPDATE PriceHistory " +
                 "SET effectiveTo = ? " +
-                "WHERE parkingLotID = ? AND effectiveTo IS NULL";
+                "WHERE parkingLotID = ? AND effectiveTo IS NULL AND effectiveFrom <= ?";
 
             try (PreparedStatement ps = conn.prepareStatement(closeSql)) {
                 ps.setDate(1, java.sql.Date.valueOf(today));
                 ps.setInt(2, parkingLotId);
+                ps.setDate(3, java.sql.Date.valueOf(today));
                 ps.executeUpdate();
             }
 
@@ -121,5 +243,536 @@ public class PriceHistoryManagementController {
         } catch (SQLException e) {
             throw new RuntimeException("Failed to assign price list: " + e.getMessage(), e);
         }
+
+        // also before the first load: a load running now applies it after its swap
+        priceIndex.recordAssignment(parkingLotId, priceListId, today);
+    }
+
+    // =========================
+    // Scheduled (future-dated) changes
+    // =========================
+
+    /**
+     * Stores a pending PriceHistory row that becomes effective on {@code effectiveFrom}.
+     * A date of today is a normal immediate assignment. A pending row already scheduled
+     * for the same lot and date is replaced.
+     */
+    public void schedulePriceListChange(int parkingLotId, int priceListId, LocalDate effectiveFrom) {
+        ensureDb();
+
+        if (parkingLotId <= 0 || priceListId <= 0) {
+            throw new IllegalArgumentException("Invalid IDs.");
+        }
+        if (effectiveFrom == null) {
+            throw new IllegalArgumentException("Effective date is required.");
+        }
+
+        LocalDate today = LocalDate.now();
+        if (effectiveFrom.isBefore(today)) {
+            throw new IllegalArgumentException("Effective date cannot be in the past.");
+        }
+        if (effectiveFrom.equals(today)) {
+            assignPriceListToParkingLot(parkingLotId, priceListId);
+            return;
+        }
+
+        try (Connection conn = db.open()) {
+            conn.setAutoCommit(false);
+
+            String deleteSql =
+                "DELETE FROM PriceHistory " +
+                "WHERE parkingLotID = ? AND effectiveTo IS NULL AND effectiveFrom = ?";
+
+            try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
+                ps.setInt(1, parkingLotId);
+                ps.setDate(2, java.sql.Date.valueOf(effectiveFrom));
+                ps.executeUpdate();
+            }
+
+            String insertSql =
+                "INSERT INTO PriceHistory (parkingLotID, priceListID, effectiveFrom, effectiveTo) " +
+                "VALUES (?, ?, ?, NULL)";
+
+            try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                ps.setInt(1, parkingLotId);
+                ps.setInt(2, priceListId);
+                ps.setDate(3, java.sql.Date.valueOf(effectiveFrom));
+                ps.executeUpdate();
+            }
+
+            conn.commit();
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to schedule price list: " + e.getMessage(), e);
+        }
+
+        // the index answers for future dates straight away, no activation needed for lookups
+        priceIndex.recordScheduled(parkingLotId, priceListId, effectiveFrom);
+    }
+
+    /**
+     * Pending (not yet effective) rows of a parking lot, earliest first.
+     */
+    public List<PriceHistory> getScheduledPriceChanges(int parkingLotId) {
+        ensureDb();
+
+        if (parkingLotId <= 0) {
+            throw new IllegalArgumentException("Invalid parkingLotId.");
+        }
+
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            LocalDate today = LocalDate.now();
+            List<PriceHistory> pending = new ArrayList<>();
+            for (PriceHistory h : source.getPriceHistoryForParkingLot(parkingLotId)) {
+                if (h.getEffectiveTo() == null && h.getEffectiveFrom() != null && h.getEffectiveFrom().isAfter(today)) {
+                    pending.add(h);
+                }
+            }
+            pending.sort(Comparator.comparing(PriceHistory::getEffectiveFrom));
+            return pending;
+        }
+
+        List<PriceHistory> list = new ArrayList<>();
+
+        String sql =
+            "SELECT ID, parkingLotID, priceListID, effectiveFrom, effectiveTo " +
+            "FROM PriceHistory " +
+            "WHERE parkingLotID = ? AND effectiveTo IS NULL AND effectiveFrom > ? " +
+            "ORDER BY effectiveFrom ASC";
+
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, parkingLotId);
+            ps.setDate(2, java.sql.Date.valueOf(LocalDate.now()));
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) list.add(readHistory(rs));
+            }
+            return list;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load scheduled price lists: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Activates every pending row that is due on {@code boundary}, for all lots, in ONE pass:
+     * one SELECT of the open rows, then one batched UPDATE that closes each replaced record
+     * (effectiveTo = effectiveFrom of the row that replaces it), in one transaction.
+     *
+     * @return number of parking lots whose tariff changed
+     */
+    public int activateScheduledPriceChanges(LocalDate boundary) {
+        ensureDb();
+
+        if (boundary == null) throw new IllegalArgumentException("Boundary date is required.");
+
+        String selectSql =
+            "SELECT ID, parkingLotID, effectiveFrom " +
+            "FROM PriceHistory " +
+            "WHERE effectiveTo IS NULL AND effectiveFrom <= ? " +
+            "ORDER BY parkingLotID, effectiveFrom, ID";
+
+        String closeSql = "UPDATE PriceHistory SET effectiveTo = ? WHERE ID = ?";
+
+        try (Connection conn = db.open()) {
+            conn.setAutoCommit(false);
+
+            try {
+                int lotsChanged = 0;
+
+                try (PreparedStatement select = conn.prepareStatement(selectSql);
+                     PreparedStatement close = conn.prepareStatement(closeSql)) {
+
+                    select.setDate(1, java.sql.Date.valueOf(boundary));
+
+                    int prevLot = -1;
+                    int prevId = -1;
+                    boolean lotChanged = false;
+                    int batched = 0;
+
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            int id = rs.getInt("ID");
+                            int lot = rs.getInt("parkingLotID");
+                            java.sql.Date from = rs.getDate("effectiveFrom");
+
+                            if (lot == prevLot) {
+                                // a newer open row of the same lot replaces the previous one
+                                close.setDate(1, from);
+                                close.setInt(2, prevId);
+                                close.addBatch();
+                                batched++;
+                                lotChanged = true;
+                            } else {
+                                if (lotChanged) lotsChanged++;
+                                lotChanged = false;
+                            }
+                            prevLot = lot;
+                            prevId = id;
+                        }
+                    }
+                    if (lotChanged) lotsChanged++;
+
+                    // HSQLDB (behind UCanAccess) rejects an empty batch
+                    if (batched > 0) close.executeBatch();
+                }
+
+                conn.commit();
+                return lotsChanged;
+
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to activate scheduled price lists: " + e.getMessage(), e);
+        }
+    }
+
+    // =========================
+    // Bulk assignment
+    // =========================
+
+    /**
+     * Assigns a PriceList to many parking lots in ONE transaction:
+     * all closes and inserts are sent as batched statements.
+     * Lots whose active record already points to this PriceList are left unchanged.
+     */
+    public BulkAssignmentResult assignPriceListToParkingLots(Collection<Integer> parkingLotIds, int priceListId) {
+        ensureDb();
+
+        if (parkingLotIds == null) throw new IllegalArgumentException("parkingLotIds is required.");
+        if (priceListId <= 0) throw new IllegalArgumentException("Invalid IDs.");
+
+        LinkedHashSet<Integer> lots = new LinkedHashSet<>();
+        for (Integer id : parkingLotIds) {
+            if (id == null || id <= 0) throw new IllegalArgumentException("Invalid parkingLotId: " + id);
+            lots.add(id);
+        }
+
+        long start = System.nanoTime();
+        try (Connection conn = db.open()) {
+            conn.setAutoCommit(false);
+            try {
+                LocalDate today = LocalDate.now();
+                List<Integer> changed = bulkAssign(conn, new ArrayList<>(lots), priceListId, today);
+                conn.commit();
+                recordAssignments(changed, priceListId, today);
+                return new BulkAssignmentResult(lots.size(), changed.size(), elapsedMillisSince(start));
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to assign price list: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Assigns a PriceList to every ACTIVE parking lot of a city (one transaction).
+     */
+    public BulkAssignmentResult assignPriceListToCity(int cityId, int priceListId) {
+        if (cityId <= 0) throw new IllegalArgumentException("Invalid cityId.");
+        return assignPriceListToActiveLots("WHERE [cityID]=? AND [isActive]=True", cityId, priceListId);
+    }
+
+    /**
+     * Assigns a PriceList to every ACTIVE parking lot (one transaction).
+     */
+    public BulkAssignmentResult assignPriceListToAllParkingLots(int priceListId) {
+        return assignPriceListToActiveLots("WHERE [isActive]=True", null, priceListId);
+    }
+
+    private BulkAssignmentResult assignPriceListToActiveLots(String where, Integer param, int priceListId) {
+        ensureDb();
+
+        if (priceListId <= 0) throw new IllegalArgumentException("Invalid IDs.");
+
+        long start = System.nanoTime();
+        try (Connection conn = db.open()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> lots = new ArrayList<>();
+                try (PreparedStatement ps = conn.prepareStatement("SELECT [ID] FROM ParkingLot " + where)) {
+                    if (param != null) ps.setInt(1, param);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) lots.add(rs.getInt(1));
+                    }
+                }
+
+                LocalDate today = LocalDate.now();
+                List<Integer> changed = bulkAssign(conn, lots, priceListId, today);
+                conn.commit();
+                recordAssignments(changed, priceListId, today);
+                return new BulkAssignmentResult(lots.size(), changed.size(), elapsedMillisSince(start));
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to assign price list: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Close + insert for every lot that is not already on the PriceList.
+     * Runs inside the caller's transaction (caller commits, then updates the index).
+     *
+     * @return lots that changed
+     */
+    private List<Integer> bulkAssign(Connection conn, List<Integer> lots, int priceListId, LocalDate day)
+            throws SQLException {
+        if (lots.isEmpty()) return lots;
+
+        Map<Integer, Boolean> alreadyAssigned = readActiveAssignments(conn, lots, priceListId, day);
+
+        List<Integer> toChange = new ArrayList<>(lots.size());
+        for (Integer lot : lots) {
+            if (!Boolean.TRUE.equals(alreadyAssigned.get(lot))) toChange.add(lot);
+        }
+        if (toChange.isEmpty()) return toChange;
+
+        java.sql.Date date = java.sql.Date.valueOf(day);
+
+        String closeSql =
+            "UPDATE PriceHistory " +
+            "SET effectiveTo = ? " +
+            "WHERE parkingLotID = ? AND effectiveTo IS NULL AND effectiveFrom <= ?";
+
+        try (PreparedStatement ps = conn.prepareStatement(closeSql)) {
+            for (Integer lot : toChange) {
+                ps.setDate(1, date);
+                ps.setInt(2, lot);
+                ps.setDate(3, date);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        String insertSql =
+            "INSERT INTO PriceHistory (parkingLotID, priceListID, effectiveFrom, effectiveTo) " +
+            "VALUES (?, ?, ?, NULL)";
+
+        try (PreparedStatement ps = conn.prepareStatement(insertSql)) {
+            for (Integer lot : toChange) {
+                ps.setInt(1, lot);
+                ps.setInt(2, priceListId);
+                ps.setDate(3, date);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+
+        return toChange;
+    }
+
+    private void recordAssignments(List<Integer> lots, int priceListId, LocalDate day) {
+        for (Integer lot : lots) priceIndex.recordAssignment(lot, priceListId, day);
+    }
+
+    /**
+     * lot -> true when the lot has exactly one active record and it points to priceListId.
+     */
+    private Map<Integer, Boolean> readActiveAssignments(Connection conn, List<Integer> lots, int priceListId,
+                                                        LocalDate day) throws SQLException {
+        Map<Integer, Boolean> result = new HashMap<>();
+
+        for (int start = 0; start < lots.size(); start += IN_CHUNK_SIZE) {
+            List<Integer> chunk = lots.subList(start, Math.min(lots.size(), start + IN_CHUNK_SIZE));
+
+            String sql =
+                "SELECT parkingLotID, priceListID FROM PriceHistory " +
+                "WHERE effectiveTo IS NULL AND effectiveFrom <= ? " +
+                "AND parkingLotID IN (" + placeholders(chunk.size()) + ")";
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setDate(1, java.sql.Date.valueOf(day));
+                for (int i = 0; i < chunk.size(); i++) ps.setInt(i + 2, chunk.get(i));
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        int lot = rs.getInt("parkingLotID");
+                        boolean same = rs.getInt("priceListID") == priceListId;
+                        // a second active record always forces a clean re-assignment
+                        result.merge(lot, same, (a, b) -> false);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static long elapsedMillisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000L;
+    }
+
+    // =========================
+    // Effective price lookups
+    // =========================
+
+    /**
+     * Returns the PriceList ID effective for the parking lot on the given date,
+     * or null if no price list applies.
+     */
+    public Integer getEffectivePriceListId(int parkingLotId, LocalDate date) {
+        if (date == null) throw new IllegalArgumentException("Date is required.");
+        ensurePriceIndexLoaded();
+        return priceIndex.getPriceListIdAsOf(parkingLotId, date);
+    }
+
+    /**
+     * Bulk version of {@link #getEffectivePriceListId(int, LocalDate)}.
+     * result[i] belongs to parkingLotIds[i]; {@link EffectivePriceIndex#NONE} means no price list.
+     */
+    public int[] getEffectivePriceListIds(int[] parkingLotIds, LocalDate date) {
+        if (parkingLotIds == null) throw new IllegalArgumentException("parkingLotIds is required.");
+        if (date == null) throw new IllegalArgumentException("Date is required.");
+        ensurePriceIndexLoaded();
+        return priceIndex.getPriceListIdsAsOf(parkingLotIds, date);
+    }
+
+    /**
+     * Bulk read of the whole PriceHistory table (reporting, price index).
+     * Uses the direct Jackcess reader when it is enabled on the AccessDb, else one JDBC scan.
+     */
+    public List<PriceHistory> getAllPriceHistory() {
+        ensureDb();
+
+        ReadSource source = db.getReadSource();
+        if (source != null) return source.getPriceHistory();
+
+        JackcessReader reader = db.getJackcessReader();
+        if (reader != null) return reader.readAllPriceHistory();
+
+        List<PriceHistory> all = new ArrayList<>();
+
+        String sql =
+            "SELECT ID, parkingLotID, priceListID, effectiveFrom, effectiveTo " +
+            "FROM PriceHistory";
+
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                all.add(readHistory(rs));
+            }
+            return all;
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load price history: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Re-reads the whole PriceHistory table into the effective price index.
+     * Assignments committed while the table is read are applied again after the swap.
+     */
+    public void reloadPriceIndex() {
+        synchronized (priceIndex) {
+            priceIndex.beginReload();
+            List<PriceHistory> all;
+            try {
+                all = getAllPriceHistory();
+            } catch (RuntimeException e) {
+                priceIndex.cancelReload();
+                throw e;
+            }
+            priceIndex.rebuild(all);
+            priceIndexLoaded = true;
+        }
+    }
+
+    private void ensurePriceIndexLoaded() {
+        if (priceIndexLoaded) return;
+        synchronized (priceIndex) {
+            if (!priceIndexLoaded) reloadPriceIndex();
+        }
+    }
+
+    /** One lot's history from a ReadSource, newest first (effectiveFrom DESC, ID DESC). */
+    private static List<PriceHistory> historyFromSource(ReadSource source, int parkingLotId) {
+        List<PriceHistory> list = source.getPriceHistoryForParkingLot(parkingLotId);
+        list.sort(Comparator.comparing(PriceHistory::getEffectiveFrom, Comparator.nullsFirst(Comparator.<LocalDate>naturalOrder()))
+                .thenComparingInt(PriceHistory::getId)
+                .reversed());
+        return list;
+    }
+
+    private static Map<Integer, PriceList> priceListsById(ReadSource source) {
+        Map<Integer, PriceList> byId = new HashMap<>();
+        for (PriceList p : source.getPriceLists()) byId.put(p.getId(), p);
+        return byId;
+    }
+
+    /** Same rows as JOINED_HISTORY_SELECT for one lot, built from a ReadSource. */
+    private static List<PriceHistoryRow> rowsFromSource(ReadSource source, int parkingLotId,
+                                                        Map<Integer, PriceList> priceLists) {
+        List<PriceHistoryRow> rows = new ArrayList<>();
+        for (PriceHistory h : historyFromSource(source, parkingLotId)) {
+            PriceList pl = priceLists.get(h.getPriceListId());
+            LocalDate from = h.getEffectiveFrom();
+
+            rows.add(new PriceHistoryRow(
+                h.getId(),
+                h.getParkingLotId(),
+                from,
+                h.getEffectiveTo(),
+                h.getPriceListId(),
+                pl != null ? pl.getYear() : (from != null ? from.getYear() : 0),
+                pl != null ? pl.getFirstHourPrice() : 0,
+                pl != null ? pl.getAdditionalHourPrice() : 0,
+                pl != null ? pl.getFullDayPrice() : 0
+            ));
+        }
+        return rows;
+    }
+
+    private PriceHistoryRow readJoinedRow(ResultSet rs) throws SQLException {
+        java.sql.Date from = rs.getDate("effectiveFrom");
+        java.sql.Date to = rs.getDate("effectiveTo");
+        LocalDate fromDate = from == null ? null : from.toLocalDate();
+
+        // LEFT JOIN: a missing PriceList keeps zeros (same as the old per-row fallback)
+        int year = rs.getInt("plYear");
+        boolean hasPriceList = !rs.wasNull();
+        if (!hasPriceList) year = fromDate != null ? fromDate.getYear() : 0;
+
+        return new PriceHistoryRow(
+            rs.getInt("ID"),
+            rs.getInt("parkingLotID"),
+            fromDate,
+            to == null ? null : to.toLocalDate(),
+            rs.getInt("priceListID"),
+            year,
+            hasPriceList ? rs.getDouble("firstHourPrice") : 0,
+            hasPriceList ? rs.getDouble("additionalHourPrice") : 0,
+            hasPriceList ? rs.getDouble("fullDayPrice") : 0
+        );
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+
+    private PriceHistory readHistory(ResultSet rs) throws SQLException {
+        java.sql.Date from = rs.getDate("effectiveFrom");
+        java.sql.Date to = rs.getDate("effectiveTo");
+        return new PriceHistory(
+            rs.getInt("ID"),
+            rs.getInt("parkingLotID"),
+            rs.getInt("priceListID"),
+            from == null ? null : from.toLocalDate(),
+            to == null ? null : to.toLocalDate()
+        );
     }
 }
\ No newline at end of file
@@ -7,9 +7,13 @@ import entity.PriceList;
 /**
  * UI-friendly row for PriceHistory joined with PriceList values.
  * (Does not change entity classes.)
+ *
+ * Rows are normally produced in bulk by
+ * {@link PriceHistoryManagementController#getHistoryRowsForParkingLot(int)} (single SQL JOIN).
  */
 public class PriceHistoryRow {
     public final int historyId;
+    public final int parkingLotId;
     public final LocalDate from;
     public final LocalDate to;
     public final int priceListId;
@@ -18,9 +22,10 @@ public class PriceHistoryRow {
     public final double additionalHour;
     public final double fullDay;
 
-    public PriceHistoryRow(int historyId, LocalDate from, LocalDate to, int priceListId, int year, double firstHour,
-            double additionalHour, double fullDay) {
+    public PriceHistoryRow(int historyId, int parkingLotId, LocalDate from, LocalDate to, int priceListId, int year,
+            double firstHour, double additionalHour, double fullDay) {
         this.historyId = historyId;
+        this.parkingLotId = parkingLotId;
         this.from = from;
         this.to = to;
         this.priceListId = priceListId;
@@ -30,6 +35,10 @@ public class PriceHistoryRow {
         this.fullDay = fullDay;
     }
 
+    /**
+     * Builds a single row from an already loaded history record.
+     * Prefer the controller's joined queries when loading a whole history.
+     */
     public static PriceHistoryRow fromHistoryRow(int historyId,
                                                  int parkingLotId,
                                                  int priceListId,
@@ -43,19 +52,16 @@ public class PriceHistoryRow {
         double fullDay = 0;
 
         if (priceListController != null) {
-            try {
-                PriceList p = priceListController.getById(priceListId);
-                if (p != null) {
-                    year = p.getYear();
-                    firstHour = p.getFirstHourPrice();
-                    additionalHour = p.getAdditionalHourPrice();
-                    fullDay = p.getFullDayPrice();
-                }
-            } catch (Exception ignore) {
-                // keep zeros; UI should still render history row
+            // missing PriceList keeps zeros; lookup failures propagate to the caller
+            PriceList p = priceListController.getById(priceListId);
+            if (p != null) {
+                year = p.getYear();
+                firstHour = p.getFirstHourPrice();
+                additionalHour = p.getAdditionalHourPrice();
+                fullDay = p.getFullDayPrice();
             }
         }
 
-        return new PriceHistoryRow(historyId, from, to, priceListId, year, firstHour, additionalHour, fullDay);
+        return new PriceHistoryRow(historyId, parkingLotId, from, to, priceListId, year, firstHour, additionalHour, fullDay);
     }
 }
@@ -0,0 +1,188 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import entity.PriceList;
+
+/**
+ * PriceListImportPreview
+ * ----------------------
+ * What a price list import would change, before anything is written
+ * (PriceListManagementController.previewImportFromJson / applyImport).
+ *
+ * - one pass over the import, each price list looked up by (year, priceListId) among the rows earlier
+ *   imports wrote (PriceList.feedId, hash join): ADDED (no such row), CHANGED (with the fields that
+ *   differ), UNCHANGED
+ * - the feed numbers its price lists per year (a new year starts at 1 again), so the priceListId alone
+ *   never selects a row: a price list with no row of its own is always added, never written over another
+ * - a priceListId listed twice counts once, with its last values (as the import writes it)
+ *
+ * Entries are in import order; the object is plain data (sent as JSON in --remote mode).
+ */
+public final class PriceListImportPreview {
+
+    public enum Kind { ADDED, CHANGED, UNCHANGED }
+
+    /** One field of a price list that the import changes. */
+    public static final class FieldDelta {
+        private final String field;
+        private final double before;
+        private final double after;
+
+        FieldDelta(String field, double before, double after) {
+            this.field = field;
+            this.before = before;
+            this.after = after;
+        }
+
+        public String getField() { return field; }
+
+        public double getBefore() { return before; }
+
+        public double getAfter() { return after; }
+
+        public double getDelta() { return after - before; }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s -> %s (%+.2f)", field, format(before), format(after), getDelta());
+        }
+
+        private static String format(double value) {
+            return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+        }
+    }
+
+    /** One price list of the import and the row it is written to. */
+    public static final class Entry {
+        private final Kind kind;
+        private final int jsonId;
+        private final PriceList imported;     // ID of the row; 0 when ADDED (AutoNumber on apply)
+        private final PriceList current;      // null when ADDED
+        private final List<FieldDelta> deltas;
+
+        Entry(Kind kind, int jsonId, PriceList imported, PriceList current, List<FieldDelta> deltas) {
+            this.kind = kind;
+            this.jsonId = jsonId;
+            this.imported = imported;
+            this.current = current;
+            this.deltas = deltas;
+        }
+
+        public Kind getKind() { return kind; }
+
+        public int getJsonId() { return jsonId; }
+
+        public PriceList getImported() { return imported; }
+
+        public PriceList getCurrent() { return current; }
+
+        public List<FieldDelta> getDeltas() { return Collections.unmodifiableList(deltas); }
+
+        @Override
+        public String toString() {
+            String row = kind == Kind.ADDED ? "new row" : "ID " + imported.getId();
+            String what = kind == Kind.ADDED
+                    ? imported.getYear() + ": " + FieldDelta.format(imported.getFirstHourPrice()) + " / "
+                            + FieldDelta.format(imported.getAdditionalHourPrice()) + " / "
+                            + FieldDelta.format(imported.getFullDayPrice())
+                    : deltas.toString();
+            return kind + " priceListId " + jsonId + " (" + row + ") " + what;
+        }
+    }
+
+    private final List<Entry> entries;
+
+    private PriceListImportPreview(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Joins the price lists of an import with the rows of earlier imports.
+     * @param imported price lists of the file, with their priceListId as ID
+     * @param fed rows that have a feedId, by feedKey(year, feedId)
+     */
+    static PriceListImportPreview diff(Collection<PriceList> imported, Map<Long, PriceList> fed) {
+        Map<Long, PriceList> byFeedKey = new LinkedHashMap<>();
+        for (PriceList p : imported) byFeedKey.put(feedKey(p.getYear(), p.getId()), p);
+
+        List<Entry> entries = new ArrayList<>(byFeedKey.size());
+        for (Map.Entry<Long, PriceList> in : byFeedKey.entrySet()) {
+            PriceList p = in.getValue();
+            PriceList current = fed.get(in.getKey());
+
+            if (current == null) {
+                PriceList row = new PriceList(0, p.getYear(), p.getFirstHourPrice(), p.getAdditionalHourPrice(), p.getFullDayPrice());
+                entries.add(new Entry(Kind.ADDED, p.getId(), row, null, new ArrayList<>()));
+                continue;
+            }
+
+            List<FieldDelta> deltas = new ArrayList<>(3);
+            compare(deltas, "firstHourPrice", current.getFirstHourPrice(), p.getFirstHourPrice());
+            compare(deltas, "additionalHourPrice", current.getAdditionalHourPrice(), p.getAdditionalHourPrice());
+            compare(deltas, "fullDayPrice", current.getFullDayPrice(), p.getFullDayPrice());
+
+            PriceList row = new PriceList(current.getId(), p.getYear(), p.getFirstHourPrice(), p.getAdditionalHourPrice(), p.getFullDayPrice());
+            entries.add(new Entry(deltas.isEmpty() ? Kind.UNCHANGED : Kind.CHANGED, p.getId(), row, current, deltas));
+        }
+        return new PriceListImportPreview(entries);
+    }
+
+    /** (year, priceListId of the feed) as one map key. */
+    static long feedKey(int year, int feedId) {
+        return ((long) year << 32) | (feedId & 0xFFFFFFFFL);
+    }
+
+    private static void compare(List<FieldDelta> deltas, String field, double before, double after) {
+        if (Double.compare(before, after) != 0) deltas.add(new FieldDelta(field, before, after));
+    }
+
+    /** The price lists of the import (priceListId as ID), e.g. to diff them again later. */
+    List<PriceList> importedRows() {
+        List<PriceList> rows = new ArrayList<>(entries.size());
+        for (Entry e : entries) {
+            PriceList p = e.getImported();
+            rows.add(new PriceList(e.getJsonId(), p.getYear(), p.getFirstHourPrice(), p.getAdditionalHourPrice(), p.getFullDayPrice()));
+        }
+        return rows;
+    }
+
+    /** All entries, in import order. */
+    public List<Entry> getEntries() { return Collections.unmodifiableList(entries); }
+
+    public List<Entry> getAdded() { return ofKind(Kind.ADDED); }
+
+    public List<Entry> getChanged() { return ofKind(Kind.CHANGED); }
+
+    public List<Entry> getUnchanged() { return ofKind(Kind.UNCHANGED); }
+
+    /** Rows applying the import writes (added + changed). */
+    public int getWriteCount() {
+        return entries.size() - getUnchanged().size();
+    }
+
+    private List<Entry> ofKind(Kind kind) {
+        List<Entry> out = new ArrayList<>();
+        for (Entry e : entries) {
+            if (e.getKind() == kind) out.add(e);
+        }
+        return out;
+    }
+
+    /** "n added, n changed, n unchanged", then one line per added / changed price list. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(getAdded().size()).append(" added, ").append(getChanged().size()).append(" changed, ")
+                .append(getUnchanged().size()).append(" unchanged");
+        for (Entry e : entries) {
+            if (e.getKind() != Kind.UNCHANGED) sb.append('\n').append(e);
+        }
+        return sb.toString();
+    }
+}
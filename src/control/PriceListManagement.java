@@ -0,0 +1,44 @@
+package control;
+
+import java.util.Collection;
+import java.util.List;
+
+import entity.PriceList;
+
+/**
+ * PriceListManagement
+ * -------------------
+ * Price list cache and JSON import; implemented by PriceListManagementController
+ * and its subclasses.
+ */
+public interface PriceListManagement {
+
+    void importPriceListsFromJson(String filePath) throws Exception;
+
+    PriceListImportPreview previewImportFromJson(String filePath) throws Exception;
+
+    /** importPriceListsFromJson for the content of the file instead of its path. */
+    void importPriceLists(String json);
+
+    PriceListImportPreview previewImport(String json);
+
+    PriceListImportPreview applyImport(PriceListImportPreview preview);
+
+    void importPriceListsFromDefaultJson();
+
+    PriceListImportPreview previewImportFromDefaultJson();
+
+    Collection<PriceList> getAllPriceLists();
+
+    List<PriceList> getPriceListsForYear(int year);
+
+    PriceList getById(int dbId);
+
+    void reload();
+
+    PriceListSnapshot getSnapshot();
+
+    long getCurrentVersion();
+
+    Integer getDbIdForJsonPriceListId(int jsonPriceListId);
+}
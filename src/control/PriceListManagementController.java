@@ -1,15 +1,23 @@
 package control;
 
 import java.io.FileReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.sql.*;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
 
 import entity.PriceList;
 
@@ -20,16 +28,30 @@ import entity.PriceList;
  *
  * Access table: PriceList
  * Columns (per your DB):
- *   [ID] (AutoNumber), [year], [firstHourPrice], [additionalHourPrice], [fullDayPrice]
+ *   [ID] (AutoNumber), [year], [firstHourPrice], [additionalHourPrice], [fullDayPrice],
+ *   [feedId] (the JSON "priceListId" of the import that inserted the row; schema 7)
  *
  * IMPORTANT:
  * - Since ID is AutoNumber, we do NOT insert it.
- * - If JSON contains "priceListId" we keep a mapping jsonId -> dbId (in-memory).
+ * - An import updates only the row with the same (year, feedId); every other price list is inserted
+ *   as a new row, so rows that closed price history points to keep their prices.
+ * - An import is diffed against the table first (PriceListImportPreview): unchanged rows are not
+ *   written again; previewImportFromJson shows the diff without writing (or touching the cache).
+ * - The last jsonId -> dbId of this process is kept in memory (getDbIdForJsonPriceListId).
+ *
+ * Cache:
+ * - The in-memory cache is an immutable, versioned {@link PriceListSnapshot}.
+ * - Writers (import / reload / cache miss) build the next snapshot off to the side and
+ *   publish it with one atomic swap; readers never lock and never see a half-applied import.
+ * - The version changes only when the content does (a reload of an unchanged table keeps it).
  */
-public class PriceListManagementController {
+public class PriceListManagementController implements PriceListManagement {
+
+    private final AtomicReference<PriceListSnapshot> snapshot = new AtomicReference<>(PriceListSnapshot.EMPTY);
+    private final AtomicLong versionSeq = new AtomicLong();
+    private final Object writeLock = new Object();
 
-    private final Map<Integer, PriceList> priceListsByDbId = new HashMap<>();
-    private final Map<Integer, Integer> jsonIdToDbId = new HashMap<>();
+    private final Map<Integer, Integer> jsonIdToDbId = new ConcurrentHashMap<>();
     private final AccessDb db;
 
     public PriceListManagementController(AccessDb db) {
@@ -44,58 +66,248 @@ public class PriceListManagementController {
      * Imports price lists from JSON and persists them in Access.
      * JSON schema:
      * { "year": 2025, "priceLists":[{"priceListId":1,"firstHourPrice":..,"additionalHourPrice":..,"fullDayPrice":..}, ...] }
+     *
+     * Same as applyImport(previewImportFromJson(filePath)): only new and changed rows are written.
      */
     public void importPriceListsFromJson(String filePath) throws Exception {
+        applyImport(previewImportFromJson(filePath));
+    }
+
+    /** Same as importPriceListsFromJson, for the content of such a file (the HTTP API sends it as the body). */
+    public void importPriceLists(String json) {
+        applyImport(previewImport(json));
+    }
+
+    /**
+     * What importing the file would change (see PriceListImportPreview); nothing is written.
+     */
+    public PriceListImportPreview previewImportFromJson(String filePath) throws Exception {
         ensureDb();
+        try (FileReader reader = new FileReader(filePath)) {
+            return preview(readImport(reader));
+        }
+    }
 
-        Gson gson = new Gson();
-        JsonObject root = gson.fromJson(new FileReader(filePath), JsonObject.class);
+    /** Same as previewImportFromJson, for the content of such a file. */
+    public PriceListImportPreview previewImport(String json) {
+        ensureDb();
+        if (json == null || json.isBlank()) throw new IllegalArgumentException("Price list JSON is required.");
 
-        int year = root.get("year").getAsInt();
-        JsonArray lists = root.getAsJsonArray("priceLists");
+        List<PriceList> imported;
+        try {
+            imported = readImport(new StringReader(json));
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException | NullPointerException e) {
+            throw new IllegalArgumentException("Invalid price list JSON: " + e.getMessage(), e);
+        }
+        return preview(imported);
+    }
 
-        for (JsonElement element : lists) {
-            JsonObject obj = element.getAsJsonObject();
+    private PriceListImportPreview preview(List<PriceList> imported) {
+        try {
+            // joined with the table as it is now; the snapshot is left as it is
+            return PriceListImportPreview.diff(imported, loadFedRows());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load price lists: " + e.getMessage(), e);
+        }
+    }
 
-            int jsonId = obj.get("priceListId").getAsInt();
-            double firstHour = obj.get("firstHourPrice").getAsDouble();
-            double additionalHour = obj.get("additionalHourPrice").getAsDouble();
-            double fullDay = obj.get("fullDayPrice").getAsDouble();
+    /**
+     * Writes the added and changed price lists of a preview: inserts, then the updates as one JDBC batch,
+     * all in one transaction; the cache is swapped only after commit.
+     * The import is diffed again against the table first, so rows changed since the preview are
+     * not overwritten with the values they already have.
+     * @return what was applied
+     */
+    public PriceListImportPreview applyImport(PriceListImportPreview preview) {
+        ensureDb();
+        if (preview == null) throw new IllegalArgumentException("preview is required.");
 
-            Integer existingDbId = jsonIdToDbId.get(jsonId);
+        try {
+            synchronized (writeLock) {
+                PriceListImportPreview current = PriceListImportPreview.diff(preview.importedRows(), loadFedRows());
+                Map<Integer, Integer> mappings = new HashMap<>();
+                for (PriceListImportPreview.Entry e : current.getEntries()) {
+                    if (e.getKind() != PriceListImportPreview.Kind.ADDED) mappings.put(e.getJsonId(), e.getImported().getId());
+                }
+                if (current.getWriteCount() == 0) {
+                    jsonIdToDbId.putAll(mappings);
+                    return current;
+                }
+
+                List<PriceList> written = new ArrayList<>(current.getWriteCount());
+
+                try (Connection conn = db.open()) {
+                    conn.setAutoCommit(false);
+
+                    // the ID of a CHANGED row is the one found by (year, feedId), never the feed's priceListId
+                    try (PreparedStatement update = conn.prepareStatement(
+                            "UPDATE PriceList SET [firstHourPrice]=?, [additionalHourPrice]=?, [fullDayPrice]=? WHERE [ID]=? AND [year]=? AND [feedId]=?")) {
+
+                        for (PriceListImportPreview.Entry e : current.getEntries()) {
+                            PriceList p = e.getImported();
+                            if (e.getKind() == PriceListImportPreview.Kind.ADDED) {
+                                int dbId = insertDbRow(conn, p.getYear(), p.getFirstHourPrice(),
+                                        p.getAdditionalHourPrice(), p.getFullDayPrice(), e.getJsonId());
+                                mappings.put(e.getJsonId(), dbId);
+                                written.add(new PriceList(dbId, p.getYear(), p.getFirstHourPrice(),
+                                        p.getAdditionalHourPrice(), p.getFullDayPrice()));
+
+                            } else if (e.getKind() == PriceListImportPreview.Kind.CHANGED) {
+                                update.setDouble(1, p.getFirstHourPrice());
+                                update.setDouble(2, p.getAdditionalHourPrice());
+                                update.setDouble(3, p.getFullDayPrice());
+                                update.setInt(4, p.getId());
+                                update.setInt(5, p.getYear());
+                                update.setInt(6, e.getJsonId());
+                                update.addBatch();
+                                written.add(p);
+                            }
+                        }
+                        if (!current.getChanged().isEmpty()) update.executeBatch();
+
+                        conn.commit();
+
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback();
+                        throw e;
+                    }
+                }
+
+                jsonIdToDbId.putAll(mappings);
+                PriceListSnapshot.Builder next = loadAllFromDb();
+                for (PriceList p : written) next.put(p);
+                publish(next);
+                return current;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to import price lists: " + e.getMessage(), e);
+        }
+    }
 
-            if (existingDbId != null) {
-                updateDbRow(existingDbId, year, firstHour, additionalHour, fullDay);
-                upsertInMemory(existingDbId, year, firstHour, additionalHour, fullDay);
-            } else {
-                int newDbId = insertDbRow(year, firstHour, additionalHour, fullDay);
-                jsonIdToDbId.put(jsonId, newDbId);
-                upsertInMemory(newDbId, year, firstHour, additionalHour, fullDay);
+    /**
+     * Makes the table hold these price lists with these IDs (ShardedPriceListManagementController copies
+     * the primary shard's table with it): missing rows are inserted with their ID, rows that differ are
+     * updated, in one transaction. A row that is not in the given ones is an error and nothing is written.
+     * @return rows written
+     */
+    int replicate(Collection<PriceList> rows) {
+        ensureDb();
+        try {
+            synchronized (writeLock) {
+                publish(loadAllFromDb());
+                PriceListSnapshot current = snapshot.get();
+
+                Map<Integer, PriceList> wanted = new HashMap<>();
+                for (PriceList p : rows) wanted.put(p.getId(), p);
+                for (PriceList p : current.getAll()) {
+                    if (!wanted.containsKey(p.getId())) {
+                        throw new IllegalStateException("PriceList " + p.getId() + " exists only in " + db.getAccdbPath());
+                    }
+                }
+
+                List<PriceList> inserts = new ArrayList<>();
+                List<PriceList> updates = new ArrayList<>();
+                for (PriceList p : wanted.values()) {
+                    PriceList have = current.getById(p.getId());
+                    if (have == null) inserts.add(p);
+                    else if (!PriceListSnapshot.sameValues(have, p)) updates.add(p);
+                }
+                if (inserts.isEmpty() && updates.isEmpty()) return 0;
+
+                PriceListSnapshot.Builder next = current.toBuilder();
+                try (Connection conn = db.open();
+                     Statement ddl = conn.createStatement()) {
+
+                    // UCanAccess keeps a given AutoNumber value only while auto increment is off (autocommit DDL)
+                    if (!inserts.isEmpty()) ddl.execute("DISABLE AUTOINCREMENT ON PriceList");
+                    try {
+                        conn.setAutoCommit(false);
+                        try (PreparedStatement insert = conn.prepareStatement(
+                                "INSERT INTO PriceList ([ID],[year],[firstHourPrice],[additionalHourPrice],[fullDayPrice]) VALUES (?,?,?,?,?)");
+                             PreparedStatement update = conn.prepareStatement(
+                                "UPDATE PriceList SET [year]=?, [firstHourPrice]=?, [additionalHourPrice]=?, [fullDayPrice]=? WHERE [ID]=?")) {
+
+                            for (PriceList p : inserts) {
+                                insert.setInt(1, p.getId());
+                                insert.setInt(2, p.getYear());
+                                insert.setDouble(3, p.getFirstHourPrice());
+                                insert.setDouble(4, p.getAdditionalHourPrice());
+                                insert.setDouble(5, p.getFullDayPrice());
+                                insert.addBatch();
+                            }
+                            for (PriceList p : updates) {
+                                update.setInt(1, p.getYear());
+                                update.setDouble(2, p.getFirstHourPrice());
+                                update.setDouble(3, p.getAdditionalHourPrice());
+                                update.setDouble(4, p.getFullDayPrice());
+                                update.setInt(5, p.getId());
+                                update.addBatch();
+                            }
+                            if (!inserts.isEmpty()) insert.executeBatch();
+                            if (!updates.isEmpty()) update.executeBatch();
+
+                            conn.commit();
+
+                        } catch (SQLException | RuntimeException e) {
+                            conn.rollback();
+                            throw e;
+                        }
+                    } finally {
+                        conn.setAutoCommit(true);
+                        if (!inserts.isEmpty()) ddl.execute("ENABLE AUTOINCREMENT ON PriceList");
+                    }
+                }
+
+                for (PriceList p : inserts) next.put(p);
+                for (PriceList p : updates) next.put(p);
+                publish(next);
+                return inserts.size() + updates.size();
             }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to copy price lists: " + e.getMessage(), e);
         }
     }
 
-    /** For UI table view (DB IDs). */
+    /** For UI table view (DB IDs). Read-only view of the current snapshot. */
     public Collection<PriceList> getAllPriceLists() {
-        if (db != null && priceListsByDbId.isEmpty()) {
+        if (db != null && !snapshot.get().isLoaded()) {
             try {
-                loadAllFromDb();
+                synchronized (writeLock) {
+                    ensureLoaded();
+                }
             } catch (SQLException e) {
                 e.printStackTrace();
             }
         }
-        return priceListsByDbId.values();
+        return snapshot.get().getAll();
+    }
+
+    /** Price lists of one year (from the current snapshot). */
+    public List<PriceList> getPriceListsForYear(int year) {
+        getAllPriceLists();
+        return snapshot.get().getByYear(year);
     }
 
     /** Used by PriceHistoryRow join. Expects DB ID (AutoNumber). */
     public PriceList getById(int dbId) {
-        PriceList cached = priceListsByDbId.get(dbId);
+        PriceList cached = snapshot.get().getById(dbId);
         if (cached != null) return cached;
 
         if (db != null) {
             try {
+                synchronized (writeLock) {
+                    // the first miss loads the whole table: a snapshot is either EMPTY or complete
+                    if (!snapshot.get().isLoaded()) {
+                        ensureLoaded();
+                        return snapshot.get().getById(dbId);
+                    }
+                }
                 PriceList fromDb = loadByIdFromDb(dbId);
-                if (fromDb != null) priceListsByDbId.put(fromDb.getId(), fromDb);
+                if (fromDb != null) {
+                    synchronized (writeLock) {
+                        publish(snapshot.get().toBuilder().put(fromDb));
+                    }
+                }
                 return fromDb;
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -104,49 +316,87 @@ public class PriceListManagementController {
         return null;
     }
 
-    /** Optional: mapping JSON priceListId -> DB ID (only for the current run). */
+    /**
+     * Re-reads the whole PriceList table and publishes it as a new snapshot.
+     */
+    public void reload() {
+        ensureDb();
+        try {
+            synchronized (writeLock) {
+                publish(loadAllFromDb());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load price lists: " + e.getMessage(), e);
+        }
+    }
+
+    /** Current immutable snapshot (never null). */
+    public PriceListSnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Version of the current snapshot; increases on every publish.
+     * Other caches can compare it to detect that price lists changed.
+     */
+    public long getCurrentVersion() {
+        return snapshot.get().getVersion();
+    }
+
+    /** Optional: mapping JSON priceListId -> DB ID of the last import of the current run. */
     public Integer getDbIdForJsonPriceListId(int jsonPriceListId) {
         return jsonIdToDbId.get(jsonPriceListId);
     }
 
     // ----------------- internal DB helpers -----------------
 
-    private int insertDbRow(int year, double firstHour, double additionalHour, double fullDay) throws SQLException {
+    private int insertDbRow(Connection conn, int year, double firstHour, double additionalHour, double fullDay,
+                            int feedId) throws SQLException {
         final String insertSql =
-                "INSERT INTO PriceList ([year],[firstHourPrice],[additionalHourPrice],[fullDayPrice]) VALUES (?,?,?,?)";
+                "INSERT INTO PriceList ([year],[firstHourPrice],[additionalHourPrice],[fullDayPrice],[feedId]) VALUES (?,?,?,?,?)";
 
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement ps = conn.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setInt(1, year);
             ps.setDouble(2, firstHour);
             ps.setDouble(3, additionalHour);
             ps.setDouble(4, fullDay);
+            ps.setInt(5, feedId);
             ps.executeUpdate();
 
             return fetchGeneratedId(conn, ps);
         }
     }
 
-    private void updateDbRow(int dbId, int year, double firstHour, double additionalHour, double fullDay) throws SQLException {
-        final String updateSql =
-                "UPDATE PriceList SET [year]=?, [firstHourPrice]=?, [additionalHourPrice]=?, [fullDayPrice]=? WHERE [ID]=?";
-
-        try (Connection conn = db.open();
-             PreparedStatement ps = conn.prepareStatement(updateSql)) {
+    /** Price lists of an import file, with their priceListId as ID. */
+    static List<PriceList> readImport(Reader reader) {
+        JsonObject root = new Gson().fromJson(reader, JsonObject.class);
 
-            ps.setInt(1, year);
-            ps.setDouble(2, firstHour);
-            ps.setDouble(3, additionalHour);
-            ps.setDouble(4, fullDay);
-            ps.setInt(5, dbId);
+        int year = root.get("year").getAsInt();
+        JsonArray lists = root.getAsJsonArray("priceLists");
 
-            ps.executeUpdate();
+        List<PriceList> rows = new ArrayList<>(lists.size());
+        for (JsonElement element : lists) {
+            JsonObject obj = element.getAsJsonObject();
+            rows.add(new PriceList(
+                    obj.get("priceListId").getAsInt(),
+                    year,
+                    obj.get("firstHourPrice").getAsDouble(),
+                    obj.get("additionalHourPrice").getAsDouble(),
+                    obj.get("fullDayPrice").getAsDouble()));
         }
+        return rows;
     }
 
-    private void loadAllFromDb() throws SQLException {
-        if (db == null) return;
+    private PriceListSnapshot.Builder loadAllFromDb() throws SQLException {
+        PriceListSnapshot.Builder builder = new PriceListSnapshot.Builder();
+        if (db == null) return builder;
+
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            for (PriceList p : source.getPriceLists()) builder.put(p);
+            return builder;
+        }
 
         final String sql =
                 "SELECT [ID],[year],[firstHourPrice],[additionalHourPrice],[fullDayPrice] FROM PriceList ORDER BY [year], [ID]";
@@ -155,22 +405,55 @@ public class PriceListManagementController {
              PreparedStatement ps = conn.prepareStatement(sql);
              ResultSet rs = ps.executeQuery()) {
 
-            priceListsByDbId.clear();
-
             while (rs.next()) {
                 int id = rs.getInt("ID");
                 int year = rs.getInt("year");
                 double first = rs.getDouble("firstHourPrice");
                 double add = rs.getDouble("additionalHourPrice");
                 double full = rs.getDouble("fullDayPrice");
-                upsertInMemory(id, year, first, add, full);
+                builder.put(new PriceList(id, year, first, add, full));
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Rows written by imports, by PriceListImportPreview.feedKey(year, feedId). Read from the file itself
+     * (not a read replica): an import must see the rows the previous one wrote.
+     */
+    private Map<Long, PriceList> loadFedRows() throws SQLException {
+        final String sql =
+                "SELECT [ID],[year],[firstHourPrice],[additionalHourPrice],[fullDayPrice],[feedId] FROM PriceList WHERE [feedId] IS NOT NULL";
+
+        Map<Long, PriceList> fed = new HashMap<>();
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                PriceList p = new PriceList(
+                        rs.getInt("ID"),
+                        rs.getInt("year"),
+                        rs.getDouble("firstHourPrice"),
+                        rs.getDouble("additionalHourPrice"),
+                        rs.getDouble("fullDayPrice"));
+                fed.put(PriceListImportPreview.feedKey(p.getYear(), rs.getInt("feedId")), p);
             }
         }
+        return fed;
     }
 
     private PriceList loadByIdFromDb(int id) throws SQLException {
         if (db == null) return null;
 
+        ReadSource source = db.getReadSource();
+        if (source != null) {
+            for (PriceList p : source.getPriceLists()) {
+                if (p.getId() == id) return p;
+            }
+            return null;
+        }
+
         final String sql =
                 "SELECT [ID],[year],[firstHourPrice],[additionalHourPrice],[fullDayPrice] FROM PriceList WHERE [ID]=?";
 
@@ -193,16 +476,15 @@ public class PriceListManagementController {
         }
     }
 
-    private void upsertInMemory(int dbId, int year, double firstHour, double additionalHour, double fullDay) {
-        PriceList existing = priceListsByDbId.get(dbId);
-        if (existing != null) {
-            existing.setYear(year);
-            existing.setFirstHourPrice(firstHour);
-            existing.setAdditionalHourPrice(additionalHour);
-            existing.setFullDayPrice(fullDay);
-        } else {
-            priceListsByDbId.put(dbId, new PriceList(dbId, year, firstHour, additionalHour, fullDay));
-        }
+    /** Caller must hold writeLock. */
+    private void ensureLoaded() throws SQLException {
+        if (!snapshot.get().isLoaded()) publish(loadAllFromDb());
+    }
+
+    /** Caller must hold writeLock. Keeps the current snapshot (and version) when nothing changed. */
+    private void publish(PriceListSnapshot.Builder builder) {
+        if (builder.hasSameContent(snapshot.get())) return;
+        snapshot.set(builder.build(versionSeq.incrementAndGet()));
     }
 
     private int fetchGeneratedId(Connection conn, PreparedStatement ps) throws SQLException {
@@ -240,7 +522,30 @@ public class PriceListManagementController {
         }
     }
 
-    private String resolveJsonPath(String relativePath) {
+    /** previewImportFromJson of lib/pricelist.json (what importPriceListsFromDefaultJson would change). */
+    public PriceListImportPreview previewImportFromDefaultJson() {
+
+        String path = resolveJsonPath("lib/pricelist.json");
+
+        try {
+            return previewImportFromJson(path);
+
+        } catch (java.io.FileNotFoundException e) {
+            throw new RuntimeException(
+                    "Price list file not found at: " + path +
+                    "\nPlease make sure 'pricelist.json' exists under the lib folder.", e);
+
+        } catch (com.google.gson.JsonSyntaxException e) {
+            throw new RuntimeException(
+                    "Price list JSON file is invalid or malformed.", e);
+
+        } catch (Exception e) {
+            throw new RuntimeException(
+                    "Failed to read price list: " + e.getMessage(), e);
+        }
+    }
+
+    static String resolveJsonPath(String relativePath) {
 
         java.nio.file.Path p = java.nio.file.Paths.get(relativePath);
 
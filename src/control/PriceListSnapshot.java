@@ -0,0 +1,131 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import entity.PriceList;
+
+/**
+ * Immutable, versioned view of the PriceList table.
+ *
+ * - Indexed by DB ID and by year.
+ * - Never changed after construction: writers build a new snapshot with {@link Builder}
+ *   and publish it in one atomic swap (see PriceListManagementController).
+ * - The PriceList objects inside a snapshot must be treated as read-only.
+ * - A new version is published only when the content changed (see {@link Builder#hasSameContent}).
+ */
+public final class PriceListSnapshot {
+
+    /** Initial state before anything was loaded from the DB. */
+    public static final PriceListSnapshot EMPTY =
+            new PriceListSnapshot(0L, false, Collections.emptyMap(), Collections.emptyMap());
+
+    private static final Comparator<PriceList> BY_YEAR_THEN_ID =
+            Comparator.comparingInt(PriceList::getYear).thenComparingInt(PriceList::getId);
+
+    private final long version;
+    private final boolean loaded;
+    private final Map<Integer, PriceList> byId;             // ordered by year, ID
+    private final Map<Integer, List<PriceList>> byYear;
+
+    private PriceListSnapshot(long version, boolean loaded,
+                              Map<Integer, PriceList> byId,
+                              Map<Integer, List<PriceList>> byYear) {
+        this.version = version;
+        this.loaded = loaded;
+        this.byId = byId;
+        this.byYear = byYear;
+    }
+
+    public long getVersion() { return version; }
+
+    /** False only for {@link #EMPTY} (the table was never read). */
+    public boolean isLoaded() { return loaded; }
+
+    public PriceList getById(int dbId) { return byId.get(dbId); }
+
+    /** All price lists ordered by year, then ID. */
+    public Collection<PriceList> getAll() { return byId.values(); }
+
+    public List<PriceList> getByYear(int year) {
+        List<PriceList> list = byYear.get(year);
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    public int size() { return byId.size(); }
+
+    /** Starts a new snapshot from the content of this one. */
+    public Builder toBuilder() {
+        return new Builder(byId.values());
+    }
+
+    /** Same year and prices (the ID is not compared). */
+    static boolean sameValues(PriceList a, PriceList b) {
+        return a.getYear() == b.getYear()
+                && Double.compare(a.getFirstHourPrice(), b.getFirstHourPrice()) == 0
+                && Double.compare(a.getAdditionalHourPrice(), b.getAdditionalHourPrice()) == 0
+                && Double.compare(a.getFullDayPrice(), b.getFullDayPrice()) == 0;
+    }
+
+    // ----------------- builder -----------------
+
+    public static final class Builder {
+        private final Map<Integer, PriceList> byId = new HashMap<>();
+
+        public Builder() {}
+
+        private Builder(Collection<PriceList> initial) {
+            for (PriceList p : initial) byId.put(p.getId(), p);
+        }
+
+        /** Adds or replaces (by ID). The instance must not be modified afterwards. */
+        public Builder put(PriceList p) {
+            byId.put(p.getId(), p);
+            return this;
+        }
+
+        public PriceList get(int dbId) {
+            return byId.get(dbId);
+        }
+
+        /** Same price lists (IDs and values) as the snapshot. */
+        public boolean hasSameContent(PriceListSnapshot snapshot) {
+            if (!snapshot.isLoaded() || snapshot.size() != byId.size()) return false;
+            for (PriceList p : byId.values()) {
+                PriceList other = snapshot.getById(p.getId());
+                if (other == null || !sameValues(other, p)) return false;
+            }
+            return true;
+        }
+
+        public Builder clear() {
+            byId.clear();
+            return this;
+        }
+
+        public PriceListSnapshot build(long version) {
+            List<PriceList> sorted = new ArrayList<>(byId.values());
+            sorted.sort(BY_YEAR_THEN_ID);
+
+            Map<Integer, PriceList> ordered = new LinkedHashMap<>();
+            Map<Integer, List<PriceList>> years = new LinkedHashMap<>();
+            for (PriceList p : sorted) {
+                ordered.put(p.getId(), p);
+                years.computeIfAbsent(p.getYear(), y -> new ArrayList<>()).add(p);
+            }
+            for (Map.Entry<Integer, List<PriceList>> e : years.entrySet()) {
+                e.setValue(Collections.unmodifiableList(e.getValue()));
+            }
+
+            return new PriceListSnapshot(version, true,
+                    Collections.unmodifiableMap(ordered),
+                    Collections.unmodifiableMap(years));
+        }
+    }
+}
@@ -0,0 +1,440 @@
+package control;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import entity.City;
+import entity.Conveyor;
+import entity.ParkingLot;
+import entity.PriceHistory;
+import entity.PriceList;
+
+/**
+ * ReadReplica
+ * -----------
+ * Full in-memory copy of the five tables that answers all controller reads
+ * (AccessDb.enableReadReplica); writes still go to the .accdb through UCanAccess.
+ *
+ * - loaded with Jackcess (JackcessReader), so a reload takes no Access / HSQLDB locks
+ * - a WatchService on the DB directory reacts to changes of the .accdb and of its
+ *   ChangeMarker sidecar within ~DEBOUNCE_MS; a poll every maxStaleness/2 covers file
+ *   systems where watching does not work
+ * - only the tables whose ChangeMarker counter moved are reloaded; a change of the .accdb
+ *   without a marker change (written by a tool that does not keep the marker) reloads all
+ * - local writes (AccessDb.markChanged) queue a refresh instead of running it on the write path;
+ *   until it caught up with them isFresh() is false, so AccessDb answers reads from the DB
+ *   (read-your-writes) and a burst of writes costs one reload
+ * - readers get an immutable state swapped in one volatile write: never blocked by a
+ *   reload, never a mix of old and new tables
+ *
+ * Staleness bound: when the replica could not verify the file for longer than
+ * maxStalenessMillis (reloads failing while a writer holds the file, ...), isFresh() is
+ * false and AccessDb answers reads from the DB again until the replica caught up.
+ */
+public final class ReadReplica implements ReadSource, AutoCloseable {
+
+    static final String CITY = "City";
+    static final String PARKING_LOT = "ParkingLot";
+    static final String CONVEYOR = "Conveyor";
+    static final String PRICE_LIST = "PriceList";
+    static final String PRICE_HISTORY = "PriceHistory";
+
+    static final List<String> TABLES = Collections.unmodifiableList(
+            Arrays.asList(CITY, PARKING_LOT, CONVEYOR, PRICE_LIST, PRICE_HISTORY));
+
+    private static final long DEBOUNCE_MS = 50;
+
+    // a writer keeping the marker bumps it right after its commit: wait that long before
+    // treating a change of the .accdb alone as a foreign write (full reload)
+    private static final long FOREIGN_WRITE_GRACE_MS = 200;
+
+    private final Path accdb;
+    private final ChangeMarker marker;
+    private final JackcessReader reader;
+    private final long maxStalenessNanos;
+
+    private volatile State state;
+    private volatile long verifiedAt;
+
+    // refresh() only
+    private Map<String, Long> knownCounters = new TreeMap<>();
+    private long knownSize = -1;
+    private long knownModified = -1;
+    private long unmarkedChangeSince;
+
+    private final Map<String, AtomicLong> reloads = new HashMap<>();
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    // local writes: counted by localWrite(), caught up with by refresh()
+    private final AtomicLong localWrites = new AtomicLong();
+    private volatile long localWritesLoaded;
+    private final Set<String> locallyChanged = ConcurrentHashMap.newKeySet();
+
+    private Closeable readerHold;
+
+    private ScheduledExecutorService scheduler;
+    private WatchService watchService;
+
+    ReadReplica(Path accdb, long maxStalenessMillis) {
+        this.accdb = accdb;
+        this.marker = new ChangeMarker(accdb);
+        this.reader = new JackcessReader(accdb);
+        this.maxStalenessNanos = TimeUnit.MILLISECONDS.toNanos(maxStalenessMillis);
+        for (String t : TABLES) reloads.put(t, new AtomicLong());
+    }
+
+    /** Loads every table and starts watching; fails if the first load fails. */
+    synchronized void start() throws IOException {
+        // other clients keep the marker while we hold it
+        readerHold = marker.holdReader();
+
+        Map<String, Long> counters = marker.read();
+        long size = Files.size(accdb);
+        long modified = Files.getLastModifiedTime(accdb).toMillis();
+        load(TABLES);
+        remember(counters, size, modified);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "parkwise-replica");
+            t.setDaemon(true);
+            return t;
+        });
+        long pollMs = Math.max(10, TimeUnit.NANOSECONDS.toMillis(maxStalenessNanos) / 2);
+        scheduler.scheduleWithFixedDelay(this::refresh, pollMs, pollMs, TimeUnit.MILLISECONDS);
+
+        try {
+            watchService = accdb.getFileSystem().newWatchService();
+            accdb.toAbsolutePath().getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+
+            Thread watcher = new Thread(this::watch, "parkwise-replica-watch");
+            watcher.setDaemon(true);
+            watcher.start();
+        } catch (IOException | UnsupportedOperationException e) {
+            // polling alone still keeps the staleness bound
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Re-checks the ChangeMarker and the .accdb and reloads the tables that changed.
+     * Errors (file being written, locked, ...) keep the current copy; the next event or poll retries.
+     */
+    public synchronized void refresh() {
+        try {
+            // everything written before this point is in the marker (markChanged bumps it first)
+            long writes = localWrites.get();
+
+            Map<String, Long> counters = marker.read();
+            if (counters == null) {
+                // marker being rewritten
+                if (writes != localWritesLoaded) queueRefresh(DEBOUNCE_MS);
+                return;
+            }
+
+            long size = Files.size(accdb);
+            long modified = Files.getLastModifiedTime(accdb).toMillis();
+
+            Set<String> changed = new LinkedHashSet<>();
+            for (String t : TABLES) {
+                if (!Objects.equals(counters.get(t), knownCounters.get(t))) changed.add(t);
+            }
+            // also when bumping the marker failed
+            for (String t : TABLES) {
+                if (locallyChanged.remove(t)) changed.add(t);
+            }
+            if (changed.isEmpty() && (size != knownSize || modified != knownModified)) {
+                long now = System.nanoTime();
+                if (unmarkedChangeSince == 0) unmarkedChangeSince = now;
+                if (now - unmarkedChangeSince < TimeUnit.MILLISECONDS.toNanos(FOREIGN_WRITE_GRACE_MS)) {
+                    queueRefresh(FOREIGN_WRITE_GRACE_MS);
+                    return;
+                }
+                changed.addAll(TABLES);
+            }
+            unmarkedChangeSince = 0;
+
+            if (!changed.isEmpty()) load(changed);
+            remember(counters, size, modified);
+            localWritesLoaded = writes;
+
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            if (localWrites.get() != localWritesLoaded) queueRefresh(DEBOUNCE_MS);
+        }
+    }
+
+    /** A commit of this process wrote {@code tables}: reads go to the DB until the refresh caught up. */
+    void localWrite(Collection<String> tables) {
+        locallyChanged.addAll(tables);
+        localWrites.incrementAndGet();
+        queueRefresh(0);
+    }
+
+    @Override
+    public boolean isFresh() {
+        return localWritesLoaded == localWrites.get() && System.nanoTime() - verifiedAt <= maxStalenessNanos;
+    }
+
+    /** Time since the replica last confirmed it matches the file. */
+    public long getStalenessMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - verifiedAt);
+    }
+
+    /** Number of times {@code table} was (re)loaded, including the initial load. */
+    public long getReloadCount(String table) {
+        AtomicLong n = reloads.get(table);
+        return n == null ? 0 : n.get();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (scheduler != null) scheduler.shutdownNow();
+        reader.close();
+        if (readerHold != null) {
+            try {
+                readerHold.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            readerHold = null;
+        }
+    }
+
+    // ----------------- ReadSource (copies: callers may modify the entities) -----------------
+
+    @Override
+    public List<City> getCities() {
+        List<City> list = new ArrayList<>(state.cities.size());
+        for (City c : state.cities) list.add(copy(c));
+        return list;
+    }
+
+    @Override
+    public List<ParkingLot> getParkingLots() {
+        List<ParkingLot> list = new ArrayList<>(state.parkingLots.size());
+        for (ParkingLot p : state.parkingLots) list.add(copy(p));
+        return list;
+    }
+
+    @Override
+    public ParkingLot getParkingLot(int id) {
+        ParkingLot p = state.parkingLotsById.get(id);
+        return p == null ? null : copy(p);
+    }
+
+    @Override
+    public List<Conveyor> getConveyors() {
+        return copyConveyors(state.conveyors);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsByParkingLot(int parkingLotId) {
+        return copyConveyors(state.conveyorsByLot.getOrDefault(parkingLotId, Collections.emptyList()));
+    }
+
+    @Override
+    public List<PriceList> getPriceLists() {
+        List<PriceList> list = new ArrayList<>(state.priceLists.size());
+        for (PriceList p : state.priceLists) {
+            list.add(new PriceList(p.getId(), p.getYear(), p.getFirstHourPrice(), p.getAdditionalHourPrice(), p.getFullDayPrice()));
+        }
+        return list;
+    }
+
+    @Override
+    public List<PriceHistory> getPriceHistory() {
+        return copyHistory(state.priceHistory);
+    }
+
+    @Override
+    public List<PriceHistory> getPriceHistoryForParkingLot(int parkingLotId) {
+        return copyHistory(state.priceHistoryByLot.getOrDefault(parkingLotId, Collections.emptyList()));
+    }
+
+    @Override
+    public String toString() {
+        return "ReadReplica " + accdb + " (verified " + getStalenessMillis() + " ms ago)";
+    }
+
+    // ----------------- loading -----------------
+
+    private void load(Collection<String> tables) {
+        reader.invalidate(); // a foreign write does not move the marker the reader re-opens on
+
+        State s = state;
+        boolean cities = s == null || tables.contains(CITY);
+        boolean lots = cities || tables.contains(PARKING_LOT); // lots carry their City
+        boolean conveyors = s == null || tables.contains(CONVEYOR);
+        boolean priceLists = s == null || tables.contains(PRICE_LIST);
+        boolean history = s == null || tables.contains(PRICE_HISTORY);
+
+        State next = new State(
+                cities ? reader.readAllCities() : s.cities,
+                lots ? reader.readAllParkingLots() : s.parkingLots,
+                conveyors ? reader.getConveyors() : s.conveyors,
+                priceLists ? reader.readAllPriceLists() : s.priceLists,
+                history ? reader.getPriceHistory() : s.priceHistory,
+                s);
+        state = next;
+
+        if (cities) reloads.get(CITY).incrementAndGet();
+        if (lots) reloads.get(PARKING_LOT).incrementAndGet();
+        if (conveyors) reloads.get(CONVEYOR).incrementAndGet();
+        if (priceLists) reloads.get(PRICE_LIST).incrementAndGet();
+        if (history) reloads.get(PRICE_HISTORY).incrementAndGet();
+    }
+
+    private void remember(Map<String, Long> counters, long size, long modified) {
+        if (counters != null) knownCounters = counters;
+        knownSize = size;
+        knownModified = modified;
+        verifiedAt = System.nanoTime();
+    }
+
+    private void watch() {
+        String dbName = accdb.getFileName().toString();
+        String markerName = marker.getFile().getFileName().toString();
+
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean relevant = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    Object context = event.context();
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) relevant = true;
+                    else if (context != null && (context.toString().equals(dbName) || context.toString().equals(markerName))) {
+                        relevant = true;
+                    }
+                }
+                key.reset();
+
+                // writers touch the file many times per commit: one refresh per burst
+                if (relevant) queueRefresh(DEBOUNCE_MS);
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            // scheduler shut down
+        }
+    }
+
+    private void queueRefresh(long delayMs) {
+        if (!refreshQueued.compareAndSet(false, true)) return;
+        try {
+            scheduler.schedule(() -> {
+                refreshQueued.set(false);
+                refresh();
+            }, delayMs, TimeUnit.MILLISECONDS);
+        } catch (java.util.concurrent.RejectedExecutionException e) {
+            // closed
+            refreshQueued.set(false);
+        }
+    }
+
+    // ----------------- state -----------------
+
+    /** One consistent version of all tables + per-lot indexes. Never modified after construction. */
+    private static final class State {
+        final List<City> cities;
+        final List<ParkingLot> parkingLots;
+        final Map<Integer, ParkingLot> parkingLotsById;
+        final List<Conveyor> conveyors;
+        final Map<Integer, List<Conveyor>> conveyorsByLot;
+        final List<PriceList> priceLists;
+        final List<PriceHistory> priceHistory;
+        final Map<Integer, List<PriceHistory>> priceHistoryByLot;
+
+        State(List<City> cities, List<ParkingLot> parkingLots, List<Conveyor> conveyors,
+              List<PriceList> priceLists, List<PriceHistory> priceHistory, State previous) {
+            this.cities = cities;
+            this.parkingLots = parkingLots;
+            this.conveyors = conveyors;
+            this.priceLists = priceLists;
+            this.priceHistory = priceHistory;
+
+            if (previous != null && previous.parkingLots == parkingLots) {
+                parkingLotsById = previous.parkingLotsById;
+            } else {
+                parkingLotsById = new HashMap<>();
+                for (ParkingLot p : parkingLots) parkingLotsById.put(p.getId(), p);
+            }
+
+            if (previous != null && previous.conveyors == conveyors) {
+                conveyorsByLot = previous.conveyorsByLot;
+            } else {
+                conveyorsByLot = new HashMap<>();
+                for (Conveyor c : conveyors) conveyorsByLot.computeIfAbsent(c.getParkingLotId(), k -> new ArrayList<>()).add(c);
+            }
+
+            if (previous != null && previous.priceHistory == priceHistory) {
+                priceHistoryByLot = previous.priceHistoryByLot;
+            } else {
+                priceHistoryByLot = new HashMap<>();
+                for (PriceHistory h : priceHistory) priceHistoryByLot.computeIfAbsent(h.getParkingLotId(), k -> new ArrayList<>()).add(h);
+            }
+        }
+    }
+
+    private static City copy(City c) {
+        return c == null ? null : new City(c.getId(), c.getCityName());
+    }
+
+    private static ParkingLot copy(ParkingLot p) {
+        ParkingLot copy = new ParkingLot(p.getId(), p.getName(), p.getStreet(), p.getNumber(), copy(p.getCity()),
+                p.getAvailableSpaces(), p.isActive());
+        copy.setRowVersion(p.getRowVersion());
+        return copy;
+    }
+
+    private static List<Conveyor> copyConveyors(List<Conveyor> source) {
+        List<Conveyor> list = new ArrayList<>(source.size());
+        for (Conveyor c : source) {
+            Conveyor copy = new Conveyor(c.getId(), c.getParkingLotId(), c.getFloorNumber(), c.getX(), c.getY(),
+                    c.getMaxVehicleWeightKg(), c.getStatus(), c.getLastStatus(), c.isActive());
+            copy.setRowVersion(c.getRowVersion());
+            list.add(copy);
+        }
+        return list;
+    }
+
+    private static List<PriceHistory> copyHistory(List<PriceHistory> source) {
+        List<PriceHistory> list = new ArrayList<>(source.size());
+        for (PriceHistory h : source) {
+            list.add(new PriceHistory(h.getId(), h.getParkingLotId(), h.getPriceListId(),
+                    h.getEffectiveFrom(), h.getEffectiveTo()));
+        }
+        return list;
+    }
+}
@@ -0,0 +1,67 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import entity.City;
+import entity.Conveyor;
+import entity.ParkingLot;
+import entity.PriceHistory;
+import entity.PriceList;
+
+/**
+ * ReadSource
+ * ----------
+ * Whole-table view of the ParkWise data that does not go through UCanAccess
+ * (snapshot file, Jackcess reader, in-memory read replica).
+ *
+ * When one is attached to an AccessDb (AccessDb.setReadSource), controllers answer their
+ * read-only queries from it; writes still go to the .accdb.
+ *
+ * Every call returns NEW entity objects (callers may modify them), rows ordered by ID.
+ */
+public interface ReadSource {
+
+    List<City> getCities();
+
+    /** All parking lots (active + inactive) with their City. */
+    List<ParkingLot> getParkingLots();
+
+    /** All conveyors (active + inactive). */
+    List<Conveyor> getConveyors();
+
+    List<PriceList> getPriceLists();
+
+    List<PriceHistory> getPriceHistory();
+
+    /**
+     * false when the data may be older than the source promises (see ReadReplica);
+     * AccessDb then answers reads from the DB until it is true again.
+     */
+    default boolean isFresh() {
+        return true;
+    }
+
+    default List<Conveyor> getConveyorsByParkingLot(int parkingLotId) {
+        List<Conveyor> list = new ArrayList<>();
+        for (Conveyor c : getConveyors()) {
+            if (c.getParkingLotId() == parkingLotId) list.add(c);
+        }
+        return list;
+    }
+
+    default List<PriceHistory> getPriceHistoryForParkingLot(int parkingLotId) {
+        List<PriceHistory> list = new ArrayList<>();
+        for (PriceHistory h : getPriceHistory()) {
+            if (h.getParkingLotId() == parkingLotId) list.add(h);
+        }
+        return list;
+    }
+
+    default ParkingLot getParkingLot(int id) {
+        for (ParkingLot p : getParkingLots()) {
+            if (p.getId() == id) return p;
+        }
+        return null;
+    }
+}
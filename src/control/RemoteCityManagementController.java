@@ -0,0 +1,45 @@
+package control;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+
+import entity.City;
+
+/**
+ * RemoteCityManagementController
+ * ------------------------------
+ * CityManagementController of a ParkWise server (--remote mode): every call goes over ApiClient.
+ */
+public class RemoteCityManagementController extends CityManagementController {
+
+    private static final Type CITY_LIST = new TypeToken<List<City>>() {}.getType();
+
+    private final ApiClient api;
+
+    public RemoteCityManagementController(ApiClient api) {
+        super(null);
+        this.api = api;
+    }
+
+    @Override
+    public List<City> getAllCities() {
+        return api.call(ApiProtocol.CITY, "getAllCities", CITY_LIST);
+    }
+
+    @Override
+    public City addCity(String cityName) {
+        return api.call(ApiProtocol.CITY, "addCity", City.class, cityName);
+    }
+
+    @Override
+    public void updateCityName(int cityId, String newName) {
+        api.run(ApiProtocol.CITY, "updateCityName", cityId, newName);
+    }
+
+    @Override
+    public City findCityByName(String cityName) {
+        return api.call(ApiProtocol.CITY, "findCityByName", City.class, cityName);
+    }
+}
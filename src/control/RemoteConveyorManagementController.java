@@ -0,0 +1,199 @@
+package control;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+
+import entity.Conveyor;
+import entity.ConveyorStatus;
+
+/**
+ * RemoteConveyorManagementController
+ * ----------------------------------
+ * ConveyorManagementController of a ParkWise server (--remote mode): every call goes over ApiClient.
+ * The state machine (attempt counts, pending weights) lives on the server, shared by all clients.
+ */
+public class RemoteConveyorManagementController extends ConveyorManagementController {
+
+    private static final Type CONVEYOR_LIST = new TypeToken<List<Conveyor>>() {}.getType();
+
+    private final ApiClient api;
+
+    public RemoteConveyorManagementController(ApiClient api) {
+        super(null);
+        this.api = api;
+    }
+
+    @Override
+    public Conveyor addConveyorToParkingLot(int parkingLotId, int floorNumber, int x, int y,
+                                           int maxVehicleWeightKg, ConveyorStatus status) {
+        return api.call(ApiProtocol.CONVEYOR, "addConveyorToParkingLot", Conveyor.class,
+                parkingLotId, floorNumber, x, y, maxVehicleWeightKg, status);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsByParkingLot(int parkingLotId) {
+        return api.call(ApiProtocol.CONVEYOR, "getConveyorsByParkingLot", CONVEYOR_LIST, parkingLotId);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsByParkingLot(int parkingLotId, boolean includeInactive) {
+        return api.call(ApiProtocol.CONVEYOR, "getConveyorsByParkingLot", CONVEYOR_LIST, parkingLotId, includeInactive);
+    }
+
+    @Override
+    public List<Conveyor> getAllConveyors(boolean includeInactive) {
+        return api.call(ApiProtocol.CONVEYOR, "getAllConveyors", CONVEYOR_LIST, includeInactive);
+    }
+
+    @Override
+    public void moveConveyorToParkingLot(int conveyorId, int newParkingLotId) {
+        api.run(ApiProtocol.CONVEYOR, "moveConveyorToParkingLot", conveyorId, newParkingLotId);
+    }
+
+    @Override
+    public int moveConveyorToParkingLot(int conveyorId, int newParkingLotId, int expectedVersion) {
+        return version("moveConveyorToParkingLot", conveyorId, newParkingLotId, expectedVersion);
+    }
+
+    @Override
+    public void updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y) {
+        api.run(ApiProtocol.CONVEYOR, "updateConveyorPosition", conveyorId, floorNumber, x, y);
+    }
+
+    @Override
+    public int updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y, int expectedVersion) {
+        return version("updateConveyorPosition", conveyorId, floorNumber, x, y, expectedVersion);
+    }
+
+    @Override
+    public void deleteConveyor(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "deleteConveyor", conveyorId);
+    }
+
+    @Override
+    public int deleteConveyor(int conveyorId, int expectedVersion) {
+        return version("deleteConveyor", conveyorId, expectedVersion);
+    }
+
+    @Override
+    public int turnOnAllConveyorsInParkingLot(int parkingLotId) {
+        Integer changed = api.call(ApiProtocol.CONVEYOR, "turnOnAllConveyorsInParkingLot", Integer.class, parkingLotId);
+        return changed == null ? 0 : changed;
+    }
+
+    @Override
+    public void decideChangeMaxWeight(int conveyorId, int newWeight) {
+        api.run(ApiProtocol.CONVEYOR, "decideChangeMaxWeight", conveyorId, newWeight);
+    }
+
+    @Override
+    public void confirmChangeMaxWeight(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "confirmChangeMaxWeight", conveyorId);
+    }
+
+    @Override
+    public int confirmChangeMaxWeight(int conveyorId, int expectedVersion) {
+        return version("confirmChangeMaxWeight", conveyorId, expectedVersion);
+    }
+
+    @Override
+    public Integer getPendingWeight(int conveyorId) {
+        return api.call(ApiProtocol.CONVEYOR, "getPendingWeight", Integer.class, conveyorId);
+    }
+
+    @Override
+    public void turnOnConveyors(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "turnOnConveyors", conveyorId);
+    }
+
+    @Override
+    public int turnOnConveyors(int conveyorId, int expectedVersion) {
+        return version("turnOnConveyors", conveyorId, expectedVersion);
+    }
+
+    @Override
+    public void restart(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "restart", conveyorId);
+    }
+
+    @Override
+    public int restart(int conveyorId, int expectedVersion) {
+        return version("restart", conveyorId, expectedVersion);
+    }
+
+    @Override
+    public void turnOffConveyors(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "turnOffConveyors", conveyorId);
+    }
+
+    @Override
+    public int turnOffConveyors(int conveyorId, int expectedVersion) {
+        return version("turnOffConveyors", conveyorId, expectedVersion);
+    }
+
+    @Override
+    public void pause(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "pause", conveyorId);
+    }
+
+    @Override
+    public void updateConveyorStatus(int conveyorId, ConveyorStatus status) {
+        api.run(ApiProtocol.CONVEYOR, "updateConveyorStatus", conveyorId, status);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsOnFloor(int parkingLotId, int floorNumber, boolean includeInactive) {
+        return api.call(ApiProtocol.CONVEYOR, "getConveyorsOnFloor", CONVEYOR_LIST, parkingLotId, floorNumber, includeInactive);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsInArea(int parkingLotId, int floorNumber, int x1, int y1, int x2, int y2,
+                                             boolean includeInactive) {
+        return api.call(ApiProtocol.CONVEYOR, "getConveyorsInArea", CONVEYOR_LIST,
+                parkingLotId, floorNumber, x1, y1, x2, y2, includeInactive);
+    }
+
+    @Override
+    public List<Conveyor> findNearestConveyors(int parkingLotId, int floorNumber, int x, int y, int k) {
+        return api.call(ApiProtocol.CONVEYOR, "findNearestConveyors", CONVEYOR_LIST, parkingLotId, floorNumber, x, y, k);
+    }
+
+    @Override
+    public List<Conveyor> getUnplacedConveyors(int parkingLotId, boolean includeInactive) {
+        return api.call(ApiProtocol.CONVEYOR, "getUnplacedConveyors", CONVEYOR_LIST, parkingLotId, includeInactive);
+    }
+
+    @Override
+    public void reloadSpatialIndexes() {
+        api.run(ApiProtocol.CONVEYOR, "reloadSpatialIndexes");
+    }
+
+    @Override
+    public Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg) {
+        return api.call(ApiProtocol.CONVEYOR, "dispatchConveyor", Conveyor.class, parkingLotId, vehicleWeightKg);
+    }
+
+    @Override
+    public Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg, ConveyorDispatcher.Strategy strategy) {
+        return api.call(ApiProtocol.CONVEYOR, "dispatchConveyor", Conveyor.class, parkingLotId, vehicleWeightKg, strategy);
+    }
+
+    @Override
+    public void releaseConveyor(int conveyorId) {
+        api.run(ApiProtocol.CONVEYOR, "releaseConveyor", conveyorId);
+    }
+
+    @Override
+    public int getDispatchLoad(int conveyorId) {
+        Integer load = api.call(ApiProtocol.CONVEYOR, "getDispatchLoad", Integer.class, conveyorId);
+        return load == null ? 0 : load;
+    }
+
+    /** Versioned calls return the new rowVersion. */
+    private int version(String method, Object... args) {
+        Integer version = api.call(ApiProtocol.CONVEYOR, method, Integer.class, args);
+        return version == null ? 0 : version;
+    }
+}
@@ -0,0 +1,79 @@
+package control;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+
+import entity.City;
+import entity.ParkingLot;
+
+/**
+ * RemoteParkingLotManagementController
+ * ------------------------------------
+ * ParkingLotManagementController of a ParkWise server (--remote mode): every call goes over ApiClient.
+ */
+public class RemoteParkingLotManagementController extends ParkingLotManagementController {
+
+    private static final Type LOT_LIST = new TypeToken<List<ParkingLot>>() {}.getType();
+
+    private final ApiClient api;
+
+    public RemoteParkingLotManagementController(ApiClient api) {
+        super(null);
+        this.api = api;
+    }
+
+    @Override
+    public ParkingLot addParkingLot(String name, String street, Integer number, City city, int availableSpaces) {
+        return api.call(ApiProtocol.PARKING_LOT, "addParkingLot", ParkingLot.class,
+                name, street, number, city, availableSpaces);
+    }
+
+    @Override
+    public void updateParkingLot(int id, String name, String street, Integer number, City city) {
+        api.run(ApiProtocol.PARKING_LOT, "updateParkingLot", id, name, street, number, city);
+    }
+
+    @Override
+    public int updateParkingLot(int id, String name, String street, Integer number, City city, int expectedVersion) {
+        Integer version = api.call(ApiProtocol.PARKING_LOT, "updateParkingLot", Integer.class,
+                id, name, street, number, city, expectedVersion);
+        return version == null ? 0 : version;
+    }
+
+    @Override
+    public void deleteParkingLot(int id) {
+        api.run(ApiProtocol.PARKING_LOT, "deleteParkingLot", id);
+    }
+
+    @Override
+    public ParkingLot getParkingLot(int id) {
+        return api.call(ApiProtocol.PARKING_LOT, "getParkingLot", ParkingLot.class, id);
+    }
+
+    @Override
+    public List<ParkingLot> getAllParkingLots() {
+        return api.call(ApiProtocol.PARKING_LOT, "getAllParkingLots", LOT_LIST);
+    }
+
+    @Override
+    public List<ParkingLot> getAllParkingLots(boolean includeInactive) {
+        return api.call(ApiProtocol.PARKING_LOT, "getAllParkingLots", LOT_LIST, includeInactive);
+    }
+
+    @Override
+    public List<ParkingLot> searchParkingLots(String query, int limit, boolean includeInactive) {
+        return api.call(ApiProtocol.PARKING_LOT, "searchParkingLots", LOT_LIST, query, limit, includeInactive);
+    }
+
+    @Override
+    public void reloadSearchIndex() {
+        api.run(ApiProtocol.PARKING_LOT, "reloadSearchIndex");
+    }
+
+    /** The server builds its index at its own startup; searches run there. */
+    @Override
+    public void loadSearchIndex() {
+    }
+}
@@ -0,0 +1,105 @@
+package control;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.reflect.TypeToken;
+
+import entity.PriceHistory;
+
+/**
+ * RemotePriceHistoryManagementController
+ * --------------------------------------
+ * PriceHistoryManagementController of a ParkWise server (--remote mode): every call goes over ApiClient.
+ * The effective price index lives on the server.
+ */
+public class RemotePriceHistoryManagementController extends PriceHistoryManagementController {
+
+    private static final Type HISTORY_LIST = new TypeToken<List<PriceHistory>>() {}.getType();
+    private static final Type ROW_LIST = new TypeToken<List<PriceHistoryRow>>() {}.getType();
+    private static final Type ROWS_BY_LOT = new TypeToken<Map<Integer, List<PriceHistoryRow>>>() {}.getType();
+
+    private final ApiClient api;
+
+    public RemotePriceHistoryManagementController(ApiClient api) {
+        super(null);
+        this.api = api;
+    }
+
+    @Override
+    public List<PriceHistory> getHistoryForParkingLot(int parkingLotId) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getHistoryForParkingLot", HISTORY_LIST, parkingLotId);
+    }
+
+    @Override
+    public List<PriceHistoryRow> getHistoryRowsForParkingLot(int parkingLotId) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getHistoryRowsForParkingLot", ROW_LIST, parkingLotId);
+    }
+
+    @Override
+    public Map<Integer, List<PriceHistoryRow>> getHistoryRowsForParkingLots(Collection<Integer> parkingLotIds) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getHistoryRowsForParkingLots", ROWS_BY_LOT,
+                new ArrayList<>(parkingLotIds));
+    }
+
+    @Override
+    public void assignPriceListToParkingLot(int parkingLotId, int priceListId) {
+        api.run(ApiProtocol.PRICE_HISTORY, "assignPriceListToParkingLot", parkingLotId, priceListId);
+    }
+
+    @Override
+    public void schedulePriceListChange(int parkingLotId, int priceListId, LocalDate effectiveFrom) {
+        api.run(ApiProtocol.PRICE_HISTORY, "schedulePriceListChange", parkingLotId, priceListId, effectiveFrom);
+    }
+
+    @Override
+    public List<PriceHistory> getScheduledPriceChanges(int parkingLotId) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getScheduledPriceChanges", HISTORY_LIST, parkingLotId);
+    }
+
+    @Override
+    public int activateScheduledPriceChanges(LocalDate boundary) {
+        Integer activated = api.call(ApiProtocol.PRICE_HISTORY, "activateScheduledPriceChanges", Integer.class, boundary);
+        return activated == null ? 0 : activated;
+    }
+
+    @Override
+    public BulkAssignmentResult assignPriceListToParkingLots(Collection<Integer> parkingLotIds, int priceListId) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "assignPriceListToParkingLots", BulkAssignmentResult.class,
+                new ArrayList<>(parkingLotIds), priceListId);
+    }
+
+    @Override
+    public BulkAssignmentResult assignPriceListToCity(int cityId, int priceListId) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "assignPriceListToCity", BulkAssignmentResult.class, cityId, priceListId);
+    }
+
+    @Override
+    public BulkAssignmentResult assignPriceListToAllParkingLots(int priceListId) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "assignPriceListToAllParkingLots", BulkAssignmentResult.class, priceListId);
+    }
+
+    @Override
+    public Integer getEffectivePriceListId(int parkingLotId, LocalDate date) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getEffectivePriceListId", Integer.class, parkingLotId, date);
+    }
+
+    @Override
+    public int[] getEffectivePriceListIds(int[] parkingLotIds, LocalDate date) {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getEffectivePriceListIds", int[].class, parkingLotIds, date);
+    }
+
+    @Override
+    public List<PriceHistory> getAllPriceHistory() {
+        return api.call(ApiProtocol.PRICE_HISTORY, "getAllPriceHistory", HISTORY_LIST);
+    }
+
+    @Override
+    public void reloadPriceIndex() {
+        api.run(ApiProtocol.PRICE_HISTORY, "reloadPriceIndex");
+    }
+}
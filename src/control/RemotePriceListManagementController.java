@@ -0,0 +1,104 @@
+package control;
+
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.gson.reflect.TypeToken;
+
+import entity.PriceList;
+
+/**
+ * RemotePriceListManagementController
+ * -----------------------------------
+ * PriceListManagementController of a ParkWise server (--remote mode): every call goes over ApiClient.
+ * The price list cache lives on the server; getSnapshot() is rebuilt from one getAllPriceLists call.
+ * importPriceListsFromJson / previewImportFromJson read the file here and send its content
+ * (the server never opens a path named by a client).
+ */
+public class RemotePriceListManagementController extends PriceListManagementController {
+
+    private static final Type PRICE_LIST_LIST = new TypeToken<List<PriceList>>() {}.getType();
+
+    private final ApiClient api;
+
+    public RemotePriceListManagementController(ApiClient api) {
+        super(null);
+        this.api = api;
+    }
+
+    @Override
+    public void importPriceListsFromJson(String filePath) throws Exception {
+        importPriceLists(Files.readString(Paths.get(filePath)));
+    }
+
+    @Override
+    public void importPriceLists(String json) {
+        api.run(ApiProtocol.PRICE_LIST, "importPriceLists", json);
+    }
+
+    @Override
+    public void importPriceListsFromDefaultJson() {
+        api.run(ApiProtocol.PRICE_LIST, "importPriceListsFromDefaultJson");
+    }
+
+    @Override
+    public PriceListImportPreview previewImportFromJson(String filePath) throws Exception {
+        return previewImport(Files.readString(Paths.get(filePath)));
+    }
+
+    @Override
+    public PriceListImportPreview previewImport(String json) {
+        return api.call(ApiProtocol.PRICE_LIST, "previewImport", PriceListImportPreview.class, json);
+    }
+
+    @Override
+    public PriceListImportPreview previewImportFromDefaultJson() {
+        return api.call(ApiProtocol.PRICE_LIST, "previewImportFromDefaultJson", PriceListImportPreview.class);
+    }
+
+    @Override
+    public PriceListImportPreview applyImport(PriceListImportPreview preview) {
+        return api.call(ApiProtocol.PRICE_LIST, "applyImport", PriceListImportPreview.class, preview);
+    }
+
+    @Override
+    public Collection<PriceList> getAllPriceLists() {
+        return api.call(ApiProtocol.PRICE_LIST, "getAllPriceLists", PRICE_LIST_LIST);
+    }
+
+    @Override
+    public List<PriceList> getPriceListsForYear(int year) {
+        return api.call(ApiProtocol.PRICE_LIST, "getPriceListsForYear", PRICE_LIST_LIST, year);
+    }
+
+    @Override
+    public PriceList getById(int dbId) {
+        return api.call(ApiProtocol.PRICE_LIST, "getById", PriceList.class, dbId);
+    }
+
+    @Override
+    public void reload() {
+        api.run(ApiProtocol.PRICE_LIST, "reload");
+    }
+
+    @Override
+    public PriceListSnapshot getSnapshot() {
+        PriceListSnapshot.Builder builder = new PriceListSnapshot.Builder();
+        for (PriceList p : getAllPriceLists()) builder.put(p);
+        return builder.build(getCurrentVersion());
+    }
+
+    @Override
+    public long getCurrentVersion() {
+        Long version = api.call(ApiProtocol.PRICE_LIST, "getCurrentVersion", Long.class);
+        return version == null ? 0L : version;
+    }
+
+    @Override
+    public Integer getDbIdForJsonPriceListId(int jsonPriceListId) {
+        return api.call(ApiProtocol.PRICE_LIST, "getDbIdForJsonPriceListId", Integer.class, jsonPriceListId);
+    }
+}
@@ -0,0 +1,78 @@
+package control;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.ColumnBuilder;
+import com.healthmarketscience.jackcess.Cursor;
+import com.healthmarketscience.jackcess.CursorBuilder;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.PropertyMap;
+import com.healthmarketscience.jackcess.Table;
+import com.healthmarketscience.jackcess.impl.DatabaseImpl;
+import com.healthmarketscience.jackcess.impl.TableImpl;
+
+/**
+ * RowVersions
+ * -----------
+ * The [rowVersion] column of ParkingLot and Conveyor (optimistic locking):
+ * every write sets [rowVersion]=[rowVersion]+1, versioned updates add AND [rowVersion]=? to the WHERE.
+ *
+ * Older files do not have the column: schema migration 1 (SchemaMigrator) adds it (LONG, default 0)
+ * with Jackcess (Main --migrate-schema, the application closed). Not with ALTER TABLE: UCanAccess (and Jackcess
+ * underneath) then rewrite the table definition with a too small variable-column count, and every later
+ * INSERT / UPDATE of a table that ever had a column dropped (Conveyor) fails. The count is put back.
+ */
+final class RowVersions {
+
+    static final String COLUMN = "rowVersion";
+    static final String[] TABLES = { "ParkingLot", "Conveyor" };
+
+    private RowVersions() {}
+
+    /** Adds the column where it is missing; must run before the first UCanAccess connection to the file. */
+    static void ensureColumns(Path file) throws IOException {
+        Set<String> added = new HashSet<>();
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            for (String name : TABLES) {
+                TableImpl table = (TableImpl) db.getTable(name);
+                if (table != null && !hasColumn(table)) {
+                    SchemaMigrator.keepVarColumnCount((DatabaseImpl) db, table,
+                            () -> new ColumnBuilder(COLUMN, DataType.LONG)
+                                    .putProperty(PropertyMap.DEFAULT_VALUE_PROP, "0")
+                                    .addToTable(table));
+                    added.add(name);
+                }
+            }
+        }
+
+        // existing rows: 0 instead of NULL (re-opened: the patched definition is read back)
+        if (!added.isEmpty()) {
+            try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+                for (String name : added) {
+                    Table table = db.getTable(name);
+                    Column column = table.getColumn(COLUMN);
+                    Cursor cursor = CursorBuilder.createCursor(table);
+                    while (cursor.moveToNextRow()) cursor.setCurrentRowValue(column, 0);
+                }
+            }
+        }
+    }
+
+    private static boolean hasColumn(TableImpl table) {
+        for (Column c : table.getColumns()) {
+            if (c.getName().equalsIgnoreCase(COLUMN)) return true;
+        }
+        return false;
+    }
+
+    /** Jackcess / snapshot rows: null (column missing or never written) reads as 0. */
+    static int valueOf(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+}
@@ -0,0 +1,473 @@
+package control;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.ColumnBuilder;
+import com.healthmarketscience.jackcess.Cursor;
+import com.healthmarketscience.jackcess.CursorBuilder;
+import com.healthmarketscience.jackcess.DataType;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.Index;
+import com.healthmarketscience.jackcess.IndexBuilder;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+import com.healthmarketscience.jackcess.TableBuilder;
+import com.healthmarketscience.jackcess.impl.DatabaseImpl;
+import com.healthmarketscience.jackcess.impl.PageChannel;
+import com.healthmarketscience.jackcess.impl.TableImpl;
+
+import entity.City;
+import entity.Conveyor;
+import entity.PriceList;
+
+/**
+ * SchemaMigrator
+ * --------------
+ * Versioned schema upgrades of the .accdb, applied only by Main --migrate-schema (with the application
+ * closed), after a backup of the file. AccessDb refuses files that are not at LATEST.
+ *
+ *   1  rowVersion columns on ParkingLot and Conveyor (RowVersions)
+ *   2  index Conveyor(ParkingLotID, isActive)         - conveyors of a lot, active only
+ *   3  index PriceHistory(parkingLotID, effectiveTo)  - current / scheduled prices of a lot
+ *   4  index ParkingLot(isActive)                     - active lots
+ *   5  City.cityNameKey = LCASE(TRIM(cityName)), indexed - findCityByName without LCASE on every row
+ *   6  archive tables ParkingLotArchive, ConveyorArchive, PriceHistoryArchive (see SoftDeleteArchiver)
+ *   7  PriceList.feedId (priceListId of the import that wrote the row), index (year, feedId);
+ *      rows of the bundled feed (lib/pricelist.json) get theirs back
+ *
+ * - the SchemaVersion table (version, description, appliedAt) has one row per applied migration
+ * - every step checks what the file already has (an index on the same columns under another name,
+ *   a column added by hand), so files upgraded by older builds without SchemaVersion are fine
+ * - all changes go through Jackcess; the variable-column count of the table definition is put back
+ *   after each change (see RowVersions)
+ *
+ * Main --migrate-schema copies the file to <file>.schema-v<version>.bak (kept when it already exists:
+ * the copy from before a failed run), then prints the applied steps and the timings of the affected
+ * queries before / after.
+ */
+public final class SchemaMigrator {
+
+    static final String VERSION_TABLE = "SchemaVersion";
+    static final String CITY_NAME_KEY = "cityNameKey";
+    static final String PRICE_LIST_FEED_ID = "feedId";
+    static final String DEFAULT_FEED = "lib/pricelist.json";
+
+    private interface Step {
+        void apply(Path file) throws IOException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private static final List<Migration> MIGRATIONS = Arrays.asList(
+            new Migration(1, "rowVersion columns on ParkingLot and Conveyor", RowVersions::ensureColumns),
+            new Migration(2, "index Conveyor(ParkingLotID, isActive)",
+                    f -> addIndex(f, "Conveyor", "IX_Conveyor_LotActive", "ParkingLotID", "isActive")),
+            new Migration(3, "index PriceHistory(parkingLotID, effectiveTo)",
+                    f -> addIndex(f, "PriceHistory", "IX_PriceHistory_LotTo", "parkingLotID", "effectiveTo")),
+            new Migration(4, "index ParkingLot(isActive)",
+                    f -> addIndex(f, "ParkingLot", "IX_ParkingLot_Active", "isActive")),
+            new Migration(5, "City.cityNameKey (lower-case name) with an index", SchemaMigrator::addCityNameKey),
+            new Migration(6, "archive tables for inactive parking lots and conveyors", f -> {
+                addArchiveTable(f, "ParkingLot", null);
+                addArchiveTable(f, "Conveyor", "ParkingLotID");
+                addArchiveTable(f, "PriceHistory", "parkingLotID");
+            }),
+            new Migration(7, "PriceList.feedId (priceListId of the import) with an index", SchemaMigrator::addPriceListFeedId));
+
+    public static final int LATEST = MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+
+    // version each file was brought to by this process (shared by all AccessDb instances)
+    private static final Map<Path, Integer> CHECKED = new HashMap<>();
+
+    private SchemaMigrator() {}
+
+    /** Brings the file to LATEST. @return the descriptions of the applied migrations */
+    public static List<String> migrate(Path file) throws IOException {
+        return migrate(file, LATEST);
+    }
+
+    /** Brings the file to {@code target} (never down). @return the descriptions of the applied migrations */
+    static List<String> migrate(Path file, int target) throws IOException {
+        synchronized (CHECKED) {
+            List<String> applied = new ArrayList<>();
+            Integer known = CHECKED.get(file);
+            if (known != null && known >= target) return applied;
+
+            int current = currentVersion(file);
+            for (Migration m : MIGRATIONS) {
+                if (m.version <= current || m.version > target) continue;
+                m.step.apply(file);
+                recordVersion(file, m);
+                applied.add(m.version + ": " + m.description);
+                current = m.version;
+            }
+            CHECKED.put(file, current);
+            return applied;
+        }
+    }
+
+    /**
+     * The version of the file, read again until it is at least {@code required} (then known for the process).
+     */
+    static int version(Path file, int required) throws IOException {
+        synchronized (CHECKED) {
+            Integer known = CHECKED.get(file);
+            if (known != null && known >= required) return known;
+
+            int current = currentVersion(file);
+            if (current >= required) CHECKED.put(file, current);
+            return current;
+        }
+    }
+
+    /** Highest applied migration (0: no SchemaVersion table yet). */
+    public static int currentVersion(Path file) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).setReadOnly(true).open()) {
+            Table table = db.getTable(VERSION_TABLE);
+            if (table == null) return 0;
+
+            int max = 0;
+            for (Row row : table) max = Math.max(max, RowVersions.valueOf(row.get("version")));
+            return max;
+        }
+    }
+
+    private static void recordVersion(Path file, Migration m) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            Table table = db.getTable(VERSION_TABLE);
+            if (table == null) {
+                table = new TableBuilder(VERSION_TABLE)
+                        .addColumn(new ColumnBuilder("version", DataType.LONG))
+                        .addColumn(new ColumnBuilder("description", DataType.TEXT).setLengthInUnits(255))
+                        .addColumn(new ColumnBuilder("appliedAt", DataType.SHORT_DATE_TIME))
+                        .addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("version").setPrimaryKey())
+                        .toTable(db);
+            }
+            table.addRow(m.version, m.description, new Date());
+        }
+    }
+
+    // ----------------- report -----------------
+
+    private static final int REPORT_WARMUP = 50;   // the "before" copy runs first: keep JIT warm-up out of it
+    private static final int REPORT_ITERATIONS = 50;
+
+    /**
+     * Main --migrate-schema: times the affected controller reads on two copies of the file (as it is,
+     * and migrated), backs the file up, then migrates the file itself.
+     * @return the report (backup, applied steps, average time per call before / after)
+     */
+    public static String migrateWithReport(Path file) throws IOException {
+        int from = currentVersion(file);
+        StringBuilder report = new StringBuilder();
+        report.append("Schema of ").append(file).append(": version ").append(from)
+                .append(", latest ").append(LATEST).append('\n');
+
+        if (from < LATEST) {
+            Path backup = file.resolveSibling(file.getFileName() + ".schema-v" + from + ".bak");
+            if (!Files.exists(backup)) Files.copy(file, backup);
+            report.append("Backup: ").append(backup).append('\n');
+
+            Map<String, Double> before = timeCopy(file, Math.max(from, 1));
+            Map<String, Double> after = timeCopy(file, LATEST);
+
+            report.append(String.format("%-52s %12s %12s%n", "query (avg of " + REPORT_ITERATIONS + " calls)",
+                    "before us", "after us"));
+            for (Map.Entry<String, Double> e : before.entrySet()) {
+                report.append(String.format("%-52s %12.1f %12.1f%n",
+                        e.getKey(), e.getValue(), after.getOrDefault(e.getKey(), Double.NaN)));
+            }
+        }
+
+        List<String> applied = migrate(file);
+        report.append(applied.isEmpty() ? "Nothing to apply." : "Applied: " + String.join(", ", applied));
+        return report.toString();
+    }
+
+    /** Controller read -> avg microseconds, on a temp copy migrated to {@code target}. */
+    private static Map<String, Double> timeCopy(Path file, int target) throws IOException {
+        Path copy = Files.createTempFile("parkwise-schema-" + target + "-", ".accdb");
+        try {
+            Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            migrate(copy, target);
+            AccessDb db = new AccessDb(copy.toString());
+            db.setRequiredSchema(target);
+
+            ConveyorManagementController conveyors = new ConveyorManagementController(db);
+            ParkingLotManagementController lots = new ParkingLotManagementController(db);
+            PriceHistoryManagementController history = new PriceHistoryManagementController(db);
+            CityManagementController cities = new CityManagementController(db);
+
+            // the lot with the most conveyors, any city name
+            Map<Integer, Integer> perLot = new HashMap<>();
+            for (Conveyor c : conveyors.getAllConveyors(true)) perLot.merge(c.getParkingLotId(), 1, Integer::sum);
+            int lot = perLot.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(0);
+            List<City> all = cities.getAllCities();
+            String cityName = all.isEmpty() ? "" : all.get(all.size() - 1).getCityName().toUpperCase(Locale.ROOT);
+
+            Map<String, Double> times = new LinkedHashMap<>();
+            times.put("Conveyor.getConveyorsByParkingLot(" + lot + ")", time(() -> conveyors.getConveyorsByParkingLot(lot)));
+            times.put("PriceHistory.getScheduledPriceChanges(" + lot + ")", time(() -> history.getScheduledPriceChanges(lot)));
+            times.put("ParkingLot.getAllParkingLots(active)", time(() -> lots.getAllParkingLots(false)));
+            // before migration 5 there is no key column: the query findCityByName used then
+            times.put("City.findCityByName(" + cityName + ")", target >= 5
+                    ? time(() -> cities.findCityByName(cityName))
+                    : time(() -> findCityByLowerCase(db, cityName)));
+            return times;
+
+        } finally {
+            // UCanAccess may still hold the file (Windows): removed on exit then
+            try {
+                Files.deleteIfExists(copy);
+            } catch (IOException e) {
+                copy.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static Integer findCityByLowerCase(AccessDb db, String name) {
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement("SELECT [ID] FROM City WHERE LCASE([cityName]) = LCASE(?)")) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to find city: " + e.getMessage(), e);
+        }
+    }
+
+    private static double time(Supplier<?> call) {
+        for (int i = 0; i < REPORT_WARMUP; i++) call.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < REPORT_ITERATIONS; i++) call.get();
+        return (System.nanoTime() - start) / 1000.0 / REPORT_ITERATIONS;
+    }
+
+    // ----------------- steps -----------------
+
+    /** Adds the index unless the table already has one on exactly these columns. */
+    private static void addIndex(Path file, String tableName, String indexName, String... columns) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            TableImpl table = (TableImpl) db.getTable(tableName);
+            if (table == null || hasIndex(table, columns)) return;
+
+            keepVarColumnCount((DatabaseImpl) db, table,
+                    () -> new IndexBuilder(indexName).addColumns(columns).addToTable(table));
+        }
+    }
+
+    private static boolean hasIndex(Table table, String... columns) {
+        for (Index index : table.getIndexes()) {
+            List<? extends Index.Column> indexed = index.getColumns();
+            if (indexed.size() != columns.length) continue;
+
+            boolean same = true;
+            for (int i = 0; i < columns.length && same; i++) {
+                same = indexed.get(i).getName().equalsIgnoreCase(columns[i]);
+            }
+            if (same) return true;
+        }
+        return false;
+    }
+
+    private static void addCityNameKey(Path file) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            TableImpl table = (TableImpl) db.getTable("City");
+            if (table == null || hasColumn(table, CITY_NAME_KEY)) return;
+
+            keepVarColumnCount((DatabaseImpl) db, table,
+                    () -> new ColumnBuilder(CITY_NAME_KEY, DataType.TEXT).setLengthInUnits(255).addToTable(table));
+        }
+
+        // re-opened: the patched definition is read back
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            Table table = db.getTable("City");
+            Column name = table.getColumn("cityName");
+            Column key = table.getColumn(CITY_NAME_KEY);
+
+            Cursor cursor = CursorBuilder.createCursor(table);
+            while (cursor.moveToNextRow()) {
+                Object value = cursor.getCurrentRowValue(name);
+                cursor.setCurrentRowValue(key, cityNameKey(value == null ? null : value.toString()));
+            }
+            if (!hasIndex(table, CITY_NAME_KEY)) {
+                TableImpl impl = (TableImpl) table;
+                keepVarColumnCount((DatabaseImpl) db, impl,
+                        () -> new IndexBuilder("IX_City_NameKey").addColumns(CITY_NAME_KEY).addToTable(impl));
+            }
+        }
+    }
+
+    /**
+     * Rows written before had no feedId. Each price list of the bundled feed gets back the row it was
+     * imported to: the lowest ID of that year with the same prices (duplicates of earlier imports
+     * stay without one). Other rows are never matched by an import: it inserts new ones.
+     */
+    private static void addPriceListFeedId(Path file) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            TableImpl table = (TableImpl) db.getTable("PriceList");
+            if (table == null) return;
+            if (!hasColumn(table, PRICE_LIST_FEED_ID)) {
+                keepVarColumnCount((DatabaseImpl) db, table,
+                        () -> new ColumnBuilder(PRICE_LIST_FEED_ID, DataType.LONG).addToTable(table));
+            }
+        }
+
+        Path feed = Paths.get(PriceListManagementController.resolveJsonPath(DEFAULT_FEED));
+        if (Files.exists(feed)) {
+            List<PriceList> fed;
+            try (Reader reader = Files.newBufferedReader(feed, StandardCharsets.UTF_8)) {
+                fed = PriceListManagementController.readImport(reader);
+            } catch (RuntimeException e) {
+                throw new IOException("Cannot read " + feed + ": " + e.getMessage(), e);
+            }
+            // re-opened: the patched definition is read back
+            try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+                backfillFeedIds(db.getTable("PriceList"), fed);
+            }
+        }
+        addIndex(file, "PriceList", "IX_PriceList_YearFeed", "year", PRICE_LIST_FEED_ID);
+    }
+
+    private static void backfillFeedIds(Table table, List<PriceList> fed) throws IOException {
+        Map<Long, Row> byFeedKey = new HashMap<>();
+        List<Row> unfed = new ArrayList<>();
+        for (Row row : table) {
+            Object feedId = row.get(PRICE_LIST_FEED_ID);
+            if (feedId == null) unfed.add(row);
+            else byFeedKey.put(PriceListImportPreview.feedKey(intOf(row, "year"), RowVersions.valueOf(feedId)), row);
+        }
+        unfed.sort(Comparator.comparingInt(r -> intOf(r, "ID")));
+
+        for (PriceList p : fed) {
+            if (byFeedKey.containsKey(PriceListImportPreview.feedKey(p.getYear(), p.getId()))) continue;
+            for (Iterator<Row> it = unfed.iterator(); it.hasNext(); ) {
+                Row row = it.next();
+                if (!PriceListSnapshot.sameValues(p, new PriceList(intOf(row, "ID"), intOf(row, "year"),
+                        doubleOf(row, "firstHourPrice"), doubleOf(row, "additionalHourPrice"), doubleOf(row, "fullDayPrice")))) {
+                    continue;
+                }
+                row.put(PRICE_LIST_FEED_ID, p.getId());
+                table.updateRow(row);
+                byFeedKey.put(PriceListImportPreview.feedKey(p.getYear(), p.getId()), row);
+                it.remove();
+                break;
+            }
+        }
+    }
+
+    private static int intOf(Row row, String column) {
+        return RowVersions.valueOf(row.get(column));
+    }
+
+    private static double doubleOf(Row row, String column) {
+        Object value = row.get(column);
+        return value == null ? 0 : ((Number) value).doubleValue();
+    }
+
+    /**
+     * {@code <table>Archive}: the columns of the table as they are now (plain LONG ID, no relationships)
+     * + archivedAt, primary key ID, index on lotColumn.
+     */
+    private static void addArchiveTable(Path file, String tableName, String lotColumn) throws IOException {
+        try (Database db = new DatabaseBuilder(file.toFile()).open()) {
+            Table source = db.getTable(tableName);
+            String name = SoftDeleteArchiver.archiveTable(tableName);
+            if (source == null || db.getTable(name) != null) return;
+
+            TableBuilder archive = new TableBuilder(name);
+            for (Column c : source.getColumns()) {
+                archive.addColumn(new ColumnBuilder(c.getName()).setFromColumn(c).setAutoNumber(false));
+            }
+            archive.addColumn(new ColumnBuilder(SoftDeleteArchiver.ARCHIVED_AT, DataType.SHORT_DATE_TIME));
+            archive.addIndex(new IndexBuilder(IndexBuilder.PRIMARY_KEY_NAME).addColumns("ID").setPrimaryKey());
+            if (lotColumn != null) archive.addIndex(new IndexBuilder("IX_" + name + "_Lot").addColumns(lotColumn));
+            archive.toTable(db);
+        }
+    }
+
+    /** The value of City.cityNameKey for a name (CityManagementController looks cities up by it). */
+    static String cityNameKey(String cityName) {
+        return cityName == null ? null : cityName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean hasColumn(Table table, String name) {
+        for (Column c : table.getColumns()) {
+            if (c.getName().equalsIgnoreCase(name)) return true;
+        }
+        return false;
+    }
+
+    // ----------------- table definition -----------------
+
+    interface TableChange {
+        void run() throws IOException;
+    }
+
+    /**
+     * Runs a Jackcess change of the table definition and keeps the slots of dropped variable-length
+     * columns counted: Jackcess rewrites the count from the columns it sees, and every later INSERT /
+     * UPDATE of a table that ever had a column dropped (Conveyor) then fails in UCanAccess.
+     */
+    static void keepVarColumnCount(DatabaseImpl db, TableImpl table, TableChange change) throws IOException {
+        PageChannel pages = db.getPageChannel();
+        int offset = db.getFormat().OFFSET_NUM_VAR_COLS;
+        int defPage = table.getTableDefPageNumber();
+
+        short varColumns = readPage(pages, defPage).getShort(offset);
+
+        change.run();
+
+        ByteBuffer def = readPage(pages, defPage);
+        if (def.getShort(offset) < varColumns) {
+            def.putShort(offset, varColumns);
+            pages.startWrite();
+            try {
+                pages.writePage(def, defPage);
+            } finally {
+                pages.finishWrite();
+            }
+        }
+    }
+
+    private static ByteBuffer readPage(PageChannel pages, int page) throws IOException {
+        ByteBuffer buffer = pages.createPageBuffer();
+        pages.readPage(buffer, page);
+        return buffer;
+    }
+}
@@ -0,0 +1,217 @@
+package control;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import control.ShardSet.Shard;
+import entity.Conveyor;
+import entity.ParkingLot;
+
+/**
+ * ShardRouter
+ * -----------
+ * Finds the shard of a city / parking lot / conveyor and runs calls on it.
+ *
+ * - one set of the normal controllers per shard (each with its own pool, caches, price index)
+ * - cities: by the ShardSet config; lots and conveyors: by an ID -> shard directory,
+ *   filled on first use by reading every shard; an ID that is not in it (created by another
+ *   process) is looked up by key on every shard, and a miss is remembered for MISS_TTL_MS
+ * - fanOut runs a call on every shard in parallel and returns the results in shard order
+ *
+ * Used by the Sharded*ManagementController classes.
+ */
+public final class ShardRouter {
+
+    /** How long an ID found on no shard is answered "not found" without asking the shards again. */
+    static final long MISS_TTL_MS = 10_000;
+    private static final int MAX_MISSES = 10_000;
+
+    /** The controllers of one shard. */
+    public static final class Controllers {
+        final Shard shard;
+        final CityManagementController cities;
+        final ParkingLotManagementController parkingLots;
+        final ConveyorManagementController conveyors;
+        final PriceListManagementController priceLists;
+        final PriceHistoryManagementController priceHistory;
+
+        Controllers(Shard shard) {
+            AccessDb db = shard.getDb();
+            this.shard = shard;
+            this.cities = new CityManagementController(db);
+            this.parkingLots = new ParkingLotManagementController(db);
+            this.conveyors = new ConveyorManagementController(db);
+            this.priceLists = new PriceListManagementController(db);
+            this.priceHistory = new PriceHistoryManagementController(db);
+        }
+
+        public Shard getShard() { return shard; }
+    }
+
+    private final ShardSet shards;
+    private final List<Controllers> controllers = new ArrayList<>();
+    private final ExecutorService pool;
+
+    private final Map<Integer, Controllers> lotDirectory = new ConcurrentHashMap<>();
+    private final Map<Integer, Controllers> conveyorDirectory = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> lotMisses = new ConcurrentHashMap<>();        // ID -> expiry (ms)
+    private final Map<Integer, Long> conveyorMisses = new ConcurrentHashMap<>();
+    private final Object directoryLock = new Object();
+    private volatile boolean directoryLoaded;
+
+    public ShardRouter(ShardSet shards) {
+        this.shards = shards;
+        for (Shard s : shards.getShards()) controllers.add(new Controllers(s));
+
+        pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "parkwise-shard");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public ShardSet getShardSet() {
+        return shards;
+    }
+
+    /** Controllers of every shard, in shard order. */
+    public List<Controllers> all() {
+        return controllers;
+    }
+
+    public Controllers primary() {
+        return controllers.get(shards.primary().getIndex());
+    }
+
+    public Controllers forCity(int cityId) {
+        return controllers.get(shards.shardForCity(cityId).getIndex());
+    }
+
+    public Controllers forNewCity() {
+        return controllers.get(shards.shardForNewCity().getIndex());
+    }
+
+    public Controllers forParkingLot(int parkingLotId) {
+        Controllers c = findParkingLot(parkingLotId);
+        if (c == null) throw new IllegalArgumentException("ParkingLot not found: " + parkingLotId);
+        return c;
+    }
+
+    public Controllers forConveyor(int conveyorId) {
+        Controllers c = lookup(conveyorDirectory, conveyorMisses, conveyorId, "Conveyor");
+        if (c == null) throw new IllegalArgumentException("Conveyor not found: " + conveyorId);
+        return c;
+    }
+
+    /** Like forParkingLot, but null for an unknown lot. */
+    Controllers findParkingLot(int parkingLotId) {
+        return lookup(lotDirectory, lotMisses, parkingLotId, "ParkingLot");
+    }
+
+    void recordParkingLot(int parkingLotId, Controllers owner) {
+        lotDirectory.put(parkingLotId, owner);
+        lotMisses.remove(parkingLotId);
+    }
+
+    void recordConveyor(int conveyorId, Controllers owner) {
+        conveyorDirectory.put(conveyorId, owner);
+        conveyorMisses.remove(conveyorId);
+    }
+
+    /** Runs the call on every shard in parallel; results in shard order. */
+    public <T> List<T> fanOut(Function<Controllers, T> call) {
+        if (controllers.size() == 1) return Collections.singletonList(call.apply(controllers.get(0)));
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(controllers.size());
+        for (Controllers c : controllers) {
+            futures.add(CompletableFuture.supplyAsync(() -> call.apply(c), pool));
+        }
+
+        List<T> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<T> f : futures) {
+            try {
+                results.add(f.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw e;
+            }
+        }
+        return results;
+    }
+
+    // ----------------- directory -----------------
+
+    /** The owner of the ID, null when no shard has it. */
+    private Controllers lookup(Map<Integer, Controllers> directory, Map<Integer, Long> misses, int id, String table) {
+        if (!directoryLoaded) refreshDirectory();
+
+        Controllers c = directory.get(id);
+        if (c != null) return c;
+
+        Long missUntil = misses.get(id);
+        if (missUntil != null && missUntil > System.currentTimeMillis()) return null;
+
+        // created by another process since the directory was loaded? ask every shard for this key only
+        List<Boolean> found = fanOut(owner -> hasRow(owner.shard.getDb(), table, id));
+        for (int i = 0; i < found.size(); i++) {
+            if (found.get(i)) {
+                directory.put(id, controllers.get(i));
+                misses.remove(id);
+                return controllers.get(i);
+            }
+        }
+
+        if (misses.size() >= MAX_MISSES) misses.clear();
+        misses.put(id, System.currentTimeMillis() + MISS_TTL_MS);
+        return null;
+    }
+
+    /** Whether the table or its archive (SoftDeleteArchiver) has a row with this ID. */
+    private static boolean hasRow(AccessDb db, String table, int id) {
+        final String sql =
+                "SELECT [ID] FROM " + table + " WHERE [ID]=? " +
+                "UNION ALL SELECT [ID] FROM " + SoftDeleteArchiver.archiveTable(table) + " WHERE [ID]=?";
+
+        try (Connection conn = db.open();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, id);
+            ps.setInt(2, id);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to look up " + table + " " + id + ": " + e.getMessage(), e);
+        }
+    }
+
+    /** Reads the lot and conveyor IDs of every shard (once, on first use). */
+    private void refreshDirectory() {
+        synchronized (directoryLock) {
+            if (directoryLoaded) return;
+            List<List<ParkingLot>> lots = fanOut(c -> c.parkingLots.getAllParkingLots(true));
+            List<List<Conveyor>> conveyors = fanOut(c -> c.conveyors.getAllConveyors(true));
+
+            for (int i = 0; i < controllers.size(); i++) {
+                for (ParkingLot p : lots.get(i)) lotDirectory.put(p.getId(), controllers.get(i));
+                for (Conveyor cv : conveyors.get(i)) conveyorDirectory.put(cv.getId(), controllers.get(i));
+            }
+            directoryLoaded = true;
+        }
+    }
+}
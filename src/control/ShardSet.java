@@ -0,0 +1,174 @@
+package control;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * ShardSet
+ * --------
+ * The data split over several .accdb files, one per region / city group
+ * (one file has a 2 GB limit and a single lock).
+ *
+ * Config (properties file):
+ *
+ *   shards=north,center,south
+ *   shard.north.path=db/shards/parkwise_north.accdb
+ *   shard.north.cities=3,7,12
+ *   shard.center.path=db/shards/parkwise_center.accdb
+ *   shard.center.cities=1,2
+ *   shard.south.path=db/shards/parkwise_south.accdb
+ *   shard.south.cities=*
+ *
+ * - a city, its parking lots, their conveyors and price history live in ONE shard
+ * - cities=* marks the default shard: cities not listed anywhere (incl. new ones) live there
+ * - PriceList is replicated: every shard has the same rows with the same IDs (written on the
+ *   primary, copied to the others)
+ * - IDs are unique across shards: ShardSplitter starts the AutoNumbers of shard i at
+ *   (i + 1) * ID_BLOCK, rows copied from the original file keep their IDs
+ *
+ * ShardRouter sends every call to the right shard; ShardSplitter creates the files.
+ */
+public final class ShardSet {
+
+    /** AutoNumber range of one shard (see ShardSplitter). */
+    public static final int ID_BLOCK = 10_000_000;
+
+    /** One shard: a name, its database and the cities it owns. */
+    public static final class Shard {
+        private final int index;
+        private final String name;
+        private final AccessDb db;
+        private final Set<Integer> cityIds;
+        private final boolean defaultShard;
+
+        Shard(int index, String name, AccessDb db, Set<Integer> cityIds, boolean defaultShard) {
+            this.index = index;
+            this.name = name;
+            this.db = db;
+            this.cityIds = Collections.unmodifiableSet(cityIds);
+            this.defaultShard = defaultShard;
+        }
+
+        public int getIndex() { return index; }
+        public String getName() { return name; }
+        public AccessDb getDb() { return db; }
+
+        /** Cities listed for this shard (the default shard also owns every unlisted city). */
+        public Set<Integer> getCityIds() { return cityIds; }
+
+        public boolean isDefaultShard() { return defaultShard; }
+
+        @Override
+        public String toString() {
+            return name + " (" + db.getAccdbPath() + ")";
+        }
+    }
+
+    private final List<Shard> shards;
+    private final Map<Integer, Shard> shardByCity = new HashMap<>();
+    private final Shard defaultShard;
+
+    public ShardSet(List<Shard> shards) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("A shard set needs at least one shard.");
+        this.shards = Collections.unmodifiableList(new ArrayList<>(shards));
+
+        Shard fallback = null;
+        for (Shard s : shards) {
+            if (s.isDefaultShard()) {
+                if (fallback != null) {
+                    throw new IllegalArgumentException("Only one shard can have cities=* (" + fallback.getName()
+                            + ", " + s.getName() + ")");
+                }
+                fallback = s;
+            }
+            for (Integer cityId : s.getCityIds()) {
+                Shard other = shardByCity.put(cityId, s);
+                if (other != null) {
+                    throw new IllegalArgumentException("City " + cityId + " is assigned to two shards: "
+                            + other.getName() + ", " + s.getName());
+                }
+            }
+        }
+        this.defaultShard = fallback;
+    }
+
+    /** Reads a shard config (see class comment). Relative paths are resolved like AccessDb does. */
+    public static ShardSet load(Path config) throws IOException {
+        Properties p = new Properties();
+        try (Reader reader = Files.newBufferedReader(config, StandardCharsets.UTF_8)) {
+            p.load(reader);
+        }
+
+        String names = p.getProperty("shards", "").trim();
+        if (names.isEmpty()) throw new IllegalArgumentException("No 'shards' entry in " + config);
+
+        List<Shard> shards = new ArrayList<>();
+        for (String raw : names.split(",")) {
+            String name = raw.trim();
+            if (name.isEmpty()) continue;
+
+            String path = p.getProperty("shard." + name + ".path", "").trim();
+            if (path.isEmpty()) throw new IllegalArgumentException("Missing shard." + name + ".path in " + config);
+
+            String cities = p.getProperty("shard." + name + ".cities", "").trim();
+            boolean isDefault = false;
+            Set<Integer> cityIds = new LinkedHashSet<>();
+            for (String c : cities.split(",")) {
+                String v = c.trim();
+                if (v.isEmpty()) continue;
+                if (v.equals("*")) {
+                    isDefault = true;
+                    continue;
+                }
+                try {
+                    cityIds.add(Integer.parseInt(v));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Bad city ID '" + v + "' in shard." + name + ".cities");
+                }
+            }
+
+            shards.add(new Shard(shards.size(), name, new AccessDb(path), cityIds, isDefault));
+        }
+        return new ShardSet(shards);
+    }
+
+    public List<Shard> getShards() {
+        return shards;
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    /** The shard that owns (or gets, for a new city) this city. */
+    public Shard shardForCity(int cityId) {
+        Shard s = shardByCity.get(cityId);
+        if (s != null) return s;
+        if (defaultShard != null) return defaultShard;
+        throw new IllegalArgumentException("City " + cityId + " is not assigned to any shard.");
+    }
+
+    /** Where new cities are created: the cities=* shard. */
+    public Shard shardForNewCity() {
+        if (defaultShard == null) {
+            throw new IllegalStateException("No shard takes new cities: mark one with cities=*");
+        }
+        return defaultShard;
+    }
+
+    /** Replicated data (price lists) is read from here. */
+    public Shard primary() {
+        return shards.get(0);
+    }
+}
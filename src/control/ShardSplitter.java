@@ -0,0 +1,243 @@
+package control;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+import com.healthmarketscience.jackcess.Column;
+import com.healthmarketscience.jackcess.Cursor;
+import com.healthmarketscience.jackcess.CursorBuilder;
+import com.healthmarketscience.jackcess.Database;
+import com.healthmarketscience.jackcess.DatabaseBuilder;
+import com.healthmarketscience.jackcess.Relationship;
+import com.healthmarketscience.jackcess.Row;
+import com.healthmarketscience.jackcess.Table;
+
+import control.ShardSet.Shard;
+
+/**
+ * ShardSplitter
+ * -------------
+ * Creates the shard files of a ShardSet from one existing database (Main --split-shards).
+ *
+ * For every shard: copy the source file, then delete (Jackcess) the cities owned by other shards
+ * and, following the relationships of the file, every row below them: parking lots, conveyors,
+ * price history, parking sessions, spots, receipts... The default shard also keeps the rows that
+ * belong to no city / lot. Tables above City and ParkingLot (PriceList, customers, vehicles) are
+ * copied as is (replicated). Rows that reference a parking lot always stay with their lot; so do the
+ * archived lots / conveyors / price history (SoftDeleteArchiver, no relationships: by cityID / lot ID).
+ * Copied rows keep their IDs; the AutoNumbers of shard i continue at (i + 1) * ShardSet.ID_BLOCK,
+ * so rows created later never collide across shards. The replicated PriceList continues at the
+ * primary's block on every shard (new price lists are created on the primary and copied by ID).
+ */
+public final class ShardSplitter {
+
+    private static final String[] SEEDED_TABLES = { "City", "ParkingLot", "Conveyor", "PriceHistory" };
+
+    private ShardSplitter() {}
+
+    /**
+     * @param force overwrite shard files that already exist
+     */
+    public static void split(Path source, ShardSet shards, boolean force) throws IOException {
+        if (!Files.exists(source)) throw new IOException("Source database not found: " + source);
+
+        for (Shard shard : shards.getShards()) {
+            Path target = shard.getDb().resolvedPath();
+            if (target.equals(source.toAbsolutePath())) {
+                throw new IllegalArgumentException("Shard " + shard.getName() + " points at the source database.");
+            }
+            if (Files.exists(target) && !force) {
+                throw new IllegalStateException("Shard file already exists: " + target + " (use --force)");
+            }
+        }
+        if (shards.getShards().stream().noneMatch(Shard::isDefaultShard)) {
+            checkEveryCityAssigned(source, shards);
+        }
+
+        for (Shard shard : shards.getShards()) {
+            Path target = shard.getDb().resolvedPath();
+            if (target.getParent() != null) Files.createDirectories(target.getParent());
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+
+            try (Database db = new DatabaseBuilder(target.toFile()).open()) {
+                int[] kept = keepOwnRows(db, shards, shard);
+                int next = (shard.getIndex() + 1) * ShardSet.ID_BLOCK;
+                for (String table : SEEDED_TABLES) seedAutoNumber(db.getTable(table), next);
+                seedAutoNumber(db.getTable("PriceList"), (shards.primary().getIndex() + 1) * ShardSet.ID_BLOCK);
+
+                System.out.println("Shard " + shard.getName() + " -> " + target
+                        + ": " + kept[0] + " cities, " + kept[1] + " parking lots, "
+                        + kept[2] + " conveyors, " + kept[3] + " price history rows");
+            }
+        }
+    }
+
+    /** Without a cities=* shard every city must be listed, or its rows would be lost. */
+    private static void checkEveryCityAssigned(Path source, ShardSet shards) throws IOException {
+        Set<Integer> missing = new TreeSet<>();
+        try (Database db = new DatabaseBuilder(source.toFile()).setReadOnly(true).open()) {
+            Table cities = db.getTable("City");
+            for (Row row : cities) {
+                Integer id = asInt(row, cities.getColumn("ID"));
+                if (id != null && owner(shards, id) == null) missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Cities not assigned to any shard: " + missing
+                    + " (list them or mark one shard with cities=*)");
+        }
+    }
+
+    /** @return rows kept: cities, lots, conveyors, history */
+    private static int[] keepOwnRows(Database db, ShardSet shards, Shard shard) throws IOException {
+        boolean orphans = shard.isDefaultShard();
+
+        // rows of other shards are removed top-down; the relationships say what hangs below them
+        db.setEnforceForeignKeys(false);
+        Map<String, List<Row>> removed = new LinkedHashMap<>();
+
+        Table cities = db.getTable("City");
+        Column cityId = cities.getColumn("ID");
+        removeRows(cities, row -> owner(shards, asInt(row, cityId)) != shard, removed);
+
+        // rows without a parent stay on the default shard
+        Table lots = db.getTable("ParkingLot");
+        Column lotCity = lots.getColumn("cityID");
+        removeRows(lots, row -> asInt(row, lotCity) == null && !orphans, removed);
+
+        Table conveyors = db.getTable("Conveyor");
+        Column conveyorLot = conveyors.getColumn("ParkingLotID");
+        removeRows(conveyors, row -> asInt(row, conveyorLot) == null && !orphans, removed);
+
+        Table history = db.getTable("PriceHistory");
+        Column historyLot = history.getColumn("parkingLotID");
+        removeRows(history, row -> asInt(row, historyLot) == null && !orphans, removed);
+
+        // a row that references a parking lot goes with that lot, even when it also references
+        // something in another shard (a session with a conveyor of another lot keeps the plain ID)
+        Set<String> lotOwned = new HashSet<>();
+        for (Relationship r : db.getRelationships(lots)) {
+            if (r.getFromTable().getName().equals(lots.getName())) lotOwned.add(r.getToTable().getName());
+        }
+
+        Deque<String> work = new ArrayDeque<>(removed.keySet());
+        while (!work.isEmpty()) {
+            String parent = work.poll();
+            for (Relationship r : db.getRelationships(db.getTable(parent))) {
+                if (!r.getFromTable().getName().equals(parent) || r.getFromColumns().size() != 1) continue;
+
+                String childName = r.getToTable().getName();
+                if (lotOwned.contains(childName) && !parent.equals(lots.getName())) continue;
+
+                Column key = r.getFromColumns().get(0);
+                Set<Object> gone = new HashSet<>();
+                for (Row row : removed.get(parent)) gone.add(key.getRowValue(row));
+
+                Column reference = r.getToColumns().get(0);
+                Table child = db.getTable(childName);
+                if (removeRows(child, row -> gone.contains(reference.getRowValue(row)), removed) > 0) {
+                    work.add(child.getName());
+                }
+            }
+        }
+
+        keepOwnArchive(db, shards, shard, lots);
+
+        return new int[] { cities.getRowCount(), lots.getRowCount(), conveyors.getRowCount(), history.getRowCount() };
+    }
+
+    private static void keepOwnArchive(Database db, ShardSet shards, Shard shard, Table lots) throws IOException {
+        Table lotArchive = db.getTable(SoftDeleteArchiver.archiveTable("ParkingLot"));
+        if (lotArchive == null) return;
+
+        boolean orphans = shard.isDefaultShard();
+        Map<String, List<Row>> removed = new HashMap<>();
+
+        Column lotCity = lotArchive.getColumn("cityID");
+        removeRows(lotArchive, row -> {
+            Integer city = asInt(row, lotCity);
+            return city == null ? !orphans : owner(shards, city) != shard;
+        }, removed);
+
+        Set<Integer> kept = new HashSet<>();
+        for (Table t : new Table[] { lots, lotArchive }) {
+            Column id = t.getColumn("ID");
+            for (Row row : t) kept.add(asInt(row, id));
+        }
+
+        String[][] byLot = { { "Conveyor", "ParkingLotID" }, { "PriceHistory", "parkingLotID" } };
+        for (String[] t : byLot) {
+            Table archive = db.getTable(SoftDeleteArchiver.archiveTable(t[0]));
+            if (archive == null) continue;
+            Column lot = archive.getColumn(t[1]);
+            removeRows(archive, row -> {
+                Integer id = asInt(row, lot);
+                return id == null ? !orphans : !kept.contains(id);
+            }, removed);
+        }
+    }
+
+    /** Deletes the matching rows and remembers them under their table. @return rows deleted */
+    private static int removeRows(Table table, Predicate<Row> match, Map<String, List<Row>> removed)
+            throws IOException {
+        Cursor cursor = CursorBuilder.createCursor(table);
+        int count = 0;
+        while (cursor.moveToNextRow()) {
+            Row row = cursor.getCurrentRow();
+            if (match.test(row)) {
+                cursor.deleteCurrentRow();
+                removed.computeIfAbsent(table.getName(), t -> new ArrayList<>()).add(row);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Shard owner(ShardSet shards, Integer cityId) {
+        if (cityId == null) return null;
+        try {
+            return shards.shardForCity(cityId);
+        } catch (IllegalArgumentException notAssigned) {
+            return null;
+        }
+    }
+
+    /** Next AutoNumber of the table = max(next, current): insert and delete a row with ID next - 1. */
+    private static void seedAutoNumber(Table table, int next) throws IOException {
+        Column id = table.getColumn("ID");
+        for (Row row : table) {
+            Integer value = asInt(row, id);
+            if (value != null && value >= next - 1) return;
+        }
+
+        table.setAllowAutoNumberInsert(true);
+        try {
+            // addRowFromMap writes the generated values back into the map
+            Map<String, Object> seed = new HashMap<>();
+            seed.put(id.getName(), next - 1);
+            table.addRowFromMap(seed);
+            Cursor cursor = CursorBuilder.createCursor(table);
+            if (cursor.findFirstRow(id, next - 1)) cursor.deleteCurrentRow();
+        } finally {
+            table.setAllowAutoNumberInsert(false);
+        }
+    }
+
+    private static Integer asInt(Row row, Column column) {
+        Object value = column.getRowValue(row);
+        return value instanceof Number ? ((Number) value).intValue() : null;
+    }
+}
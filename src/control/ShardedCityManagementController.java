@@ -0,0 +1,49 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import entity.City;
+
+/**
+ * ShardedCityManagementController
+ * -------------------------------
+ * CityManagementController over a ShardSet: lists are read from every shard in parallel and merged,
+ * a city is written on the shard that owns it (new cities: the cities=* shard).
+ */
+public class ShardedCityManagementController extends CityManagementController {
+
+    private final ShardRouter router;
+
+    public ShardedCityManagementController(ShardRouter router) {
+        super(null);
+        this.router = router;
+    }
+
+    @Override
+    public List<City> getAllCities() {
+        List<City> all = new ArrayList<>();
+        for (List<City> part : router.fanOut(c -> c.cities.getAllCities())) all.addAll(part);
+        all.sort(Comparator.comparingInt(City::getId));
+        return all;
+    }
+
+    @Override
+    public City addCity(String cityName) {
+        return router.forNewCity().cities.addCity(cityName);
+    }
+
+    @Override
+    public void updateCityName(int cityId, String newName) {
+        router.forCity(cityId).cities.updateCityName(cityId, newName);
+    }
+
+    @Override
+    public City findCityByName(String cityName) {
+        for (City found : router.fanOut(c -> c.cities.findCityByName(cityName))) {
+            if (found != null) return found;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,211 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import entity.Conveyor;
+import entity.ConveyorStatus;
+
+/**
+ * ShardedConveyorManagementController
+ * -----------------------------------
+ * ConveyorManagementController over a ShardSet: a conveyor lives on the shard of its parking lot,
+ * every call runs on that shard's controller (which keeps the state machine: attempt counts,
+ * pending weights). getAllConveyors reads every shard in parallel and merges.
+ * Moving a conveyor to a parking lot of another shard is not supported.
+ */
+public class ShardedConveyorManagementController extends ConveyorManagementController {
+
+    private final ShardRouter router;
+
+    public ShardedConveyorManagementController(ShardRouter router) {
+        super(null);
+        this.router = router;
+    }
+
+    @Override
+    public Conveyor addConveyorToParkingLot(int parkingLotId, int floorNumber, int x, int y,
+                                           int maxVehicleWeightKg, ConveyorStatus status) {
+        ShardRouter.Controllers owner = router.forParkingLot(parkingLotId);
+        Conveyor conveyor = owner.conveyors.addConveyorToParkingLot(parkingLotId, floorNumber, x, y,
+                maxVehicleWeightKg, status);
+        router.recordConveyor(conveyor.getId(), owner);
+        return conveyor;
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsByParkingLot(int parkingLotId) {
+        return router.forParkingLot(parkingLotId).conveyors.getConveyorsByParkingLot(parkingLotId);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsByParkingLot(int parkingLotId, boolean includeInactive) {
+        return router.forParkingLot(parkingLotId).conveyors.getConveyorsByParkingLot(parkingLotId, includeInactive);
+    }
+
+    @Override
+    public List<Conveyor> getAllConveyors(boolean includeInactive) {
+        List<Conveyor> all = new ArrayList<>();
+        for (List<Conveyor> part : router.fanOut(c -> c.conveyors.getAllConveyors(includeInactive))) {
+            all.addAll(part);
+        }
+        all.sort(JackcessReader.conveyorOrder(includeInactive));
+        return all;
+    }
+
+    @Override
+    public void moveConveyorToParkingLot(int conveyorId, int newParkingLotId) {
+        ownerForMove(conveyorId, newParkingLotId).conveyors.moveConveyorToParkingLot(conveyorId, newParkingLotId);
+    }
+
+    @Override
+    public int moveConveyorToParkingLot(int conveyorId, int newParkingLotId, int expectedVersion) {
+        return ownerForMove(conveyorId, newParkingLotId).conveyors
+                .moveConveyorToParkingLot(conveyorId, newParkingLotId, expectedVersion);
+    }
+
+    @Override
+    public void updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y) {
+        router.forConveyor(conveyorId).conveyors.updateConveyorPosition(conveyorId, floorNumber, x, y);
+    }
+
+    @Override
+    public int updateConveyorPosition(int conveyorId, Integer floorNumber, Integer x, Integer y, int expectedVersion) {
+        return router.forConveyor(conveyorId).conveyors
+                .updateConveyorPosition(conveyorId, floorNumber, x, y, expectedVersion);
+    }
+
+    @Override
+    public void deleteConveyor(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.deleteConveyor(conveyorId);
+    }
+
+    @Override
+    public int deleteConveyor(int conveyorId, int expectedVersion) {
+        return router.forConveyor(conveyorId).conveyors.deleteConveyor(conveyorId, expectedVersion);
+    }
+
+    @Override
+    public int turnOnAllConveyorsInParkingLot(int parkingLotId) {
+        return router.forParkingLot(parkingLotId).conveyors.turnOnAllConveyorsInParkingLot(parkingLotId);
+    }
+
+    @Override
+    public void decideChangeMaxWeight(int conveyorId, int newWeight) {
+        router.forConveyor(conveyorId).conveyors.decideChangeMaxWeight(conveyorId, newWeight);
+    }
+
+    @Override
+    public void confirmChangeMaxWeight(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.confirmChangeMaxWeight(conveyorId);
+    }
+
+    @Override
+    public int confirmChangeMaxWeight(int conveyorId, int expectedVersion) {
+        return router.forConveyor(conveyorId).conveyors.confirmChangeMaxWeight(conveyorId, expectedVersion);
+    }
+
+    @Override
+    public Integer getPendingWeight(int conveyorId) {
+        return router.forConveyor(conveyorId).conveyors.getPendingWeight(conveyorId);
+    }
+
+    @Override
+    public void turnOnConveyors(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.turnOnConveyors(conveyorId);
+    }
+
+    @Override
+    public int turnOnConveyors(int conveyorId, int expectedVersion) {
+        return router.forConveyor(conveyorId).conveyors.turnOnConveyors(conveyorId, expectedVersion);
+    }
+
+    @Override
+    public void restart(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.restart(conveyorId);
+    }
+
+    @Override
+    public int restart(int conveyorId, int expectedVersion) {
+        return router.forConveyor(conveyorId).conveyors.restart(conveyorId, expectedVersion);
+    }
+
+    @Override
+    public void turnOffConveyors(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.turnOffConveyors(conveyorId);
+    }
+
+    @Override
+    public int turnOffConveyors(int conveyorId, int expectedVersion) {
+        return router.forConveyor(conveyorId).conveyors.turnOffConveyors(conveyorId, expectedVersion);
+    }
+
+    @Override
+    public void pause(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.pause(conveyorId);
+    }
+
+    @Override
+    public void updateConveyorStatus(int conveyorId, ConveyorStatus status) {
+        router.forConveyor(conveyorId).conveyors.updateConveyorStatus(conveyorId, status);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsOnFloor(int parkingLotId, int floorNumber, boolean includeInactive) {
+        return router.forParkingLot(parkingLotId).conveyors.getConveyorsOnFloor(parkingLotId, floorNumber, includeInactive);
+    }
+
+    @Override
+    public List<Conveyor> getConveyorsInArea(int parkingLotId, int floorNumber, int x1, int y1, int x2, int y2,
+                                             boolean includeInactive) {
+        return router.forParkingLot(parkingLotId).conveyors
+                .getConveyorsInArea(parkingLotId, floorNumber, x1, y1, x2, y2, includeInactive);
+    }
+
+    @Override
+    public List<Conveyor> findNearestConveyors(int parkingLotId, int floorNumber, int x, int y, int k) {
+        return router.forParkingLot(parkingLotId).conveyors.findNearestConveyors(parkingLotId, floorNumber, x, y, k);
+    }
+
+    @Override
+    public List<Conveyor> getUnplacedConveyors(int parkingLotId, boolean includeInactive) {
+        return router.forParkingLot(parkingLotId).conveyors.getUnplacedConveyors(parkingLotId, includeInactive);
+    }
+
+    @Override
+    public void reloadSpatialIndexes() {
+        router.fanOut(c -> {
+            c.conveyors.reloadSpatialIndexes();
+            return null;
+        });
+    }
+
+    @Override
+    public Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg) {
+        return router.forParkingLot(parkingLotId).conveyors.dispatchConveyor(parkingLotId, vehicleWeightKg);
+    }
+
+    @Override
+    public Conveyor dispatchConveyor(int parkingLotId, int vehicleWeightKg, ConveyorDispatcher.Strategy strategy) {
+        return router.forParkingLot(parkingLotId).conveyors.dispatchConveyor(parkingLotId, vehicleWeightKg, strategy);
+    }
+
+    @Override
+    public void releaseConveyor(int conveyorId) {
+        router.forConveyor(conveyorId).conveyors.releaseConveyor(conveyorId);
+    }
+
+    @Override
+    public int getDispatchLoad(int conveyorId) {
+        return router.forConveyor(conveyorId).conveyors.getDispatchLoad(conveyorId);
+    }
+
+    private ShardRouter.Controllers ownerForMove(int conveyorId, int newParkingLotId) {
+        ShardRouter.Controllers owner = router.forConveyor(conveyorId);
+        if (router.forParkingLot(newParkingLotId) != owner) {
+            throw new IllegalStateException("Cannot move conveyor " + conveyorId + " to parking lot "
+                    + newParkingLotId + ": the lot is stored in another shard.");
+        }
+        return owner;
+    }
+}
@@ -0,0 +1,102 @@
+package control;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import entity.City;
+import entity.ParkingLot;
+
+/**
+ * ShardedParkingLotManagementController
+ * -------------------------------------
+ * ParkingLotManagementController over a ShardSet: a lot lives on the shard of its city,
+ * getAllParkingLots reads every shard in parallel and merges (same order as one database).
+ * Moving a lot to a city of another shard is not supported.
+ */
+public class ShardedParkingLotManagementController extends ParkingLotManagementController {
+
+    private final ShardRouter router;
+
+    public ShardedParkingLotManagementController(ShardRouter router) {
+        super(null);
+        this.router = router;
+    }
+
+    @Override
+    public ParkingLot addParkingLot(String name, String street, Integer number, City city, int availableSpaces) {
+        if (city == null) throw new IllegalArgumentException("City is required.");
+
+        ShardRouter.Controllers owner = router.forCity(city.getId());
+        ParkingLot lot = owner.parkingLots.addParkingLot(name, street, number, city, availableSpaces);
+        router.recordParkingLot(lot.getId(), owner);
+        return lot;
+    }
+
+    @Override
+    public void updateParkingLot(int id, String name, String street, Integer number, City city) {
+        ownerForUpdate(id, city).parkingLots.updateParkingLot(id, name, street, number, city);
+    }
+
+    @Override
+    public int updateParkingLot(int id, String name, String street, Integer number, City city, int expectedVersion) {
+        return ownerForUpdate(id, city).parkingLots.updateParkingLot(id, name, street, number, city, expectedVersion);
+    }
+
+    @Override
+    public void deleteParkingLot(int id) {
+        router.forParkingLot(id).parkingLots.deleteParkingLot(id);
+    }
+
+    @Override
+    public ParkingLot getParkingLot(int id) {
+        return router.forParkingLot(id).parkingLots.getParkingLot(id);
+    }
+
+    @Override
+    public List<ParkingLot> getAllParkingLots(boolean includeInactive) {
+        List<ParkingLot> all = new ArrayList<>();
+        for (List<ParkingLot> part : router.fanOut(c -> c.parkingLots.getAllParkingLots(includeInactive))) {
+            all.addAll(part);
+        }
+        all.sort(includeInactive
+                ? Comparator.comparing((ParkingLot p) -> !p.isActive()).thenComparingInt(ParkingLot::getId)
+                : Comparator.comparingInt(ParkingLot::getId));
+        return all;
+    }
+
+    @Override
+    public List<ParkingLot> searchParkingLots(String query, int limit, boolean includeInactive) {
+        List<ParkingLot> all = new ArrayList<>();
+        for (List<ParkingLot> part : router.fanOut(c -> c.parkingLots.searchParkingLots(query, limit, includeInactive))) {
+            all.addAll(part);
+        }
+        all.sort(ParkingLotSearchIndex.resultOrder(query));
+        return all.size() > limit ? new ArrayList<>(all.subList(0, Math.max(limit, 0))) : all;
+    }
+
+    @Override
+    public void reloadSearchIndex() {
+        router.fanOut(c -> {
+            c.parkingLots.reloadSearchIndex();
+            return null;
+        });
+    }
+
+    @Override
+    public void loadSearchIndex() {
+        router.fanOut(c -> {
+            c.parkingLots.loadSearchIndex();
+            return null;
+        });
+    }
+
+    private ShardRouter.Controllers ownerForUpdate(int id, City city) {
+        ShardRouter.Controllers owner = router.forParkingLot(id);
+        if (city != null && router.forCity(city.getId()) != owner) {
+            throw new IllegalStateException("Cannot move parking lot " + id + " to " + city.getCityName()
+                    + ": the city is stored in another shard.");
+        }
+        return owner;
+    }
+}
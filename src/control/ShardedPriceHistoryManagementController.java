@@ -0,0 +1,193 @@
+package control;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import entity.PriceHistory;
+
+/**
+ * ShardedPriceHistoryManagementController
+ * ---------------------------------------
+ * PriceHistoryManagementController over a ShardSet: history rows live with their parking lot.
+ * Calls for one lot run on its shard; calls for many lots are split by shard, run in parallel
+ * and merged; whole-table calls (activate, assign to all, reports) run on every shard.
+ * Each shard keeps its own effective price index.
+ */
+public class ShardedPriceHistoryManagementController extends PriceHistoryManagementController {
+
+    private final ShardRouter router;
+
+    public ShardedPriceHistoryManagementController(ShardRouter router) {
+        super(null);
+        this.router = router;
+    }
+
+    @Override
+    public List<PriceHistory> getHistoryForParkingLot(int parkingLotId) {
+        return router.forParkingLot(parkingLotId).priceHistory.getHistoryForParkingLot(parkingLotId);
+    }
+
+    @Override
+    public List<PriceHistoryRow> getHistoryRowsForParkingLot(int parkingLotId) {
+        return router.forParkingLot(parkingLotId).priceHistory.getHistoryRowsForParkingLot(parkingLotId);
+    }
+
+    @Override
+    public Map<Integer, List<PriceHistoryRow>> getHistoryRowsForParkingLots(Collection<Integer> parkingLotIds) {
+        if (parkingLotIds == null) throw new IllegalArgumentException("parkingLotIds is required.");
+
+        Map<Integer, List<PriceHistoryRow>> byLot = new LinkedHashMap<>();
+        for (Integer id : new LinkedHashSet<>(parkingLotIds)) {
+            if (id == null || id <= 0) throw new IllegalArgumentException("Invalid parkingLotId: " + id);
+            byLot.put(id, new ArrayList<>());
+        }
+
+        Map<ShardRouter.Controllers, List<Integer>> groups = groupByShard(byLot.keySet());
+        for (Map<Integer, List<PriceHistoryRow>> part : router.fanOut(c -> {
+            List<Integer> lots = groups.get(c);
+            return lots == null ? Map.<Integer, List<PriceHistoryRow>>of()
+                    : c.priceHistory.getHistoryRowsForParkingLots(lots);
+        })) {
+            byLot.putAll(part);
+        }
+        return byLot;
+    }
+
+    @Override
+    public void assignPriceListToParkingLot(int parkingLotId, int priceListId) {
+        router.forParkingLot(parkingLotId).priceHistory.assignPriceListToParkingLot(parkingLotId, priceListId);
+    }
+
+    @Override
+    public void schedulePriceListChange(int parkingLotId, int priceListId, LocalDate effectiveFrom) {
+        router.forParkingLot(parkingLotId).priceHistory.schedulePriceListChange(parkingLotId, priceListId, effectiveFrom);
+    }
+
+    @Override
+    public List<PriceHistory> getScheduledPriceChanges(int parkingLotId) {
+        return router.forParkingLot(parkingLotId).priceHistory.getScheduledPriceChanges(parkingLotId);
+    }
+
+    @Override
+    public int activateScheduledPriceChanges(LocalDate boundary) {
+        int changed = 0;
+        for (Integer n : router.fanOut(c -> c.priceHistory.activateScheduledPriceChanges(boundary))) changed += n;
+        return changed;
+    }
+
+    @Override
+    public BulkAssignmentResult assignPriceListToParkingLots(Collection<Integer> parkingLotIds, int priceListId) {
+        if (parkingLotIds == null) throw new IllegalArgumentException("parkingLotIds is required.");
+
+        LinkedHashSet<Integer> lots = new LinkedHashSet<>();
+        for (Integer id : parkingLotIds) {
+            if (id == null || id <= 0) throw new IllegalArgumentException("Invalid parkingLotId: " + id);
+            lots.add(id);
+        }
+
+        Map<ShardRouter.Controllers, List<Integer>> groups = groupByShard(lots);
+        for (Integer id : lots) {
+            if (router.findParkingLot(id) == null) throw new IllegalArgumentException("ParkingLot not found: " + id);
+        }
+
+        // one transaction per shard: a failing shard does not undo the others
+        return merge(router.fanOut(c -> {
+            List<Integer> part = groups.get(c);
+            return part == null ? null : c.priceHistory.assignPriceListToParkingLots(part, priceListId);
+        }));
+    }
+
+    @Override
+    public BulkAssignmentResult assignPriceListToCity(int cityId, int priceListId) {
+        if (cityId <= 0) throw new IllegalArgumentException("Invalid cityId.");
+        return router.forCity(cityId).priceHistory.assignPriceListToCity(cityId, priceListId);
+    }
+
+    @Override
+    public BulkAssignmentResult assignPriceListToAllParkingLots(int priceListId) {
+        return merge(router.fanOut(c -> c.priceHistory.assignPriceListToAllParkingLots(priceListId)));
+    }
+
+    @Override
+    public Integer getEffectivePriceListId(int parkingLotId, LocalDate date) {
+        if (date == null) throw new IllegalArgumentException("Date is required.");
+        ShardRouter.Controllers owner = router.findParkingLot(parkingLotId);
+        return owner == null ? null : owner.priceHistory.getEffectivePriceListId(parkingLotId, date);
+    }
+
+    @Override
+    public int[] getEffectivePriceListIds(int[] parkingLotIds, LocalDate date) {
+        if (parkingLotIds == null) throw new IllegalArgumentException("parkingLotIds is required.");
+        if (date == null) throw new IllegalArgumentException("Date is required.");
+
+        // positions of the lots of each shard
+        Map<ShardRouter.Controllers, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < parkingLotIds.length; i++) {
+            ShardRouter.Controllers owner = router.findParkingLot(parkingLotIds[i]);
+            if (owner != null) positions.computeIfAbsent(owner, k -> new ArrayList<>()).add(i);
+        }
+
+        int[] result = new int[parkingLotIds.length];
+        Arrays.fill(result, EffectivePriceIndex.NONE);
+
+        router.fanOut(c -> {
+            List<Integer> at = positions.get(c);
+            if (at == null) return null;
+
+            int[] lots = new int[at.size()];
+            for (int i = 0; i < lots.length; i++) lots[i] = parkingLotIds[at.get(i)];
+
+            int[] ids = c.priceHistory.getEffectivePriceListIds(lots, date);
+            for (int i = 0; i < ids.length; i++) result[at.get(i)] = ids[i];
+            return null;
+        });
+        return result;
+    }
+
+    @Override
+    public List<PriceHistory> getAllPriceHistory() {
+        List<PriceHistory> all = new ArrayList<>();
+        for (List<PriceHistory> part : router.fanOut(c -> c.priceHistory.getAllPriceHistory())) all.addAll(part);
+        all.sort(Comparator.comparingInt(PriceHistory::getId));
+        return all;
+    }
+
+    @Override
+    public void reloadPriceIndex() {
+        router.fanOut(c -> {
+            c.priceHistory.reloadPriceIndex();
+            return null;
+        });
+    }
+
+    /** Lots of each shard, in request order; unknown lots are left out. */
+    private Map<ShardRouter.Controllers, List<Integer>> groupByShard(Collection<Integer> lots) {
+        Map<ShardRouter.Controllers, List<Integer>> groups = new HashMap<>();
+        for (Integer id : lots) {
+            ShardRouter.Controllers owner = router.findParkingLot(id);
+            if (owner != null) groups.computeIfAbsent(owner, k -> new ArrayList<>()).add(id);
+        }
+        return groups;
+    }
+
+    private static BulkAssignmentResult merge(List<BulkAssignmentResult> parts) {
+        int requested = 0;
+        int changed = 0;
+        long elapsed = 0;
+        for (BulkAssignmentResult r : parts) {
+            if (r == null) continue;
+            requested += r.getLotsRequested();
+            changed += r.getLotsChanged();
+            elapsed = Math.max(elapsed, r.getElapsedMillis());
+        }
+        return new BulkAssignmentResult(requested, changed, elapsed);
+    }
+}
@@ -0,0 +1,145 @@
+package control;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import entity.PriceList;
+
+/**
+ * ShardedPriceListManagementController
+ * ------------------------------------
+ * PriceListManagementController over a ShardSet. Price lists are replicated and the primary shard is
+ * their source: an import is diffed and applied on the primary only, then its rows are copied to the
+ * other shards with the same IDs (PriceListManagementController.replicate). Reads come from the primary;
+ * PriceList.feedId, which imports are matched on, is kept on the primary only.
+ *
+ * There is no transaction across files. Every import therefore first brings the other shards up to
+ * the primary (finishing an import that failed half-way); a shard with a price list the primary does
+ * not have is rejected before anything is written.
+ */
+public class ShardedPriceListManagementController extends PriceListManagementController {
+
+    private final ShardRouter router;
+
+    public ShardedPriceListManagementController(ShardRouter router) {
+        super(null);
+        this.router = router;
+    }
+
+    @Override
+    public void importPriceListsFromJson(String filePath) throws Exception {
+        applyImport(previewImportFromJson(filePath));
+    }
+
+    @Override
+    public void importPriceLists(String json) {
+        applyImport(previewImport(json));
+    }
+
+    /** Diffed against the primary shard. */
+    @Override
+    public PriceListImportPreview previewImportFromJson(String filePath) throws Exception {
+        return router.primary().priceLists.previewImportFromJson(filePath);
+    }
+
+    @Override
+    public PriceListImportPreview previewImport(String json) {
+        return router.primary().priceLists.previewImport(json);
+    }
+
+    @Override
+    public PriceListImportPreview previewImportFromDefaultJson() {
+        return router.primary().priceLists.previewImportFromDefaultJson();
+    }
+
+    /** Applied to the primary shard, then copied to the others; returns what the primary applied. */
+    @Override
+    public PriceListImportPreview applyImport(PriceListImportPreview preview) {
+        synchronized (router) {
+            copyPrimaryToReplicas();
+            PriceListImportPreview applied = router.primary().priceLists.applyImport(preview);
+            copyPrimaryToReplicas();
+            checkReplicas();
+            return applied;
+        }
+    }
+
+    @Override
+    public void reload() {
+        for (ShardRouter.Controllers c : router.all()) c.priceLists.reload();
+        checkReplicas();
+    }
+
+    @Override
+    public Collection<PriceList> getAllPriceLists() {
+        return router.primary().priceLists.getAllPriceLists();
+    }
+
+    @Override
+    public List<PriceList> getPriceListsForYear(int year) {
+        return router.primary().priceLists.getPriceListsForYear(year);
+    }
+
+    @Override
+    public PriceList getById(int dbId) {
+        return router.primary().priceLists.getById(dbId);
+    }
+
+    @Override
+    public PriceListSnapshot getSnapshot() {
+        return router.primary().priceLists.getSnapshot();
+    }
+
+    @Override
+    public long getCurrentVersion() {
+        return router.primary().priceLists.getCurrentVersion();
+    }
+
+    @Override
+    public Integer getDbIdForJsonPriceListId(int jsonPriceListId) {
+        return router.primary().priceLists.getDbIdForJsonPriceListId(jsonPriceListId);
+    }
+
+    /** Writes the primary's price lists to every other shard (by ID; see replicate). */
+    private void copyPrimaryToReplicas() {
+        ShardRouter.Controllers primary = router.primary();
+        primary.priceLists.reload();
+        Collection<PriceList> rows = primary.priceLists.getAllPriceLists();
+
+        for (ShardRouter.Controllers c : router.all()) {
+            if (c == primary) continue;
+            try {
+                c.priceLists.replicate(rows);
+            } catch (IllegalStateException e) {
+                throw new IllegalStateException("Price lists of shard " + c.getShard().getName()
+                        + " differ from shard " + primary.getShard().getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /** Every shard must have the price lists of the primary, with the same IDs and values. */
+    private void checkReplicas() {
+        ShardRouter.Controllers primary = router.primary();
+        PriceListSnapshot.Builder expected = new PriceListSnapshot.Builder();
+        for (PriceList p : primary.priceLists.getAllPriceLists()) expected.put(p);
+
+        for (ShardRouter.Controllers c : router.all()) {
+            if (c == primary) continue;
+            c.priceLists.getAllPriceLists();
+            if (!expected.hasSameContent(c.priceLists.getSnapshot())) {
+                throw new IllegalStateException("Price lists of shard " + c.getShard().getName()
+                        + " differ from shard " + primary.getShard().getName()
+                        + " (IDs " + ids(c.priceLists.getAllPriceLists()) + " vs "
+                        + ids(primary.priceLists.getAllPriceLists()) + ")");
+            }
+        }
+    }
+
+    private static Set<Integer> ids(Collection<PriceList> lists) {
+        Set<Integer> ids = new TreeSet<>();
+        for (PriceList p : lists) ids.add(p.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,537 @@
+package control;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import entity.City;
+import entity.Conveyor;
+import entity.ParkingLot;
+import entity.PriceHistory;
+import entity.PriceList;
+
+/**
+ * SnapshotFile
+ * ------------
+ * Compact columnar copy of City, ParkingLot, Conveyor, PriceList and PriceHistory
+ * for instant cold start and offline read-only mode.
+ *
+ * Layout (big-endian):
+ *   header : "PWSNAP01", int formatVersion, long createdAtMillis, int tableCount
+ *   table  : str name, int rowCount, int columnCount, column...
+ *   column : str name, byte type, data
+ *
+ *   INT    rowCount x int     (Integer.MIN_VALUE = NULL)
+ *   DOUBLE rowCount x double
+ *   BOOL   rowCount x byte
+ *   DATE   rowCount x int     epoch day (Integer.MIN_VALUE = NULL)
+ *   STR    int dictSize, dictSize x str, rowCount x int code (-1 = NULL)
+ *   str    int byteLength, UTF-8 bytes
+ *
+ * write() goes to a temp file that is then moved over the old one, so a reader never sees
+ * a half-written snapshot. Where the old file cannot be replaced while it is mapped (Windows)
+ * the new one is left next to it as "<file>.new" and open() picks it up. open() memory-maps the file read-only; only the table directory
+ * and the string dictionaries are decoded up front, rows are decoded from the mapping on
+ * every read.
+ */
+public final class SnapshotFile {
+
+    private static final byte[] MAGIC = "PWSNAP01".getBytes(StandardCharsets.US_ASCII);
+    private static final int FORMAT_VERSION = 2; // 2: rowVersion on ParkingLot / Conveyor
+    private static final int NULL_INT = Integer.MIN_VALUE;
+
+    private static final byte INT = 1;
+    private static final byte DOUBLE = 2;
+    private static final byte BOOL = 3;
+    private static final byte DATE = 4;
+    private static final byte STR = 5;
+
+    private SnapshotFile() {}
+
+    // ----------------- write -----------------
+
+    /**
+     * Writes a snapshot of the live .accdb of {@code db}, read with Jackcess
+     * (no UCanAccess queries, so it can run next to the application's own work).
+     */
+    public static void write(Path file, AccessDb db) throws IOException {
+        JackcessReader shared = db.getJackcessReader();
+        if (shared != null) {
+            write(file, shared);
+            return;
+        }
+        try (JackcessReader reader = new JackcessReader(db.resolvedPath())) {
+            write(file, reader);
+        }
+    }
+
+    /**
+     * Writes every table of {@code source} to {@code file} (replaced atomically).
+     */
+    public static void write(Path file, ReadSource source) throws IOException {
+        List<City> cities = source.getCities();
+        List<ParkingLot> lots = source.getParkingLots();
+        List<Conveyor> conveyors = source.getConveyors();
+        List<PriceList> priceLists = source.getPriceLists();
+        List<PriceHistory> history = source.getPriceHistory();
+
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+
+                out.write(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(5);
+
+                table(out, "City", cities.size(), 2);
+                intColumn(out, "ID", cities, City::getId);
+                stringColumn(out, "cityName", cities, City::getCityName);
+
+                table(out, "ParkingLot", lots.size(), 8);
+                intColumn(out, "ID", lots, ParkingLot::getId);
+                stringColumn(out, "name", lots, ParkingLot::getName);
+                stringColumn(out, "street", lots, ParkingLot::getStreet);
+                intColumn(out, "number", lots, ParkingLot::getNumber);
+                intColumn(out, "cityID", lots, p -> p.getCity() == null ? null : p.getCity().getId());
+                intColumn(out, "availableSpaces", lots, ParkingLot::getAvailableSpaces);
+                boolColumn(out, "isActive", lots, ParkingLot::isActive);
+                intColumn(out, "rowVersion", lots, ParkingLot::getRowVersion);
+
+                table(out, "Conveyor", conveyors.size(), 10);
+                intColumn(out, "ID", conveyors, Conveyor::getId);
+                intColumn(out, "parkingLotID", conveyors, Conveyor::getParkingLotId);
+                intColumn(out, "floor", conveyors, Conveyor::getFloorNumber);
+                intColumn(out, "x", conveyors, Conveyor::getX);
+                intColumn(out, "y", conveyors, Conveyor::getY);
+                intColumn(out, "maxWeight", conveyors, Conveyor::getMaxVehicleWeightKg);
+                stringColumn(out, "status", conveyors, c -> c.getStatus() == null ? null : c.getStatus().name());
+                stringColumn(out, "lastStatus", conveyors, c -> c.getLastStatus() == null ? null : c.getLastStatus().name());
+                boolColumn(out, "isActive", conveyors, Conveyor::isActive);
+                intColumn(out, "rowVersion", conveyors, Conveyor::getRowVersion);
+
+                table(out, "PriceList", priceLists.size(), 5);
+                intColumn(out, "ID", priceLists, PriceList::getId);
+                intColumn(out, "year", priceLists, PriceList::getYear);
+                doubleColumn(out, "firstHourPrice", priceLists, PriceList::getFirstHourPrice);
+                doubleColumn(out, "additionalHourPrice", priceLists, PriceList::getAdditionalHourPrice);
+                doubleColumn(out, "fullDayPrice", priceLists, PriceList::getFullDayPrice);
+
+                table(out, "PriceHistory", history.size(), 5);
+                intColumn(out, "ID", history, PriceHistory::getId);
+                intColumn(out, "parkingLotID", history, PriceHistory::getParkingLotId);
+                intColumn(out, "priceListID", history, PriceHistory::getPriceListId);
+                dateColumn(out, "effectiveFrom", history, PriceHistory::getEffectiveFrom);
+                dateColumn(out, "effectiveTo", history, PriceHistory::getEffectiveTo);
+            }
+
+            try {
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                // old snapshot still mapped (Windows): open() moves this one into place next time
+                Files.move(tmp, pending(file), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static Path pending(Path file) {
+        return file.resolveSibling(file.getFileName() + ".new");
+    }
+
+    private static void table(DataOutputStream out, String name, int rows, int columns) throws IOException {
+        writeString(out, name);
+        out.writeInt(rows);
+        out.writeInt(columns);
+    }
+
+    private static <T> void intColumn(DataOutputStream out, String name, List<T> rows,
+                                      Function<T, Integer> value) throws IOException {
+        writeString(out, name);
+        out.writeByte(INT);
+        for (T row : rows) {
+            Integer v = value.apply(row);
+            out.writeInt(v == null ? NULL_INT : v);
+        }
+    }
+
+    private static <T> void doubleColumn(DataOutputStream out, String name, List<T> rows,
+                                         ToDoubleFunction<T> value) throws IOException {
+        writeString(out, name);
+        out.writeByte(DOUBLE);
+        for (T row : rows) out.writeDouble(value.applyAsDouble(row));
+    }
+
+    private static <T> void boolColumn(DataOutputStream out, String name, List<T> rows,
+                                       Predicate<T> value) throws IOException {
+        writeString(out, name);
+        out.writeByte(BOOL);
+        for (T row : rows) out.writeByte(value.test(row) ? 1 : 0);
+    }
+
+    private static <T> void dateColumn(DataOutputStream out, String name, List<T> rows,
+                                       Function<T, LocalDate> value) throws IOException {
+        writeString(out, name);
+        out.writeByte(DATE);
+        for (T row : rows) {
+            LocalDate d = value.apply(row);
+            out.writeInt(d == null ? NULL_INT : Math.toIntExact(d.toEpochDay()));
+        }
+    }
+
+    private static <T> void stringColumn(DataOutputStream out, String name, List<T> rows,
+                                         Function<T, String> value) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        int[] codes = new int[rows.size()];
+        for (int i = 0; i < codes.length; i++) {
+            String v = value.apply(rows.get(i));
+            codes[i] = v == null ? -1 : dictionary.computeIfAbsent(v, k -> dictionary.size());
+        }
+
+        writeString(out, name);
+        out.writeByte(STR);
+        out.writeInt(dictionary.size());
+        for (String s : dictionary.keySet()) writeString(out, s);
+        for (int code : codes) out.writeInt(code);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // ----------------- read -----------------
+
+    /**
+     * Maps {@code file} and reads its table directory.
+     *
+     * @throws IOException if the file is missing, truncated or not a snapshot of this format
+     */
+    public static Snapshot open(Path file) throws IOException {
+        Path pending = pending(file);
+        if (Files.exists(pending)) {
+            try {
+                Files.move(pending, file, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                file = pending;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException("Snapshot too large: " + file);
+
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            try {
+                return new Snapshot(file, mapped);
+            } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new IOException("Corrupt snapshot file: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * An opened snapshot. Read-only and safe for concurrent use (absolute reads only).
+     */
+    public static final class Snapshot implements ReadSource {
+
+        private final Path file;
+        private final ByteBuffer data;
+        private final Instant createdAt;
+        private final Map<String, TableView> tables = new HashMap<>();
+
+        private Snapshot(Path file, ByteBuffer data) throws IOException {
+            this.file = file;
+            this.data = data;
+
+            ByteBuffer in = data.duplicate();
+            byte[] magic = new byte[MAGIC.length];
+            in.get(magic);
+            if (!java.util.Arrays.equals(magic, MAGIC)) throw new IOException("Not a snapshot file: " + file);
+
+            int version = in.getInt();
+            if (version != FORMAT_VERSION) throw new IOException("Unsupported snapshot version " + version + ": " + file);
+
+            createdAt = Instant.ofEpochMilli(in.getLong());
+
+            int tableCount = in.getInt();
+            for (int t = 0; t < tableCount; t++) {
+                TableView table = new TableView(readString(in, in.position()), in);
+                tables.put(table.name, table);
+            }
+        }
+
+        public Path getFile() { return file; }
+        public Instant getCreatedAt() { return createdAt; }
+
+        @Override
+        public List<City> getCities() {
+            TableView t = table("City");
+            ColumnView id = t.column("ID");
+            ColumnView name = t.column("cityName");
+
+            List<City> list = new ArrayList<>(t.rows);
+            for (int r = 0; r < t.rows; r++) {
+                list.add(new City(id.intAt(data, r), name.stringAt(data, r)));
+            }
+            return list;
+        }
+
+        @Override
+        public List<ParkingLot> getParkingLots() {
+            Map<Integer, String> cityNames = new HashMap<>();
+            for (City c : getCities()) cityNames.put(c.getId(), c.getCityName());
+
+            TableView t = table("ParkingLot");
+            List<ParkingLot> list = new ArrayList<>(t.rows);
+            for (int r = 0; r < t.rows; r++) list.add(parkingLot(t, r, cityNames));
+            return list;
+        }
+
+        @Override
+        public ParkingLot getParkingLot(int id) {
+            TableView t = table("ParkingLot");
+            ColumnView ids = t.column("ID");
+            for (int r = 0; r < t.rows; r++) {
+                if (ids.intAt(data, r) != id) continue;
+
+                Map<Integer, String> cityNames = new HashMap<>();
+                for (City c : getCities()) cityNames.put(c.getId(), c.getCityName());
+                return parkingLot(t, r, cityNames);
+            }
+            return null;
+        }
+
+        @Override
+        public List<Conveyor> getConveyors() {
+            TableView t = table("Conveyor");
+            List<Conveyor> list = new ArrayList<>(t.rows);
+            for (int r = 0; r < t.rows; r++) list.add(conveyor(t, r));
+            return list;
+        }
+
+        /** Scans only the parkingLotID column; rows of other lots are not decoded. */
+        @Override
+        public List<Conveyor> getConveyorsByParkingLot(int parkingLotId) {
+            TableView t = table("Conveyor");
+            ColumnView lot = t.column("parkingLotID");
+            List<Conveyor> list = new ArrayList<>();
+            for (int r = 0; r < t.rows; r++) {
+                if (lot.intAt(data, r) == parkingLotId) list.add(conveyor(t, r));
+            }
+            return list;
+        }
+
+        @Override
+        public List<PriceList> getPriceLists() {
+            TableView t = table("PriceList");
+            ColumnView id = t.column("ID");
+            ColumnView year = t.column("year");
+            ColumnView first = t.column("firstHourPrice");
+            ColumnView additional = t.column("additionalHourPrice");
+            ColumnView fullDay = t.column("fullDayPrice");
+
+            List<PriceList> list = new ArrayList<>(t.rows);
+            for (int r = 0; r < t.rows; r++) {
+                list.add(new PriceList(id.intAt(data, r), year.intAt(data, r),
+                        first.doubleAt(data, r), additional.doubleAt(data, r), fullDay.doubleAt(data, r)));
+            }
+            return list;
+        }
+
+        @Override
+        public List<PriceHistory> getPriceHistory() {
+            TableView t = table("PriceHistory");
+            List<PriceHistory> list = new ArrayList<>(t.rows);
+            for (int r = 0; r < t.rows; r++) list.add(history(t, r));
+            return list;
+        }
+
+        /** Scans only the parkingLotID column; rows of other lots are not decoded. */
+        @Override
+        public List<PriceHistory> getPriceHistoryForParkingLot(int parkingLotId) {
+            TableView t = table("PriceHistory");
+            ColumnView lot = t.column("parkingLotID");
+            List<PriceHistory> list = new ArrayList<>();
+            for (int r = 0; r < t.rows; r++) {
+                if (lot.intAt(data, r) == parkingLotId) list.add(history(t, r));
+            }
+            return list;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot " + file + " (" + createdAt + ")";
+        }
+
+        private ParkingLot parkingLot(TableView t, int r, Map<Integer, String> cityNames) {
+            Integer cityId = t.column("cityID").nullableIntAt(data, r);
+            City city = cityId == null || !cityNames.containsKey(cityId) ? null : new City(cityId, cityNames.get(cityId));
+
+            ParkingLot lot = new ParkingLot(
+                    t.column("ID").intAt(data, r),
+                    t.column("name").stringAt(data, r),
+                    t.column("street").stringAt(data, r),
+                    t.column("number").nullableIntAt(data, r),
+                    city,
+                    t.column("availableSpaces").intAt(data, r),
+                    t.column("isActive").boolAt(data, r));
+            lot.setRowVersion(t.column("rowVersion").intAt(data, r));
+            return lot;
+        }
+
+        private Conveyor conveyor(TableView t, int r) {
+            Conveyor c = new Conveyor(
+                    t.column("ID").intAt(data, r),
+                    t.column("parkingLotID").intAt(data, r),
+                    t.column("floor").nullableIntAt(data, r),
+                    t.column("x").nullableIntAt(data, r),
+                    t.column("y").nullableIntAt(data, r),
+                    t.column("maxWeight").intAt(data, r),
+                    ConveyorManagementController.parseStatus(t.column("status").stringAt(data, r)),
+                    ConveyorManagementController.safeParseLastStatus(t.column("lastStatus").stringAt(data, r)),
+                    t.column("isActive").boolAt(data, r));
+            c.setRowVersion(t.column("rowVersion").intAt(data, r));
+            return c;
+        }
+
+        private PriceHistory history(TableView t, int r) {
+            return new PriceHistory(
+                    t.column("ID").intAt(data, r),
+                    t.column("parkingLotID").intAt(data, r),
+                    t.column("priceListID").intAt(data, r),
+                    t.column("effectiveFrom").dateAt(data, r),
+                    t.column("effectiveTo").dateAt(data, r));
+        }
+
+        private TableView table(String name) {
+            TableView t = tables.get(name);
+            if (t == null) throw new IllegalStateException("Snapshot has no table " + name + ": " + file);
+            return t;
+        }
+    }
+
+    /** Table directory entry: row count + columns by name. */
+    private static final class TableView {
+        final String name;
+        final int rows;
+        final Map<String, ColumnView> columns = new HashMap<>();
+
+        /** Reads the table at {@code in} (positioned after the name) and skips past its data. */
+        TableView(String name, ByteBuffer in) throws IOException {
+            this.name = name;
+            this.rows = in.getInt();
+            int columnCount = in.getInt();
+            for (int c = 0; c < columnCount; c++) {
+                String columnName = readString(in, in.position());
+                ColumnView column = new ColumnView(in.get(), in, rows);
+                columns.put(columnName, column);
+            }
+        }
+
+        ColumnView column(String columnName) {
+            ColumnView c = columns.get(columnName);
+            if (c == null) throw new IllegalStateException("Snapshot table " + name + " has no column " + columnName);
+            return c;
+        }
+    }
+
+    /** One column: type, absolute offset of its values, decoded dictionary for STR. */
+    private static final class ColumnView {
+        final byte type;
+        final int offset;
+        final String[] dictionary;
+
+        ColumnView(byte type, ByteBuffer in, int rows) throws IOException {
+            this.type = type;
+
+            if (type == STR) {
+                dictionary = new String[in.getInt()];
+                for (int i = 0; i < dictionary.length; i++) dictionary[i] = readString(in, in.position());
+            } else {
+                dictionary = null;
+            }
+
+            offset = in.position();
+            in.position(offset + rows * width(type));
+        }
+
+        int intAt(ByteBuffer data, int row) {
+            int v = data.getInt(offset + row * 4);
+            return v == NULL_INT ? 0 : v;
+        }
+
+        Integer nullableIntAt(ByteBuffer data, int row) {
+            int v = data.getInt(offset + row * 4);
+            return v == NULL_INT ? null : v;
+        }
+
+        double doubleAt(ByteBuffer data, int row) {
+            return data.getDouble(offset + row * 8);
+        }
+
+        boolean boolAt(ByteBuffer data, int row) {
+            return data.get(offset + row) != 0;
+        }
+
+        LocalDate dateAt(ByteBuffer data, int row) {
+            int v = data.getInt(offset + row * 4);
+            return v == NULL_INT ? null : LocalDate.ofEpochDay(v);
+        }
+
+        String stringAt(ByteBuffer data, int row) {
+            int code = data.getInt(offset + row * 4);
+            return code < 0 ? null : dictionary[code];
+        }
+
+        private static int width(byte type) throws IOException {
+            switch (type) {
+                case INT:
+                case DATE:
+                case STR:
+                    return 4;
+                case DOUBLE:
+                    return 8;
+                case BOOL:
+                    return 1;
+                default:
+                    throw new IOException("Unknown snapshot column type " + type);
+            }
+        }
+    }
+
+    /** Reads a length-prefixed UTF-8 string starting at {@code at} and moves {@code in} past it. */
+    private static String readString(ByteBuffer in, int at) {
+        int length = in.getInt(at);
+        if (length < 0) throw new IllegalArgumentException("negative string length");
+        byte[] bytes = new byte[length];
+        in.position(at + 4);
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,195 @@
+package control;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SoftDeleteArchiver
+ * ------------------
+ * Moves soft-deleted rows (isActive=False) out of the hot tables (Main --archive):
+ *
+ * - inactive conveyors -> ConveyorArchive
+ * - inactive parking lots -> ParkingLotArchive, with their PriceHistory rows -> PriceHistoryArchive;
+ *   a lot moves once none of its conveyors is left in Conveyor (conveyors go first)
+ * - rows still referenced by ParkingSession / ParkingSpot / PreferredParkingLot stay where they are
+ *   (enforced relationships) and are counted as skipped
+ * - batches of batchSize lots / conveyors, one transaction each: INSERT INTO ...Archive SELECT, DELETE
+ *
+ * The archive tables (SchemaMigrator 6) have the columns of the hot tables, the same IDs and archivedAt.
+ * Controllers read them only for includeInactive=true (getAllParkingLots, getConveyorsByParkingLot).
+ */
+public final class SoftDeleteArchiver {
+
+    public static final int DEFAULT_BATCH_SIZE = 200;
+
+    static final String ARCHIVED_AT = "archivedAt";
+
+    // table, column: rows that keep a lot / conveyor in the hot table
+    private static final String[][] LOT_REFERENCES = {
+            { "ParkingSession", "parkingLotID" }, { "ParkingSpot", "parkingLotID" },
+            { "PreferredParkingLot", "parkingLotID" } };
+    private static final String[][] CONVEYOR_REFERENCES = { { "ParkingSession", "conveyorID" } };
+
+    public static final class Result {
+        public final int conveyors;
+        public final int parkingLots;
+        public final int priceHistory;
+        public final int skipped;      // inactive lots / conveyors left in the hot tables
+
+        Result(int conveyors, int parkingLots, int priceHistory, int skipped) {
+            this.conveyors = conveyors;
+            this.parkingLots = parkingLots;
+            this.priceHistory = priceHistory;
+            this.skipped = skipped;
+        }
+
+        @Override
+        public String toString() {
+            return "archived " + parkingLots + " parking lots, " + conveyors + " conveyors, "
+                    + priceHistory + " price history rows; " + skipped + " inactive rows still referenced";
+        }
+    }
+
+    private final AccessDb db;
+    private final int batchSize;
+
+    public SoftDeleteArchiver(AccessDb db, int batchSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("batchSize must be > 0");
+        this.db = db;
+        this.batchSize = batchSize;
+    }
+
+    /** Name of the archive table of a hot table. */
+    public static String archiveTable(String table) {
+        return table + "Archive";
+    }
+
+    public Result run() {
+        try (Connection conn = db.open()) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+
+            List<Integer> conveyorIds = ids(conn,
+                    "SELECT c.[ID] FROM Conveyor c WHERE c.[isActive]=False"
+                            + notReferenced(conn, "c", CONVEYOR_REFERENCES) + " ORDER BY c.[ID]");
+            int conveyors = 0;
+            for (List<Integer> batch : batches(conveyorIds)) {
+                conn.setAutoCommit(false);
+                conveyors += move(conn, "Conveyor", "ID", batch, now);
+                conn.commit();
+            }
+
+            List<Integer> lotIds = ids(conn,
+                    "SELECT p.[ID] FROM ParkingLot p WHERE p.[isActive]=False "
+                            + "AND NOT EXISTS (SELECT 1 FROM Conveyor c WHERE c.[ParkingLotID]=p.[ID])"
+                            + notReferenced(conn, "p", LOT_REFERENCES) + " ORDER BY p.[ID]");
+            int lots = 0;
+            int history = 0;
+            for (List<Integer> batch : batches(lotIds)) {
+                conn.setAutoCommit(false);
+                history += move(conn, "PriceHistory", "parkingLotID", batch, now);
+                lots += move(conn, "ParkingLot", "ID", batch, now);
+                conn.commit();
+            }
+            conn.setAutoCommit(true);
+
+            int skipped = count(conn, "SELECT COUNT(*) FROM Conveyor WHERE [isActive]=False")
+                    + count(conn, "SELECT COUNT(*) FROM ParkingLot WHERE [isActive]=False");
+            return new Result(conveyors, lots, history, skipped);
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to archive inactive rows: " + e.getMessage(), e);
+        }
+    }
+
+    /** Copies the rows whose keyColumn is in ids to the archive table, then deletes them. @return rows moved */
+    private static int move(Connection conn, String table, String keyColumn, List<Integer> ids, Timestamp now)
+            throws SQLException {
+        String columns = columns(conn, table);
+        String in = "[" + keyColumn + "] IN (" + placeholders(ids.size()) + ")";
+
+        try (PreparedStatement insert = conn.prepareStatement(
+                "INSERT INTO " + archiveTable(table) + " (" + columns + ", [" + ARCHIVED_AT + "]) "
+                        + "SELECT " + columns + ", ? FROM " + table + " WHERE " + in);
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM " + table + " WHERE " + in)) {
+
+            insert.setTimestamp(1, now);
+            for (int i = 0; i < ids.size(); i++) {
+                insert.setInt(i + 2, ids.get(i));
+                delete.setInt(i + 1, ids.get(i));
+            }
+            int copied = insert.executeUpdate();
+            int deleted = delete.executeUpdate();
+            if (copied != deleted) {
+                throw new SQLException(table + ": copied " + copied + " rows to the archive but deleted " + deleted);
+            }
+            return deleted;
+        }
+    }
+
+    /** [a], [b], ... of the hot table (the archive has the same columns + archivedAt). */
+    private static String columns(Connection conn, String table) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM " + table + " WHERE 1=0")) {
+            ResultSetMetaData md = rs.getMetaData();
+            StringBuilder sb = new StringBuilder();
+            for (int i = 1; i <= md.getColumnCount(); i++) {
+                if (i > 1) sb.append(", ");
+                sb.append('[').append(md.getColumnName(i)).append(']');
+            }
+            return sb.toString();
+        }
+    }
+
+    /** " AND NOT EXISTS (...)" for every referencing table this file has. */
+    private static String notReferenced(Connection conn, String alias, String[][] references) throws SQLException {
+        DatabaseMetaData md = conn.getMetaData();
+        StringBuilder sb = new StringBuilder();
+        for (String[] ref : references) {
+            try (ResultSet rs = md.getTables(null, null, ref[0].toUpperCase(), null)) {
+                if (!rs.next()) continue;
+            }
+            sb.append(" AND NOT EXISTS (SELECT 1 FROM ").append(ref[0]).append(" r WHERE r.[")
+                    .append(ref[1]).append("]=").append(alias).append(".[ID])");
+        }
+        return sb.toString();
+    }
+
+    private List<List<Integer>> batches(List<Integer> ids) {
+        List<List<Integer>> out = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            out.add(ids.subList(from, Math.min(ids.size(), from + batchSize)));
+        }
+        return out;
+    }
+
+    private static List<Integer> ids(Connection conn, String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) ids.add(rs.getInt(1));
+        }
+        return ids;
+    }
+
+    private static int count(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder(count * 2);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(',');
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
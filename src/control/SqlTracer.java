@@ -0,0 +1,193 @@
+package control;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.FileHandler;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * SqlTracer
+ * ---------
+ * Receives one event per executed statement from the connections handed out by
+ * AccessDb when tracing is on (see TracingConnection):
+ *   SQL text, bind parameters, execution time, rows returned/affected, calling controller method.
+ *
+ * - statements at or above the threshold go to a rotating slow-query log (java.util.logging FileHandler)
+ * - every SQL text is aggregated (count, total/max time, rows) for a top-N summary by total time
+ *
+ * System properties (see {@link #fromSystemProperties()}):
+ *   parkwise.sqlTrace            true = tracing on (default off)
+ *   parkwise.sqlTrace.slowMs     slow-query threshold in ms (default 50)
+ *   parkwise.sqlTrace.log        log file pattern (default logs/slow-sql.%g.log)
+ *   parkwise.sqlTrace.limitBytes bytes per log file before rotating (default 5 MB)
+ *   parkwise.sqlTrace.files      number of rotated files (default 5)
+ */
+public final class SqlTracer {
+
+    /** Aggregated statistics of one SQL text. */
+    public static final class Stats {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+        private volatile String lastCaller;
+
+        Stats(String sql) {
+            this.sql = sql;
+        }
+
+        public String getSql() { return sql; }
+        public long getCount() { return count.sum(); }
+        public long getTotalNanos() { return totalNanos.sum(); }
+        public long getMaxNanos() { return maxNanos.get(); }
+        public long getRows() { return rows.sum(); }
+        public long getSlowCount() { return slow.sum(); }
+        public String getLastCaller() { return lastCaller; }
+
+        public double getAvgMillis() {
+            long n = getCount();
+            return n == 0 ? 0 : getTotalNanos() / 1_000_000d / n;
+        }
+    }
+
+    private static final int MAX_PARAM_LENGTH = 80;
+
+    private final long slowThresholdNanos;
+    // published to directly (not via a Logger): HSQLDB re-reads the JUL configuration on
+    // startup, which removes handlers and levels from all registered loggers
+    private final Handler slowLog;
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * @param slowThresholdMillis statements at or above this go to the slow log
+     * @param slowLogPattern FileHandler pattern (e.g. "logs/slow-sql.%g.log"), null = no slow log file
+     */
+    public SqlTracer(long slowThresholdMillis, String slowLogPattern, int limitBytes, int files) throws IOException {
+        this.slowThresholdNanos = slowThresholdMillis * 1_000_000L;
+
+        if (slowLogPattern == null || slowLogPattern.isBlank()) {
+            this.slowLog = null;
+        } else {
+            Path parent = Paths.get(slowLogPattern).toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+
+            FileHandler handler = new FileHandler(slowLogPattern, limitBytes, Math.max(1, files), true);
+            handler.setEncoding("UTF-8");
+            handler.setFormatter(new Formatter() {
+                @Override
+                public String format(LogRecord r) {
+                    return Instant.ofEpochMilli(r.getMillis()) + " " + r.getMessage() + System.lineSeparator();
+                }
+            });
+            this.slowLog = handler;
+        }
+    }
+
+    /** Tracer configured from parkwise.sqlTrace.* properties, or null when tracing is off. */
+    public static SqlTracer fromSystemProperties() {
+        if (!Boolean.getBoolean("parkwise.sqlTrace")) return null;
+        try {
+            return new SqlTracer(
+                    Long.getLong("parkwise.sqlTrace.slowMs", 50L),
+                    System.getProperty("parkwise.sqlTrace.log", "logs/slow-sql.%g.log"),
+                    Integer.getInteger("parkwise.sqlTrace.limitBytes", 5 * 1024 * 1024),
+                    Integer.getInteger("parkwise.sqlTrace.files", 5));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    public long getSlowThresholdMillis() {
+        return slowThresholdNanos / 1_000_000L;
+    }
+
+    /**
+     * Called once per executed statement (batch = one event).
+     * @param rows rows returned (queries) or affected (updates), -1 if unknown
+     */
+    void record(String sql, List<Object> params, long elapsedNanos, long rows, String caller) {
+        String key = sql == null ? "?" : sql;
+        Stats s = stats.get(key);
+        if (s == null) s = stats.computeIfAbsent(key, Stats::new);
+
+        s.count.increment();
+        s.totalNanos.add(elapsedNanos);
+        if (elapsedNanos > s.maxNanos.get()) s.maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        if (rows > 0) s.rows.add(rows);
+        s.lastCaller = caller;
+
+        if (elapsedNanos >= slowThresholdNanos) {
+            s.slow.increment();
+            if (slowLog != null) {
+                slowLog.publish(new LogRecord(Level.INFO, String.format(Locale.ROOT,
+                        "%.1f ms rows=%d caller=%s sql=%s params=%s",
+                        elapsedNanos / 1_000_000d, rows, caller, oneLine(key), formatParams(params))));
+            }
+        }
+    }
+
+    /** SQL texts ordered by total execution time (descending). */
+    public List<Stats> topByTotalTime(int n) {
+        List<Stats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparingLong(Stats::getTotalNanos).reversed());
+        return all.subList(0, Math.min(Math.max(0, n), all.size()));
+    }
+
+    /** Human-readable top-N table. */
+    public String formatSummary(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%10s %8s %10s %10s %9s %6s  %s%n",
+                "total ms", "count", "avg ms", "max ms", "rows", "slow", "caller / sql"));
+        for (Stats s : topByTotalTime(n)) {
+            sb.append(String.format(Locale.ROOT, "%10.1f %8d %10.2f %10.2f %9d %6d  %s%n",
+                    s.getTotalNanos() / 1_000_000d, s.getCount(), s.getAvgMillis(), s.getMaxNanos() / 1_000_000d,
+                    s.getRows(), s.getSlowCount(), s.getLastCaller()));
+            sb.append(String.format(Locale.ROOT, "%59s  %s%n", "", oneLine(s.getSql())));
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        stats.clear();
+    }
+
+    private static String oneLine(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    private static String formatParams(List<Object> params) {
+        if (params == null || params.isEmpty()) return "[]";
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) sb.append(", ");
+            Object v = params.get(i);
+            if (v == null) {
+                sb.append("NULL");
+            } else if (v instanceof CharSequence) {
+                String t = v.toString();
+                if (t.length() > MAX_PARAM_LENGTH) t = t.substring(0, MAX_PARAM_LENGTH) + "...";
+                sb.append('\'').append(t).append('\'');
+            } else {
+                sb.append(v);
+            }
+        }
+        return sb.append(']').toString();
+    }
+}
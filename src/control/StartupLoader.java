@@ -0,0 +1,149 @@
+package control;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import entity.City;
+import entity.ParkingLot;
+
+/**
+ * StartupLoader
+ * -------------
+ * Application warm-up off the EDT:
+ *
+ *   1. open the DB once (UCanAccess loads the file on the first connection; the other
+ *      steps wait for it instead of racing to load it several times)
+ *   2. in parallel: cities, active parking lots, price list cache, effective price index,
+ *      parking lot search index (typeahead)
+ *
+ * Progress is reported after every step; the result carries the loaded data so the
+ * dashboard does not query it again.
+ *
+ * With an interim ReadSource (snapshot file) the controllers answer reads from it while the
+ * DB opens, and go back to the DB once it is open; the loaded data always comes from the DB.
+ * In offline read-only mode (AccessDb.isReadOnly) the DB is not opened at all and everything
+ * is loaded from the AccessDb's read source.
+ */
+public class StartupLoader {
+
+    /** Progress callback; called from background threads. */
+    public interface ProgressListener {
+        void onProgress(int done, int total, String step);
+    }
+
+    /** Data loaded at startup (handed to the dashboard). */
+    public static final class StartupData {
+        private final List<City> cities;
+        private final List<ParkingLot> parkingLots;
+        private final long elapsedMillis;
+
+        StartupData(List<City> cities, List<ParkingLot> parkingLots, long elapsedMillis) {
+            this.cities = cities;
+            this.parkingLots = parkingLots;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public List<City> getCities() { return cities; }
+        public List<ParkingLot> getParkingLots() { return parkingLots; }
+        public long getElapsedMillis() { return elapsedMillis; }
+    }
+
+    private static final int TOTAL_STEPS = 6;
+
+    private final AccessDb db;
+    private final CityManagement cityController;
+    private final ParkingLotManagement parkingLotController;
+    private final PriceListManagement priceListController;
+    private final PriceHistoryManagement priceHistoryController;
+
+    private ReadSource interimSource;
+
+    public StartupLoader(AccessDb db,
+                         CityManagement cityController,
+                         ParkingLotManagement parkingLotController,
+                         PriceListManagement priceListController,
+                         PriceHistoryManagement priceHistoryController) {
+        this.db = db;
+        this.cityController = cityController;
+        this.parkingLotController = parkingLotController;
+        this.priceListController = priceListController;
+        this.priceHistoryController = priceHistoryController;
+    }
+
+    /** Serves reads from {@code source} until the DB is open. */
+    public StartupLoader withInterimSource(ReadSource source) {
+        this.interimSource = source;
+        return this;
+    }
+
+    /**
+     * Starts loading and returns immediately.
+     * The future fails if the DB cannot be opened or any step fails.
+     */
+    public CompletableFuture<StartupData> start(ProgressListener listener) {
+        long start = System.nanoTime();
+        AtomicInteger done = new AtomicInteger();
+        ProgressListener progress = listener != null ? listener : (d, t, s) -> {};
+
+        ExecutorService executor = Executors.newFixedThreadPool(4, r -> {
+            Thread t = new Thread(r, "parkwise-startup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        boolean offline = db.isReadOnly();
+        ReadSource interim = offline ? null : interimSource;
+        if (interim != null) db.setReadSource(interim);
+
+        CompletableFuture<Void> dbReady = CompletableFuture.runAsync(() -> {
+            if (offline) {
+                progress.onProgress(done.incrementAndGet(), TOTAL_STEPS, "Offline snapshot opened");
+                return;
+            }
+            try {
+                db.open().close(); // DB OK
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to open database: " + e.getMessage(), e);
+            }
+            if (interim != null && db.getReadSource() == interim) db.setReadSource(null);
+            progress.onProgress(done.incrementAndGet(), TOTAL_STEPS, "Database opened");
+        }, executor);
+
+        CompletableFuture<List<City>> cities =
+                step(dbReady, executor, cityController::getAllCities, "Cities loaded", done, progress);
+        CompletableFuture<List<ParkingLot>> lots =
+                step(dbReady, executor, () -> parkingLotController.getAllParkingLots(false), "Parking lots loaded", done, progress);
+        CompletableFuture<Object> priceLists = step(dbReady, executor, () -> {
+            // reload, not getAllPriceLists: the cache may hold interim (snapshot) data
+            priceListController.reload();
+            return null;
+        }, "Price lists loaded", done, progress);
+        CompletableFuture<Object> priceIndex = step(dbReady, executor, () -> {
+            priceHistoryController.reloadPriceIndex();
+            return null;
+        }, "Price assignments loaded", done, progress);
+        CompletableFuture<Object> searchIndex = step(dbReady, executor, () -> {
+            parkingLotController.loadSearchIndex();
+            return null;
+        }, "Search index loaded", done, progress);
+
+        return CompletableFuture.allOf(cities, lots, priceLists, priceIndex, searchIndex)
+                .thenApply(v -> new StartupData(cities.join(), lots.join(), (System.nanoTime() - start) / 1_000_000))
+                .whenComplete((r, e) -> executor.shutdown());
+    }
+
+    private static <T> CompletableFuture<T> step(CompletableFuture<Void> after, ExecutorService executor,
+                                                 Supplier<? extends T> body, String name,
+                                                 AtomicInteger done, ProgressListener progress) {
+        return after.thenApplyAsync(v -> {
+            T result = body.get();
+            progress.onProgress(done.incrementAndGet(), TOTAL_STEPS, name);
+            return result;
+        }, executor);
+    }
+}
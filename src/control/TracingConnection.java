@@ -0,0 +1,264 @@
+package control;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * TracingConnection
+ * -----------------
+ * java.lang.reflect.Proxy wrappers around Connection / Statement / PreparedStatement / ResultSet
+ * that report every executed statement to a SqlTracer:
+ *
+ * - updates / batches: one event at execute time, rows = update count (sum for batches)
+ * - queries: one event when the ResultSet (or its statement) is closed,
+ *   time = execute + time spent in next(), rows = rows read
+ * - caller = first controller frame on the stack when the statement was created
+ *   (lambda frames are mapped back to the method that declares the lambda)
+ *
+ * No controller code changes: AccessDb.open() returns the wrapped connection when a tracer is set.
+ */
+final class TracingConnection {
+
+    private TracingConnection() {}
+
+    static Connection wrap(Connection conn, SqlTracer tracer) {
+        return proxy(Connection.class, new ConnectionHandler(conn, tracer));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(TracingConnection.class.getClassLoader(), new Class<?>[] { type }, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ----------------- Connection -----------------
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        private final SqlTracer tracer;
+
+        ConnectionHandler(Connection target, SqlTracer tracer) {
+            this.target = target;
+            this.tracer = tracer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            Object result = TracingConnection.invoke(target, method, args);
+
+            if (result instanceof Statement
+                    && (name.equals("prepareStatement") || name.equals("prepareCall") || name.equals("createStatement"))) {
+                String sql = (args != null && args.length > 0 && args[0] instanceof String) ? (String) args[0] : null;
+                StatementHandler h = new StatementHandler((Statement) result, sql, findCaller(), tracer, (Connection) proxy);
+                return proxy(method.getReturnType(), h);
+            }
+            return result;
+        }
+    }
+
+    // ----------------- Statement / PreparedStatement -----------------
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+        private final String caller;
+        private final SqlTracer tracer;
+        private final Connection connectionProxy;
+
+        private final List<Object> params = new ArrayList<>();
+        private final List<String> batchSql = new ArrayList<>();
+        private ResultSetHandler openResultSet;
+
+        StatementHandler(Statement target, String preparedSql, String caller, SqlTracer tracer, Connection connectionProxy) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+            this.caller = caller;
+            this.tracer = tracer;
+            this.connectionProxy = connectionProxy;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            int argc = args == null ? 0 : args.length;
+
+            // bind parameters: setXxx(int index, value, ...)
+            if (name.startsWith("set") && argc >= 2 && args[0] instanceof Integer
+                    && PreparedStatement.class.isAssignableFrom(method.getDeclaringClass())) {
+                int index = (Integer) args[0];
+                while (params.size() < index) params.add(null);
+                params.set(index - 1, name.equals("setNull") ? null : args[1]);
+                return TracingConnection.invoke(target, method, args);
+            }
+
+            switch (name) {
+                case "clearParameters":
+                    params.clear();
+                    return TracingConnection.invoke(target, method, args);
+
+                case "addBatch":
+                    batchSql.add(argc == 1 ? (String) args[0] : preparedSql);
+                    return TracingConnection.invoke(target, method, args);
+
+                case "clearBatch":
+                    batchSql.clear();
+                    return TracingConnection.invoke(target, method, args);
+
+                case "getConnection":
+                    return connectionProxy;
+
+                case "close":
+                    finishOpenResultSet();
+                    return TracingConnection.invoke(target, method, args);
+
+                case "executeQuery": {
+                    finishOpenResultSet();
+                    String sql = argc == 1 ? (String) args[0] : preparedSql;
+                    long start = System.nanoTime();
+                    ResultSet rs = (ResultSet) TracingConnection.invoke(target, method, args);
+                    openResultSet = new ResultSetHandler(rs, this, sql, new ArrayList<>(params), System.nanoTime() - start);
+                    return proxy(ResultSet.class, openResultSet);
+                }
+
+                case "executeUpdate":
+                case "executeLargeUpdate":
+                case "execute": {
+                    String sql = (argc >= 1 && args[0] instanceof String) ? (String) args[0] : preparedSql;
+                    long start = System.nanoTime();
+                    Object result = TracingConnection.invoke(target, method, args);
+                    long elapsed = System.nanoTime() - start;
+
+                    long rows;
+                    if (result instanceof Number) rows = ((Number) result).longValue();
+                    else if (Boolean.FALSE.equals(result)) rows = target.getUpdateCount();
+                    else rows = -1;
+
+                    tracer.record(sql, new ArrayList<>(params), elapsed, rows, caller);
+                    return result;
+                }
+
+                case "executeBatch":
+                case "executeLargeBatch": {
+                    long start = System.nanoTime();
+                    Object result = TracingConnection.invoke(target, method, args);
+                    long elapsed = System.nanoTime() - start;
+
+                    long rows = 0;
+                    if (result instanceof int[]) for (int c : (int[]) result) rows += Math.max(0, c);
+                    if (result instanceof long[]) for (long c : (long[]) result) rows += Math.max(0, c);
+
+                    String sql = batchSql.isEmpty() ? preparedSql : batchSql.get(0);
+                    tracer.record("[batch x" + batchSql.size() + "] " + sql, null, elapsed, rows, caller);
+                    batchSql.clear();
+                    return result;
+                }
+
+                default:
+                    return TracingConnection.invoke(target, method, args);
+            }
+        }
+
+        private void finishOpenResultSet() {
+            if (openResultSet != null) {
+                openResultSet.finish();
+                openResultSet = null;
+            }
+        }
+    }
+
+    // ----------------- ResultSet -----------------
+
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final StatementHandler statement;
+        private final String sql;
+        private final List<Object> params;
+
+        private long elapsedNanos;
+        private long rows;
+        private boolean finished;
+
+        ResultSetHandler(ResultSet target, StatementHandler statement, String sql, List<Object> params, long executeNanos) {
+            this.target = target;
+            this.statement = statement;
+            this.sql = sql;
+            this.params = params;
+            this.elapsedNanos = executeNanos;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next": {
+                    long start = System.nanoTime();
+                    Object more = TracingConnection.invoke(target, method, args);
+                    elapsedNanos += System.nanoTime() - start;
+                    if (Boolean.TRUE.equals(more)) rows++;
+                    return more;
+                }
+                case "close":
+                    finish();
+                    return TracingConnection.invoke(target, method, args);
+                default:
+                    return TracingConnection.invoke(target, method, args);
+            }
+        }
+
+        void finish() {
+            if (finished) return;
+            finished = true;
+            statement.tracer.record(sql, params, elapsedNanos, rows, statement.caller);
+        }
+    }
+
+    // ----------------- caller -----------------
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+
+    /** "ParkingLotManagementController.getParkingLot" for the first application frame. */
+    static String findCaller() {
+        Optional<StackWalker.StackFrame> frame = WALKER.walk(frames -> frames
+                .filter(f -> !isInfrastructure(f.getClassName()))
+                .findFirst());
+        if (frame.isEmpty()) return "?";
+
+        StackWalker.StackFrame f = frame.get();
+        String cls = f.getClassName();
+        cls = cls.substring(cls.lastIndexOf('.') + 1);
+        int inner = cls.indexOf('$');
+        if (inner > 0) cls = cls.substring(0, inner);
+
+        // lambda$getParkingLot$3 -> getParkingLot
+        String method = f.getMethodName();
+        if (method.startsWith("lambda$")) {
+            String rest = method.substring("lambda$".length());
+            int end = rest.indexOf('$');
+            method = end > 0 ? rest.substring(0, end) : rest;
+        }
+        return cls + "." + method;
+    }
+
+    private static boolean isInfrastructure(String cls) {
+        return cls.startsWith("java.") || cls.startsWith("jdk.") || cls.startsWith("sun.")
+                || cls.startsWith("com.sun.") || cls.startsWith("net.ucanaccess.") || cls.startsWith("org.hsqldb.")
+                || cls.startsWith("control.TracingConnection") || cls.equals("control.AccessDb")
+                || cls.equals("control.ControllerMetrics") || cls.startsWith("jdk.proxy") || cls.contains("$Proxy");
+    }
+}
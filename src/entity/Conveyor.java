@@ -10,7 +10,7 @@ package entity;
  * שינוי נוסף:
  * - Soft delete: added isActive (true/false)
  */
-public class Conveyor {
+public class Conveyor implements Versioned {
 
     private final int id;
     private int parkingLotId;
@@ -29,6 +29,9 @@ public class Conveyor {
     // ✅ NEW: soft delete flag
     private boolean isActive = true;
 
+    // optimistic locking: +1 on every write, updates check it (0 for rows written before the column existed)
+    private int rowVersion;
+
     // Existing constructor (KEEP) – no break
     public Conveyor(int id, int parkingLotId, Integer floorNumber,
                     Integer x, Integer y, int maxVehicleWeightKg,
@@ -89,6 +92,9 @@ public class Conveyor {
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
 
+    public int getRowVersion() { return rowVersion; }
+    public void setRowVersion(int rowVersion) { this.rowVersion = rowVersion; }
+
     @Override
     public String toString() {
         return "Conveyor #" + id +
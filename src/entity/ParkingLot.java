@@ -13,7 +13,7 @@ package entity;
  * שינוי נוסף:
  * - Soft delete: added isActive (true/false)
  */
-public class ParkingLot {
+public class ParkingLot implements Versioned {
 
     private final int id; // ID ייחודי – לא ניתן לשינוי
     private String name;
@@ -27,6 +27,9 @@ public class ParkingLot {
     // ✅ NEW: soft delete flag
     private boolean isActive = true;
 
+    // optimistic locking: +1 on every write, updates check it (0 for rows written before the column existed)
+    private int rowVersion;
+
     // Existing constructor kept, defaults isActive=true
     public ParkingLot(
             int id,
@@ -120,6 +123,9 @@ public class ParkingLot {
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { isActive = active; }
 
+    public int getRowVersion() { return rowVersion; }
+    public void setRowVersion(int rowVersion) { this.rowVersion = rowVersion; }
+
     @Override
     public String toString() {
         return name + " (" + city + ")";
@@ -0,0 +1,14 @@
+package entity;
+
+/**
+ * Versioned
+ * ---------
+ * A row with an ID and a RowVersion that updates check (optimistic locking):
+ * ParkingLot, Conveyor.
+ */
+public interface Versioned {
+
+    int getId();
+
+    int getRowVersion();
+}